@@ -458,4 +458,33 @@ public class AwsClientFactory {
       client = edda.wrapAwsClient(client);
     return client;
   }
+
+
+  public static EddaBundleClient newBundleClient() {
+    return newBundleClient(DEFAULT_VIP.get());
+  }
+
+  public static EddaBundleClient newBundleClient(String vip) {
+    AwsConfiguration config = config();
+    return newBundleClient(config, vip, NetflixEnvironment.region());
+  }
+
+  public static EddaBundleClient newBundleClient(AwsConfiguration config, String vip, String region) {
+    return new EddaBundleClient(config, vip, region);
+  }
+
+  public static EddaReadModelClient newReadModelClient() {
+    return newReadModelClient(DEFAULT_VIP.get());
+  }
+
+  public static EddaReadModelClient newReadModelClient(String vip) {
+    AwsConfiguration config = config();
+    return newReadModelClient(config, vip, NetflixEnvironment.region());
+  }
+
+  public static EddaReadModelClient newReadModelClient(
+    AwsConfiguration config, String vip, String region
+  ) {
+    return new EddaReadModelClient(config, vip, region);
+  }
 }
@@ -39,6 +39,138 @@ public interface AwsConfiguration extends IConfiguration {
   @DefaultValue("vip://edda-client:${vip}")
   public String url();
 
+  /** Number of snapshots to keep pinned for callers following next tokens */
+  @DefaultValue("4")
+  public int pinnedSnapshots();
+
+  /** How long a next token can be followed without refetching the pinned snapshot from edda */
+  @DefaultValue("PT5M")
+  public Duration pinnedSnapshotTtl();
+
+  /**
+   * Number of parsed results to keep so that a byte identical response from edda is not parsed
+   * again, 0 disables the cache. When enabled, the model objects in the results returned by the
+   * clients are shared with other callers and must be treated as read only. The lists are
+   * unmodifiable, but the objects in them can still be modified.
+   */
+  @DefaultValue("0")
+  public int resultCacheSize();
+
+  /**
+   * Should large collections such as images and instances be kept off heap as raw json? Items
+   * are decoded when accessed and lookups by id only decode the matching items.
+   *
+   * <p>The raw json is stored in 4MB direct buffers, the last one is trimmed to the size that is
+   * used. The buffers are only released when the garbage collector reclaims a snapshot that is
+   * no longer cached, so -XX:MaxDirectMemorySize should allow for at least two copies of the
+   * raw json of each cached collection, plus headroom if old gen collections are infrequent.
+   */
+  @DefaultValue("false")
+  public boolean useOffHeapSnapshots();
+
+  /**
+   * Should large collections such as images and instances be kept as lz4 compressed blocks of
+   * raw json? Only the blocks with items that are accessed are decompressed. Ignored if off heap
+   * snapshots are used.
+   */
+  @DefaultValue("false")
+  public boolean compressedSnapshots();
+
+  /** Number of decoded items to keep for each compressed snapshot */
+  @DefaultValue("1024")
+  public int compressedSnapshotCacheSize();
+
+  /**
+   * Should large collections such as images and instances be decoded lazily? The raw json for
+   * each item is kept and decoded the first time the item is accessed. Ignored if off heap or
+   * compressed snapshots are used.
+   */
+  @DefaultValue("false")
+  public boolean lazyDecoding();
+
+  /**
+   * Should the elements of large responses be decoded in parallel? Elements are decoded as tasks
+   * on the common fork join pool and put back in order.
+   */
+  @DefaultValue("false")
+  public boolean parallelDecoding();
+
+  /** Minimum number of elements in a response before it is decoded in parallel */
+  @DefaultValue("1000")
+  public int parallelDecodeThreshold();
+
+  /**
+   * Number of threads used to decode responses for the RxNetty clients, 0 means one per core.
+   * The decode pool is shared by all clients.
+   */
+  @DefaultValue("0")
+  public int decodeThreads();
+
+  /** Maximum number of responses waiting to be decoded before new requests are rejected */
+  @DefaultValue("100")
+  public int decodeQueueSize();
+
+  /**
+   * Should values of fields that are repeated across many resources, e.g. availabilityZone or
+   * instanceType, be deduplicated when decoding? The decoders are shared by all clients, so the
+   * setting for the first client created is used.
+   */
+  @DefaultValue("true")
+  public boolean internStrings();
+
+  /**
+   * Should describeInstanceHealth for a single load balancer be served from the health of all
+   * load balancers? The full view is fetched at most once per ttl and indexed by load balancer
+   * and by instance. Load balancers that are not in the cached view are fetched individually.
+   */
+  @DefaultValue("false")
+  public boolean bulkInstanceHealth();
+
+  /** How long the bulk instance health is used before it is fetched again */
+  @DefaultValue("PT10S")
+  public Duration instanceHealthTtl();
+
+  /**
+   * Should describeLoadBalancerAttributes be served from the attributes of all load balancers?
+   * The full view is fetched at most once per ttl and indexed by load balancer name. Load
+   * balancers that are not found in the index are fetched individually.
+   */
+  @DefaultValue("false")
+  public boolean bulkLoadBalancerAttributes();
+
+  /** How long the bulk load balancer attributes are used before they are fetched again */
+  @DefaultValue("PT10S")
+  public Duration loadBalancerAttributesTtl();
+
+  /**
+   * How long the record sets for all hosted zones are used before they are fetched again. The
+   * records are fetched together and indexed by zone, name and value.
+   */
+  @DefaultValue("PT10S")
+  public Duration hostedRecordsTtl();
+
+  /**
+   * Should describeImages be served from a cache of images partitioned by owner? Images are kept
+   * until they are deregistered and a refresh only fetches the images that are new.
+   */
+  @DefaultValue("false")
+  public boolean useImageCache();
+
+  /** How often the image cache checks for new or deregistered images */
+  @DefaultValue("PT1M")
+  public Duration imageCacheRefreshInterval();
+
+  /**
+   * How often the image cache fetches all images again. A refresh only fetches images that are
+   * new or pending, the reload picks up other changes such as tags or launch permissions.
+   */
+  @DefaultValue("PT1H")
+  public Duration imageCacheReloadInterval();
+
+  /** How often the poller should refresh collections that have subscribers */
+  @DefaultValue("PT10S")
+  public Duration pollInterval();
+
   /////////////////////////////////////////////////////////////////////////////
   // Settings below are used to setup amazon ClientConfiguration object
 
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import rx.Observable;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import com.netflix.edda.store.AutoScalingGroupColumns;
+import com.netflix.edda.store.InstanceColumns;
+
+/**
+ * Fetch the instances and auto scaling groups collections into columnar stores. The columns are
+ * built directly from the raw json elements on the decode scheduler so the full set of SDK
+ * objects is never created. Use the materialize methods on the stores to get SDK objects for the
+ * rows that are needed.
+ */
+public class ColumnarFleetClient extends EddaAwsRxNettyClient {
+  public ColumnarFleetClient(AwsConfiguration config, String vip, String region) {
+    super(config, vip, region);
+  }
+
+  protected String url(EddaCollection<?> collection) {
+    return config.url() + "/api/v2/" + collection.getPath() + ";_expand";
+  }
+
+  public Observable<InstanceColumns> instances() {
+    return Observable.defer(() -> {
+      EddaCollection<?> c = EddaCollection.INSTANCES;
+      return reduceElements(url(c), c.getMaxLength(), InstanceColumns::builder, (b, bb) -> {
+        try (JsonParser p = createParser(bb)) {
+          return b.addReservation(p);
+        }
+        catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }).map(b -> b.build());
+    });
+  }
+
+  public Observable<AutoScalingGroupColumns> autoScalingGroups() {
+    return Observable.defer(() -> {
+      EddaCollection<?> c = EddaCollection.AUTO_SCALING_GROUPS;
+      return reduceElements(url(c), c.getMaxLength(), AutoScalingGroupColumns::builder, (b, bb) -> {
+        try (JsonParser p = createParser(bb)) {
+          return b.addGroup(p);
+        }
+        catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }).map(b -> b.build());
+    });
+  }
+
+  /** Create a parser for the element, the buffer is released when the parser is closed. */
+  private JsonParser createParser(ByteBuf bb) throws IOException {
+    return JsonHelper.createParser(new ByteBufInputStream(bb) {
+      @Override public void close() throws IOException {
+        try {
+          super.close();
+        }
+        finally {
+          bb.release();
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+
+import com.amazonaws.AmazonClientException;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Spectator;
+import com.netflix.spectator.api.Timer;
+
+/**
+ * Bounded pool used to decode responses, filter them, and build the results so that the work
+ * does not run on the event loop used for I/O. A large response that is being decoded would
+ * otherwise stall all other requests sharing the event loop. If the queue is full, new work is
+ * rejected rather than building up an unbounded backlog of response bodies.
+ *
+ * <p>The pool is shared by all clients in the process and is sized using the config of the
+ * first client that needs it. Metrics:</p>
+ *
+ * <ul>
+ *   <li><b>edda.client.decodeQueueSize:</b> gauge with the number of responses waiting.</li>
+ *   <li><b>edda.client.decodeRejected:</b> counter for work rejected because the queue was
+ *       full.</li>
+ *   <li><b>edda.client.stageTime:</b> timer with a stage tag. The stages are {@code fetch}
+ *       (request until the full body has been received), {@code queue} (waiting for a decode
+ *       thread), and {@code decode} (decoding, filtering and building the result).</li>
+ * </ul>
+ */
+final class DecodeScheduler {
+
+  private static final AtomicReference<DecodeScheduler> SHARED =
+    new AtomicReference<DecodeScheduler>();
+
+  /** Return the scheduler shared by all clients, creating it if needed. */
+  static DecodeScheduler shared(AwsConfiguration config) {
+    DecodeScheduler scheduler = SHARED.get();
+    if (scheduler == null) {
+      int threads = config.decodeThreads();
+      if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+      DecodeScheduler created = new DecodeScheduler(
+        threads, config.decodeQueueSize(), Spectator.globalRegistry());
+      if (SHARED.compareAndSet(null, created)) {
+        scheduler = created;
+      }
+      else {
+        created.executor.shutdown();
+        scheduler = SHARED.get();
+      }
+    }
+    return scheduler;
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final Counter rejected;
+  private final Timer fetchTime;
+  private final Timer queueTime;
+  private final Timer decodeTime;
+
+  DecodeScheduler(int threads, int queueSize, Registry registry) {
+    final AtomicInteger next = new AtomicInteger();
+    ThreadFactory factory = r -> {
+      Thread t = new Thread(r, "edda-decode-" + next.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    };
+    BlockingQueue<Runnable> queue = new ArrayBlockingQueue<Runnable>(queueSize);
+    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue, factory);
+
+    registry.gauge(registry.createId("edda.client.decodeQueueSize"), queue, BlockingQueue::size);
+    rejected = registry.counter("edda.client.decodeRejected");
+    fetchTime = registry.timer("edda.client.stageTime", "stage", "fetch");
+    queueTime = registry.timer("edda.client.stageTime", "stage", "queue");
+    decodeTime = registry.timer("edda.client.stageTime", "stage", "decode");
+  }
+
+  /** Record the time taken to receive a response body. */
+  void recordFetch(long nanos) {
+    fetchTime.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Run the work on the pool. Operators applied to the returned observable will also run on the
+   * pool. The cleanup action is called if the work is rejected or the subscriber unsubscribes
+   * before it starts, e.g. to release the raw response.
+   */
+  <T> Observable<T> submit(final Func0<T> work, final Action0 cleanup) {
+    return Observable.create(subscriber -> {
+      final long queued = System.nanoTime();
+      try {
+        executor.execute(() -> {
+          final long start = System.nanoTime();
+          queueTime.record(start - queued, TimeUnit.NANOSECONDS);
+          if (subscriber.isUnsubscribed()) {
+            cleanup.call();
+            return;
+          }
+          try {
+            T value;
+            try {
+              value = work.call();
+            }
+            catch (Throwable t) {
+              subscriber.onError(t);
+              return;
+            }
+            subscriber.onNext(value);
+            subscriber.onCompleted();
+          }
+          finally {
+            decodeTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          }
+        });
+      }
+      catch (RejectedExecutionException e) {
+        rejected.increment();
+        cleanup.call();
+        subscriber.onError(new AmazonClientException("decode queue is full", e));
+      }
+    });
+  }
+}
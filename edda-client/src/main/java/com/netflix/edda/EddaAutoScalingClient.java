@@ -16,8 +16,10 @@
 package com.netflix.edda;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -25,7 +27,19 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.autoscaling.AmazonAutoScaling;
 import com.amazonaws.services.autoscaling.model.*;
 
+import com.netflix.edda.index.ListIndex;
+import com.netflix.edda.util.IdSet;
+
 public class EddaAutoScalingClient extends EddaAwsClient {
+  private final ListIndex.Cached<AutoScalingGroup> groupsByName =
+    ListIndex.cached(AutoScalingGroup::getAutoScalingGroupName);
+  private final ListIndex.Cached<AutoScalingGroup> groupsByInstance =
+    ListIndex.cachedMulti(EddaAutoScalingClient::instanceIds);
+  private final ListIndex.Cached<LaunchConfiguration> launchConfigurationsByName =
+    ListIndex.cached(LaunchConfiguration::getLaunchConfigurationName);
+  private final ListIndex.Cached<ScalingPolicy> policiesByGroup =
+    ListIndex.cached(ScalingPolicy::getAutoScalingGroupName);
+
   public EddaAutoScalingClient(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
   }
@@ -46,20 +60,18 @@ public class EddaAutoScalingClient extends EddaAwsClient {
     TypeReference<List<AutoScalingGroup>> ref = new TypeReference<List<AutoScalingGroup>>() {};
     String url = config.url() + "/api/v2/aws/autoScalingGroups;_expand";
     try {
-      List<AutoScalingGroup> autoScalingGroups = parse(ref, doGet(url));
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxRecords();
+      Snapshot<AutoScalingGroup> snapshot = doGetSnapshot(ref, url, token, max);
+      List<AutoScalingGroup> autoScalingGroups = snapshot.getItems();
 
       List<String> names = request.getAutoScalingGroupNames();
-      if (shouldFilter(names)) {
-        List<AutoScalingGroup> asgs = new ArrayList<AutoScalingGroup>();
-        for (AutoScalingGroup asg : autoScalingGroups) {
-          if (matches(names, asg.getAutoScalingGroupName()))
-            asgs.add(asg);
-        }
-        autoScalingGroups = asgs;
-      }
+      if (shouldFilter(names))
+        autoScalingGroups = groupsByName.get(snapshot).getAll(names);
 
       return new DescribeAutoScalingGroupsResult()
-        .withAutoScalingGroups(autoScalingGroups);
+        .withAutoScalingGroups(PageToken.page(autoScalingGroups, token, max))
+        .withNextToken(PageToken.next(snapshot, autoScalingGroups.size(), token, max));
     }
     catch (IOException e) {
       throw new AmazonClientException("Faled to parse " + url, e);
@@ -74,20 +86,18 @@ public class EddaAutoScalingClient extends EddaAwsClient {
     TypeReference<List<LaunchConfiguration>> ref = new TypeReference<List<LaunchConfiguration>>() {};
     String url = config.url() + "/api/v2/aws/launchConfigurations;_expand";
     try {
-      List<LaunchConfiguration> launchConfigurations = parse(ref, doGet(url));
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxRecords();
+      Snapshot<LaunchConfiguration> snapshot = doGetSnapshot(ref, url, token, max);
+      List<LaunchConfiguration> launchConfigurations = snapshot.getItems();
 
       List<String> names = request.getLaunchConfigurationNames();
-      if (shouldFilter(names)) {
-        List<LaunchConfiguration> lcs = new ArrayList<LaunchConfiguration>();
-        for (LaunchConfiguration lc : launchConfigurations) {
-          if (matches(names, lc.getLaunchConfigurationName()))
-            lcs.add(lc);
-        }
-        launchConfigurations = lcs;
-      }
+      if (shouldFilter(names))
+        launchConfigurations = launchConfigurationsByName.get(snapshot).getAll(names);
 
       return new DescribeLaunchConfigurationsResult()
-        .withLaunchConfigurations(launchConfigurations);
+        .withLaunchConfigurations(PageToken.page(launchConfigurations, token, max))
+        .withNextToken(PageToken.next(snapshot, launchConfigurations.size(), token, max));
     }
     catch (IOException e) {
       throw new AmazonClientException("Faled to parse " + url, e);
@@ -102,24 +112,131 @@ public class EddaAutoScalingClient extends EddaAwsClient {
     TypeReference<List<ScalingPolicy>> ref = new TypeReference<List<ScalingPolicy>>() {};
     String url = config.url() + "/api/v2/aws/scalingPolicies;_expand";
     try {
-      List<ScalingPolicy> scalingPolicies = parse(ref, doGet(url));
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxRecords();
+      Snapshot<ScalingPolicy> snapshot = doGetSnapshot(ref, url, token, max);
+      List<ScalingPolicy> scalingPolicies = snapshot.getItems();
 
       String asg = request.getAutoScalingGroupName();
       List<String> names = request.getPolicyNames();
       if (shouldFilter(asg) || shouldFilter(names)) {
+        List<ScalingPolicy> candidates = shouldFilter(asg)
+          ? policiesByGroup.get(snapshot).get(asg)
+          : scalingPolicies;
         List<ScalingPolicy> sps = new ArrayList<ScalingPolicy>();
-        for (ScalingPolicy sp : scalingPolicies) {
-          if (matches(asg, sp.getAutoScalingGroupName()) && matches(names, sp.getPolicyName()))
+        for (ScalingPolicy sp : candidates) {
+          if (matches(names, sp.getPolicyName()))
             sps.add(sp);
         }
         scalingPolicies = sps;
       }
 
       return new DescribePoliciesResult()
-        .withScalingPolicies(scalingPolicies);
+        .withScalingPolicies(PageToken.page(scalingPolicies, token, max))
+        .withNextToken(PageToken.next(snapshot, scalingPolicies.size(), token, max));
+    }
+    catch (IOException e) {
+      throw new AmazonClientException("Faled to parse " + url, e);
+    }
+  }
+
+  public DescribeAutoScalingInstancesResult describeAutoScalingInstances() {
+    return describeAutoScalingInstances(new DescribeAutoScalingInstancesRequest());
+  }
+
+  /**
+   * Derived from the instances of the auto scaling groups so it can be served from edda rather
+   * than the AutoScaling api.
+   */
+  public DescribeAutoScalingInstancesResult describeAutoScalingInstances(DescribeAutoScalingInstancesRequest request) {
+    TypeReference<List<AutoScalingGroup>> ref = new TypeReference<List<AutoScalingGroup>>() {};
+    String url = config.url() + "/api/v2/aws/autoScalingGroups;_expand";
+    try {
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxRecords();
+      Snapshot<AutoScalingGroup> snapshot = doGetSnapshot(ref, url, token, max);
+      List<AutoScalingInstanceDetails> instances =
+        instanceDetails(snapshot, request.getInstanceIds());
+
+      return new DescribeAutoScalingInstancesResult()
+        .withAutoScalingInstances(PageToken.page(instances, token, max))
+        .withNextToken(PageToken.next(snapshot, instances.size(), token, max));
     }
     catch (IOException e) {
       throw new AmazonClientException("Faled to parse " + url, e);
     }
   }
+
+  /**
+   * Launch configuration for each of the auto scaling groups, all groups if no names are
+   * specified. Groups that share a launch configuration map to the same instance.
+   */
+  public Map<String, LaunchConfiguration> getLaunchConfigurationsByGroup(List<String> names) {
+    TypeReference<List<AutoScalingGroup>> asgRef = new TypeReference<List<AutoScalingGroup>>() {};
+    String asgUrl = config.url() + "/api/v2/aws/autoScalingGroups;_expand";
+    TypeReference<List<LaunchConfiguration>> lcRef = new TypeReference<List<LaunchConfiguration>>() {};
+    String lcUrl = config.url() + "/api/v2/aws/launchConfigurations;_expand";
+    return launchConfigurationsByGroup(
+      getSnapshot(asgRef, asgUrl), getSnapshot(lcRef, lcUrl), names);
+  }
+
+  private <T> Snapshot<T> getSnapshot(TypeReference<List<T>> ref, String url) {
+    try {
+      return doGetSnapshot(ref, url, null, null);
+    }
+    catch (IOException e) {
+      throw new AmazonClientException("Faled to parse " + url, e);
+    }
+  }
+
+  private static List<String> instanceIds(AutoScalingGroup asg) {
+    List<String> ids = new ArrayList<String>(asg.getInstances().size());
+    for (Instance i : asg.getInstances())
+      ids.add(i.getInstanceId());
+    return ids;
+  }
+
+  /** Details for the instances of the groups, only the instances with the ids if specified. */
+  private List<AutoScalingInstanceDetails> instanceDetails(
+    Snapshot<AutoScalingGroup> autoScalingGroups,
+    List<String> ids
+  ) {
+    IdSet idSet = idFilter(ids);
+    List<AutoScalingGroup> candidates = shouldFilter(ids)
+      ? groupsByInstance.get(autoScalingGroups).getAll(ids)
+      : autoScalingGroups.getItems();
+    List<AutoScalingInstanceDetails> details = new ArrayList<AutoScalingInstanceDetails>();
+    for (AutoScalingGroup asg : candidates) {
+      for (Instance i : asg.getInstances()) {
+        if (matches(idSet, i.getInstanceId())) {
+          details.add(new AutoScalingInstanceDetails()
+            .withInstanceId(i.getInstanceId())
+            .withAutoScalingGroupName(asg.getAutoScalingGroupName())
+            .withAvailabilityZone(i.getAvailabilityZone())
+            .withLifecycleState(i.getLifecycleState())
+            .withHealthStatus(i.getHealthStatus())
+            .withLaunchConfigurationName(i.getLaunchConfigurationName()));
+        }
+      }
+    }
+    return details;
+  }
+
+  private Map<String, LaunchConfiguration> launchConfigurationsByGroup(
+    Snapshot<AutoScalingGroup> autoScalingGroups,
+    Snapshot<LaunchConfiguration> launchConfigurations,
+    List<String> names
+  ) {
+    List<AutoScalingGroup> groups = shouldFilter(names)
+      ? groupsByName.get(autoScalingGroups).getAll(names)
+      : autoScalingGroups.getItems();
+    ListIndex<LaunchConfiguration> lcs = launchConfigurationsByName.get(launchConfigurations);
+    Map<String, LaunchConfiguration> result = new LinkedHashMap<String, LaunchConfiguration>();
+    for (AutoScalingGroup asg : groups) {
+      LaunchConfiguration lc = lcs.first(asg.getLaunchConfigurationName());
+      if (lc != null)
+        result.put(asg.getAutoScalingGroupName(), lc);
+    }
+    return result;
+  }
 }
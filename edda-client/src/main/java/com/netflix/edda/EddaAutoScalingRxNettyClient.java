@@ -15,8 +15,10 @@
  */
 package com.netflix.edda;
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -24,12 +26,24 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.autoscaling.AmazonAutoScalingRxNetty;
 import com.amazonaws.services.autoscaling.model.*;
 
+import com.netflix.edda.index.ListIndex;
+import com.netflix.edda.util.IdSet;
+
 import com.amazonaws.services.ServiceResult;
 import com.amazonaws.services.PaginatedServiceResult;
 
 import rx.Observable;
 
 public class EddaAutoScalingRxNettyClient extends EddaAwsRxNettyClient {
+  private final ListIndex.Cached<AutoScalingGroup> groupsByName =
+    ListIndex.cached(AutoScalingGroup::getAutoScalingGroupName);
+  private final ListIndex.Cached<AutoScalingGroup> groupsByInstance =
+    ListIndex.cachedMulti(EddaAutoScalingRxNettyClient::instanceIds);
+  private final ListIndex.Cached<LaunchConfiguration> launchConfigurationsByName =
+    ListIndex.cached(LaunchConfiguration::getLaunchConfigurationName);
+  private final ListIndex.Cached<ScalingPolicy> policiesByGroup =
+    ListIndex.cached(ScalingPolicy::getAutoScalingGroupName);
+
   public EddaAutoScalingRxNettyClient(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
   }
@@ -52,21 +66,21 @@ public class EddaAutoScalingRxNettyClient extends EddaAwsRxNettyClient {
     return Observable.defer(() -> {
       TypeReference<AutoScalingGroup> ref = new TypeReference<AutoScalingGroup>() {};
       String url = config.url() + "/api/v2/aws/autoScalingGroups;_expand";
-      return doGet(ref, url).map(autoScalingGroups -> {
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxRecords();
+      return doGetSnapshot(ref, url, token, max).map(snapshot -> {
+        List<AutoScalingGroup> autoScalingGroups = snapshot.getItems();
         List<String> names = request.getAutoScalingGroupNames();
-        if (shouldFilter(names)) {
-          List<AutoScalingGroup> asgs = new ArrayList<AutoScalingGroup>();
-          for (AutoScalingGroup asg : autoScalingGroups) {
-            if (matches(names, asg.getAutoScalingGroupName()))
-              asgs.add(asg);
-          }
-          autoScalingGroups = asgs;
-        }
+        if (shouldFilter(names))
+          autoScalingGroups = groupsByName.get(snapshot).getAll(names);
 
+        String nextToken = PageToken.next(snapshot, autoScalingGroups.size(), token, max);
         return new PaginatedServiceResult<DescribeAutoScalingGroupsResult>(
           0,
-          null,
-          new DescribeAutoScalingGroupsResult().withAutoScalingGroups(autoScalingGroups)
+          nextToken,
+          new DescribeAutoScalingGroupsResult()
+            .withAutoScalingGroups(PageToken.page(autoScalingGroups, token, max))
+            .withNextToken(nextToken)
         );
       });
     });
@@ -82,21 +96,21 @@ public class EddaAutoScalingRxNettyClient extends EddaAwsRxNettyClient {
     return Observable.defer(() -> {
       TypeReference<LaunchConfiguration> ref = new TypeReference<LaunchConfiguration>() {};
       String url = config.url() + "/api/v2/aws/launchConfigurations;_expand";
-      return doGet(ref, url).map(launchConfigurations -> {
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxRecords();
+      return doGetSnapshot(ref, url, token, max).map(snapshot -> {
+        List<LaunchConfiguration> launchConfigurations = snapshot.getItems();
         List<String> names = request.getLaunchConfigurationNames();
-        if (shouldFilter(names)) {
-          List<LaunchConfiguration> lcs = new ArrayList<LaunchConfiguration>();
-          for (LaunchConfiguration lc : launchConfigurations) {
-            if (matches(names, lc.getLaunchConfigurationName()))
-              lcs.add(lc);
-          }
-          launchConfigurations = lcs;
-        }
+        if (shouldFilter(names))
+          launchConfigurations = launchConfigurationsByName.get(snapshot).getAll(names);
 
+        String nextToken = PageToken.next(snapshot, launchConfigurations.size(), token, max);
         return new PaginatedServiceResult<DescribeLaunchConfigurationsResult>(
           0,
-          null,
-          new DescribeLaunchConfigurationsResult().withLaunchConfigurations(launchConfigurations)
+          nextToken,
+          new DescribeLaunchConfigurationsResult()
+            .withLaunchConfigurations(PageToken.page(launchConfigurations, token, max))
+            .withNextToken(nextToken)
         );
       });
     });
@@ -112,24 +126,136 @@ public class EddaAutoScalingRxNettyClient extends EddaAwsRxNettyClient {
     return Observable.defer(() -> {
       TypeReference<ScalingPolicy> ref = new TypeReference<ScalingPolicy>() {};
       String url = config.url() + "/api/v2/aws/scalingPolicies;_expand";
-      return doGet(ref, url).map(scalingPolicies -> {
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxRecords();
+      return doGetSnapshot(ref, url, token, max).map(snapshot -> {
+        List<ScalingPolicy> scalingPolicies = snapshot.getItems();
         String asg = request.getAutoScalingGroupName();
         List<String> names = request.getPolicyNames();
         if (shouldFilter(asg) || shouldFilter(names)) {
+          List<ScalingPolicy> candidates = shouldFilter(asg)
+            ? policiesByGroup.get(snapshot).get(asg)
+            : scalingPolicies;
           List<ScalingPolicy> sps = new ArrayList<ScalingPolicy>();
-          for (ScalingPolicy sp : scalingPolicies) {
-            if (matches(asg, sp.getAutoScalingGroupName()) && matches(names, sp.getPolicyName()))
+          for (ScalingPolicy sp : candidates) {
+            if (matches(names, sp.getPolicyName()))
               sps.add(sp);
           }
           scalingPolicies = sps;
         }
 
+        String nextToken = PageToken.next(snapshot, scalingPolicies.size(), token, max);
         return new PaginatedServiceResult<DescribePoliciesResult>(
           0,
-          null,
-          new DescribePoliciesResult().withScalingPolicies(scalingPolicies)
+          nextToken,
+          new DescribePoliciesResult()
+            .withScalingPolicies(PageToken.page(scalingPolicies, token, max))
+            .withNextToken(nextToken)
         );
       });
     });
   }
+
+  public Observable<PaginatedServiceResult<DescribeAutoScalingInstancesResult>> describeAutoScalingInstances() {
+    return describeAutoScalingInstances(new DescribeAutoScalingInstancesRequest());
+  }
+
+  /**
+   * Derived from the instances of the auto scaling groups so it can be served from edda rather
+   * than the AutoScaling api.
+   */
+  public Observable<PaginatedServiceResult<DescribeAutoScalingInstancesResult>> describeAutoScalingInstances(
+    final DescribeAutoScalingInstancesRequest request
+  ) {
+    return Observable.defer(() -> {
+      TypeReference<AutoScalingGroup> ref = new TypeReference<AutoScalingGroup>() {};
+      String url = config.url() + "/api/v2/aws/autoScalingGroups;_expand";
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxRecords();
+      return doGetSnapshot(ref, url, token, max).map(snapshot -> {
+        List<AutoScalingInstanceDetails> instances =
+          instanceDetails(snapshot, request.getInstanceIds());
+
+        String nextToken = PageToken.next(snapshot, instances.size(), token, max);
+        return new PaginatedServiceResult<DescribeAutoScalingInstancesResult>(
+          0,
+          nextToken,
+          new DescribeAutoScalingInstancesResult()
+            .withAutoScalingInstances(PageToken.page(instances, token, max))
+            .withNextToken(nextToken)
+        );
+      });
+    });
+  }
+
+  /**
+   * Launch configuration for each of the auto scaling groups, all groups if no names are
+   * specified. Groups that share a launch configuration map to the same instance.
+   */
+  public Observable<Map<String, LaunchConfiguration>> getLaunchConfigurationsByGroup(
+    final List<String> names
+  ) {
+    return Observable.defer(() -> {
+      TypeReference<AutoScalingGroup> asgRef = new TypeReference<AutoScalingGroup>() {};
+      String asgUrl = config.url() + "/api/v2/aws/autoScalingGroups;_expand";
+      TypeReference<LaunchConfiguration> lcRef = new TypeReference<LaunchConfiguration>() {};
+      String lcUrl = config.url() + "/api/v2/aws/launchConfigurations;_expand";
+      return Observable.zip(
+        doGetSnapshot(asgRef, asgUrl, null, null),
+        doGetSnapshot(lcRef, lcUrl, null, null),
+        (asgs, lcs) -> launchConfigurationsByGroup(asgs, lcs, names)
+      );
+    });
+  }
+
+  private static List<String> instanceIds(AutoScalingGroup asg) {
+    List<String> ids = new ArrayList<String>(asg.getInstances().size());
+    for (Instance i : asg.getInstances())
+      ids.add(i.getInstanceId());
+    return ids;
+  }
+
+  /** Details for the instances of the groups, only the instances with the ids if specified. */
+  private List<AutoScalingInstanceDetails> instanceDetails(
+    Snapshot<AutoScalingGroup> autoScalingGroups,
+    List<String> ids
+  ) {
+    IdSet idSet = idFilter(ids);
+    List<AutoScalingGroup> candidates = shouldFilter(ids)
+      ? groupsByInstance.get(autoScalingGroups).getAll(ids)
+      : autoScalingGroups.getItems();
+    List<AutoScalingInstanceDetails> details = new ArrayList<AutoScalingInstanceDetails>();
+    for (AutoScalingGroup asg : candidates) {
+      for (Instance i : asg.getInstances()) {
+        if (matches(idSet, i.getInstanceId())) {
+          details.add(new AutoScalingInstanceDetails()
+            .withInstanceId(i.getInstanceId())
+            .withAutoScalingGroupName(asg.getAutoScalingGroupName())
+            .withAvailabilityZone(i.getAvailabilityZone())
+            .withLifecycleState(i.getLifecycleState())
+            .withHealthStatus(i.getHealthStatus())
+            .withLaunchConfigurationName(i.getLaunchConfigurationName()));
+        }
+      }
+    }
+    return details;
+  }
+
+  private Map<String, LaunchConfiguration> launchConfigurationsByGroup(
+    Snapshot<AutoScalingGroup> autoScalingGroups,
+    Snapshot<LaunchConfiguration> launchConfigurations,
+    List<String> names
+  ) {
+    List<AutoScalingGroup> groups = shouldFilter(names)
+      ? groupsByName.get(autoScalingGroups).getAll(names)
+      : autoScalingGroups.getItems();
+    ListIndex<LaunchConfiguration> lcs = launchConfigurationsByName.get(launchConfigurations);
+    Map<String, LaunchConfiguration> result = new LinkedHashMap<String, LaunchConfiguration>();
+    for (AutoScalingGroup asg : groups) {
+      LaunchConfiguration lc = lcs.first(asg.getLaunchConfigurationName());
+      if (lc != null)
+        result.put(asg.getAutoScalingGroupName(), lc);
+    }
+    return result;
+  }
 }
@@ -18,29 +18,57 @@ package com.netflix.edda;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 import io.netty.buffer.ByteBuf;
 import iep.io.reactivex.netty.protocol.http.client.HttpClientResponse;
 import rx.Observable;
+import rx.functions.Func1;
 import rx.schedulers.Schedulers;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
 import com.amazonaws.AmazonServiceException;
 
+import com.netflix.edda.store.KeyExtractor;
+import com.netflix.edda.store.CompressedList;
+import com.netflix.edda.store.KeyedList;
+import com.netflix.edda.store.LazyList;
+import com.netflix.edda.store.OffHeapList;
+import com.netflix.edda.store.RawJson;
+import com.netflix.edda.util.Hash;
+import com.netflix.edda.util.IdSet;
 import com.netflix.edda.util.ProxyHelper;
 
 abstract public class EddaAwsClient {
   final AwsConfiguration config;
   final String vip;
   final String region;
+  final PinnedSnapshots pinnedSnapshots;
+  final ResultCache resultCache;
+  final ParallelDecoder decoder;
 
   public EddaAwsClient(AwsConfiguration config, String vip, String region) {
     this.config = config;
     this.vip = vip;
     this.region = region;
+    this.pinnedSnapshots = new PinnedSnapshots(
+      config.pinnedSnapshots(),
+      config.pinnedSnapshotTtl().getMillis()
+    );
+    this.resultCache = new ResultCache(config.resultCacheSize());
+    JsonHelper.configure(config);
+    this.decoder = new ParallelDecoder(
+      ForkJoinPool.commonPool(),
+      config.parallelDecoding() ? config.parallelDecodeThreshold() : Integer.MAX_VALUE
+    );
   }
 
   public void shutdown() {}
@@ -53,7 +81,22 @@ abstract public class EddaAwsClient {
     return ProxyHelper.wrapper(c, delegate, this);
   }
 
+  /** Response body along with a hash of the content computed as it was received. */
+  protected static class Body {
+    final byte[] data;
+    final BigInteger hash;
+
+    Body(byte[] data, BigInteger hash) {
+      this.data = data;
+      this.hash = hash;
+    }
+  }
+
   protected byte[] doGet(final String uri) {
+    return doGetBody(uri).data;
+  }
+
+  protected Body doGetBody(final String uri) {
     try {
       return EddaContext.getContext().getRxHttp().get(mkUrl(uri))
       .flatMap(response -> {
@@ -64,17 +107,19 @@ abstract public class EddaAwsClient {
           e.setRequestId(uri);
           return rx.Observable.error(e);
         }
+        final Hash.Hasher hasher = Hash.murmur3();
         return response.getContent()
         .reduce(
           new ByteArrayOutputStream(),
           (out, bb) -> {
+            hasher.update(bb);
             try { bb.readBytes(out, bb.readableBytes()); }
             catch (IOException e) { throw new RuntimeException(e); }
             return out;
           }
         )
         .map(out -> {
-          return out.toByteArray();
+          return new Body(out.toByteArray(), hasher.digest());
         });
       })
       .toBlocking()
@@ -86,12 +131,196 @@ abstract public class EddaAwsClient {
     }
   }
 
+  /**
+   * Fetch and parse the response for the uri. If the body is identical to the previous response
+   * for the uri, then the previously parsed result is returned without parsing again. Lists are
+   * unmodifiable since the same instance can be returned to multiple callers.
+   */
+  protected <T> T doGet(final TypeReference<T> ref, final String uri) throws IOException {
+    return doGet(ref, uri, doGetBody(uri));
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T doGet(TypeReference<T> ref, String uri, Body body) throws IOException {
+    T result = resultCache.get(uri, ref.getType(), body.hash);
+    if (result == null) {
+      result = parse(ref, body.data);
+      if (result instanceof List)
+        result = (T) Collections.unmodifiableList((List<?>) result);
+      resultCache.put(uri, ref.getType(), body.hash, result);
+    }
+    return result;
+  }
+
   protected String mkUrl(String url) {
     return url.replaceAll("\\$\\{vip\\}", vip).replaceAll("\\$\\{region\\}", region);
   }
 
+  /**
+   * Fetch the response and derive a value from it, e.g. an index. If the body is identical to
+   * the response the last value was derived from, then the last value is used without parsing
+   * the body. The value is set on the holder so the ttl starts again. Lists passed to derive are
+   * unmodifiable since the value may keep a reference.
+   */
+  @SuppressWarnings("unchecked")
+  protected <T, R> R doGetDerived(
+    final TypeReference<T> ref,
+    final String uri,
+    final ExpiringValue<R> holder,
+    final Func1<T, R> derive
+  ) throws IOException {
+    Body body = doGetBody(uri);
+    R value = holder.getLast(body.hash);
+    if (value == null) {
+      T result = parse(ref, body.data);
+      if (result instanceof List)
+        result = (T) Collections.unmodifiableList((List<?>) result);
+      value = derive.call(result);
+    }
+    holder.set(value, body.hash);
+    return value;
+  }
+
+  /**
+   * Parse the body. If parallel decoding is enabled and the result is a list of beans with at
+   * least the threshold number of elements, then the elements are split and decoded in parallel.
+   */
+  @SuppressWarnings("unchecked")
   protected <T> T parse(TypeReference<T> ref, byte[] body) throws IOException {
-      return JsonHelper.createParser(new ByteArrayInputStream(body)).readValueAs(ref);
+    final Type elementType = config.parallelDecoding() ? beanElementType(ref) : null;
+    if (elementType != null) {
+      final List<int[]> ranges = new ArrayList<int[]>();
+      RawJson.split(body, (data, offset, length) -> ranges.add(new int[] {offset, length}));
+      if (ranges.size() >= config.parallelDecodeThreshold()) {
+        return (T) decoder.decode(
+          ranges,
+          r -> JsonHelper.decode(elementType, new ByteArrayInputStream(body, r[0], r[1])),
+          r -> {}
+        );
+      }
+    }
+    return JsonHelper.createParser(new ByteArrayInputStream(body)).readValueAs(ref);
+  }
+
+  /**
+   * Element type if the reference is for a list of beans, e.g. SDK model objects. Returns null
+   * for other types such as lists of strings that are cheap to decode on a single thread.
+   */
+  private static Type beanElementType(TypeReference<?> ref) {
+    Type t = ref.getType();
+    if (!(t instanceof ParameterizedType) || ((ParameterizedType) t).getRawType() != List.class)
+      return null;
+    Type e = ((ParameterizedType) t).getActualTypeArguments()[0];
+    if (!(e instanceof Class)) return null;
+    Class<?> c = (Class<?>) e;
+    boolean bean = !c.isPrimitive() && !c.isArray() && !c.isEnum()
+      && !c.getName().startsWith("java.");
+    return bean ? c : null;
+  }
+
+  /**
+   * Fetch the snapshot for a paginated request. The first page is read from the current state
+   * of the collection and pinned if the results are paginated. Later pages use the pinned
+   * snapshot if still available, otherwise the same view is fetched with the {@code _at} matrix
+   * argument.
+   */
+  protected <T> Snapshot<T> doGetSnapshot(
+    TypeReference<List<T>> ref,
+    String url,
+    PageToken token,
+    Integer max
+  ) throws IOException {
+    Snapshot<T> snapshot = null;
+    if (token == null) {
+      long now = System.currentTimeMillis();
+      snapshot = fetchSnapshot(ref, url, now);
+    }
+    else {
+      snapshot = pinnedSnapshots.get(url, token.getTimestamp());
+      if (snapshot != null) return snapshot;
+      String pinnedUrl = url + ";_at=" + token.getTimestamp();
+      snapshot = fetchSnapshot(ref, pinnedUrl, token.getTimestamp());
+    }
+    if (PageToken.isPaginated(max))
+      pinnedSnapshots.put(url, snapshot);
+    return snapshot;
+  }
+
+  /** Fetch and parse the response as a snapshot that includes the hash of the body. */
+  private <T> Snapshot<T> fetchSnapshot(TypeReference<List<T>> ref, String url, long timestamp)
+      throws IOException {
+    Body body = doGetBody(url);
+    return new Snapshot<T>(timestamp, doGet(ref, url, body), body.hash);
+  }
+
+  /** Should large collections be fetched as keyed lists that decode elements on access? */
+  protected boolean useKeyedLists() {
+    return config.useOffHeapSnapshots() || config.compressedSnapshots() || config.lazyDecoding();
+  }
+
+  /** Should results wrap lazy lists directly rather than copying them? */
+  protected boolean useLazyResults() {
+    return useKeyedLists() && "lazy".equals(keyedListType());
+  }
+
+  /** Name of the configured keyed list representation. */
+  protected String keyedListType() {
+    if (config.useOffHeapSnapshots()) return "offheap";
+    if (config.compressedSnapshots()) return "compressed";
+    return "lazy";
+  }
+
+  /** Create a builder for the configured keyed list representation. */
+  protected <T> KeyedList.Builder<T> newKeyedListBuilder(TypeReference<T> ref, KeyExtractor keys) {
+    if (config.useOffHeapSnapshots())
+      return OffHeapList.builder(ref, keys);
+    if (config.compressedSnapshots())
+      return CompressedList.builder(ref, keys, config.compressedSnapshotCacheSize());
+    return LazyList.builder(ref, keys);
+  }
+
+  /**
+   * Fetch the response for the uri into a keyed list using the configured representation. The
+   * list is reused if the body is identical to the previous response for the uri.
+   */
+  protected <T> KeyedList<T> doGetKeyed(
+    TypeReference<T> ref,
+    String uri,
+    KeyExtractor keys
+  ) throws IOException {
+    String type = keyedListType() + ":" + ref.getType();
+    Body body = doGetBody(uri);
+    KeyedList<T> elements = resultCache.get(uri, type, body.hash);
+    if (elements == null) {
+      elements = newKeyedListBuilder(ref, keys).addAll(body.data).build();
+      resultCache.put(uri, type, body.hash, elements);
+    }
+    return elements;
+  }
+
+  /** Same as {@link #doGetSnapshot} except that the items are in a keyed list. */
+  @SuppressWarnings("unchecked")
+  protected <T> KeyedSnapshot<T> doGetKeyedSnapshot(
+    TypeReference<T> ref,
+    String url,
+    KeyExtractor keys,
+    PageToken token,
+    Integer max
+  ) throws IOException {
+    KeyedSnapshot<T> snapshot = null;
+    if (token == null) {
+      long now = System.currentTimeMillis();
+      snapshot = new KeyedSnapshot<T>(now, doGetKeyed(ref, url, keys));
+    }
+    else {
+      Snapshot<T> pinned = pinnedSnapshots.get(url, token.getTimestamp());
+      if (pinned instanceof KeyedSnapshot) return (KeyedSnapshot<T>) pinned;
+      String pinnedUrl = url + ";_at=" + token.getTimestamp();
+      snapshot = new KeyedSnapshot<T>(token.getTimestamp(), doGetKeyed(ref, pinnedUrl, keys));
+    }
+    if (PageToken.isPaginated(max))
+      pinnedSnapshots.put(url, snapshot);
+    return snapshot;
   }
 
   protected void validateEmpty(String name, String s) {
@@ -129,4 +358,13 @@ abstract public class EddaAwsClient {
   protected boolean matches(List<String> list, String v) {
     return !shouldFilter(list) || list.contains(v);
   }
+
+  /** Set to use for filtering by resource ids, null if the list is empty. */
+  protected IdSet idFilter(List<String> ids) {
+    return shouldFilter(ids) ? IdSet.of(ids) : null;
+  }
+
+  protected boolean matches(IdSet ids, String v) {
+    return ids == null || ids.contains(v);
+  }
 }
@@ -16,14 +16,18 @@
 package com.netflix.edda;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import iep.io.reactivex.netty.protocol.http.client.HttpClientResponse;
 import rx.Observable;
+import rx.functions.Func0;
 import rx.functions.Func1;
 import rx.functions.Func2;
 import rx.schedulers.Schedulers;
@@ -35,17 +39,39 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.ServiceResult;
 
+import com.netflix.edda.store.KeyExtractor;
+import com.netflix.edda.store.CompressedList;
+import com.netflix.edda.store.KeyedList;
+import com.netflix.edda.store.LazyList;
+import com.netflix.edda.store.OffHeapList;
+import com.netflix.edda.util.Hash;
+import com.netflix.edda.util.IdSet;
 import com.netflix.edda.util.ProxyHelper;
 
 abstract public class EddaAwsRxNettyClient {
   final AwsConfiguration config;
   final String vip;
   final String region;
+  final PinnedSnapshots pinnedSnapshots;
+  final ResultCache resultCache;
+  final ParallelDecoder decoder;
+  final DecodeScheduler decodeScheduler;
 
   public EddaAwsRxNettyClient(AwsConfiguration config, String vip, String region) {
     this.config = config;
     this.vip = vip;
     this.region = region;
+    this.pinnedSnapshots = new PinnedSnapshots(
+      config.pinnedSnapshots(),
+      config.pinnedSnapshotTtl().getMillis()
+    );
+    this.resultCache = new ResultCache(config.resultCacheSize());
+    JsonHelper.configure(config);
+    this.decoder = new ParallelDecoder(
+      ForkJoinPool.commonPool(),
+      config.parallelDecoding() ? config.parallelDecodeThreshold() : Integer.MAX_VALUE
+    );
+    this.decodeScheduler = DecodeScheduler.shared(config);
   }
 
   public void shutdown() {}
@@ -62,7 +88,8 @@ abstract public class EddaAwsRxNettyClient {
     return doGet(ref, uri, 1024 * 1024);
   }
 
-  protected <T> Observable<List<T>> doGet(final TypeReference<T> ref, final String uri, int maxLength) {
+  /** Fetch the response body for the uri, fails if the status is not 200. */
+  protected Observable<ByteBuf> doGetContent(final String uri) {
     try {
       return EddaContext.getContext().getRxHttp().get(mkUrl(uri))
       .flatMap(response -> {
@@ -71,33 +98,297 @@ abstract public class EddaAwsRxNettyClient {
           e.setStatusCode(response.getStatus().code());
           e.setErrorCode("Edda");
           e.setRequestId(uri);
-          return rx.Observable.error(e);
+          return rx.Observable.<ByteBuf>error(e);
         }
-        List<T> retval = new ArrayList<T>();
-        return response.getContent().compose(ByteBufs.json(maxLength))
-        .map(bb -> {
-          try {
-            return (T) JsonHelper.createParser(new ByteBufInputStream(bb)).readValueAs(ref);
-          }
-          catch (IOException e) {
-            throw new RuntimeException(e);
-          }
-          finally {
-            bb.release();
-          }
-        })
-        .reduce(retval, (acc, v) -> {
-          acc.add(v);
-          return acc;
-        });
-      })
-      .timeout(2, TimeUnit.MINUTES);
+        return response.getContent();
+      });
     }
     catch (Exception e) {
       throw new RuntimeException("failed to get url: " + uri, e);
     }
   }
 
+  /** Raw json elements of a response along with a hash of the content. */
+  protected static class Elements {
+    final List<ByteBuf> buffers;
+    final BigInteger hash;
+
+    Elements(List<ByteBuf> buffers, BigInteger hash) {
+      this.buffers = buffers;
+      this.hash = hash;
+    }
+
+    void release() {
+      for (ByteBuf bb : buffers)
+        bb.release();
+    }
+  }
+
+  /**
+   * Fetch the raw json elements in the top level array of the response. The content is hashed
+   * as it arrives. Subscribers are responsible for releasing the buffers.
+   */
+  protected Observable<Elements> doGetElements(final String uri, final int maxLength) {
+    return Observable.defer(() -> {
+      final long start = System.nanoTime();
+      final Hash.Hasher hasher = Hash.murmur3();
+      return doGetContent(uri)
+        .doOnNext(bb -> hasher.update(bb))
+        .compose(ByteBufs.json(maxLength))
+        .toList()
+        .map(bbs -> {
+          decodeScheduler.recordFetch(System.nanoTime() - start);
+          return new Elements(bbs, hasher.digest());
+        });
+    });
+  }
+
+  /**
+   * Run the work for a response on the decode scheduler rather than the event loop. Operators
+   * applied to the result, such as filtering and building the result objects, will also run on
+   * the decode scheduler. The buffers are released if the work is rejected.
+   */
+  protected <R> Observable<R> decode(final Elements elements, final Func0<R> work) {
+    return decodeScheduler.submit(work, elements::release);
+  }
+
+  /**
+   * Fetch the response and reduce the raw elements on the decode scheduler. The accumulator is
+   * responsible for releasing each buffer.
+   */
+  protected <R> Observable<R> reduceElements(
+    final String uri,
+    int maxLength,
+    final Func0<R> init,
+    final Func2<R, ByteBuf, R> accumulator
+  ) {
+    return doGetElements(uri, maxLength)
+      .flatMap(es -> decode(es, () -> {
+        List<ByteBuf> bbs = es.buffers;
+        R acc = init.call();
+        int i = 0;
+        try {
+          for (; i < bbs.size(); ++i)
+            acc = accumulator.call(acc, bbs.get(i));
+        }
+        finally {
+          for (++i; i < bbs.size(); ++i)
+            bbs.get(i).release();
+        }
+        return acc;
+      }))
+      .timeout(2, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Fetch and decode the response for the uri. If the body is unchanged from the previous
+   * response the previous result is used and the elements are never parsed. Decoding runs on
+   * the decode scheduler and large bodies are decoded in parallel if enabled.
+   */
+  protected <T> Observable<List<T>> doGet(final TypeReference<T> ref, final String uri, int maxLength) {
+    return doGetElements(uri, maxLength)
+    .flatMap(es -> decode(es, () -> decodeList(ref, uri, es)))
+    .timeout(2, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Fetch and decode the response as a snapshot that includes the hash of the content. Decoding
+   * works the same way as for {@link #doGet(TypeReference, String, int)}.
+   */
+  protected <T> Observable<Snapshot<T>> fetchSnapshot(
+    final TypeReference<T> ref,
+    final String uri,
+    int maxLength,
+    final long timestamp
+  ) {
+    return doGetElements(uri, maxLength)
+    .flatMap(es -> decode(es, () -> {
+      return new Snapshot<T>(timestamp, decodeList(ref, uri, es), es.hash);
+    }))
+    .timeout(2, TimeUnit.MINUTES);
+  }
+
+  /** Decode the elements, the previous result is used if the hash is unchanged. */
+  private <T> List<T> decodeList(TypeReference<T> ref, String uri, Elements es) {
+    List<T> cached = resultCache.get(uri, ref.getType(), es.hash);
+    if (cached != null) {
+      es.release();
+      return cached;
+    }
+    List<T> retval = decoder.decode(es.buffers, bb -> parse(ref, bb), ByteBuf::release);
+    retval = Collections.unmodifiableList(retval);
+    resultCache.put(uri, ref.getType(), es.hash, retval);
+    return retval;
+  }
+
+  /**
+   * Fetch the response and derive a value from the decoded list, e.g. an index. If the body is
+   * identical to the response the last value was derived from, then the elements are released
+   * without being parsed and the last value is used. The value is set on the holder so the ttl
+   * starts again.
+   */
+  protected <T, R> Observable<R> doGetDerived(
+    final TypeReference<T> ref,
+    final String uri,
+    final ExpiringValue<R> holder,
+    final Func1<List<T>, R> derive
+  ) {
+    return doGetElements(uri, 1024 * 1024)
+    .flatMap(es -> decode(es, () -> {
+      R value = holder.getLast(es.hash);
+      if (value != null) {
+        es.release();
+      }
+      else {
+        List<T> vs = decoder.decode(es.buffers, bb -> parse(ref, bb), ByteBuf::release);
+        value = derive.call(Collections.unmodifiableList(vs));
+      }
+      holder.set(value, es.hash);
+      return value;
+    }))
+    .timeout(2, TimeUnit.MINUTES);
+  }
+
+  /** Parse a single element of the response, the buffer will be released. */
+  @SuppressWarnings("unchecked")
+  protected <T> T parse(TypeReference<T> ref, ByteBuf bb) {
+    try {
+      return (T) JsonHelper.createParser(new ByteBufInputStream(bb)).readValueAs(ref);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    finally {
+      bb.release();
+    }
+  }
+
+  protected <T> Observable<Snapshot<T>> doGetSnapshot(
+    final TypeReference<T> ref,
+    final String url,
+    final PageToken token,
+    final Integer max
+  ) {
+    return doGetSnapshot(ref, url, 1024 * 1024, token, max);
+  }
+
+  /**
+   * Fetch the snapshot for a paginated request. The first page is read from the current state
+   * of the collection and pinned if the results are paginated. Later pages use the pinned
+   * snapshot if still available, otherwise the same view is fetched with the {@code _at} matrix
+   * argument.
+   */
+  protected <T> Observable<Snapshot<T>> doGetSnapshot(
+    final TypeReference<T> ref,
+    final String url,
+    int maxLength,
+    final PageToken token,
+    final Integer max
+  ) {
+    Observable<Snapshot<T>> snapshot = null;
+    if (token == null) {
+      final long now = System.currentTimeMillis();
+      snapshot = fetchSnapshot(ref, url, maxLength, now);
+    }
+    else {
+      Snapshot<T> pinned = pinnedSnapshots.get(url, token.getTimestamp());
+      if (pinned != null) return Observable.just(pinned);
+      String pinnedUrl = url + ";_at=" + token.getTimestamp();
+      snapshot = fetchSnapshot(ref, pinnedUrl, maxLength, token.getTimestamp());
+    }
+    if (!PageToken.isPaginated(max))
+      return snapshot;
+    return snapshot.doOnNext(s -> pinnedSnapshots.put(url, s));
+  }
+
+  /** Should large collections be fetched as keyed lists that decode elements on access? */
+  protected boolean useKeyedLists() {
+    return config.useOffHeapSnapshots() || config.compressedSnapshots() || config.lazyDecoding();
+  }
+
+  /** Should results wrap lazy lists directly rather than copying them? */
+  protected boolean useLazyResults() {
+    return useKeyedLists() && "lazy".equals(keyedListType());
+  }
+
+  /** Name of the configured keyed list representation. */
+  protected String keyedListType() {
+    if (config.useOffHeapSnapshots()) return "offheap";
+    if (config.compressedSnapshots()) return "compressed";
+    return "lazy";
+  }
+
+  /** Create a builder for the configured keyed list representation. */
+  protected <T> KeyedList.Builder<T> newKeyedListBuilder(TypeReference<T> ref, KeyExtractor keys) {
+    if (config.useOffHeapSnapshots())
+      return OffHeapList.builder(ref, keys);
+    if (config.compressedSnapshots())
+      return CompressedList.builder(ref, keys, config.compressedSnapshotCacheSize());
+    return LazyList.builder(ref, keys);
+  }
+
+  /**
+   * Fetch the response for the uri into a keyed list using the configured representation. The
+   * list is reused if the body is identical to the previous response for the uri.
+   */
+  protected <T> Observable<KeyedList<T>> doGetKeyed(
+    final TypeReference<T> ref,
+    final String uri,
+    int maxLength,
+    final KeyExtractor keys
+  ) {
+    final String type = keyedListType() + ":" + ref.getType();
+    return doGetElements(uri, maxLength)
+    .flatMap(es -> decode(es, () -> {
+      KeyedList<T> elements = resultCache.get(uri, type, es.hash);
+      try {
+        if (elements == null) {
+          KeyedList.Builder<T> builder = newKeyedListBuilder(ref, keys);
+          for (ByteBuf bb : es.buffers)
+            builder.add(bb);
+          elements = builder.build();
+          resultCache.put(uri, type, es.hash, elements);
+        }
+        return elements;
+      }
+      catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      finally {
+        es.release();
+      }
+    }))
+    .timeout(2, TimeUnit.MINUTES);
+  }
+
+  /** Same as {@link #doGetSnapshot} except that the items are in a keyed list. */
+  @SuppressWarnings("unchecked")
+  protected <T> Observable<KeyedSnapshot<T>> doGetKeyedSnapshot(
+    final TypeReference<T> ref,
+    final String url,
+    int maxLength,
+    final KeyExtractor keys,
+    final PageToken token,
+    final Integer max
+  ) {
+    Observable<KeyedSnapshot<T>> snapshot = null;
+    if (token == null) {
+      final long now = System.currentTimeMillis();
+      snapshot = doGetKeyed(ref, url, maxLength, keys)
+        .map(items -> new KeyedSnapshot<T>(now, items));
+    }
+    else {
+      Snapshot<T> pinned = pinnedSnapshots.get(url, token.getTimestamp());
+      if (pinned instanceof KeyedSnapshot) return Observable.just((KeyedSnapshot<T>) pinned);
+      String pinnedUrl = url + ";_at=" + token.getTimestamp();
+      snapshot = doGetKeyed(ref, pinnedUrl, maxLength, keys)
+        .map(items -> new KeyedSnapshot<T>(token.getTimestamp(), items));
+    }
+    if (!PageToken.isPaginated(max))
+      return snapshot;
+    return snapshot.doOnNext(s -> pinnedSnapshots.put(url, s));
+  }
+
   protected String mkUrl(String url) {
     return url.replaceAll("\\$\\{vip\\}", vip).replaceAll("\\$\\{region\\}", region);
   }
@@ -137,4 +428,13 @@ abstract public class EddaAwsRxNettyClient {
   protected boolean matches(List<String> list, String v) {
     return !shouldFilter(list) || list.contains(v);
   }
+
+  /** Set to use for filtering by resource ids, null if the list is empty. */
+  protected IdSet idFilter(List<String> ids) {
+    return shouldFilter(ids) ? IdSet.of(ids) : null;
+  }
+
+  protected boolean matches(IdSet ids, String v) {
+    return ids == null || ids.contains(v);
+  }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable result of fetching a set of collections together. Each collection either has a
+ * snapshot with the time it was fetched or the failure that prevented it from being fetched.
+ */
+public class EddaBundle {
+  private final Map<EddaCollection<?>, Snapshot<?>> snapshots;
+  private final Map<EddaCollection<?>, Throwable> failures;
+
+  public EddaBundle(
+    Map<EddaCollection<?>, Snapshot<?>> snapshots,
+    Map<EddaCollection<?>, Throwable> failures
+  ) {
+    this.snapshots = Collections.unmodifiableMap(new HashMap<EddaCollection<?>, Snapshot<?>>(snapshots));
+    this.failures = Collections.unmodifiableMap(new HashMap<EddaCollection<?>, Throwable>(failures));
+  }
+
+  /** Return the snapshot for the collection or null if it failed or was not requested. */
+  @SuppressWarnings("unchecked")
+  public <T> Snapshot<T> getSnapshot(EddaCollection<T> collection) {
+    return (Snapshot<T>) snapshots.get(collection);
+  }
+
+  /** Return the failure for the collection or null if it was fetched successfully. */
+  public Throwable getFailure(EddaCollection<?> collection) {
+    return failures.get(collection);
+  }
+
+  /** Collections that were fetched successfully. */
+  public Set<EddaCollection<?>> getCollections() {
+    return snapshots.keySet();
+  }
+
+  /** Failures for collections that could not be fetched. */
+  public Map<EddaCollection<?>, Throwable> getFailures() {
+    return failures;
+  }
+
+  /** Returns true if all requested collections were fetched successfully. */
+  public boolean isComplete() {
+    return failures.isEmpty();
+  }
+}
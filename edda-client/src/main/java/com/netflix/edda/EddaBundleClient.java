@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
+
+import com.netflix.edda.store.KeyExtractor;
+import com.netflix.edda.util.Hash;
+import com.netflix.edda.util.IdSet;
+import com.netflix.edda.util.PersistentMap;
+
+/**
+ * Fetch several edda collections concurrently. All requests are issued at the same time over the
+ * shared RxHttp so the time to get the bundle is close to the time for the slowest collection.
+ * A failure for one collection is recorded in the bundle and does not fail the others.
+ */
+public class EddaBundleClient extends EddaAwsRxNettyClient {
+  public EddaBundleClient(AwsConfiguration config, String vip, String region) {
+    super(config, vip, region);
+  }
+
+  private static class Entry {
+    final EddaCollection<?> collection;
+    final Snapshot<?> snapshot;
+    final Throwable failure;
+
+    Entry(EddaCollection<?> collection, Snapshot<?> snapshot, Throwable failure) {
+      this.collection = collection;
+      this.snapshot = snapshot;
+      this.failure = failure;
+    }
+  }
+
+  protected String url(EddaCollection<?> collection) {
+    return config.url() + "/api/v2/" + collection.getPath() + ";_expand";
+  }
+
+  /** Fetch a single collection. */
+  public <T> Observable<Snapshot<T>> fetch(final EddaCollection<T> collection) {
+    return Observable.defer(() -> {
+      final long now = System.currentTimeMillis();
+      return fetchSnapshot(
+        collection.getTypeReference(), url(collection), collection.getMaxLength(), now);
+    });
+  }
+
+  /** State for deriving a new version of a collection from the previous one. */
+  private class Refresh<T> {
+    final EddaCollection<T> collection;
+    final KeyExtractor keys;
+    final VersionedSnapshot<T> previous;
+    final IdSet seen = new IdSet();
+    PersistentMap<String, VersionedSnapshot.Entry<T>> map;
+
+    Refresh(EddaCollection<T> collection, VersionedSnapshot<T> previous) {
+      this.collection = collection;
+      this.keys = KeyExtractor.field(collection.getIdField());
+      this.previous = previous;
+      this.map = previous.getMap();
+    }
+
+    /** Update the map with a raw element, the buffer will be released. */
+    Refresh<T> add(ByteBuf bb) {
+      boolean released = false;
+      try {
+        String id = keys.first(bb);
+        if (id != null && seen.add(id)) {
+          long hash = Hash.murmur3().update(bb).digest64();
+          VersionedSnapshot.Entry<T> prev = map.get(id);
+          if (prev == null || prev.hash != hash) {
+            released = true;
+            T value = parse(collection.getTypeReference(), bb);
+            map = map.plus(id, new VersionedSnapshot.Entry<T>(hash, value));
+          }
+        }
+        return this;
+      }
+      catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      finally {
+        if (!released) bb.release();
+      }
+    }
+
+    VersionedSnapshot<T> build(long timestamp) {
+      for (String id : previous.getIds()) {
+        if (!seen.contains(id))
+          map = map.minus(id);
+      }
+      return new VersionedSnapshot<T>(timestamp, map);
+    }
+  }
+
+  /**
+   * Fetch a new version of a collection. Elements with the same raw json as in the previous
+   * version are not decoded and the new version shares the unchanged parts of the map. The
+   * collection must have an id field.
+   */
+  public <T> Observable<VersionedSnapshot<T>> fetch(
+    final EddaCollection<T> collection,
+    final VersionedSnapshot<T> previous
+  ) {
+    return Observable.defer(() -> {
+      if (collection.getIdField() == null)
+        throw new IllegalArgumentException("no id field for " + collection);
+      final long now = System.currentTimeMillis();
+      return reduceElements(
+        url(collection),
+        collection.getMaxLength(),
+        () -> new Refresh<T>(collection, previous),
+        (r, bb) -> r.add(bb)
+      ).map(r -> r.build(now));
+    });
+  }
+
+  public Observable<EddaBundle> fetch(EddaCollection<?>... collections) {
+    return fetch(Arrays.asList(collections));
+  }
+
+  public Observable<EddaBundle> fetch(final Collection<EddaCollection<?>> collections) {
+    return Observable.defer(() -> {
+      List<Observable<Entry>> entries = new ArrayList<Observable<Entry>>();
+      for (EddaCollection<?> c : collections) {
+        entries.add(
+          fetch(c)
+            .map(s -> new Entry(c, s, null))
+            .onErrorReturn(t -> new Entry(c, null, t))
+        );
+      }
+      return Observable.merge(entries).toList().map(es -> {
+        Map<EddaCollection<?>, Snapshot<?>> snapshots = new HashMap<EddaCollection<?>, Snapshot<?>>();
+        Map<EddaCollection<?>, Throwable> failures = new HashMap<EddaCollection<?>, Throwable>();
+        for (Entry e : es) {
+          if (e.failure == null)
+            snapshots.put(e.collection, e.snapshot);
+          else
+            failures.put(e.collection, e.failure);
+        }
+        return new EddaBundle(snapshots, failures);
+      });
+    });
+  }
+}
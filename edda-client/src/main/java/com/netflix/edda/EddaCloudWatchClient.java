@@ -17,7 +17,6 @@ package com.netflix.edda;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.ArrayList;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -25,7 +24,12 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
 import com.amazonaws.services.cloudwatch.model.*;
 
+import com.netflix.edda.index.AlarmIndex;
+
 public class EddaCloudWatchClient extends EddaAwsClient {
+  // Alarms are fetched for each request, the index is only reused while the response is unchanged
+  final ExpiringValue<AlarmIndex> alarmIndex = new ExpiringValue<AlarmIndex>(0L);
+
   public EddaCloudWatchClient(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
   }
@@ -43,24 +47,16 @@ public class EddaCloudWatchClient extends EddaAwsClient {
   }
 
   public DescribeAlarmsResult describeAlarms(DescribeAlarmsRequest request) {
-    validateEmpty("ActionPrefix", request.getActionPrefix());
-    validateEmpty("AlarmNamePrefix", request.getAlarmNamePrefix());
-
     TypeReference<List<MetricAlarm>> ref = new TypeReference<List<MetricAlarm>>() {};
     String url = config.url() + "/api/v2/aws/alarms;_expand";
     try {
-      List<MetricAlarm> metricAlarms = parse(ref, doGet(url));
-
-      List<String> names = request.getAlarmNames();
-      String state = request.getStateValue();
-      if (shouldFilter(names) || shouldFilter(state)) {
-        List<MetricAlarm> mas = new ArrayList<MetricAlarm>();
-        for (MetricAlarm ma : metricAlarms) {
-          if (matches(names, ma.getAlarmName()) && matches(state, ma.getStateValue()))
-            mas.add(ma);
-        }
-        metricAlarms = mas;
-      }
+      AlarmIndex index = doGetDerived(ref, url, alarmIndex, AlarmIndex::new);
+      List<MetricAlarm> metricAlarms = index.find(
+        request.getAlarmNames(),
+        request.getAlarmNamePrefix(),
+        request.getActionPrefix(),
+        request.getStateValue()
+      );
 
       return new DescribeAlarmsResult()
         .withMetricAlarms(metricAlarms);
@@ -69,4 +65,31 @@ public class EddaCloudWatchClient extends EddaAwsClient {
       throw new AmazonClientException("Faled to parse " + url, e);
     }
   }
+
+  public DescribeAlarmsForMetricResult describeAlarmsForMetric(
+    DescribeAlarmsForMetricRequest request
+  ) {
+    validateNotEmpty("Namespace", request.getNamespace());
+    validateNotEmpty("MetricName", request.getMetricName());
+
+    TypeReference<List<MetricAlarm>> ref = new TypeReference<List<MetricAlarm>>() {};
+    String url = config.url() + "/api/v2/aws/alarms;_expand";
+    try {
+      AlarmIndex index = doGetDerived(ref, url, alarmIndex, AlarmIndex::new);
+      List<MetricAlarm> metricAlarms = index.findForMetric(
+        request.getNamespace(),
+        request.getMetricName(),
+        request.getDimensions(),
+        request.getStatistic(),
+        request.getPeriod(),
+        request.getUnit()
+      );
+
+      return new DescribeAlarmsForMetricResult()
+        .withMetricAlarms(metricAlarms);
+    }
+    catch (IOException e) {
+      throw new AmazonClientException("Faled to parse " + url, e);
+    }
+  }
 }
@@ -17,7 +17,6 @@ package com.netflix.edda;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.ArrayList;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -25,12 +24,17 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatchRxNetty;
 import com.amazonaws.services.cloudwatch.model.*;
 
+import com.netflix.edda.index.AlarmIndex;
+
 import com.amazonaws.services.ServiceResult;
 import com.amazonaws.services.PaginatedServiceResult;
 
 import rx.Observable;
 
 public class EddaCloudWatchRxNettyClient extends EddaAwsRxNettyClient {
+  // Alarms are fetched for each request, the index is only reused while the response is unchanged
+  final ExpiringValue<AlarmIndex> alarmIndex = new ExpiringValue<AlarmIndex>(0L);
+
   public EddaCloudWatchRxNettyClient(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
   }
@@ -51,22 +55,15 @@ public class EddaCloudWatchRxNettyClient extends EddaAwsRxNettyClient {
     final DescribeAlarmsRequest request
   ) {
     return Observable.defer(() -> {
-      validateEmpty("ActionPrefix", request.getActionPrefix());
-      validateEmpty("AlarmNamePrefix", request.getAlarmNamePrefix());
-
       TypeReference<MetricAlarm> ref = new TypeReference<MetricAlarm>() {};
       String url = config.url() + "/api/v2/aws/alarms;_expand";
-      return doGet(ref, url).map(metricAlarms -> {
-        List<String> names = request.getAlarmNames();
-        String state = request.getStateValue();
-        if (shouldFilter(names) || shouldFilter(state)) {
-          List<MetricAlarm> mas = new ArrayList<MetricAlarm>();
-          for (MetricAlarm ma : metricAlarms) {
-            if (matches(names, ma.getAlarmName()) && matches(state, ma.getStateValue()))
-              mas.add(ma);
-          }
-          metricAlarms = mas;
-        }
+      return doGetDerived(ref, url, alarmIndex, AlarmIndex::new).map(index -> {
+        List<MetricAlarm> metricAlarms = index.find(
+          request.getAlarmNames(),
+          request.getAlarmNamePrefix(),
+          request.getActionPrefix(),
+          request.getStateValue()
+        );
 
         return new PaginatedServiceResult<DescribeAlarmsResult>(
           0, //sr.startTime,
@@ -76,4 +73,31 @@ public class EddaCloudWatchRxNettyClient extends EddaAwsRxNettyClient {
       });
     });
   }
+
+  public Observable<ServiceResult<DescribeAlarmsForMetricResult>> describeAlarmsForMetric(
+    final DescribeAlarmsForMetricRequest request
+  ) {
+    return Observable.defer(() -> {
+      validateNotEmpty("Namespace", request.getNamespace());
+      validateNotEmpty("MetricName", request.getMetricName());
+
+      TypeReference<MetricAlarm> ref = new TypeReference<MetricAlarm>() {};
+      String url = config.url() + "/api/v2/aws/alarms;_expand";
+      return doGetDerived(ref, url, alarmIndex, AlarmIndex::new).map(index -> {
+        List<MetricAlarm> metricAlarms = index.findForMetric(
+          request.getNamespace(),
+          request.getMetricName(),
+          request.getDimensions(),
+          request.getStatistic(),
+          request.getPeriod(),
+          request.getUnit()
+        );
+
+        return new ServiceResult<DescribeAlarmsForMetricResult>(
+          0, //sr.startTime,
+          new DescribeAlarmsForMetricResult().withMetricAlarms(metricAlarms)
+        );
+      });
+    });
+  }
 }
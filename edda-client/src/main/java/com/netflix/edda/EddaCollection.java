@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.autoscaling.model.LaunchConfiguration;
+import com.amazonaws.services.autoscaling.model.ScalingPolicy;
+import com.amazonaws.services.ec2.model.Image;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.Volume;
+import com.amazonaws.services.ec2.model.Vpc;
+import com.amazonaws.services.elasticloadbalancing.model.LoadBalancerDescription;
+
+/**
+ * Description of an edda collection that can be fetched as a whole, the type parameter is the
+ * type of the elements in the collection.
+ */
+public final class EddaCollection<T> {
+  public static final EddaCollection<AutoScalingGroup> AUTO_SCALING_GROUPS =
+    new EddaCollection<AutoScalingGroup>(
+      "aws/autoScalingGroups", "autoScalingGroupName",
+      new TypeReference<AutoScalingGroup>() {}, 1024 * 1024);
+
+  public static final EddaCollection<Image> IMAGES =
+    new EddaCollection<Image>(
+      "aws/images", "imageId",
+      new TypeReference<Image>() {}, 1024 * 1024);
+
+  public static final EddaCollection<Reservation> INSTANCES =
+    new EddaCollection<Reservation>(
+      "aws/instances", "reservationId",
+      new TypeReference<Reservation>() {}, 16 * 1024 * 1024);
+
+  public static final EddaCollection<LaunchConfiguration> LAUNCH_CONFIGURATIONS =
+    new EddaCollection<LaunchConfiguration>(
+      "aws/launchConfigurations", "launchConfigurationName",
+      new TypeReference<LaunchConfiguration>() {}, 1024 * 1024);
+
+  public static final EddaCollection<LoadBalancerDescription> LOAD_BALANCERS =
+    new EddaCollection<LoadBalancerDescription>(
+      "aws/loadBalancers", "loadBalancerName",
+      new TypeReference<LoadBalancerDescription>() {}, 1024 * 1024);
+
+  public static final EddaCollection<ScalingPolicy> SCALING_POLICIES =
+    new EddaCollection<ScalingPolicy>(
+      "aws/scalingPolicies", "policyARN",
+      new TypeReference<ScalingPolicy>() {}, 1024 * 1024);
+
+  public static final EddaCollection<SecurityGroup> SECURITY_GROUPS =
+    new EddaCollection<SecurityGroup>(
+      "aws/securityGroups", "groupId",
+      new TypeReference<SecurityGroup>() {}, 1024 * 1024);
+
+  public static final EddaCollection<Subnet> SUBNETS =
+    new EddaCollection<Subnet>(
+      "aws/subnets", "subnetId",
+      new TypeReference<Subnet>() {}, 1024 * 1024);
+
+  public static final EddaCollection<Volume> VOLUMES =
+    new EddaCollection<Volume>(
+      "aws/volumes", "volumeId",
+      new TypeReference<Volume>() {}, 1024 * 1024);
+
+  public static final EddaCollection<Vpc> VPCS =
+    new EddaCollection<Vpc>(
+      "aws/vpcs", "vpcId",
+      new TypeReference<Vpc>() {}, 1024 * 1024);
+
+  private final String path;
+  private final String idField;
+  private final TypeReference<T> ref;
+  private final int maxLength;
+
+  public EddaCollection(String path, TypeReference<T> ref, int maxLength) {
+    this(path, null, ref, maxLength);
+  }
+
+  public EddaCollection(String path, String idField, TypeReference<T> ref, int maxLength) {
+    this.path = path;
+    this.idField = idField;
+    this.ref = ref;
+    this.maxLength = maxLength;
+  }
+
+  /** Path of the collection relative to the edda api, e.g. aws/instances. */
+  public String getPath() {
+    return path;
+  }
+
+  /** Top level field with the id of an element, or null if the elements are not keyed. */
+  public String getIdField() {
+    return idField;
+  }
+
+  /** Type of the elements in the collection. */
+  public TypeReference<T> getTypeReference() {
+    return ref;
+  }
+
+  /** Max size in bytes of a single element of the collection. */
+  public int getMaxLength() {
+    return maxLength;
+  }
+
+  @Override
+  public String toString() {
+    return path;
+  }
+}
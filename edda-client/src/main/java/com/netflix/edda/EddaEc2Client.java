@@ -16,8 +16,12 @@
 package com.netflix.edda;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -25,7 +29,27 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.model.*;
 
+import com.netflix.edda.filter.Ec2Filter;
+import com.netflix.edda.filter.Ec2Filters;
+import com.netflix.edda.store.KeyExtractor;
+import com.netflix.edda.store.KeyedList;
+import com.netflix.edda.util.IdSet;
+
 public class EddaEc2Client extends EddaAwsClient {
+  private static final KeyExtractor IMAGE_KEYS = KeyExtractor.field("imageId");
+  private static final KeyExtractor INSTANCE_KEYS = KeyExtractor.nested("instances", "instanceId");
+
+  /**
+   * EC2 counts instances rather than reservations for MaxResults, reservations are not split
+   * across pages.
+   */
+  private static final ToIntFunction<Reservation> INSTANCE_COUNT = r -> r.getInstances().size();
+
+  /** Maximum number of image ids fetched with a single request when refreshing the cache */
+  private static final int IMAGE_BATCH_SIZE = 100;
+
+  private final Map<String, ImageCache> imageCaches = new ConcurrentHashMap<String, ImageCache>();
+
   public EddaEc2Client(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
   }
@@ -43,18 +67,19 @@ public class EddaEc2Client extends EddaAwsClient {
   }
 
   public DescribeClassicLinkInstancesResult describeClassicLinkInstances(DescribeClassicLinkInstancesRequest request) {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<ClassicLinkInstance> filter = Ec2Filters.CLASSIC_LINK_INSTANCES.compile(request.getFilters());
 
     TypeReference<List<ClassicLinkInstance>> ref = new TypeReference<List<ClassicLinkInstance>>() {};
     String url = config.url() + "/api/v2/aws/classicLinkInstances;_expand";
     try {
-      List<ClassicLinkInstance> instances = parse(ref, doGet(url));
+      List<ClassicLinkInstance> instances = doGet(ref, url);
 
       List<String> ids = request.getInstanceIds();
-      if (shouldFilter(ids)) {
+      IdSet idSet = idFilter(ids);
+      if (shouldFilter(ids) || !filter.isEmpty()) {
         List<ClassicLinkInstance> is = new ArrayList<ClassicLinkInstance>();
         for (ClassicLinkInstance i : instances) {
-          if (matches(ids, i.getInstanceId()))
+          if (matches(idSet, i.getInstanceId()) && filter.test(i))
             is.add(i);
         }
         instances = is;
@@ -74,39 +99,43 @@ public class EddaEc2Client extends EddaAwsClient {
 
   public DescribeImagesResult describeImages(DescribeImagesRequest request) {
     validateEmpty("ExecutableUsers", request.getExecutableUsers());
-    List<Filter> filters = request.getFilters();
-    String path = "aws/images";
-    if (filters != null && filters.size() > 0) {
-      if (
-        filters.size() == 1 &&
-        filters.get(0) != null &&
-        "is-public".equals(filters.get(0).getName()) &&
-         filters.get(0).getValues() != null &&
-         filters.get(0).getValues().size() == 1 &&
-         "false".equals(filters.get(0).getValues().get(0))
-      ) {
-        path = "view/images";
-      }
-      else {
-        throw new UnsupportedOperationException("filters only support is-public=false");
-      }
-    }
+    Ec2Filter<Image> filter = Ec2Filters.IMAGES.compile(request.getFilters());
+
+    // Images that are not public are also available from a smaller view
+    List<String> isPublic = filter.exactValues("is-public");
+    String path = Collections.singletonList("false").equals(isPublic) ? "view/images" : "aws/images";
 
-    TypeReference<List<Image>> ref = new TypeReference<List<Image>>() {};
     String url = config.url() + "/api/v2/"+ path + ";_expand";
     try {
-      List<Image> images = parse(ref, doGet(url));
-
       List<String> owners = request.getOwners();
       List<String> ids = request.getImageIds();
-      if (shouldFilter(owners) || shouldFilter(ids)) {
+      IdSet idSet = idFilter(ids);
+      List<String> keys = shouldFilter(ids) ? ids : filter.exactValues("image-id");
+      List<Image> images = null;
+      if (config.useImageCache()) {
+        images = imageCache(path).get(owners, keys, filter);
+      }
+      else if (useKeyedLists()) {
+        TypeReference<Image> ref = new TypeReference<Image>() {};
+        KeyedList<Image> elements = doGetKeyed(ref, url, IMAGE_KEYS);
+        images = (keys != null) ? elements.select(keys) : elements;
+      }
+      else {
+        TypeReference<List<Image>> ref = new TypeReference<List<Image>>() {};
+        images = doGet(ref, url);
+      }
+
+      if (shouldFilter(owners) || shouldFilter(ids) || !filter.isEmpty()) {
         List<Image> is = new ArrayList<Image>();
         for (Image i : images) {
-          if (matches(owners, i.getOwnerId()) && matches(ids, i.getImageId()))
+          if (matches(owners, i.getOwnerId()) && matches(idSet, i.getImageId()) && filter.test(i))
             is.add(i);
         }
         images = is;
       }
+      else if (useLazyResults()) {
+        return LazyResults.images(images);
+      }
 
       return new DescribeImagesResult()
         .withImages(images);
@@ -116,34 +145,97 @@ public class EddaEc2Client extends EddaAwsClient {
     }
   }
 
+  /** Image cache for the path, the ids are checked for changes if the refresh interval passed. */
+  private ImageCache imageCache(String path) throws IOException {
+    ImageCache cache = imageCaches.computeIfAbsent(
+      path,
+      k -> new ImageCache(
+        config.imageCacheRefreshInterval().getMillis(),
+        config.imageCacheReloadInterval().getMillis())
+    );
+    long now = System.currentTimeMillis();
+    if (cache.needsRefresh(now)) {
+      synchronized (cache) {
+        if (cache.needsRefresh(now)) refreshImages(cache, path, now);
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Load all images the first time and when the reload interval has passed, otherwise fetch the
+   * current ids and only the images that are not already cached or still pending. The images
+   * are parsed directly rather than using the result cache so the large responses are not kept
+   * twice.
+   */
+  private void refreshImages(ImageCache cache, String path, long now) throws IOException {
+    TypeReference<List<Image>> ref = new TypeReference<List<Image>>() {};
+    String url = config.url() + "/api/v2/" + path;
+    if (cache.needsReload(now)) {
+      cache.load(now, parse(ref, doGet(url + ";_expand")));
+      return;
+    }
+
+    List<String> ids = doGet(new TypeReference<List<String>>() {}, url);
+    List<String> missing = cache.missing(ids);
+    List<Image> fetched = new ArrayList<Image>();
+    for (int i = 0; i < missing.size(); i += IMAGE_BATCH_SIZE) {
+      List<String> batch = missing.subList(i, Math.min(i + IMAGE_BATCH_SIZE, missing.size()));
+      fetched.addAll(parse(ref, doGet(url + ";imageId=" + String.join(",", batch) + ";_expand")));
+    }
+    cache.update(now, ids, fetched);
+  }
+
   public DescribeInstancesResult describeInstances() {
     return describeInstances(new DescribeInstancesRequest());
   }
 
+  @SuppressWarnings("unchecked")
   public DescribeInstancesResult describeInstances(DescribeInstancesRequest request) {
-    validateEmpty("Filter", request.getFilters());
+    List<Filter> filters = request.getFilters();
+    Ec2Filter<Reservation> reservationFilter = Ec2Filters.RESERVATIONS.compile(filters, Ec2Filters.INSTANCES);
+    Ec2Filter<Instance> instanceFilter = Ec2Filters.INSTANCES.compile(filters, Ec2Filters.RESERVATIONS);
 
-    TypeReference<List<Reservation>> ref = new TypeReference<List<Reservation>>() {};
     String url = config.url() + "/api/v2/aws/instances;_expand";
     try {
-      List<Reservation> reservations = parse(ref, doGet(url));
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxResults();
+      Snapshot<Reservation> snapshot = null;
+      if (useKeyedLists()) {
+        TypeReference<Reservation> ref = new TypeReference<Reservation>() {};
+        snapshot = doGetKeyedSnapshot(ref, url, INSTANCE_KEYS, token, max);
+      }
+      else {
+        TypeReference<List<Reservation>> ref = new TypeReference<List<Reservation>>() {};
+        snapshot = doGetSnapshot(ref, url, token, max);
+      }
+      List<Reservation> reservations = snapshot.getItems();
 
       List<String> ids = request.getInstanceIds();
-      if (shouldFilter(ids)) {
+      IdSet idSet = idFilter(ids);
+      boolean filtered = shouldFilter(ids) || !reservationFilter.isEmpty() || !instanceFilter.isEmpty();
+      if (filtered) {
+        List<String> keys = shouldFilter(ids) ? ids : instanceFilter.exactValues("instance-id");
+        if (keys != null && snapshot instanceof KeyedSnapshot)
+          reservations = ((KeyedSnapshot<Reservation>) snapshot).select(keys);
         List<Reservation> rs = new ArrayList<Reservation>();
         for (Reservation r : reservations) {
+          if (!reservationFilter.test(r)) continue;
           List<Instance> is = new ArrayList<Instance>();
           for (Instance i : r.getInstances()) {
-            if (matches(ids, i.getInstanceId()))
+            if (matches(idSet, i.getInstanceId()) && instanceFilter.test(i))
               is.add(i);
           }
           if (is.size() > 0)
-            rs.add(r.withInstances(is));
+            rs.add(r.clone().withInstances(is));
         }
         reservations = rs;
       }
-      return new DescribeInstancesResult()
-        .withReservations(reservations);
+      List<Reservation> page = PageToken.page(reservations, token, max, INSTANCE_COUNT);
+      DescribeInstancesResult result = (useLazyResults() && !filtered)
+        ? LazyResults.reservations(page)
+        : new DescribeInstancesResult().withReservations(page);
+      return result.withNextToken(PageToken.next(snapshot, reservations, token, max, INSTANCE_COUNT));
     }
     catch (IOException e) {
       throw new AmazonClientException("Faled to parse " + url, e);
@@ -155,7 +247,7 @@ public class EddaEc2Client extends EddaAwsClient {
   }
 
   public DescribeReservedInstancesOfferingsResult describeReservedInstancesOfferings(DescribeReservedInstancesOfferingsRequest request) {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<ReservedInstancesOffering> filter = Ec2Filters.RESERVED_INSTANCES_OFFERINGS.compile(request.getFilters());
     validateEmpty("AvailabilityZone", request.getAvailabilityZone());
     validateEmpty("IncludeMarketplace", request.getIncludeMarketplace());
     validateEmpty("InstanceTenancy", request.getInstanceTenancy());
@@ -166,13 +258,14 @@ public class EddaEc2Client extends EddaAwsClient {
     TypeReference<List<ReservedInstancesOffering>> ref = new TypeReference<List<ReservedInstancesOffering>>() {};
     String url = config.url() + "/api/v2/aws/reservedInstancesOfferings;_expand";
     try {
-      List<ReservedInstancesOffering> reservedInstancesOfferings = parse(ref, doGet(url));
+      List<ReservedInstancesOffering> reservedInstancesOfferings = doGet(ref, url);
 
       List<String> ids = request.getReservedInstancesOfferingIds();
-      if (shouldFilter(ids)) {
+      IdSet idSet = idFilter(ids);
+      if (shouldFilter(ids) || !filter.isEmpty()) {
         List<ReservedInstancesOffering> rs = new ArrayList<ReservedInstancesOffering>();
         for (ReservedInstancesOffering r : reservedInstancesOfferings) {
-          if (matches(ids, r.getReservedInstancesOfferingId()))
+          if (matches(idSet, r.getReservedInstancesOfferingId()) && filter.test(r))
             rs.add(r);
         }
         reservedInstancesOfferings = rs;
@@ -190,19 +283,20 @@ public class EddaEc2Client extends EddaAwsClient {
   }
 
   public DescribeSecurityGroupsResult describeSecurityGroups(DescribeSecurityGroupsRequest request) {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<SecurityGroup> filter = Ec2Filters.SECURITY_GROUPS.compile(request.getFilters());
 
     TypeReference<List<SecurityGroup>> ref = new TypeReference<List<SecurityGroup>>() {};
     String url = config.url() + "/api/v2/aws/securityGroups;_expand";
     try {
-      List<SecurityGroup> securityGroups = parse(ref, doGet(url));
+      List<SecurityGroup> securityGroups = doGet(ref, url);
 
       List<String> names = request.getGroupNames();
       List<String> ids = request.getGroupIds();
-      if (shouldFilter(names) || shouldFilter(ids)) {
+      IdSet idSet = idFilter(ids);
+      if (shouldFilter(names) || shouldFilter(ids) || !filter.isEmpty()) {
         List<SecurityGroup> sgs = new ArrayList<SecurityGroup>();
         for (SecurityGroup sg : securityGroups) {
-          if (matches(names, sg.getGroupName()) && matches(ids, sg.getGroupId()))
+          if (matches(names, sg.getGroupName()) && matches(idSet, sg.getGroupId()) && filter.test(sg))
             sgs.add(sg);
         }
         securityGroups = sgs;
@@ -221,18 +315,19 @@ public class EddaEc2Client extends EddaAwsClient {
   }
 
   public DescribeSubnetsResult describeSubnets(DescribeSubnetsRequest request) {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<Subnet> filter = Ec2Filters.SUBNETS.compile(request.getFilters());
 
     TypeReference<List<Subnet>> ref = new TypeReference<List<Subnet>>() {};
     String url = config.url() + "/api/v2/aws/subnets;_expand";
     try {
-      List<Subnet> subnets = parse(ref, doGet(url));
+      List<Subnet> subnets = doGet(ref, url);
 
       List<String> ids = request.getSubnetIds();
-      if (shouldFilter(ids)) {
+      IdSet idSet = idFilter(ids);
+      if (shouldFilter(ids) || !filter.isEmpty()) {
         List<Subnet> ss = new ArrayList<Subnet>();
         for (Subnet s : subnets) {
-          if (matches(ids, s.getSubnetId()))
+          if (matches(idSet, s.getSubnetId()) && filter.test(s))
             ss.add(s);
         }
         subnets = ss;
@@ -251,18 +346,19 @@ public class EddaEc2Client extends EddaAwsClient {
   }
 
   public DescribeVolumesResult describeVolumes(DescribeVolumesRequest request) {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<Volume> filter = Ec2Filters.VOLUMES.compile(request.getFilters());
 
     TypeReference<List<Volume>> ref = new TypeReference<List<Volume>>() {};
     String url = config.url() + "/api/v2/aws/volumes;_expand";
     try {
-      List<Volume> volumes = parse(ref, doGet(url));
+      List<Volume> volumes = doGet(ref, url);
 
       List<String> ids = request.getVolumeIds();
-      if (shouldFilter(ids)) {
+      IdSet idSet = idFilter(ids);
+      if (shouldFilter(ids) || !filter.isEmpty()) {
         List<Volume> vs = new ArrayList<Volume>();
         for (Volume v : volumes) {
-          if (matches(ids, v.getVolumeId()))
+          if (matches(idSet, v.getVolumeId()) && filter.test(v))
             vs.add(v);
         }
         volumes = vs;
@@ -281,18 +377,19 @@ public class EddaEc2Client extends EddaAwsClient {
   }
 
   public DescribeVpcsResult describeVpcs(DescribeVpcsRequest request) {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<Vpc> filter = Ec2Filters.VPCS.compile(request.getFilters());
 
     TypeReference<List<Vpc>> ref = new TypeReference<List<Vpc>>() {};
     String url = config.url() + "/api/v2/aws/vpcs;_expand";
     try {
-      List<Vpc> vpcs = parse(ref, doGet(url));
+      List<Vpc> vpcs = doGet(ref, url);
 
       List<String> ids = request.getVpcIds();
-      if (shouldFilter(ids)) {
+      IdSet idSet = idFilter(ids);
+      if (shouldFilter(ids) || !filter.isEmpty()) {
         List<Vpc> vs = new ArrayList<Vpc>();
         for (Vpc v : vpcs) {
-          if (matches(ids, v.getVpcId()))
+          if (matches(idSet, v.getVpcId()) && filter.test(v))
             vs.add(v);
         }
         vpcs = vs;
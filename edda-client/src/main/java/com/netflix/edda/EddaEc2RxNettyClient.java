@@ -16,8 +16,12 @@
 package com.netflix.edda;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -25,12 +29,35 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.ec2.AmazonEC2RxNetty;
 import com.amazonaws.services.ec2.model.*;
 
+import com.netflix.edda.filter.Ec2Filter;
+import com.netflix.edda.filter.Ec2Filters;
+import com.netflix.edda.store.KeyExtractor;
+import com.netflix.edda.util.IdSet;
+
 import com.amazonaws.services.ServiceResult;
 import com.amazonaws.services.PaginatedServiceResult;
 
 import rx.Observable;
 
 public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
+  private static final KeyExtractor IMAGE_KEYS = KeyExtractor.field("imageId");
+  private static final KeyExtractor INSTANCE_KEYS = KeyExtractor.nested("instances", "instanceId");
+
+  /**
+   * EC2 counts instances rather than reservations for MaxResults, reservations are not split
+   * across pages.
+   */
+  private static final ToIntFunction<Reservation> INSTANCE_COUNT = r -> r.getInstances().size();
+
+  /** Maximum number of image ids fetched with a single request when refreshing the cache */
+  private static final int IMAGE_BATCH_SIZE = 100;
+
+  private final Map<String, ImageCache> imageCaches = new ConcurrentHashMap<String, ImageCache>();
+
+  // Refresh of the image cache that is in flight for each path
+  private final Map<String, Observable<ImageCache>> imageRefreshes =
+    new ConcurrentHashMap<String, Observable<ImageCache>>();
+
   public EddaEc2RxNettyClient(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
   }
@@ -51,7 +78,7 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     final DescribeClassicLinkInstancesRequest request
   ) {
     return Observable.defer(() -> {
-      validateEmpty("Filter", request.getFilters());
+      Ec2Filter<ClassicLinkInstance> filter = Ec2Filters.CLASSIC_LINK_INSTANCES.compile(request.getFilters());
 
       TypeReference<ClassicLinkInstance> ref = new TypeReference<ClassicLinkInstance>(){
       };
@@ -59,10 +86,11 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
       String url = config.url() + "/api/v2/aws/classicLinkInstances;_expand";
       return doGet(ref, url).map(instances -> {
         List<String> ids = request.getInstanceIds();
-        if (shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(ids) || !filter.isEmpty()) {
           List<ClassicLinkInstance> is = new ArrayList<ClassicLinkInstance>();
           for (ClassicLinkInstance i : instances) {
-            if (matches(ids, i.getInstanceId()))
+            if (matches(idSet, i.getInstanceId()) && filter.test(i))
               is.add(i);
           }
           instances = is;
@@ -86,37 +114,41 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
   ) {
     return Observable.defer(() -> {
       validateEmpty("ExecutableUsers", request.getExecutableUsers());
-      List<Filter> filters = request.getFilters();
-      String path = "aws/images";
-      if (filters != null && filters.size() > 0) {
-        if (
-          filters.size() == 1 &&
-          filters.get(0) != null &&
-          "is-public".equals(filters.get(0).getName()) &&
-           filters.get(0).getValues() != null &&
-           filters.get(0).getValues().size() == 1 &&
-           "false".equals(filters.get(0).getValues().get(0))
-        ) {
-          path = "view/images";
-        }
-        else {
-          throw new UnsupportedOperationException("filters only support is-public=false");
-        }
-      }
+      Ec2Filter<Image> filter = Ec2Filters.IMAGES.compile(request.getFilters());
+
+      // Images that are not public are also available from a smaller view
+      List<String> isPublic = filter.exactValues("is-public");
+      String path = Collections.singletonList("false").equals(isPublic) ? "view/images" : "aws/images";
 
       TypeReference<Image> ref = new TypeReference<Image>() {};
       String url = config.url() + "/api/v2/" + path + ";_expand";
-      return doGet(ref, url).map(images -> {
-        List<String> owners = request.getOwners();
-        List<String> ids = request.getImageIds();
-        if (shouldFilter(owners) || shouldFilter(ids)) {
+      List<String> owners = request.getOwners();
+      List<String> ids = request.getImageIds();
+      IdSet idSet = idFilter(ids);
+      List<String> keys = shouldFilter(ids) ? ids : filter.exactValues("image-id");
+      Observable<List<Image>> candidates = null;
+      if (config.useImageCache()) {
+        candidates = imageCache(path).map(cache -> cache.get(owners, keys, filter));
+      }
+      else if (useKeyedLists()) {
+        candidates = doGetKeyed(ref, url, 1024 * 1024, IMAGE_KEYS)
+          .map(elements -> (keys != null) ? elements.select(keys) : elements);
+      }
+      else {
+        candidates = doGet(ref, url);
+      }
+      return candidates.map(images -> {
+        if (shouldFilter(owners) || shouldFilter(ids) || !filter.isEmpty()) {
           List<Image> is = new ArrayList<Image>();
           for (Image i : images) {
-            if (matches(owners, i.getOwnerId()) && matches(ids, i.getImageId()))
+            if (matches(owners, i.getOwnerId()) && matches(idSet, i.getImageId()) && filter.test(i))
               is.add(i);
           }
           images = is;
         }
+        else if (useLazyResults()) {
+          return new ServiceResult<DescribeImagesResult>(0, LazyResults.images(images));
+        }
 
         return new ServiceResult<DescribeImagesResult>(
           0, //sr.startTime,
@@ -126,37 +158,127 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     });
   }
 
+  /**
+   * Image cache for the path, the ids are checked for changes if the refresh interval passed.
+   * Only one refresh per path is in flight at a time, other subscribers get the result of that
+   * refresh.
+   */
+  private Observable<ImageCache> imageCache(String path) {
+    return Observable.defer(() -> {
+      ImageCache cache = imageCaches.computeIfAbsent(
+        path,
+        k -> new ImageCache(
+          config.imageCacheRefreshInterval().getMillis(),
+          config.imageCacheReloadInterval().getMillis())
+      );
+      long now = System.currentTimeMillis();
+      while (true) {
+        if (!cache.needsRefresh(now)) return Observable.just(cache);
+        Observable<ImageCache> pending = imageRefreshes.get(path);
+        if (pending != null) return pending;
+        Observable<ImageCache> obs = refreshImages(cache, path, now)
+          .doOnTerminate(() -> imageRefreshes.remove(path))
+          .cache();
+        if (imageRefreshes.putIfAbsent(path, obs) == null) return obs;
+      }
+    });
+  }
+
+  /**
+   * Load all images the first time and when the reload interval has passed, otherwise fetch the
+   * current ids and only the images that are not already cached or still pending.
+   */
+  private Observable<ImageCache> refreshImages(ImageCache cache, String path, long now) {
+    String url = config.url() + "/api/v2/" + path;
+    if (cache.needsReload(now)) {
+      return fetchImages(url + ";_expand").map(images -> {
+        cache.load(now, images);
+        return cache;
+      });
+    }
+    return doGet(new TypeReference<String>() {}, url).flatMap(ids -> {
+      List<String> missing = cache.missing(ids);
+      int batches = (missing.size() + IMAGE_BATCH_SIZE - 1) / IMAGE_BATCH_SIZE;
+      return Observable.range(0, batches)
+        .concatMap(b -> {
+          int end = Math.min((b + 1) * IMAGE_BATCH_SIZE, missing.size());
+          List<String> batch = missing.subList(b * IMAGE_BATCH_SIZE, end);
+          return fetchImages(url + ";imageId=" + String.join(",", batch) + ";_expand");
+        })
+        .collect(() -> new ArrayList<Image>(), (acc, images) -> acc.addAll(images))
+        .map(fetched -> {
+          cache.update(now, ids, fetched);
+          return cache;
+        });
+    });
+  }
+
+  /** Fetch images without the result cache so the large responses are not kept twice. */
+  private Observable<List<Image>> fetchImages(String url) {
+    TypeReference<Image> ref = new TypeReference<Image>() {};
+    return reduceElements(
+      url,
+      1024 * 1024,
+      () -> new ArrayList<Image>(),
+      (acc, bb) -> {
+        acc.add(parse(ref, bb));
+        return acc;
+      }
+    );
+  }
+
   public Observable<PaginatedServiceResult<DescribeInstancesResult>> describeInstances() {
     return describeInstances(new DescribeInstancesRequest());
   }
 
+  @SuppressWarnings("unchecked")
   public Observable<PaginatedServiceResult<DescribeInstancesResult>> describeInstances(
     final DescribeInstancesRequest request
   ) {
     return Observable.defer(() -> {
-      validateEmpty("Filter", request.getFilters());
+      List<Filter> filters = request.getFilters();
+      Ec2Filter<Reservation> reservationFilter = Ec2Filters.RESERVATIONS.compile(filters, Ec2Filters.INSTANCES);
+      Ec2Filter<Instance> instanceFilter = Ec2Filters.INSTANCES.compile(filters, Ec2Filters.RESERVATIONS);
 
       TypeReference<Reservation> ref = new TypeReference<Reservation>() {};
       String url = config.url() + "/api/v2/aws/instances;_expand";
-      return doGet(ref, url, 16 * 1024 * 1024).map(reservations -> {
+      PageToken token = PageToken.parse(request.getNextToken());
+      Integer max = request.getMaxResults();
+      int maxLength = 16 * 1024 * 1024;
+      Observable<? extends Snapshot<Reservation>> snapshots = useKeyedLists()
+        ? doGetKeyedSnapshot(ref, url, maxLength, INSTANCE_KEYS, token, max)
+        : doGetSnapshot(ref, url, maxLength, token, max);
+      return snapshots.map(snapshot -> {
+        List<Reservation> reservations = snapshot.getItems();
         List<String> ids = request.getInstanceIds();
-        if (shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        boolean filtered = shouldFilter(ids) || !reservationFilter.isEmpty() || !instanceFilter.isEmpty();
+        if (filtered) {
+          List<String> keys = shouldFilter(ids) ? ids : instanceFilter.exactValues("instance-id");
+          if (keys != null && snapshot instanceof KeyedSnapshot)
+            reservations = ((KeyedSnapshot<Reservation>) snapshot).select(keys);
           List<Reservation> rs = new ArrayList<Reservation>();
           for (Reservation r : reservations) {
+            if (!reservationFilter.test(r)) continue;
             List<Instance> is = new ArrayList<Instance>();
             for (Instance i : r.getInstances()) {
-              if (matches(ids, i.getInstanceId()))
+              if (matches(idSet, i.getInstanceId()) && instanceFilter.test(i))
                 is.add(i);
             }
             if (is.size() > 0)
-              rs.add(r.withInstances(is));
+              rs.add(r.clone().withInstances(is));
           }
           reservations = rs;
         }
+        String nextToken = PageToken.next(snapshot, reservations, token, max, INSTANCE_COUNT);
+        List<Reservation> page = PageToken.page(reservations, token, max, INSTANCE_COUNT);
+        DescribeInstancesResult result = (useLazyResults() && !filtered)
+          ? LazyResults.reservations(page)
+          : new DescribeInstancesResult().withReservations(page);
         return new PaginatedServiceResult<DescribeInstancesResult>(
           0, //sr.startTime,
-          null,
-          new DescribeInstancesResult().withReservations(reservations)
+          nextToken,
+          result.withNextToken(nextToken)
         );
       });
     });
@@ -170,7 +292,7 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     final DescribeReservedInstancesOfferingsRequest request
   ) {
     return Observable.defer(() -> {
-      validateEmpty("Filter", request.getFilters());
+      Ec2Filter<ReservedInstancesOffering> filter = Ec2Filters.RESERVED_INSTANCES_OFFERINGS.compile(request.getFilters());
       validateEmpty("AvailabilityZone", request.getAvailabilityZone());
       validateEmpty("IncludeMarketplace", request.getIncludeMarketplace());
       validateEmpty("InstanceTenancy", request.getInstanceTenancy());
@@ -182,10 +304,11 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
       String url = config.url() + "/api/v2/aws/reservedInstancesOfferings;_expand";
       return doGet(ref, url).map(reservedInstancesOfferings -> {
         List<String> ids = request.getReservedInstancesOfferingIds();
-        if (shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(ids) || !filter.isEmpty()) {
           List<ReservedInstancesOffering> rs = new ArrayList<ReservedInstancesOffering>();
           for (ReservedInstancesOffering r : reservedInstancesOfferings) {
-            if (matches(ids, r.getReservedInstancesOfferingId()))
+            if (matches(idSet, r.getReservedInstancesOfferingId()) && filter.test(r))
               rs.add(r);
           }
           reservedInstancesOfferings = rs;
@@ -207,17 +330,18 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     final DescribeSecurityGroupsRequest request
   ) {
     return Observable.defer(() -> {
-      validateEmpty("Filter", request.getFilters());
+      Ec2Filter<SecurityGroup> filter = Ec2Filters.SECURITY_GROUPS.compile(request.getFilters());
 
       TypeReference<SecurityGroup> ref = new TypeReference<SecurityGroup>() {};
       String url = config.url() + "/api/v2/aws/securityGroups;_expand";
       return doGet(ref, url).map(securityGroups -> {
         List<String> names = request.getGroupNames();
         List<String> ids = request.getGroupIds();
-        if (shouldFilter(names) || shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(names) || shouldFilter(ids) || !filter.isEmpty()) {
           List<SecurityGroup> sgs = new ArrayList<SecurityGroup>();
           for (SecurityGroup sg : securityGroups) {
-            if (matches(names, sg.getGroupName()) && matches(ids, sg.getGroupId()))
+            if (matches(names, sg.getGroupName()) && matches(idSet, sg.getGroupId()) && filter.test(sg))
               sgs.add(sg);
           }
           securityGroups = sgs;
@@ -239,16 +363,17 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     final DescribeSubnetsRequest request
   ) {
     return Observable.defer(() -> {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<Subnet> filter = Ec2Filters.SUBNETS.compile(request.getFilters());
 
     TypeReference<Subnet> ref = new TypeReference<Subnet>() {};
     String url = config.url() + "/api/v2/aws/subnets;_expand";
       return doGet(ref, url).map(subnets -> {
         List<String> ids = request.getSubnetIds();
-        if (shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(ids) || !filter.isEmpty()) {
           List<Subnet> ss = new ArrayList<Subnet>();
           for (Subnet s : subnets) {
-            if (matches(ids, s.getSubnetId()))
+            if (matches(idSet, s.getSubnetId()) && filter.test(s))
               ss.add(s);
           }
           subnets = ss;
@@ -270,16 +395,17 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     final DescribeVolumesRequest request
   ) {
     return Observable.defer(() -> {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<Volume> filter = Ec2Filters.VOLUMES.compile(request.getFilters());
 
     TypeReference<Volume> ref = new TypeReference<Volume>() {};
     String url = config.url() + "/api/v2/aws/volumes;_expand";
       return doGet(ref, url).map(volumes -> {
         List<String> ids = request.getVolumeIds();
-        if (shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(ids) || !filter.isEmpty()) {
           List<Volume> vs = new ArrayList<Volume>();
           for (Volume v : volumes) {
-            if (matches(ids, v.getVolumeId()))
+            if (matches(idSet, v.getVolumeId()) && filter.test(v))
               vs.add(v);
           }
           volumes = vs;
@@ -302,16 +428,17 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     final DescribeVpcPeeringConnectionsRequest request
   ) {
     return Observable.defer(() -> {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<VpcPeeringConnection> filter = Ec2Filters.VPC_PEERING_CONNECTIONS.compile(request.getFilters());
 
     TypeReference<VpcPeeringConnection> ref = new TypeReference<VpcPeeringConnection>() {};
     String url = config.url() + "/api/v2/aws/vpcPeeringConnections;_expand";
       return doGet(ref, url).map(vpcPeeringConnections -> {
         List<String> ids = request.getVpcPeeringConnectionIds();
-        if (shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(ids) || !filter.isEmpty()) {
           List<VpcPeeringConnection> vs = new ArrayList<VpcPeeringConnection>();
           for (VpcPeeringConnection v : vpcPeeringConnections) {
-            if (matches(ids, v.getVpcPeeringConnectionId()))
+            if (matches(idSet, v.getVpcPeeringConnectionId()) && filter.test(v))
               vs.add(v);
           }
           vpcPeeringConnections = vs;
@@ -333,16 +460,17 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     final DescribeVpcsRequest request
   ) {
     return Observable.defer(() -> {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<Vpc> filter = Ec2Filters.VPCS.compile(request.getFilters());
 
     TypeReference<Vpc> ref = new TypeReference<Vpc>() {};
     String url = config.url() + "/api/v2/aws/vpcs;_expand";
       return doGet(ref, url).map(vpcs -> {
         List<String> ids = request.getVpcIds();
-        if (shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(ids) || !filter.isEmpty()) {
           List<Vpc> vs = new ArrayList<Vpc>();
           for (Vpc v : vpcs) {
-            if (matches(ids, v.getVpcId()))
+            if (matches(idSet, v.getVpcId()) && filter.test(v))
               vs.add(v);
           }
           vpcs = vs;
@@ -364,16 +492,17 @@ public class EddaEc2RxNettyClient extends EddaAwsRxNettyClient {
     final DescribeVpcClassicLinkRequest request
   ) {
     return Observable.defer(() -> {
-    validateEmpty("Filter", request.getFilters());
+    Ec2Filter<VpcClassicLink> filter = Ec2Filters.VPC_CLASSIC_LINKS.compile(request.getFilters());
 
     TypeReference<VpcClassicLink> ref = new TypeReference<VpcClassicLink>() {};
     String url = config.url() + "/api/v2/aws/vpcClassicLinks;_expand";
       return doGet(ref, url).map(vpcs -> {
         List<String> ids = request.getVpcIds();
-        if (shouldFilter(ids)) {
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(ids) || !filter.isEmpty()) {
           List<VpcClassicLink> vs = new ArrayList<VpcClassicLink>();
           for (VpcClassicLink v : vpcs) {
-            if (matches(ids, v.getVpcId()))
+            if (matches(idSet, v.getVpcId()) && filter.test(v))
               vs.add(v);
           }
           vpcs = vs;
@@ -25,12 +25,22 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancing;
 import com.amazonaws.services.elasticloadbalancing.model.*;
 
+import com.netflix.edda.index.InstanceHealthIndex;
+import com.netflix.edda.index.LoadBalancerAttributesIndex;
 import com.netflix.edda.mapper.InstanceStateView;
 import com.netflix.edda.mapper.LoadBalancerAttributesView;
+import com.netflix.edda.util.IdSet;
 
 public class EddaElasticLoadBalancingClient extends EddaAwsClient {
+  private final ExpiringValue<InstanceHealthIndex> instanceHealth;
+  private final ExpiringValue<LoadBalancerAttributesIndex> loadBalancerAttributes;
+
   public EddaElasticLoadBalancingClient(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
+    this.instanceHealth = new ExpiringValue<InstanceHealthIndex>(
+      config.instanceHealthTtl().getMillis());
+    this.loadBalancerAttributes = new ExpiringValue<LoadBalancerAttributesIndex>(
+      config.loadBalancerAttributesTtl().getMillis());
   }
 
   public AmazonElasticLoadBalancing readOnly() {
@@ -41,38 +51,63 @@ public class EddaElasticLoadBalancingClient extends EddaAwsClient {
     return wrapAwsClient(AmazonElasticLoadBalancing.class, delegate);
   }
 
+  /**
+   * Index of the instance health for all load balancers. The full view is fetched at most once
+   * per ttl, concurrent callers share a single refresh, and the index is only rebuilt if the
+   * response changed.
+   */
+  public InstanceHealthIndex getInstanceHealthIndex() {
+    return instanceHealth.get(() -> {
+      TypeReference<List<InstanceStateView>> ref =
+        new TypeReference<List<InstanceStateView>>() {};
+      String url = config.url() + "/api/v2/view/loadBalancerInstances;_expand";
+      try {
+        return doGetDerived(ref, url, instanceHealth, InstanceHealthIndex::new);
+      }
+      catch (IOException e) {
+        throw new AmazonClientException("Faled to parse " + url, e);
+      }
+    });
+  }
+
   public DescribeInstanceHealthResult describeInstanceHealth(DescribeInstanceHealthRequest request) {
     validateNotEmpty("LoadBalancerName", request.getLoadBalancerName());
-
-    TypeReference<InstanceStateView> ref = new TypeReference<InstanceStateView>() {};
     String loadBalancerName = request.getLoadBalancerName();
-    
-    String url = config.url() + "/api/v2/view/loadBalancerInstances/"+loadBalancerName+";_expand";
-    try {
-      InstanceStateView instanceStateView = parse(ref, doGet(url));
-      List<InstanceState> instanceStates = instanceStateView.getInstances();
-
-      List<Instance> instances = request.getInstances();
-      List<String> ids = new ArrayList<String>();
-      if (instances != null) {
-        for (Instance i : instances)
-          ids.add(i.getInstanceId());
+
+    List<InstanceState> instanceStates = null;
+    if (config.bulkInstanceHealth())
+      instanceStates = getInstanceHealthIndex().getInstanceStates(loadBalancerName);
+
+    // Bulk view is disabled or the load balancer may have been created since the last refresh
+    if (instanceStates == null) {
+      TypeReference<InstanceStateView> ref = new TypeReference<InstanceStateView>() {};
+      String url = config.url() + "/api/v2/view/loadBalancerInstances/"+loadBalancerName+";_expand";
+      try {
+        instanceStates = doGet(ref, url).getInstances();
       }
-      if (shouldFilter(ids)) {
-        List<InstanceState> iss = new ArrayList<InstanceState>();
-        for (InstanceState is : instanceStates) {
-          if (matches(ids, is.getInstanceId()))
-            iss.add(is);
-        }
-        instanceStates = iss;
+      catch (IOException e) {
+        throw new AmazonClientException("Faled to parse " + url, e);
       }
+    }
 
-      return new DescribeInstanceHealthResult()
-        .withInstanceStates(instanceStateView.getInstances());
+    List<Instance> instances = request.getInstances();
+    List<String> ids = new ArrayList<String>();
+    if (instances != null) {
+      for (Instance i : instances)
+        ids.add(i.getInstanceId());
     }
-    catch (IOException e) {
-      throw new AmazonClientException("Faled to parse " + url, e);
+    IdSet idSet = idFilter(ids);
+    if (shouldFilter(ids)) {
+      List<InstanceState> iss = new ArrayList<InstanceState>();
+      for (InstanceState is : instanceStates) {
+        if (matches(idSet, is.getInstanceId()))
+          iss.add(is);
+      }
+      instanceStates = iss;
     }
+
+    return new DescribeInstanceHealthResult()
+      .withInstanceStates(instanceStates);
   }
 
   public DescribeLoadBalancersResult describeLoadBalancers() {
@@ -83,7 +118,7 @@ public class EddaElasticLoadBalancingClient extends EddaAwsClient {
     TypeReference<List<LoadBalancerDescription>> ref = new TypeReference<List<LoadBalancerDescription>>() {};
     String url = config.url() + "/api/v2/aws/loadBalancers;_expand";
     try {
-      List<LoadBalancerDescription> loadBalancerDescriptions = parse(ref, doGet(url));
+      List<LoadBalancerDescription> loadBalancerDescriptions = doGet(ref, url);
 
       List<String> names = request.getLoadBalancerNames();
       if (shouldFilter(names)) {
@@ -103,15 +138,42 @@ public class EddaElasticLoadBalancingClient extends EddaAwsClient {
     }
   }
 
+  /**
+   * Index of the attributes for all load balancers. The full view is fetched at most once per
+   * ttl, concurrent callers share a single refresh, and the index is only rebuilt if the
+   * response changed.
+   */
+  public LoadBalancerAttributesIndex getLoadBalancerAttributesIndex() {
+    return loadBalancerAttributes.get(() -> {
+      TypeReference<List<LoadBalancerAttributesView>> ref =
+        new TypeReference<List<LoadBalancerAttributesView>>() {};
+      String url = config.url() + "/api/v2/view/loadBalancerAttributes;_expand";
+      try {
+        return doGetDerived(ref, url, loadBalancerAttributes, LoadBalancerAttributesIndex::new);
+      }
+      catch (IOException e) {
+        throw new AmazonClientException("Faled to parse " + url, e);
+      }
+    });
+  }
+
   public DescribeLoadBalancerAttributesResult describeLoadBalancerAttributes(DescribeLoadBalancerAttributesRequest request) {
     validateNotEmpty("LoadBalancerName", request.getLoadBalancerName());
-
-    TypeReference<LoadBalancerAttributesView> ref = new TypeReference<LoadBalancerAttributesView>() {};
     String loadBalancerName = request.getLoadBalancerName();
 
+    if (config.bulkLoadBalancerAttributes()) {
+      LoadBalancerAttributes attributes =
+        getLoadBalancerAttributesIndex().getAttributes(loadBalancerName);
+      if (attributes != null)
+        return new DescribeLoadBalancerAttributesResult().withLoadBalancerAttributes(attributes);
+    }
+
+    // Bulk view is disabled or the load balancer may have been created since the last refresh
+
+    TypeReference<LoadBalancerAttributesView> ref = new TypeReference<LoadBalancerAttributesView>() {};
     String url = config.url() + "/api/v2/view/loadBalancerAttributes/"+loadBalancerName+";_expand";
     try {
-      LoadBalancerAttributesView loadBalancerAttributesView = parse(ref, doGet(url));
+      LoadBalancerAttributesView loadBalancerAttributesView = doGet(ref, url);
       return new DescribeLoadBalancerAttributesResult()
         .withLoadBalancerAttributes(loadBalancerAttributesView.getAttributes());
     }
@@ -24,8 +24,11 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancingRxNetty;
 import com.amazonaws.services.elasticloadbalancing.model.*;
 
+import com.netflix.edda.index.InstanceHealthIndex;
+import com.netflix.edda.index.LoadBalancerAttributesIndex;
 import com.netflix.edda.mapper.InstanceStateView;
 import com.netflix.edda.mapper.LoadBalancerAttributesView;
+import com.netflix.edda.util.IdSet;
 
 import com.amazonaws.services.ServiceResult;
 import com.amazonaws.services.NamedServiceResult;
@@ -34,8 +37,15 @@ import com.amazonaws.services.PaginatedServiceResult;
 import rx.Observable;
 
 public class EddaElasticLoadBalancingRxNettyClient extends EddaAwsRxNettyClient {
+  private final ExpiringValue<InstanceHealthIndex> instanceHealth;
+  private final ExpiringValue<LoadBalancerAttributesIndex> loadBalancerAttributes;
+
   public EddaElasticLoadBalancingRxNettyClient(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
+    this.instanceHealth = new ExpiringValue<InstanceHealthIndex>(
+      config.instanceHealthTtl().getMillis());
+    this.loadBalancerAttributes = new ExpiringValue<LoadBalancerAttributesIndex>(
+      config.loadBalancerAttributesTtl().getMillis());
   }
 
   public AmazonElasticLoadBalancingRxNetty readOnly() {
@@ -46,11 +56,27 @@ public class EddaElasticLoadBalancingRxNettyClient extends EddaAwsRxNettyClient
     return wrapAwsClient(AmazonElasticLoadBalancingRxNetty.class, delegate);
   }
 
+  /**
+   * Index of the instance health for all load balancers. The full view is fetched at most once
+   * per ttl, concurrent subscribers share a single refresh, and the index is only rebuilt if the
+   * response changed.
+   */
+  public Observable<InstanceHealthIndex> getInstanceHealthIndex() {
+    return instanceHealth.observe(() -> {
+      TypeReference<InstanceStateView> ref = new TypeReference<InstanceStateView>() {};
+      String url = config.url() + "/api/v2/view/loadBalancerInstances;_expand";
+      return doGetDerived(ref, url, instanceHealth, InstanceHealthIndex::new);
+    });
+  }
+
   public Observable<NamedServiceResult<DescribeInstanceHealthResult>> describeInstanceHealth() {
     return Observable.defer(() -> {
       TypeReference<InstanceStateView> ref = new TypeReference<InstanceStateView>() {};
       String url = config.url() + "/api/v2/view/loadBalancerInstances;_expand";
-      return doGet(ref, url).flatMap(vs -> {
+      Observable<List<InstanceStateView>> views = config.bulkInstanceHealth()
+        ? getInstanceHealthIndex().map(index -> index.getViews())
+        : doGet(ref, url);
+      return views.flatMap(vs -> {
           return Observable.from(vs).map(view -> {
             return new NamedServiceResult<DescribeInstanceHealthResult>(
               0,
@@ -67,39 +93,55 @@ public class EddaElasticLoadBalancingRxNettyClient extends EddaAwsRxNettyClient
   ) {
     return Observable.defer(() -> {
       validateNotEmpty("LoadBalancerName", request.getLoadBalancerName());
-
-      TypeReference<InstanceStateView> ref = new TypeReference<InstanceStateView>() {};
       String loadBalancerName = request.getLoadBalancerName();
-    
-      String url = config.url() + "/api/v2/view/loadBalancerInstances/"+loadBalancerName+";_expand";
-      return doGet(ref, url).flatMap(vs -> {
-        return Observable.from(vs).map(view -> {
-          List<InstanceState> instanceStates = view.getInstances();
 
-          List<Instance> instances = request.getInstances();
-          List<String> ids = new ArrayList<String>();
-          if (instances != null) {
-            for (Instance i : instances)
-              ids.add(i.getInstanceId());
-          }
-          if (shouldFilter(ids)) {
-            List<InstanceState> iss = new ArrayList<InstanceState>();
-            for (InstanceState is : instanceStates) {
-              if (matches(ids, is.getInstanceId()))
-                iss.add(is);
-            }
-            instanceStates = iss;
-          }
+      Observable<List<InstanceState>> states = null;
+      if (config.bulkInstanceHealth()) {
+        states = getInstanceHealthIndex().flatMap(index -> {
+          List<InstanceState> instanceStates = index.getInstanceStates(loadBalancerName);
+          if (instanceStates != null)
+            return Observable.just(instanceStates);
 
-          return new ServiceResult<DescribeInstanceHealthResult>(
-            0,
-            new DescribeInstanceHealthResult().withInstanceStates(instanceStates)
-          );
+          // Not in the cached view, the load balancer may have been created since the last refresh
+          return fetchInstanceStates(loadBalancerName);
         });
+      }
+      else {
+        states = fetchInstanceStates(loadBalancerName);
+      }
+
+      return states.map(instanceStates -> {
+        List<Instance> instances = request.getInstances();
+        List<String> ids = new ArrayList<String>();
+        if (instances != null) {
+          for (Instance i : instances)
+            ids.add(i.getInstanceId());
+        }
+        IdSet idSet = idFilter(ids);
+        if (shouldFilter(ids)) {
+          List<InstanceState> iss = new ArrayList<InstanceState>();
+          for (InstanceState is : instanceStates) {
+            if (matches(idSet, is.getInstanceId()))
+              iss.add(is);
+          }
+          instanceStates = iss;
+        }
+
+        return new ServiceResult<DescribeInstanceHealthResult>(
+          0,
+          new DescribeInstanceHealthResult().withInstanceStates(instanceStates)
+        );
       });
     });
   }
 
+  /** Fetch the instance states for a single load balancer. */
+  private Observable<List<InstanceState>> fetchInstanceStates(String loadBalancerName) {
+    TypeReference<InstanceStateView> ref = new TypeReference<InstanceStateView>() {};
+    String url = config.url() + "/api/v2/view/loadBalancerInstances/"+loadBalancerName+";_expand";
+    return doGet(ref, url).flatMap(vs -> Observable.from(vs).map(view -> view.getInstances()));
+  }
+
   public Observable<PaginatedServiceResult<DescribeLoadBalancersResult>> describeLoadBalancers() {
     return describeLoadBalancers(new DescribeLoadBalancersRequest());
   }
@@ -130,18 +172,34 @@ public class EddaElasticLoadBalancingRxNettyClient extends EddaAwsRxNettyClient
     });
   }
 
+  /**
+   * Index of the attributes for all load balancers. The full view is fetched at most once per
+   * ttl, concurrent subscribers share a single refresh, and the index is only rebuilt if the
+   * response changed.
+   */
+  public Observable<LoadBalancerAttributesIndex> getLoadBalancerAttributesIndex() {
+    return loadBalancerAttributes.observe(() -> {
+      TypeReference<LoadBalancerAttributesView> ref = new TypeReference<LoadBalancerAttributesView>() {};
+      String url = config.url() + "/api/v2/view/loadBalancerAttributes;_expand";
+      return doGetDerived(ref, url, loadBalancerAttributes, LoadBalancerAttributesIndex::new);
+    });
+  }
+
   public Observable<NamedServiceResult<DescribeLoadBalancerAttributesResult>> describeLoadBalancerAttributes() {
     return Observable.defer(() -> {
       TypeReference<LoadBalancerAttributesView> ref = new TypeReference<LoadBalancerAttributesView>() {};
       String url = config.url() + "/api/v2/view/loadBalancerAttributes;_expand";
-      return doGet(ref, url).flatMap(vs -> {
-          return Observable.from(vs).map(view -> {
-            return new NamedServiceResult<DescribeLoadBalancerAttributesResult>(
-              0,
-              view.getName(),
-              new DescribeLoadBalancerAttributesResult().withLoadBalancerAttributes(view.getAttributes())
-            );
-          });
+      Observable<List<LoadBalancerAttributesView>> views = config.bulkLoadBalancerAttributes()
+        ? getLoadBalancerAttributesIndex().map(index -> index.getViews())
+        : doGet(ref, url);
+      return views.flatMap(vs -> {
+        return Observable.from(vs).map(view -> {
+          return new NamedServiceResult<DescribeLoadBalancerAttributesResult>(
+            0,
+            view.getName(),
+            new DescribeLoadBalancerAttributesResult().withLoadBalancerAttributes(view.getAttributes())
+          );
+        });
       });
     });
   }
@@ -151,16 +209,36 @@ public class EddaElasticLoadBalancingRxNettyClient extends EddaAwsRxNettyClient
   ) {
     return Observable.defer(() -> {
       validateNotEmpty("LoadBalancerName", request.getLoadBalancerName());
-      TypeReference<LoadBalancerAttributesView> ref = new TypeReference<LoadBalancerAttributesView>() {};
       String loadBalancerName = request.getLoadBalancerName();
-      String url = config.url() + "/api/v2/view/loadBalancerAttributes/"+loadBalancerName+";_expand";
-      return doGet(ref, url).flatMap(vs -> {
-        return Observable.from(vs).map(view -> {
-          return new ServiceResult<DescribeLoadBalancerAttributesResult>(
+      if (!config.bulkLoadBalancerAttributes())
+        return fetchLoadBalancerAttributes(loadBalancerName);
+      return getLoadBalancerAttributesIndex().flatMap(index -> {
+        LoadBalancerAttributes attributes = index.getAttributes(loadBalancerName);
+        if (attributes != null) {
+          return Observable.just(new ServiceResult<DescribeLoadBalancerAttributesResult>(
             0,
-            new DescribeLoadBalancerAttributesResult().withLoadBalancerAttributes(view.getAttributes())
-          );
-        });
+            new DescribeLoadBalancerAttributesResult().withLoadBalancerAttributes(attributes)
+          ));
+        }
+
+        // Not in the cached view, the load balancer may have been created since the last refresh
+        return fetchLoadBalancerAttributes(loadBalancerName);
+      });
+    });
+  }
+
+  /** Fetch the attributes for a single load balancer. */
+  private Observable<ServiceResult<DescribeLoadBalancerAttributesResult>> fetchLoadBalancerAttributes(
+    String loadBalancerName
+  ) {
+    TypeReference<LoadBalancerAttributesView> ref = new TypeReference<LoadBalancerAttributesView>() {};
+    String url = config.url() + "/api/v2/view/loadBalancerAttributes/"+loadBalancerName+";_expand";
+    return doGet(ref, url).flatMap(vs -> {
+      return Observable.from(vs).map(view -> {
+        return new ServiceResult<DescribeLoadBalancerAttributesResult>(
+          0,
+          new DescribeLoadBalancerAttributesResult().withLoadBalancerAttributes(view.getAttributes())
+        );
       });
     });
   }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rx.Observable;
+import rx.functions.Func0;
+
+/**
+ * Periodically refreshes collections that have subscribers. There is a single polling stream per
+ * collection that is shared by all subscribers, new subscribers get the most recent snapshot
+ * immediately. Polling for a collection stops when the last subscriber unsubscribes.
+ */
+public class EddaPoller {
+  private static final Logger LOGGER = LoggerFactory.getLogger(EddaPoller.class);
+
+  private final EddaBundleClient client;
+  private final long interval;
+  private final ConcurrentMap<EddaCollection<?>, Observable<? extends Snapshot<?>>> streams =
+    new ConcurrentHashMap<EddaCollection<?>, Observable<? extends Snapshot<?>>>();
+  private final ConcurrentMap<EddaCollection<?>, Observable<? extends VersionedSnapshot<?>>> versions =
+    new ConcurrentHashMap<EddaCollection<?>, Observable<? extends VersionedSnapshot<?>>>();
+  private final ConcurrentMap<Object, Object> shared = new ConcurrentHashMap<Object, Object>();
+
+  public EddaPoller(EddaBundleClient client, long interval, TimeUnit unit) {
+    this.client = client;
+    this.interval = unit.toMillis(interval);
+  }
+
+  public EddaPoller(EddaBundleClient client, AwsConfiguration config) {
+    this(client, config.pollInterval().getMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private <T> Observable<Snapshot<T>> poll(final EddaCollection<T> collection) {
+    return Observable.interval(0L, interval, TimeUnit.MILLISECONDS)
+      .onBackpressureDrop()
+      .concatMap(tick -> client.fetch(collection).onErrorResumeNext(t -> {
+        LOGGER.warn("failed to refresh " + collection, t);
+        return Observable.empty();
+      }))
+      .replay(1)
+      .refCount();
+  }
+
+  private <T> Observable<VersionedSnapshot<T>> pollVersions(final EddaCollection<T> collection) {
+    final AtomicReference<VersionedSnapshot<T>> last =
+      new AtomicReference<VersionedSnapshot<T>>(VersionedSnapshot.<T>empty());
+    return Observable.interval(0L, interval, TimeUnit.MILLISECONDS)
+      .onBackpressureDrop()
+      .concatMap(tick -> client.fetch(collection, last.get())
+        .doOnNext(last::set)
+        .onErrorResumeNext(t -> {
+          LOGGER.warn("failed to refresh " + collection, t);
+          return Observable.empty();
+        }))
+      .replay(1)
+      .refCount();
+  }
+
+  /** Stream of snapshots for the collection. */
+  @SuppressWarnings("unchecked")
+  public <T> Observable<Snapshot<T>> snapshots(EddaCollection<T> collection) {
+    Observable<? extends Snapshot<?>> stream = streams.get(collection);
+    if (stream == null) {
+      Observable<Snapshot<T>> s = poll(collection);
+      stream = streams.putIfAbsent(collection, s);
+      if (stream == null) stream = s;
+    }
+    return (Observable<Snapshot<T>>) stream;
+  }
+
+  /**
+   * Stream of versioned snapshots for the collection. Each refresh is derived from the previous
+   * version so unchanged resources are not decoded again. The collection must have an id field.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Observable<VersionedSnapshot<T>> versions(EddaCollection<T> collection) {
+    Observable<? extends VersionedSnapshot<?>> stream = versions.get(collection);
+    if (stream == null) {
+      Observable<VersionedSnapshot<T>> s = pollVersions(collection);
+      stream = versions.putIfAbsent(collection, s);
+      if (stream == null) stream = s;
+    }
+    return (Observable<VersionedSnapshot<T>>) stream;
+  }
+
+  /**
+   * Return a value derived from the snapshot streams that should be shared by all users of the
+   * poller, for example a change feed. The factory will be used if there is no value for the key.
+   */
+  @SuppressWarnings("unchecked")
+  public <V> V shared(Object key, Func0<V> factory) {
+    Object v = shared.get(key);
+    if (v == null) {
+      V created = factory.call();
+      v = shared.putIfAbsent(key, created);
+      if (v == null) v = created;
+    }
+    return (V) v;
+  }
+}
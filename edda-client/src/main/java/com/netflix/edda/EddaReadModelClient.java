@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.Observable;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import com.netflix.edda.model.autoscaling.AutoScalingGroup;
+import com.netflix.edda.model.ec2.Instance;
+import com.netflix.edda.model.ec2.Reservation;
+import com.netflix.edda.model.ec2.SecurityGroup;
+import com.netflix.edda.model.ec2.Subnet;
+import com.netflix.edda.model.ec2.Vpc;
+import com.netflix.edda.model.elasticloadbalancing.LoadBalancerDescription;
+
+/**
+ * Fetch edda collections as the immutable read model classes in {@code com.netflix.edda.model}
+ * instead of the SDK model classes. The read model only keeps the commonly used fields so it is
+ * cheaper to decode and hold on to. Use {@code toSdk()} on an object if an SDK object is needed.
+ * The collections can also be fetched as part of a bundle using the constants below.
+ *
+ * <p>The read model classes are written by hand rather than generated from the SDK shapes. They
+ * use the same field names as the SDK, so the json from edda binds to both. When the SDK is
+ * updated, ReadModelTests checks that every field of the read model still exists on the
+ * corresponding SDK class. New SDK fields are not added automatically. They are only added to
+ * the read model if they are commonly used.
+ */
+public class EddaReadModelClient extends EddaBundleClient {
+  public static final EddaCollection<AutoScalingGroup> AUTO_SCALING_GROUPS =
+    new EddaCollection<AutoScalingGroup>(
+      "aws/autoScalingGroups", "autoScalingGroupName",
+      new TypeReference<AutoScalingGroup>() {}, 1024 * 1024);
+
+  public static final EddaCollection<Reservation> INSTANCES =
+    new EddaCollection<Reservation>(
+      "aws/instances", "reservationId",
+      new TypeReference<Reservation>() {}, 16 * 1024 * 1024);
+
+  public static final EddaCollection<LoadBalancerDescription> LOAD_BALANCERS =
+    new EddaCollection<LoadBalancerDescription>(
+      "aws/loadBalancers", "loadBalancerName",
+      new TypeReference<LoadBalancerDescription>() {}, 1024 * 1024);
+
+  public static final EddaCollection<SecurityGroup> SECURITY_GROUPS =
+    new EddaCollection<SecurityGroup>(
+      "aws/securityGroups", "groupId",
+      new TypeReference<SecurityGroup>() {}, 1024 * 1024);
+
+  public static final EddaCollection<Subnet> SUBNETS =
+    new EddaCollection<Subnet>(
+      "aws/subnets", "subnetId",
+      new TypeReference<Subnet>() {}, 1024 * 1024);
+
+  public static final EddaCollection<Vpc> VPCS =
+    new EddaCollection<Vpc>(
+      "aws/vpcs", "vpcId",
+      new TypeReference<Vpc>() {}, 1024 * 1024);
+
+  public EddaReadModelClient(AwsConfiguration config, String vip, String region) {
+    super(config, vip, region);
+  }
+
+  public Observable<List<AutoScalingGroup>> autoScalingGroups() {
+    return fetch(AUTO_SCALING_GROUPS).map(s -> s.getItems());
+  }
+
+  public Observable<List<Reservation>> reservations() {
+    return fetch(INSTANCES).map(s -> s.getItems());
+  }
+
+  /** Instances from all reservations. */
+  public Observable<List<Instance>> instances() {
+    return reservations().map(rs -> {
+      List<Instance> instances = new ArrayList<Instance>();
+      for (Reservation r : rs)
+        instances.addAll(r.getInstances());
+      return instances;
+    });
+  }
+
+  public Observable<List<LoadBalancerDescription>> loadBalancers() {
+    return fetch(LOAD_BALANCERS).map(s -> s.getItems());
+  }
+
+  public Observable<List<SecurityGroup>> securityGroups() {
+    return fetch(SECURITY_GROUPS).map(s -> s.getItems());
+  }
+
+  public Observable<List<Subnet>> subnets() {
+    return fetch(SUBNETS).map(s -> s.getItems());
+  }
+
+  public Observable<List<Vpc>> vpcs() {
+    return fetch(VPCS).map(s -> s.getItems());
+  }
+}
@@ -24,9 +24,15 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.route53.AmazonRoute53;
 import com.amazonaws.services.route53.model.*;
 
+import com.netflix.edda.index.RecordIndex;
+import com.netflix.edda.mapper.HostedRecordView;
+
 public class EddaRoute53Client extends EddaAwsClient {
+  private final ExpiringValue<RecordIndex> hostedRecords;
+
   public EddaRoute53Client(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
+    this.hostedRecords = new ExpiringValue<RecordIndex>(config.hostedRecordsTtl().getMillis());
   }
 
   public AmazonRoute53 readOnly() {
@@ -45,7 +51,7 @@ public class EddaRoute53Client extends EddaAwsClient {
     TypeReference<List<HostedZone>> ref = new TypeReference<List<HostedZone>>() {};
     String url = config.url() + "/api/v2/aws/hostedZones;_expand";
     try {
-      List<HostedZone> hostedZones = parse(ref, doGet(url));
+      List<HostedZone> hostedZones = doGet(ref, url);
       return new ListHostedZonesResult()
         .withHostedZones(hostedZones);
     }
@@ -54,20 +60,28 @@ public class EddaRoute53Client extends EddaAwsClient {
     }
   }
 
+  /**
+   * Index of the record sets for all hosted zones. The records are fetched at most once per ttl,
+   * concurrent callers share a single refresh, and the index is only rebuilt if the response
+   * changed.
+   */
+  public RecordIndex getRecordIndex() {
+    return hostedRecords.get(() -> {
+      TypeReference<List<HostedRecordView>> ref =
+        new TypeReference<List<HostedRecordView>>() {};
+      String url = config.url() + "/api/v2/aws/hostedRecords;_expand";
+      try {
+        return doGetDerived(ref, url, hostedRecords, RecordIndex::new);
+      }
+      catch (IOException e) {
+        throw new AmazonClientException("Faled to parse " + url, e);
+      }
+    });
+  }
+
   public ListResourceRecordSetsResult listResourceRecordSets(ListResourceRecordSetsRequest request) {
     validateNotEmpty("HostedZoneId", request.getHostedZoneId());
-
-    TypeReference<List<ResourceRecordSet>> ref = new TypeReference<List<ResourceRecordSet>>() {};
-    String hostedZoneId = request.getHostedZoneId();
-
-    String url = config.url() + "/api/v2/aws/hostedRecords;_expand;zone.id=" + hostedZoneId;
-    try {
-      List<ResourceRecordSet> resourceRecordSets = parse(ref, doGet(url));
-      return new ListResourceRecordSetsResult()
-        .withResourceRecordSets(resourceRecordSets);
-    }
-    catch (IOException e) {
-      throw new AmazonClientException("Faled to parse " + url, e);
-    }
+    List<ResourceRecordSet> records = getRecordIndex().getRecordsByZone(request.getHostedZoneId());
+    return ResourceRecordSetPager.page(records, request);
   }
 }
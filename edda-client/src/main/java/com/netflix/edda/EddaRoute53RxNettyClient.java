@@ -23,14 +23,20 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.route53.AmazonRoute53RxNetty;
 import com.amazonaws.services.route53.model.*;
 
+import com.netflix.edda.index.RecordIndex;
+import com.netflix.edda.mapper.HostedRecordView;
+
 import com.amazonaws.services.ServiceResult;
 import com.amazonaws.services.PaginatedServiceResult;
 
 import rx.Observable;
 
 public class EddaRoute53RxNettyClient extends EddaAwsRxNettyClient {
+  private final ExpiringValue<RecordIndex> hostedRecords;
+
   public EddaRoute53RxNettyClient(AwsConfiguration config, String vip, String region) {
     super(config, vip, region);
+    this.hostedRecords = new ExpiringValue<RecordIndex>(config.hostedRecordsTtl().getMillis());
   }
 
   public AmazonRoute53RxNetty readOnly() {
@@ -61,18 +67,26 @@ public class EddaRoute53RxNettyClient extends EddaAwsRxNettyClient {
     });
   }
 
-  public Observable<PaginatedServiceResult<ListResourceRecordSetsResult>> listResourceRecordSets() {
-    return Observable.defer(() -> {
-      TypeReference<ResourceRecordSet> ref = new TypeReference<ResourceRecordSet>() {};
-
+  /**
+   * Index of the record sets for all hosted zones. The records are fetched at most once per ttl,
+   * concurrent subscribers share a single refresh, and the index is only rebuilt if the
+   * response changed.
+   */
+  public Observable<RecordIndex> getRecordIndex() {
+    return hostedRecords.observe(() -> {
+      TypeReference<HostedRecordView> ref = new TypeReference<HostedRecordView>() {};
       String url = config.url() + "/api/v2/aws/hostedRecords;_expand";
-      return doGet(ref, url).map(resourceRecordSets -> {
-        return new PaginatedServiceResult<ListResourceRecordSetsResult>(
-          0,
-          null,
-          new ListResourceRecordSetsResult().withResourceRecordSets(resourceRecordSets)
-        );
-      });
+      return doGetDerived(ref, url, hostedRecords, RecordIndex::new);
+    });
+  }
+
+  public Observable<PaginatedServiceResult<ListResourceRecordSetsResult>> listResourceRecordSets() {
+    return getRecordIndex().map(index -> {
+      return new PaginatedServiceResult<ListResourceRecordSetsResult>(
+        0,
+        null,
+        new ListResourceRecordSetsResult().withResourceRecordSets(index.getRecords())
+      );
     });
   }
 
@@ -81,16 +95,12 @@ public class EddaRoute53RxNettyClient extends EddaAwsRxNettyClient {
   ) {
     return Observable.defer(() -> {
       validateNotEmpty("HostedZoneId", request.getHostedZoneId());
-
-      TypeReference<ResourceRecordSet> ref = new TypeReference<ResourceRecordSet>() {};
-      String hostedZoneId = request.getHostedZoneId();
-
-      String url = config.url() + "/api/v2/aws/hostedRecords;_expand;zone.id=" + hostedZoneId;
-      return doGet(ref, url).map(resourceRecordSets -> {
+      return getRecordIndex().map(index -> {
+        List<ResourceRecordSet> records = index.getRecordsByZone(request.getHostedZoneId());
         return new PaginatedServiceResult<ListResourceRecordSetsResult>(
           0,
           null,
-          new ListResourceRecordSetsResult().withResourceRecordSets(resourceRecordSets)
+          ResourceRecordSetPager.page(records, request)
         );
       });
     });
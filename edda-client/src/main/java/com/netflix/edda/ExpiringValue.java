@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.functions.Func0;
+
+/**
+ * Holder for a value derived from an edda response that should only be refetched once it is
+ * older than the ttl. The last value is kept after it expires along with the hash of the
+ * response it was derived from, so that a refetch with an unchanged response can reuse it.
+ * Refreshes are single-flight, if the value has expired only one caller fetches it again and
+ * concurrent callers wait for that result rather than issuing their own requests.
+ */
+public class ExpiringValue<T> {
+  private static final class Entry<T> {
+    final T value;
+    final BigInteger hash;
+    final long timestamp;
+
+    Entry(T value, BigInteger hash, long timestamp) {
+      this.value = value;
+      this.hash = hash;
+      this.timestamp = timestamp;
+    }
+  }
+
+  private final long ttl;
+  private volatile Entry<T> entry;
+  private final AtomicReference<Observable<T>> inflight = new AtomicReference<Observable<T>>();
+
+  public ExpiringValue(long ttl) {
+    this.ttl = ttl;
+  }
+
+  /**
+   * Return the value or null if it has not been set or has reached the ttl. With a ttl of 0 the
+   * value always needs to be fetched again, but the last value can still be reused.
+   */
+  public T get() {
+    Entry<T> e = entry;
+    if (e == null || System.currentTimeMillis() - e.timestamp >= ttl)
+      return null;
+    return e.value;
+  }
+
+  /**
+   * Return the value if it has not expired, otherwise call refresh to fetch it again. The
+   * refresh is responsible for setting the new value. Only one thread refreshes at a time,
+   * others block and then use the refreshed value.
+   */
+  public T get(Func0<T> refresh) {
+    T value = get();
+    if (value != null) return value;
+    synchronized (this) {
+      value = get();
+      return (value == null) ? refresh.call() : value;
+    }
+  }
+
+  /**
+   * Non-blocking version of {@link #get(Func0)}. If a refresh is already in flight, then the
+   * subscriber will get the result of that refresh. The refresh is responsible for setting the
+   * new value.
+   */
+  public Observable<T> observe(final Func0<Observable<T>> refresh) {
+    return Observable.defer(() -> {
+      while (true) {
+        T value = get();
+        if (value != null) return Observable.just(value);
+        Observable<T> pending = inflight.get();
+        if (pending != null) return pending;
+        Observable<T> obs = refresh.call().doOnTerminate(() -> inflight.set(null)).cache();
+        if (inflight.compareAndSet(null, obs)) return obs;
+      }
+    });
+  }
+
+  /** Return the last value that was set even if it has expired. */
+  public T getLast() {
+    Entry<T> e = entry;
+    return (e == null) ? null : e.value;
+  }
+
+  /**
+   * Return the last value if it was derived from a response with the same hash, even if it has
+   * expired. Otherwise return null.
+   */
+  public T getLast(BigInteger hash) {
+    Entry<T> e = entry;
+    return (e == null || !e.hash.equals(hash)) ? null : e.value;
+  }
+
+  /** Set the value derived from a response with the hash, the ttl starts again. */
+  public void set(T value, BigInteger hash) {
+    entry = new Entry<T>(value, hash, System.currentTimeMillis());
+  }
+}
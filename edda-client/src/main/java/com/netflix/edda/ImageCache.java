@@ -0,0 +1,300 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import com.amazonaws.services.ec2.model.BlockDeviceMapping;
+import com.amazonaws.services.ec2.model.Image;
+
+import com.netflix.edda.filter.Ec2Filter;
+
+/**
+ * Images partitioned by owner and keyed by image id. Images rarely change once they leave the
+ * pending state, so they are kept until they are deregistered instead of being fetched again on
+ * every request. A refresh fetches the list of current ids, drops images that are no longer
+ * present and only fetches the images that are new or were still pending. Other changes such
+ * as tags, description or launch permissions are picked up by a full reload of all images that
+ * is done when the reload interval has passed.
+ *
+ * <p>The block device mappings make up a large part of each image and are rarely needed for
+ * filtered requests. They are kept as raw json and decoded the first time the image is
+ * returned, filter clauses that do not use the mappings are checked before decoding. Images
+ * from the cache are shared so they should be treated as read only.
+ */
+public class ImageCache {
+  private static final String PENDING = "pending";
+
+  private static final String MAPPING_PREFIX = "block-device-mapping.";
+
+  private static final TypeReference<List<BlockDeviceMapping>> MAPPINGS_REF =
+    new TypeReference<List<BlockDeviceMapping>>() {};
+
+  /**
+   * Image with the block device mappings decoded on first access. Once decoded the raw json is
+   * dropped so only a single copy of the image is kept.
+   */
+  private final class Entry {
+    private final Image image;
+
+    // Encoded mappings, set to null after they have been decoded into the image
+    private volatile byte[] mappings;
+
+    Entry(Image image) {
+      List<BlockDeviceMapping> ms = image.getBlockDeviceMappings();
+      if (ms == null || ms.isEmpty()) {
+        this.image = image;
+        this.mappings = null;
+      }
+      else {
+        this.image = image.clone().withBlockDeviceMappings((List<BlockDeviceMapping>) null);
+        this.mappings = encode(ms);
+      }
+    }
+
+    boolean isPending() {
+      return PENDING.equals(image.getState());
+    }
+
+    /** Image without decoding the mappings, only used to check fields other than the mappings. */
+    Image peek() {
+      return image;
+    }
+
+    Image get() {
+      if (mappings != null) {
+        synchronized (this) {
+          // The image is not visible outside of the entry until the mappings are cleared
+          byte[] data = mappings;
+          if (data != null) {
+            image.setBlockDeviceMappings(decode(data));
+            mappings = null;
+            decodes.incrementAndGet();
+          }
+        }
+      }
+      return image;
+    }
+
+    private static byte[] encode(List<BlockDeviceMapping> ms) {
+      try {
+        return JsonHelper.encode(ms);
+      }
+      catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private static List<BlockDeviceMapping> decode(byte[] data) {
+      try {
+        return JsonHelper.createParser(new ByteArrayInputStream(data)).readValueAs(MAPPINGS_REF);
+      }
+      catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private final long refreshInterval;
+  private final long reloadInterval;
+
+  // Number of images where the mappings have been decoded, used for testing
+  private final AtomicLong decodes = new AtomicLong();
+
+  // Owner id to the images for that owner, partitions are replaced rather than modified
+  private volatile Map<String, Map<String, Entry>> owners = Collections.emptyMap();
+  private volatile Map<String, String> ownerOfImage = Collections.emptyMap();
+  private volatile long lastRefresh = -1L;
+  private volatile long lastLoad = -1L;
+
+  public ImageCache(long refreshInterval, long reloadInterval) {
+    this.refreshInterval = refreshInterval;
+    this.reloadInterval = reloadInterval;
+  }
+
+  /** Returns true if the cache has never been loaded. */
+  public boolean isEmpty() {
+    return lastRefresh < 0L;
+  }
+
+  /** Returns true if the list of current image ids should be checked again. */
+  public boolean needsRefresh(long now) {
+    return lastRefresh < 0L || now - lastRefresh >= refreshInterval;
+  }
+
+  /** Returns true if all images should be fetched again rather than only the missing ids. */
+  public boolean needsReload(long now) {
+    return lastLoad < 0L || now - lastLoad >= reloadInterval;
+  }
+
+  /**
+   * Ids that need to be fetched, i.e., ids that are not cached or that were still pending.
+   * Images in a terminal state such as failed are only fetched again on a reload.
+   */
+  public List<String> missing(List<String> ids) {
+    Map<String, Map<String, Entry>> os = owners;
+    Map<String, String> imageOwners = ownerOfImage;
+    List<String> result = new ArrayList<String>();
+    for (String id : ids) {
+      Entry e = entry(os, imageOwners, id);
+      if (e == null || e.isPending())
+        result.add(id);
+    }
+    return result;
+  }
+
+  /** Replace the contents of the cache with a full listing of the images. */
+  public synchronized void load(long now, List<Image> images) {
+    Map<String, Map<String, Entry>> os = new HashMap<String, Map<String, Entry>>();
+    Map<String, String> imageOwners = new HashMap<String, String>();
+    for (Image i : images) {
+      os.computeIfAbsent(i.getOwnerId(), k -> new HashMap<String, Entry>())
+        .put(i.getImageId(), new Entry(i));
+      imageOwners.put(i.getImageId(), i.getOwnerId());
+    }
+    owners = os;
+    ownerOfImage = imageOwners;
+    lastRefresh = now;
+    lastLoad = now;
+  }
+
+  /**
+   * Update the cache with the current list of ids and the images that were fetched for the
+   * missing ids. Images that are not in the list have been deregistered and are removed. Only
+   * the partitions for owners with changes are copied.
+   */
+  public synchronized void update(long now, List<String> ids, List<Image> fetched) {
+    Map<String, Map<String, Entry>> os = new HashMap<String, Map<String, Entry>>(owners);
+    Map<String, String> imageOwners = new HashMap<String, String>(ownerOfImage);
+    Set<String> changed = new HashSet<String>();
+
+    Set<String> current = new HashSet<String>(ids);
+    List<String> removed = new ArrayList<String>();
+    for (String id : imageOwners.keySet()) {
+      if (!current.contains(id)) removed.add(id);
+    }
+    for (String id : removed) {
+      String owner = imageOwners.remove(id);
+      partition(os, changed, owner).remove(id);
+    }
+
+    for (Image i : fetched) {
+      String prevOwner = imageOwners.put(i.getImageId(), i.getOwnerId());
+      if (prevOwner != null && !prevOwner.equals(i.getOwnerId()))
+        partition(os, changed, prevOwner).remove(i.getImageId());
+      partition(os, changed, i.getOwnerId()).put(i.getImageId(), new Entry(i));
+    }
+
+    for (String owner : changed) {
+      if (os.get(owner).isEmpty()) os.remove(owner);
+    }
+    owners = os;
+    ownerOfImage = imageOwners;
+    lastRefresh = now;
+  }
+
+  /** Copy the partition for the owner the first time it is changed during an update. */
+  private static Map<String, Entry> partition(
+      Map<String, Map<String, Entry>> os, Set<String> changed, String owner) {
+    Map<String, Entry> p = os.get(owner);
+    if (changed.add(owner)) {
+      p = (p == null) ? new HashMap<String, Entry>() : new HashMap<String, Entry>(p);
+      os.put(owner, p);
+    }
+    return p;
+  }
+
+  private static Entry entry(
+      Map<String, Map<String, Entry>> os, Map<String, String> imageOwners, String id) {
+    String owner = imageOwners.get(id);
+    Map<String, Entry> p = (owner == null) ? null : os.get(owner);
+    return (p == null) ? null : p.get(id);
+  }
+
+  /**
+   * Images for the owners and ids. An empty or null list for either means no restriction. Only
+   * the partitions for the requested owners are visited.
+   */
+  public List<Image> get(List<String> ownerIds, List<String> imageIds) {
+    return get(ownerIds, imageIds, null);
+  }
+
+  /**
+   * Images for the owners and ids that match the filter. The clauses that do not need the block
+   * device mappings are checked first so the mappings are only decoded for images that can
+   * match. A null filter matches all images.
+   */
+  public List<Image> get(List<String> ownerIds, List<String> imageIds, Ec2Filter<Image> filter) {
+    Ec2Filter<Image> shallow = (filter == null) ? null : filter.select(n -> !isMapping(n));
+    Ec2Filter<Image> deep = (filter == null) ? null : filter.select(ImageCache::isMapping);
+    Map<String, Map<String, Entry>> os = owners;
+    Map<String, String> imageOwners = ownerOfImage;
+    boolean filterOwners = ownerIds != null && !ownerIds.isEmpty();
+    boolean filterIds = imageIds != null && !imageIds.isEmpty();
+    List<Image> images = new ArrayList<Image>();
+    if (filterIds) {
+      Set<String> ownerSet = filterOwners ? new HashSet<String>(ownerIds) : null;
+      for (String id : new HashSet<String>(imageIds)) {
+        Entry e = entry(os, imageOwners, id);
+        if (e != null && (ownerSet == null || ownerSet.contains(imageOwners.get(id))))
+          add(images, e, shallow, deep);
+      }
+    }
+    else if (filterOwners) {
+      for (String owner : new HashSet<String>(ownerIds)) {
+        Map<String, Entry> p = os.get(owner);
+        if (p == null) continue;
+        for (Entry e : p.values())
+          add(images, e, shallow, deep);
+      }
+    }
+    else {
+      for (Map<String, Entry> p : os.values()) {
+        for (Entry e : p.values())
+          add(images, e, shallow, deep);
+      }
+    }
+    return images;
+  }
+
+  private static boolean isMapping(String name) {
+    return name.startsWith(MAPPING_PREFIX);
+  }
+
+  private static void add(
+      List<Image> images, Entry e, Ec2Filter<Image> shallow, Ec2Filter<Image> deep) {
+    if (shallow != null && !shallow.test(e.peek())) return;
+    Image i = e.get();
+    if (deep != null && !deep.test(i)) return;
+    images.add(i);
+  }
+
+  /** Number of images where the block device mappings have been decoded. */
+  long decodes() {
+    return decodes.get();
+  }
+}
@@ -19,15 +19,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.MappingJsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 
 import com.netflix.awsobjectmapper.AmazonObjectMapper;
 
 import com.netflix.edda.mapper.*;
+import com.netflix.edda.util.StringInterner;
 
 public class JsonHelper {
   private JsonHelper() {}
@@ -35,19 +43,108 @@ public class JsonHelper {
   private static final ObjectMapper mapper;
   private static final MappingJsonFactory factory;
 
+  private static final ObjectMapper internMapper;
+  private static final MappingJsonFactory internFactory;
+
+  /**
+   * Fields with values that are repeated across many objects in a collection. The values are
+   * deduplicated with a table that is shared across refreshes so unchanged values will reuse
+   * the same string instances. Generic names such as name or key are only listed with the
+   * parent field, e.g. state.name, since they are also used for values that are mostly unique.
+   */
+  private static final Set<String> internedFields = Collections.newSetFromMap(
+    new ConcurrentHashMap<String, Boolean>());
+  private static final StringInterner interner = new StringInterner(256 * 1024);
+
+  private static final AtomicBoolean configured = new AtomicBoolean();
+  private static volatile boolean internStrings = true;
+
   static {
-    mapper = new AmazonObjectMapper();
-    mapper.addMixInAnnotations(InstanceStateView.class, InstanceStateViewMixIn.class);
-    mapper.addMixInAnnotations(LoadBalancerAttributesView.class, LoadBalancerAttributesViewMixIn.class);
+    internedFields.addAll(Arrays.asList(
+      "architecture",
+      "attachments.state",
+      "autoScalingGroupName",
+      "availabilityZone",
+      "availabilityZones",
+      "deviceName",
+      "groupId",
+      "groupName",
+      "healthStatus",
+      "hypervisor",
+      "imageId",
+      "instanceType",
+      "kernelId",
+      "keyName",
+      "launchConfigurationName",
+      "lifecycleState",
+      "loadBalancerName",
+      "loadBalancerNames",
+      "monitoring.state",
+      "ownerId",
+      "platform",
+      "ramdiskId",
+      "rootDeviceName",
+      "rootDeviceType",
+      "securityGroups",
+      "state.name",
+      "subnetId",
+      "tags.key",
+      "virtualizationType",
+      "vpcId"
+    ));
+
+    mapper = newMapper();
     factory = new MappingJsonFactory(mapper);
+
+    SimpleModule module = new SimpleModule("edda-client");
+    module.addDeserializer(String.class, new InterningStringDeserializer(interner, internedFields));
+    internMapper = newMapper();
+    internMapper.registerModule(module);
+    internFactory = new MappingJsonFactory(internMapper);
+  }
+
+  private static ObjectMapper newMapper() {
+    ObjectMapper m = new AmazonObjectMapper();
+    m.addMixInAnnotations(InstanceStateView.class, InstanceStateViewMixIn.class);
+    m.addMixInAnnotations(LoadBalancerAttributesView.class, LoadBalancerAttributesViewMixIn.class);
+    return m;
+  }
+
+  /**
+   * Apply the settings from the configuration. The decoders are shared by all clients, so only
+   * the configuration for the first client is used.
+   */
+  static void configure(AwsConfiguration config) {
+    if (configured.compareAndSet(false, true))
+      internStrings = config.internStrings();
+  }
+
+  private static MappingJsonFactory factory() {
+    return internStrings ? internFactory : factory;
+  }
+
+  private static ObjectMapper decodeMapper() {
+    return internStrings ? internMapper : mapper;
+  }
+
+  /**
+   * Add fields that should have their values deduplicated when decoding. A name can be qualified
+   * with the parent field, e.g. state.name, to only match the field within that parent.
+   */
+  public static void addInternedFields(String... fields) {
+    internedFields.addAll(Arrays.asList(fields));
   }
 
   public static JsonParser createParser(InputStream input) throws IOException {
-    return factory.createParser(input);
+    return factory().createParser(input);
   }
 
   public static JsonParser createParser(Reader input) throws IOException {
-    return factory.createParser(input);
+    return factory().createParser(input);
+  }
+
+  public static byte[] encode(Object obj) throws IOException {
+    return mapper.writeValueAsBytes(obj);
   }
 
   public static <T> T decode(Class<T> c, InputStream input) throws IOException {
@@ -70,6 +167,14 @@ public class JsonHelper {
     }
   }
 
+  /** Decode a value for a type that is only known at runtime, e.g. the element type of a list. */
+  public static <T> T decode(Type type, InputStream input) throws IOException {
+    try (JsonParser p = createParser(input)) {
+      ObjectMapper m = decodeMapper();
+      return m.readValue(p, m.getTypeFactory().constructType(type));
+    }
+  }
+
   public static <T> T decode(Class<T> c, String json) throws IOException {
     return decode(c, new StringReader(json));
   }
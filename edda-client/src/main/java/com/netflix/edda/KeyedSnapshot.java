@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.netflix.edda.store.KeyedList;
+
+/**
+ * Snapshot where the items are kept as raw json and decoded on access. Use {@link
+ * #select(Collection)} to only decode the items matching a set of keys.
+ */
+public class KeyedSnapshot<T> extends Snapshot<T> {
+  private final KeyedList<T> elements;
+
+  public KeyedSnapshot(long timestamp, KeyedList<T> elements) {
+    super(timestamp, elements);
+    this.elements = elements;
+  }
+
+  public KeyedList<T> getElements() {
+    return elements;
+  }
+
+  public List<T> select(Collection<String> keys) {
+    return elements.select(keys);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.amazonaws.services.ec2.model.DescribeImagesResult;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.Image;
+import com.amazonaws.services.ec2.model.Reservation;
+
+/**
+ * Result types that return the list they were created with rather than copying it. The SDK
+ * setters copy the list, which would decode every element of a lazy list. Modifying the result
+ * replaces the lazy list with a regular copy.
+ */
+class LazyResults {
+  private LazyResults() {}
+
+  static DescribeImagesResult images(List<Image> images) {
+    return new LazyDescribeImagesResult(images);
+  }
+
+  static DescribeInstancesResult reservations(List<Reservation> reservations) {
+    return new LazyDescribeInstancesResult(reservations);
+  }
+
+  private static <T> List<T> copy(Collection<T> items) {
+    return (items == null) ? null : new ArrayList<T>(items);
+  }
+
+  private static <T> List<T> append(List<T> items, T[] values) {
+    List<T> result = (items == null) ? new ArrayList<T>() : new ArrayList<T>(items);
+    result.addAll(Arrays.asList(values));
+    return result;
+  }
+
+  static class LazyDescribeImagesResult extends DescribeImagesResult {
+    private List<Image> images;
+
+    LazyDescribeImagesResult(List<Image> images) {
+      this.images = images;
+    }
+
+    @Override
+    public List<Image> getImages() {
+      return images;
+    }
+
+    @Override
+    public void setImages(Collection<Image> images) {
+      this.images = copy(images);
+    }
+
+    @Override
+    public DescribeImagesResult withImages(Image... values) {
+      images = append(images, values);
+      return this;
+    }
+
+    @Override
+    public DescribeImagesResult withImages(Collection<Image> images) {
+      setImages(images);
+      return this;
+    }
+  }
+
+  static class LazyDescribeInstancesResult extends DescribeInstancesResult {
+    private List<Reservation> reservations;
+
+    LazyDescribeInstancesResult(List<Reservation> reservations) {
+      this.reservations = reservations;
+    }
+
+    @Override
+    public List<Reservation> getReservations() {
+      return reservations;
+    }
+
+    @Override
+    public void setReservations(Collection<Reservation> reservations) {
+      this.reservations = copy(reservations);
+    }
+
+    @Override
+    public DescribeInstancesResult withReservations(Reservation... values) {
+      reservations = append(reservations, values);
+      return this;
+    }
+
+    @Override
+    public DescribeInstancesResult withReservations(Collection<Reservation> reservations) {
+      setReservations(reservations);
+      return this;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Continuation token for paginated results. The token pins the snapshot timestamp of the first
+ * page so that all subsequent pages are served from the same view of the collection.
+ */
+public class PageToken {
+  private final long timestamp;
+  private final int offset;
+
+  public PageToken(long timestamp, int offset) {
+    this.timestamp = timestamp;
+    this.offset = offset;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(timestamp, 36) + "." + Integer.toString(offset, 36);
+  }
+
+  /** Parse a token, returns null if there is no token so the request is for the first page. */
+  public static PageToken parse(String token) {
+    if (token == null || token.length() == 0)
+      return null;
+    int pos = token.indexOf('.');
+    try {
+      if (pos > 0) {
+        long timestamp = Long.parseLong(token.substring(0, pos), 36);
+        int offset = Integer.parseInt(token.substring(pos + 1), 36);
+        if (timestamp > 0 && offset >= 0)
+          return new PageToken(timestamp, offset);
+      }
+    }
+    catch (NumberFormatException e) {
+      // fall through to raise below
+    }
+    AwsException.raise(400, "Edda", token, "InvalidNextToken", "invalid token: " + token);
+    return null;
+  }
+
+  /** Should results be paginated for the given max value? */
+  public static boolean isPaginated(Integer max) {
+    return max != null && max > 0;
+  }
+
+  /** Return the page of items for the token. */
+  public static <T> List<T> page(List<T> items, PageToken token, Integer max) {
+    int start = Math.min((token == null) ? 0 : token.getOffset(), items.size());
+    int end = isPaginated(max) ? (int) Math.min((long) start + max, items.size()) : items.size();
+    return (start == 0 && end == items.size()) ? items : items.subList(start, end);
+  }
+
+  /** Return the token for the page after the one for the token or null if there are no more. */
+  public static String next(Snapshot<?> snapshot, int size, PageToken token, Integer max) {
+    if (!isPaginated(max))
+      return null;
+    long end = (long) ((token == null) ? 0 : token.getOffset()) + max;
+    return (end < size) ? new PageToken(snapshot.getTimestamp(), (int) end).toString() : null;
+  }
+
+  /**
+   * End of the page starting at the token where max limits the total weight of the items rather
+   * than the number of items, e.g. the number of instances for a list of reservations. Items are
+   * never split so a page always has at least one item even if it is heavier than max.
+   */
+  private static <T> int end(
+    List<T> items,
+    int start,
+    Integer max,
+    ToIntFunction<? super T> weight
+  ) {
+    if (!isPaginated(max))
+      return items.size();
+    int end = start;
+    long total = 0L;
+    while (end < items.size()) {
+      total += weight.applyAsInt(items.get(end));
+      if (total > max && end > start) break;
+      ++end;
+    }
+    return end;
+  }
+
+  /** Return the page of items for the token where max limits the total weight of the items. */
+  public static <T> List<T> page(
+    List<T> items,
+    PageToken token,
+    Integer max,
+    ToIntFunction<? super T> weight
+  ) {
+    int start = Math.min((token == null) ? 0 : token.getOffset(), items.size());
+    int end = end(items, start, max, weight);
+    return (start == 0 && end == items.size()) ? items : items.subList(start, end);
+  }
+
+  /** Return the token for the page after the one for the token when pages are weighted. */
+  public static <T> String next(
+    Snapshot<?> snapshot,
+    List<T> items,
+    PageToken token,
+    Integer max,
+    ToIntFunction<? super T> weight
+  ) {
+    int start = Math.min((token == null) ? 0 : token.getOffset(), items.size());
+    int end = end(items, start, max, weight);
+    return (end < items.size()) ? new PageToken(snapshot.getTimestamp(), end).toString() : null;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decodes the elements of a large response in parallel. The elements are split into ranges that
+ * are decoded as tasks on a fork join pool and the results are put back in the original order.
+ * Small responses are decoded on the calling thread.
+ */
+final class ParallelDecoder {
+
+  /** Decode a single element. */
+  interface Decoder<I, T> {
+    T decode(I input) throws IOException;
+  }
+
+  /** Release an element that will not be decoded because another element failed. */
+  interface Releaser<I> {
+    void release(I input);
+  }
+
+  /** Minimum number of elements decoded by a single task. */
+  private static final int MIN_CHUNK_SIZE = 64;
+
+  private final ForkJoinPool pool;
+  private final int threshold;
+
+  ParallelDecoder(ForkJoinPool pool, int threshold) {
+    this.pool = pool;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Decode all of the inputs and return the results in the same order. If decoding fails, then
+   * the inputs that have not been decoded yet are passed to the releaser and the first failure
+   * is thrown once all inputs have been handled.
+   */
+  <I, T> List<T> decode(List<I> inputs, Decoder<I, T> decoder, Releaser<I> releaser) {
+    int n = inputs.size();
+    Object[] results = new Object[n];
+    AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    Task<I, T> task =
+      new Task<I, T>(inputs, decoder, releaser, results, failure, 0, n, chunkSize(n));
+    if (n < threshold)
+      task.compute();
+    else
+      pool.invoke(task);
+    Throwable t = failure.get();
+    if (t instanceof RuntimeException)
+      throw (RuntimeException) t;
+    else if (t instanceof Error)
+      throw (Error) t;
+    else if (t != null)
+      throw new RuntimeException(t);
+    return toList(results);
+  }
+
+  private int chunkSize(int n) {
+    return Math.max(MIN_CHUNK_SIZE, n / (pool.getParallelism() * 4));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> List<T> toList(Object[] results) {
+    return new ArrayList<T>((List<T>) Arrays.asList(results));
+  }
+
+  private static final class Task<I, T> extends RecursiveAction {
+    private final List<I> inputs;
+    private final Decoder<I, T> decoder;
+    private final Releaser<I> releaser;
+    private final Object[] results;
+    private final AtomicReference<Throwable> failure;
+    private final int start;
+    private final int end;
+    private final int chunkSize;
+
+    Task(
+        List<I> inputs,
+        Decoder<I, T> decoder,
+        Releaser<I> releaser,
+        Object[] results,
+        AtomicReference<Throwable> failure,
+        int start,
+        int end,
+        int chunkSize) {
+      this.inputs = inputs;
+      this.decoder = decoder;
+      this.releaser = releaser;
+      this.results = results;
+      this.failure = failure;
+      this.start = start;
+      this.end = end;
+      this.chunkSize = chunkSize;
+    }
+
+    private Task<I, T> range(int s, int e) {
+      return new Task<I, T>(inputs, decoder, releaser, results, failure, s, e, chunkSize);
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start > chunkSize) {
+        int mid = (start + end) >>> 1;
+        invokeAll(range(start, mid), range(mid, end));
+        return;
+      }
+      // Failures are recorded rather than thrown so that the other tasks are not cancelled
+      // and every input is either decoded or released.
+      for (int i = start; i < end; ++i) {
+        if (failure.get() != null) {
+          releaser.release(inputs.get(i));
+          continue;
+        }
+        try {
+          results[i] = decoder.decode(inputs.get(i));
+        }
+        catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        }
+      }
+    }
+  }
+}
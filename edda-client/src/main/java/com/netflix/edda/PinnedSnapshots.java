@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU of recently paginated snapshots so that following a next token does not need to
+ * refetch and parse the full collection for every page. Entries older than the ttl are ignored
+ * and the caller will refetch the pinned view from edda.
+ */
+public class PinnedSnapshots {
+  private final long ttl;
+  private final Map<String, Snapshot<?>> snapshots;
+
+  public PinnedSnapshots(final int maxSize, long ttl) {
+    this.ttl = ttl;
+    this.snapshots = new LinkedHashMap<String, Snapshot<?>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Snapshot<?>> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  private String key(String url, long timestamp) {
+    return url + ";_at=" + timestamp;
+  }
+
+  @SuppressWarnings("unchecked")
+  public synchronized <T> Snapshot<T> get(String url, long timestamp) {
+    if (System.currentTimeMillis() - timestamp > ttl)
+      return null;
+    return (Snapshot<T>) snapshots.get(key(url, timestamp));
+  }
+
+  public synchronized void put(String url, Snapshot<?> snapshot) {
+    snapshots.put(key(url, snapshot.getTimestamp()), snapshot);
+  }
+}
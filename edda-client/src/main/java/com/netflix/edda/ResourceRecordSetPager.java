@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.amazonaws.services.route53.model.ListResourceRecordSetsRequest;
+import com.amazonaws.services.route53.model.ListResourceRecordSetsResult;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+
+import com.netflix.edda.util.DnsNames;
+
+/**
+ * Pagination for record sets following the Route53 semantics. Records are ordered by name with
+ * the labels reversed, then type and set identifier. A page starts at the first record that is
+ * greater than or equal to StartRecordName, StartRecordType and StartRecordIdentifier.
+ */
+public class ResourceRecordSetPager {
+  private ResourceRecordSetPager() {}
+
+  private static int compare(String a, String b) {
+    if (a == null || b == null) return (a == null) ? ((b == null) ? 0 : -1) : 1;
+    return a.compareTo(b);
+  }
+
+  public static final Comparator<ResourceRecordSet> ORDER = new Comparator<ResourceRecordSet>() {
+    @Override
+    public int compare(ResourceRecordSet a, ResourceRecordSet b) {
+      int c = DnsNames.compare(a.getName(), b.getName());
+      if (c == 0) c = ResourceRecordSetPager.compare(a.getType(), b.getType());
+      if (c == 0) c = ResourceRecordSetPager.compare(a.getSetIdentifier(), b.getSetIdentifier());
+      return c;
+    }
+  };
+
+  private static int maxItems(String s, int size) {
+    if (s == null || s.length() == 0) return size;
+    try {
+      int max = Integer.parseInt(s);
+      if (max > 0) return max;
+    }
+    catch (NumberFormatException e) {
+      // fall through to raise below
+    }
+    AwsException.raise(400, "AmazonRoute53", s, "InvalidInput", "invalid MaxItems: " + s);
+    return size;
+  }
+
+  private static int lowerBound(List<ResourceRecordSet> records, ResourceRecordSet key) {
+    int lo = 0;
+    int hi = records.size();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (ORDER.compare(records.get(mid), key) < 0)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo;
+  }
+
+  /** Sort the records, the input list will not be modified. */
+  public static List<ResourceRecordSet> sort(List<ResourceRecordSet> records) {
+    List<ResourceRecordSet> sorted = new ArrayList<ResourceRecordSet>(records);
+    Collections.sort(sorted, ORDER);
+    return sorted;
+  }
+
+  /** Return the page for the request, the records must already be sorted. */
+  public static ListResourceRecordSetsResult page(
+    List<ResourceRecordSet> records,
+    ListResourceRecordSetsRequest request
+  ) {
+    String startName = request.getStartRecordName();
+    int start = 0;
+    if (startName != null && startName.length() > 0) {
+      ResourceRecordSet key = new ResourceRecordSet()
+        .withName(startName)
+        .withType(request.getStartRecordType())
+        .withSetIdentifier(request.getStartRecordIdentifier());
+      start = lowerBound(records, key);
+    }
+
+    int max = maxItems(request.getMaxItems(), records.size());
+    int end = (int) Math.min((long) start + max, records.size());
+    ListResourceRecordSetsResult result = new ListResourceRecordSetsResult()
+      .withResourceRecordSets(records.subList(start, end))
+      .withMaxItems(request.getMaxItems())
+      .withIsTruncated(end < records.size());
+    if (end < records.size()) {
+      ResourceRecordSet next = records.get(end);
+      result
+        .withNextRecordName(next.getName())
+        .withNextRecordType(next.getType())
+        .withNextRecordIdentifier(next.getSetIdentifier());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed results of recent requests keyed by url along with the hash of the response body. If
+ * edda returns a byte identical body for the url, then the previous result can be reused without
+ * parsing the body again. Results from the cache are shared so they should be treated as read
+ * only.
+ */
+public class ResultCache {
+  private static class Entry {
+    final BigInteger hash;
+    final Object value;
+
+    Entry(BigInteger hash, Object value) {
+      this.hash = hash;
+      this.value = value;
+    }
+  }
+
+  private final int maxSize;
+  private final Map<String, Entry> entries;
+
+  public ResultCache(final int maxSize) {
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  public boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  private String key(String url, Object type) {
+    return type + ":" + url;
+  }
+
+  /** Return the previous result if the hash matches, otherwise null. */
+  @SuppressWarnings("unchecked")
+  public synchronized <T> T get(String url, Object type, BigInteger hash) {
+    Entry entry = entries.get(key(url, type));
+    return (entry != null && entry.hash.equals(hash)) ? (T) entry.value : null;
+  }
+
+  public synchronized void put(String url, Object type, BigInteger hash, Object value) {
+    if (isEnabled()) entries.put(key(url, type), new Entry(hash, value));
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of an edda collection as of a point in time. The timestamp is the time in
+ * milliseconds at which the collection was fetched and can be passed back to edda with the
+ * {@code _at} matrix argument to get the same view again. If known, the hash of the response
+ * body can be used to check if two snapshots have the same content, e.g. to reuse an index.
+ */
+public class Snapshot<T> {
+  private final long timestamp;
+  private final List<T> items;
+  private final BigInteger hash;
+
+  public Snapshot(long timestamp, List<T> items) {
+    this(timestamp, items, null);
+  }
+
+  public Snapshot(long timestamp, List<T> items, BigInteger hash) {
+    this.timestamp = timestamp;
+    this.items = Collections.unmodifiableList(items);
+    this.hash = hash;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public List<T> getItems() {
+    return items;
+  }
+
+  /** Hash of the response body the snapshot was decoded from or null if not known. */
+  public BigInteger getHash() {
+    return hash;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.netflix.edda.change.ChangeEvent;
+import com.netflix.edda.util.PersistentMap;
+
+/**
+ * Snapshot backed by a persistent map keyed by resource id. A refresh derives the new version
+ * from the previous one, so resources whose raw json did not change keep the same instance and
+ * the nodes of the map are shared between versions. Holding on to older versions for consistent
+ * reads or pagination only costs the entries that changed. The items are in the iteration order
+ * of the map, not the order returned by edda.
+ */
+public class VersionedSnapshot<T> extends Snapshot<T> {
+  /** Value stored in the map along with the hash of the raw json it was decoded from. */
+  static final class Entry<T> {
+    final long hash;
+    final T value;
+
+    Entry(long hash, T value) {
+      this.hash = hash;
+      this.value = value;
+    }
+  }
+
+  /** List view of the values that is materialized on first access. */
+  private static final class Values<T> extends AbstractList<T> implements RandomAccess {
+    private final PersistentMap<String, Entry<T>> map;
+    private volatile List<T> values;
+
+    Values(PersistentMap<String, Entry<T>> map) {
+      this.map = map;
+    }
+
+    private List<T> values() {
+      List<T> vs = values;
+      if (vs == null) {
+        final List<T> tmp = new ArrayList<T>(map.size());
+        map.forEach((k, e) -> tmp.add(e.value));
+        vs = tmp;
+        values = vs;
+      }
+      return vs;
+    }
+
+    @Override
+    public T get(int i) {
+      return values().get(i);
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+  }
+
+  private static final VersionedSnapshot<Object> EMPTY =
+    new VersionedSnapshot<Object>(0L, PersistentMap.<String, Entry<Object>>empty());
+
+  /** Empty snapshot to use as the previous version for the first refresh. */
+  @SuppressWarnings("unchecked")
+  public static <T> VersionedSnapshot<T> empty() {
+    return (VersionedSnapshot<T>) EMPTY;
+  }
+
+  private final PersistentMap<String, Entry<T>> map;
+
+  VersionedSnapshot(long timestamp, PersistentMap<String, Entry<T>> map) {
+    super(timestamp, new Values<T>(map));
+    this.map = map;
+  }
+
+  PersistentMap<String, Entry<T>> getMap() {
+    return map;
+  }
+
+  /** Return the resource with the id or null if it is not in the snapshot. */
+  public T get(String id) {
+    Entry<T> e = map.get(id);
+    return (e == null) ? null : e.value;
+  }
+
+  public boolean contains(String id) {
+    return map.containsKey(id);
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  public List<String> getIds() {
+    return map.keys();
+  }
+
+  /**
+   * Changes from an older version to this one. Parts of the map that are shared between the
+   * versions are skipped so the cost is proportional to the number of changes.
+   */
+  public List<ChangeEvent<T>> changesSince(VersionedSnapshot<T> older) {
+    final long ts = getTimestamp();
+    final List<ChangeEvent<T>> changes = new ArrayList<ChangeEvent<T>>();
+    older.map.diff(map, new PersistentMap.Differ<String, Entry<T>>() {
+      @Override
+      public void added(String id, Entry<T> e) {
+        changes.add(new ChangeEvent<T>(ChangeEvent.Type.ADDED, id, e.value, ts));
+      }
+
+      @Override
+      public void removed(String id, Entry<T> e) {
+        changes.add(new ChangeEvent<T>(ChangeEvent.Type.REMOVED, id, e.value, ts));
+      }
+
+      @Override
+      public void changed(String id, Entry<T> prev, Entry<T> e) {
+        changes.add(new ChangeEvent<T>(ChangeEvent.Type.MODIFIED, id, e.value, ts));
+      }
+    });
+    return changes;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.change;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.edda.JsonHelper;
+import com.netflix.edda.util.Hash;
+
+/**
+ * Detects changes between consecutive snapshots of a collection. Rather than keeping the previous
+ * objects around and using deep equals, a fingerprint of the encoded content is kept for each
+ * resource and compared with the fingerprint for the new snapshot. This requires encoding every
+ * resource for each snapshot, so it is only used for plain snapshots. Feeds derived from
+ * versioned snapshots compare the hashes of the raw json computed when the version was fetched.
+ */
+public class ChangeDetector<T> {
+  private Map<String, Long> fingerprints = new HashMap<String, Long>();
+  private Map<String, T> resources = new HashMap<String, T>();
+
+  static long fingerprint(Object resource) {
+    try {
+      return Hash.murmur3_64(JsonHelper.encode(resource));
+    }
+    catch (IOException e) {
+      throw new RuntimeException("failed to encode resource", e);
+    }
+  }
+
+  /**
+   * Add the changes between two sets of resources to the list. Unlike {@link #update(long, Map)}
+   * the fingerprints are not kept, this is used for the resources of a single element that is
+   * known to have changed.
+   */
+  static <T> void diff(
+    long timestamp,
+    Map<String, T> previous,
+    Map<String, T> current,
+    List<ChangeEvent<T>> events
+  ) {
+    for (Map.Entry<String, T> entry : current.entrySet()) {
+      String id = entry.getKey();
+      T prev = previous.get(id);
+      if (prev == null)
+        events.add(new ChangeEvent<T>(ChangeEvent.Type.ADDED, id, entry.getValue(), timestamp));
+      else if (fingerprint(prev) != fingerprint(entry.getValue()))
+        events.add(new ChangeEvent<T>(ChangeEvent.Type.MODIFIED, id, entry.getValue(), timestamp));
+    }
+    for (Map.Entry<String, T> entry : previous.entrySet()) {
+      if (!current.containsKey(entry.getKey())) {
+        events.add(new ChangeEvent<T>(
+          ChangeEvent.Type.REMOVED, entry.getKey(), entry.getValue(), timestamp));
+      }
+    }
+  }
+
+  /** Update with the resources for the next snapshot and return the changes. */
+  public synchronized List<ChangeEvent<T>> update(long timestamp, Map<String, T> current) {
+    List<ChangeEvent<T>> events = new ArrayList<ChangeEvent<T>>();
+    Map<String, Long> fps = new HashMap<String, Long>(current.size() * 4 / 3 + 1);
+    for (Map.Entry<String, T> entry : current.entrySet()) {
+      String id = entry.getKey();
+      long fp = fingerprint(entry.getValue());
+      fps.put(id, fp);
+      Long prev = fingerprints.get(id);
+      if (prev == null)
+        events.add(new ChangeEvent<T>(ChangeEvent.Type.ADDED, id, entry.getValue(), timestamp));
+      else if (prev.longValue() != fp)
+        events.add(new ChangeEvent<T>(ChangeEvent.Type.MODIFIED, id, entry.getValue(), timestamp));
+    }
+    for (Map.Entry<String, T> entry : resources.entrySet()) {
+      if (!current.containsKey(entry.getKey())) {
+        events.add(new ChangeEvent<T>(
+          ChangeEvent.Type.REMOVED, entry.getKey(), entry.getValue(), timestamp));
+      }
+    }
+    fingerprints = fps;
+    resources = current;
+    return events;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.change;
+
+/** Change to a single resource between two consecutive snapshots of a collection. */
+public class ChangeEvent<T> {
+  public enum Type { ADDED, MODIFIED, REMOVED }
+
+  private final Type type;
+  private final String id;
+  private final T resource;
+  private final long timestamp;
+
+  public ChangeEvent(Type type, String id, T resource, long timestamp) {
+    this.type = type;
+    this.id = id;
+    this.resource = resource;
+    this.timestamp = timestamp;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /** New state of the resource, or the last known state if it was removed. */
+  public T getResource() {
+    return resource;
+  }
+
+  /** Timestamp of the snapshot where the change was detected. */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  @Override
+  public String toString() {
+    return type + "(" + id + "@" + timestamp + ")";
+  }
+}
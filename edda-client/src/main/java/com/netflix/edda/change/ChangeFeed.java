@@ -0,0 +1,228 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.change;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Func1;
+import rx.functions.Func2;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+
+import com.netflix.edda.EddaCollection;
+import com.netflix.edda.EddaPoller;
+import com.netflix.edda.Snapshot;
+import com.netflix.edda.VersionedSnapshot;
+
+/**
+ * Stream of changes for a collection. The diff for each refresh is computed once and shared by
+ * all subscribers. The first snapshot seen by the feed reports all resources as added, after that
+ * subscribers only see changes from the time they subscribe. Feeds created for a poller use the
+ * versioned snapshots, so only the elements whose raw json changed are compared.
+ */
+public class ChangeFeed<T> {
+  private static final Func1<AutoScalingGroup, String> ASG_NAME =
+    AutoScalingGroup::getAutoScalingGroupName;
+
+  private final Observable<List<ChangeEvent<T>>> batches;
+
+  public <S> ChangeFeed(Observable<Snapshot<S>> snapshots, Func1<List<S>, Map<String, T>> keyed) {
+    this(detect(snapshots, keyed));
+  }
+
+  private ChangeFeed(Observable<List<ChangeEvent<T>>> changes) {
+    this.batches = changes
+      .filter(events -> !events.isEmpty())
+      .share();
+  }
+
+  private static <S, T> Observable<List<ChangeEvent<T>>> detect(
+    Observable<Snapshot<S>> snapshots,
+    Func1<List<S>, Map<String, T>> keyed
+  ) {
+    final ChangeDetector<T> detector = new ChangeDetector<T>();
+    return snapshots.map(s -> detector.update(s.getTimestamp(), keyed.call(s.getItems())));
+  }
+
+  /**
+   * Compare each version with the previous one, the first version is compared with an empty
+   * snapshot.
+   */
+  private static <S, T> Observable<List<ChangeEvent<T>>> diff(
+    Observable<VersionedSnapshot<S>> versions,
+    Func2<VersionedSnapshot<S>, VersionedSnapshot<S>, List<ChangeEvent<T>>> changes
+  ) {
+    final AtomicReference<VersionedSnapshot<S>> last =
+      new AtomicReference<VersionedSnapshot<S>>(VersionedSnapshot.<S>empty());
+    return versions.map(v -> changes.call(last.getAndSet(v), v));
+  }
+
+  /** Feed of instance changes, shared by all users of the poller. */
+  public static ChangeFeed<Instance> instances(final EddaPoller poller) {
+    return poller.shared("changes:instances", () -> new ChangeFeed<Instance>(
+      diff(poller.versions(EddaCollection.INSTANCES), ChangeFeed::instanceChanges)));
+  }
+
+  /**
+   * Instance changes for the reservations that changed between the versions. Only the instances
+   * of modified reservations need to be compared.
+   */
+  static List<ChangeEvent<Instance>> instanceChanges(
+    VersionedSnapshot<Reservation> older,
+    VersionedSnapshot<Reservation> newer
+  ) {
+    List<ChangeEvent<Instance>> events = new ArrayList<ChangeEvent<Instance>>();
+    for (ChangeEvent<Reservation> c : newer.changesSince(older)) {
+      Map<String, Instance> previous = (c.getType() == ChangeEvent.Type.ADDED)
+        ? Collections.<String, Instance>emptyMap()
+        : instances(older.get(c.getId()));
+      Map<String, Instance> current = (c.getType() == ChangeEvent.Type.REMOVED)
+        ? Collections.<String, Instance>emptyMap()
+        : instances(c.getResource());
+      ChangeDetector.diff(c.getTimestamp(), previous, current, events);
+    }
+    return events;
+  }
+
+  private static Map<String, Instance> instances(Reservation r) {
+    Map<String, Instance> instances = new LinkedHashMap<String, Instance>();
+    for (Instance i : r.getInstances())
+      instances.put(i.getInstanceId(), i);
+    return instances;
+  }
+
+  /** Feed of auto scaling group changes, shared by all users of the poller. */
+  public static ChangeFeed<AutoScalingGroup> autoScalingGroups(EddaPoller poller) {
+    return of(poller, EddaCollection.AUTO_SCALING_GROUPS, ASG_NAME);
+  }
+
+  /**
+   * Feed of changes for a collection with one resource per element. Feeds are shared for the
+   * same collection and id function. If the collection has an id field, then the versioned
+   * snapshots are used and the id function is only used for the ids of the events.
+   */
+  public static <T> ChangeFeed<T> of(
+    final EddaPoller poller,
+    final EddaCollection<T> collection,
+    final Func1<T, String> id
+  ) {
+    List<Object> key = Arrays.<Object>asList("changes", collection.getPath(), id);
+    if (collection.getIdField() == null) {
+      return poller.shared(key, () -> new ChangeFeed<T>(
+        poller.snapshots(collection),
+        (List<T> items) -> {
+          Map<String, T> resources = new LinkedHashMap<String, T>();
+          for (T item : items)
+            resources.put(id.call(item), item);
+          return resources;
+        }
+      ));
+    }
+    return poller.shared(key, () -> new ChangeFeed<T>(diff(
+      poller.versions(collection),
+      (older, newer) -> withIds(newer.changesSince(older), id))));
+  }
+
+  private static <T> List<ChangeEvent<T>> withIds(
+    List<ChangeEvent<T>> events,
+    Func1<T, String> id
+  ) {
+    List<ChangeEvent<T>> result = new ArrayList<ChangeEvent<T>>(events.size());
+    for (ChangeEvent<T> e : events) {
+      String key = id.call(e.getResource());
+      result.add(key.equals(e.getId())
+        ? e
+        : new ChangeEvent<T>(e.getType(), key, e.getResource(), e.getTimestamp()));
+    }
+    return result;
+  }
+
+  /** Changes as individual events. */
+  public Observable<ChangeEvent<T>> events() {
+    return batches.concatMap(Observable::from);
+  }
+
+  /** Changes grouped by the refresh where they were detected. */
+  public Observable<List<ChangeEvent<T>>> batches() {
+    return batches;
+  }
+
+  /**
+   * Changes grouped until no refresh has produced changes for the debounce interval. If coalesce
+   * is true, then multiple changes for the same id are collapsed into a single event.
+   */
+  public Observable<List<ChangeEvent<T>>> batches(long debounce, TimeUnit unit, boolean coalesce) {
+    Observable<List<ChangeEvent<T>>> grouped = batches
+      .publish(bs -> bs.buffer(bs.debounce(debounce, unit)))
+      .map(groups -> {
+        List<ChangeEvent<T>> events = new ArrayList<ChangeEvent<T>>();
+        for (List<ChangeEvent<T>> g : groups)
+          events.addAll(g);
+        return events;
+      });
+    if (coalesce)
+      grouped = grouped.map(ChangeFeed::coalesce).filter(events -> !events.isEmpty());
+    return grouped;
+  }
+
+  public Subscription subscribe(ChangeListener<T> listener) {
+    return batches.subscribe(listener::onChanges);
+  }
+
+  public Subscription subscribe(
+    ChangeListener<T> listener,
+    long debounce,
+    TimeUnit unit,
+    boolean coalesce
+  ) {
+    return batches(debounce, unit, coalesce).subscribe(listener::onChanges);
+  }
+
+  /** Collapse events for the same id into the net change. */
+  static <T> List<ChangeEvent<T>> coalesce(List<ChangeEvent<T>> events) {
+    Map<String, ChangeEvent<T>> byId = new LinkedHashMap<String, ChangeEvent<T>>();
+    for (ChangeEvent<T> e : events) {
+      ChangeEvent<T> prev = byId.remove(e.getId());
+      ChangeEvent<T> merged = (prev == null) ? e : merge(prev, e);
+      if (merged != null) byId.put(e.getId(), merged);
+    }
+    return new ArrayList<ChangeEvent<T>>(byId.values());
+  }
+
+  private static <T> ChangeEvent<T> merge(ChangeEvent<T> prev, ChangeEvent<T> next) {
+    ChangeEvent.Type type = next.getType();
+    if (prev.getType() == ChangeEvent.Type.ADDED) {
+      // Added and then removed within the window, nothing to report
+      if (type == ChangeEvent.Type.REMOVED) return null;
+      type = ChangeEvent.Type.ADDED;
+    }
+    else if (prev.getType() == ChangeEvent.Type.REMOVED && type == ChangeEvent.Type.ADDED) {
+      type = ChangeEvent.Type.MODIFIED;
+    }
+    return new ChangeEvent<T>(type, next.getId(), next.getResource(), next.getTimestamp());
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Compiled list of EC2 filters for a type of resource. See {@link Schema#compile}.
+ */
+public final class Ec2Filter<T> implements Predicate<T> {
+
+  /** Single filter, matches if any value matches any pattern. */
+  static final class Clause<T> {
+    final String name;
+    final Function<T, ?> values;
+    final List<Glob> patterns;
+
+    Clause(String name, Function<T, ?> values, List<Glob> patterns) {
+      this.name = name;
+      this.values = values;
+      this.patterns = patterns;
+    }
+
+    boolean test(T t) {
+      return matches(values.apply(t));
+    }
+
+    private boolean matches(Object v) {
+      if (v == null) {
+        return false;
+      }
+      else if (v instanceof Collection<?>) {
+        for (Object item : (Collection<?>) v) {
+          if (matches(item)) return true;
+        }
+        return false;
+      }
+      else {
+        String s = v.toString();
+        for (Glob p : patterns) {
+          if (p.matches(s)) return true;
+        }
+        return false;
+      }
+    }
+  }
+
+  private final List<Clause<T>> clauses;
+
+  Ec2Filter(List<Clause<T>> clauses) {
+    this.clauses = clauses;
+  }
+
+  /** Returns true if there are no filters, i.e. everything matches. */
+  public boolean isEmpty() {
+    return clauses.isEmpty();
+  }
+
+  /**
+   * Return a filter with only the clauses where the name matches. This can be used to check the
+   * cheap clauses before fetching the values needed by the others.
+   */
+  public Ec2Filter<T> select(Predicate<String> names) {
+    List<Clause<T>> selected = new ArrayList<Clause<T>>();
+    for (Clause<T> clause : clauses) {
+      if (names.test(clause.name)) selected.add(clause);
+    }
+    return new Ec2Filter<T>(selected);
+  }
+
+  @Override
+  public boolean test(T t) {
+    for (Clause<T> clause : clauses) {
+      if (!clause.test(t)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Return the values for the filter if all of them are exact, otherwise null. This can be used
+   * to look up the candidates with an index, e.g. for the instance-id filter. The predicate must
+   * still be applied to the candidates.
+   */
+  public List<String> exactValues(String name) {
+    List<String> result = null;
+    for (Clause<T> clause : clauses) {
+      if (!clause.name.equals(name)) continue;
+      List<String> vs = new ArrayList<String>(clause.patterns.size());
+      for (Glob p : clause.patterns) {
+        if (!p.isExact()) return null;
+        vs.add(p.value());
+      }
+      if (result == null)
+        result = vs;
+      else
+        result.retainAll(vs);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.amazonaws.services.ec2.model.BlockDeviceMapping;
+import com.amazonaws.services.ec2.model.ClassicLinkInstance;
+import com.amazonaws.services.ec2.model.EbsBlockDevice;
+import com.amazonaws.services.ec2.model.EbsInstanceBlockDevice;
+import com.amazonaws.services.ec2.model.GroupIdentifier;
+import com.amazonaws.services.ec2.model.Image;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceBlockDeviceMapping;
+import com.amazonaws.services.ec2.model.InstanceNetworkInterface;
+import com.amazonaws.services.ec2.model.IpPermission;
+import com.amazonaws.services.ec2.model.ProductCode;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.ReservedInstancesOffering;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.UserIdGroupPair;
+import com.amazonaws.services.ec2.model.Volume;
+import com.amazonaws.services.ec2.model.VolumeAttachment;
+import com.amazonaws.services.ec2.model.Vpc;
+import com.amazonaws.services.ec2.model.VpcClassicLink;
+import com.amazonaws.services.ec2.model.VpcPeeringConnection;
+
+/**
+ * Schemas for the filters supported by the EC2 describe calls. The names follow the EC2 api
+ * documentation, filters that depend on data edda does not have are not supported.
+ */
+public final class Ec2Filters {
+  private Ec2Filters() {}
+
+  /** Filters on the reservation that are used with {@link #INSTANCES} for describeInstances. */
+  public static final Schema<Reservation> RESERVATIONS = new Schema<Reservation>("reservations", null)
+    .field("reservation-id", Reservation::getReservationId)
+    .field("owner-id", Reservation::getOwnerId)
+    .field("requester-id", Reservation::getRequesterId);
+
+  public static final Schema<Instance> INSTANCES = new Schema<Instance>("instances", Instance::getTags)
+    .field("architecture", Instance::getArchitecture)
+    .field("availability-zone", Instance::getPlacement, p -> p.getAvailabilityZone())
+    .each("block-device-mapping.device-name", Instance::getBlockDeviceMappings, InstanceBlockDeviceMapping::getDeviceName)
+    .each("block-device-mapping.volume-id", Instance::getBlockDeviceMappings, m -> volumeId(m.getEbs()))
+    .field("dns-name", Instance::getPublicDnsName)
+    .field("ebs-optimized", Instance::getEbsOptimized)
+    .each("group-id", Instance::getSecurityGroups, GroupIdentifier::getGroupId)
+    .each("group-name", Instance::getSecurityGroups, GroupIdentifier::getGroupName)
+    .field("hypervisor", Instance::getHypervisor)
+    .field("iam-instance-profile.arn", Instance::getIamInstanceProfile, p -> p.getArn())
+    .field("image-id", Instance::getImageId)
+    .field("instance-id", Instance::getInstanceId)
+    .field("instance-lifecycle", Instance::getInstanceLifecycle)
+    .field("instance-state-code", Instance::getState, s -> s.getCode())
+    .field("instance-state-name", Instance::getState, s -> s.getName())
+    .field("instance-type", Instance::getInstanceType)
+    .each("instance.group-id", Instance::getSecurityGroups, GroupIdentifier::getGroupId)
+    .each("instance.group-name", Instance::getSecurityGroups, GroupIdentifier::getGroupName)
+    .field("ip-address", Instance::getPublicIpAddress)
+    .field("kernel-id", Instance::getKernelId)
+    .field("key-name", Instance::getKeyName)
+    .field("launch-index", Instance::getAmiLaunchIndex)
+    .field("monitoring-state", Instance::getMonitoring, m -> m.getState())
+    .each("network-interface.network-interface-id", Instance::getNetworkInterfaces, InstanceNetworkInterface::getNetworkInterfaceId)
+    .each("network-interface.mac-address", Instance::getNetworkInterfaces, InstanceNetworkInterface::getMacAddress)
+    .field("placement-group-name", Instance::getPlacement, p -> p.getGroupName())
+    .field("platform", Instance::getPlatform)
+    .field("private-dns-name", Instance::getPrivateDnsName)
+    .field("private-ip-address", Instance::getPrivateIpAddress)
+    .each("product-code", Instance::getProductCodes, ProductCode::getProductCodeId)
+    .field("ramdisk-id", Instance::getRamdiskId)
+    .field("root-device-name", Instance::getRootDeviceName)
+    .field("root-device-type", Instance::getRootDeviceType)
+    .field("source-dest-check", Instance::getSourceDestCheck)
+    .field("spot-instance-request-id", Instance::getSpotInstanceRequestId)
+    .field("state-reason-code", Instance::getStateReason, r -> r.getCode())
+    .field("subnet-id", Instance::getSubnetId)
+    .field("tenancy", Instance::getPlacement, p -> p.getTenancy())
+    .field("virtualization-type", Instance::getVirtualizationType)
+    .field("vpc-id", Instance::getVpcId);
+
+  public static final Schema<Image> IMAGES = new Schema<Image>("images", Image::getTags)
+    .field("architecture", Image::getArchitecture)
+    .each("block-device-mapping.delete-on-termination", Image::getBlockDeviceMappings, ebs(EbsBlockDevice::getDeleteOnTermination))
+    .each("block-device-mapping.device-name", Image::getBlockDeviceMappings, BlockDeviceMapping::getDeviceName)
+    .each("block-device-mapping.snapshot-id", Image::getBlockDeviceMappings, ebs(EbsBlockDevice::getSnapshotId))
+    .each("block-device-mapping.volume-size", Image::getBlockDeviceMappings, ebs(EbsBlockDevice::getVolumeSize))
+    .each("block-device-mapping.volume-type", Image::getBlockDeviceMappings, ebs(EbsBlockDevice::getVolumeType))
+    .field("description", Image::getDescription)
+    .field("hypervisor", Image::getHypervisor)
+    .field("image-id", Image::getImageId)
+    .field("image-type", Image::getImageType)
+    .field("is-public", Image::getPublic)
+    .field("kernel-id", Image::getKernelId)
+    .field("manifest-location", Image::getImageLocation)
+    .field("name", Image::getName)
+    .field("owner-alias", Image::getImageOwnerAlias)
+    .field("owner-id", Image::getOwnerId)
+    .field("platform", Image::getPlatform)
+    .each("product-code", Image::getProductCodes, ProductCode::getProductCodeId)
+    .field("ramdisk-id", Image::getRamdiskId)
+    .field("root-device-name", Image::getRootDeviceName)
+    .field("root-device-type", Image::getRootDeviceType)
+    .field("state", Image::getState)
+    .field("state-reason-code", Image::getStateReason, r -> r.getCode())
+    .field("virtualization-type", Image::getVirtualizationType);
+
+  public static final Schema<SecurityGroup> SECURITY_GROUPS = new Schema<SecurityGroup>("securityGroups", SecurityGroup::getTags)
+    .field("description", SecurityGroup::getDescription)
+    .each("egress.ip-permission.cidr", SecurityGroup::getIpPermissionsEgress, IpPermission::getIpRanges)
+    .each("egress.ip-permission.from-port", SecurityGroup::getIpPermissionsEgress, IpPermission::getFromPort)
+    .each("egress.ip-permission.group-id", SecurityGroup::getIpPermissionsEgress, pairs(UserIdGroupPair::getGroupId))
+    .each("egress.ip-permission.group-name", SecurityGroup::getIpPermissionsEgress, pairs(UserIdGroupPair::getGroupName))
+    .each("egress.ip-permission.protocol", SecurityGroup::getIpPermissionsEgress, IpPermission::getIpProtocol)
+    .each("egress.ip-permission.to-port", SecurityGroup::getIpPermissionsEgress, IpPermission::getToPort)
+    .each("egress.ip-permission.user-id", SecurityGroup::getIpPermissionsEgress, pairs(UserIdGroupPair::getUserId))
+    .field("group-id", SecurityGroup::getGroupId)
+    .field("group-name", SecurityGroup::getGroupName)
+    .each("ip-permission.cidr", SecurityGroup::getIpPermissions, IpPermission::getIpRanges)
+    .each("ip-permission.from-port", SecurityGroup::getIpPermissions, IpPermission::getFromPort)
+    .each("ip-permission.group-id", SecurityGroup::getIpPermissions, pairs(UserIdGroupPair::getGroupId))
+    .each("ip-permission.group-name", SecurityGroup::getIpPermissions, pairs(UserIdGroupPair::getGroupName))
+    .each("ip-permission.protocol", SecurityGroup::getIpPermissions, IpPermission::getIpProtocol)
+    .each("ip-permission.to-port", SecurityGroup::getIpPermissions, IpPermission::getToPort)
+    .each("ip-permission.user-id", SecurityGroup::getIpPermissions, pairs(UserIdGroupPair::getUserId))
+    .field("owner-id", SecurityGroup::getOwnerId)
+    .field("vpc-id", SecurityGroup::getVpcId);
+
+  public static final Schema<Subnet> SUBNETS = new Schema<Subnet>("subnets", Subnet::getTags)
+    .field("availability-zone", Subnet::getAvailabilityZone)
+    .field("availabilityZone", Subnet::getAvailabilityZone)
+    .field("available-ip-address-count", Subnet::getAvailableIpAddressCount)
+    .field("cidr", Subnet::getCidrBlock)
+    .field("cidr-block", Subnet::getCidrBlock)
+    .field("cidrBlock", Subnet::getCidrBlock)
+    .field("default-for-az", Subnet::getDefaultForAz)
+    .field("defaultForAz", Subnet::getDefaultForAz)
+    .field("state", Subnet::getState)
+    .field("subnet-id", Subnet::getSubnetId)
+    .field("vpc-id", Subnet::getVpcId);
+
+  public static final Schema<Volume> VOLUMES = new Schema<Volume>("volumes", Volume::getTags)
+    .each("attachment.delete-on-termination", Volume::getAttachments, VolumeAttachment::getDeleteOnTermination)
+    .each("attachment.device", Volume::getAttachments, VolumeAttachment::getDevice)
+    .each("attachment.instance-id", Volume::getAttachments, VolumeAttachment::getInstanceId)
+    .each("attachment.status", Volume::getAttachments, VolumeAttachment::getState)
+    .field("availability-zone", Volume::getAvailabilityZone)
+    .field("encrypted", Volume::getEncrypted)
+    .field("size", Volume::getSize)
+    .field("snapshot-id", Volume::getSnapshotId)
+    .field("status", Volume::getState)
+    .field("volume-id", Volume::getVolumeId)
+    .field("volume-type", Volume::getVolumeType);
+
+  public static final Schema<Vpc> VPCS = new Schema<Vpc>("vpcs", Vpc::getTags)
+    .field("cidr", Vpc::getCidrBlock)
+    .field("dhcp-options-id", Vpc::getDhcpOptionsId)
+    .field("instance-tenancy", Vpc::getInstanceTenancy)
+    .field("is-default", Vpc::getIsDefault)
+    .field("isDefault", Vpc::getIsDefault)
+    .field("state", Vpc::getState)
+    .field("vpc-id", Vpc::getVpcId);
+
+  public static final Schema<ClassicLinkInstance> CLASSIC_LINK_INSTANCES =
+    new Schema<ClassicLinkInstance>("classicLinkInstances", ClassicLinkInstance::getTags)
+      .each("group-id", ClassicLinkInstance::getGroups, GroupIdentifier::getGroupId)
+      .field("instance-id", ClassicLinkInstance::getInstanceId)
+      .field("vpc-id", ClassicLinkInstance::getVpcId);
+
+  public static final Schema<ReservedInstancesOffering> RESERVED_INSTANCES_OFFERINGS =
+    new Schema<ReservedInstancesOffering>("reservedInstancesOfferings", null)
+      .field("availability-zone", ReservedInstancesOffering::getAvailabilityZone)
+      .field("duration", ReservedInstancesOffering::getDuration)
+      .field("fixed-price", ReservedInstancesOffering::getFixedPrice)
+      .field("instance-type", ReservedInstancesOffering::getInstanceType)
+      .field("marketplace", ReservedInstancesOffering::getMarketplace)
+      .field("product-description", ReservedInstancesOffering::getProductDescription)
+      .field("reserved-instances-offering-id", ReservedInstancesOffering::getReservedInstancesOfferingId)
+      .field("usage-price", ReservedInstancesOffering::getUsagePrice);
+
+  public static final Schema<VpcPeeringConnection> VPC_PEERING_CONNECTIONS =
+    new Schema<VpcPeeringConnection>("vpcPeeringConnections", VpcPeeringConnection::getTags)
+      .field("accepter-vpc-info.cidr-block", VpcPeeringConnection::getAccepterVpcInfo, i -> i.getCidrBlock())
+      .field("accepter-vpc-info.owner-id", VpcPeeringConnection::getAccepterVpcInfo, i -> i.getOwnerId())
+      .field("accepter-vpc-info.vpc-id", VpcPeeringConnection::getAccepterVpcInfo, i -> i.getVpcId())
+      .field("requester-vpc-info.cidr-block", VpcPeeringConnection::getRequesterVpcInfo, i -> i.getCidrBlock())
+      .field("requester-vpc-info.owner-id", VpcPeeringConnection::getRequesterVpcInfo, i -> i.getOwnerId())
+      .field("requester-vpc-info.vpc-id", VpcPeeringConnection::getRequesterVpcInfo, i -> i.getVpcId())
+      .field("status-code", VpcPeeringConnection::getStatus, s -> s.getCode())
+      .field("status-message", VpcPeeringConnection::getStatus, s -> s.getMessage())
+      .field("vpc-peering-connection-id", VpcPeeringConnection::getVpcPeeringConnectionId);
+
+  public static final Schema<VpcClassicLink> VPC_CLASSIC_LINKS =
+    new Schema<VpcClassicLink>("vpcClassicLinks", VpcClassicLink::getTags)
+      .field("is-classic-link-enabled", VpcClassicLink::getClassicLinkEnabled)
+      .field("vpc-id", VpcClassicLink::getVpcId);
+
+  private static String volumeId(EbsInstanceBlockDevice ebs) {
+    return (ebs == null) ? null : ebs.getVolumeId();
+  }
+
+  /** Value from the EBS settings of a block device mapping. */
+  private static <T> Function<BlockDeviceMapping, T> ebs(final Function<EbsBlockDevice, T> f) {
+    return m -> (m.getEbs() == null) ? null : f.apply(m.getEbs());
+  }
+
+  /** Values from the user id and group pairs of a permission. */
+  private static Function<IpPermission, List<String>> pairs(final Function<UserIdGroupPair, String> f) {
+    return p -> {
+      List<UserIdGroupPair> pairs = p.getUserIdGroupPairs();
+      if (pairs == null) return null;
+      List<String> vs = new ArrayList<String>(pairs.size());
+      for (UserIdGroupPair pair : pairs)
+        vs.add(f.apply(pair));
+      return vs;
+    };
+  }
+}
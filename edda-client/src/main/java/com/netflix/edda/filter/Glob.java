@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.filter;
+
+/**
+ * Value pattern for an EC2 filter. A {@code *} matches any sequence of characters, a {@code ?}
+ * matches a single character, and a backslash escapes the next character. Patterns without
+ * wildcards are compared for equality.
+ */
+final class Glob {
+  private static final char ANY = '*';
+  private static final char ONE = '?';
+  private static final char ESCAPE = '\\';
+
+  /** Parse the pattern for a filter value. */
+  static Glob parse(String pattern) {
+    StringBuilder literal = new StringBuilder(pattern.length());
+    boolean[] wild = new boolean[pattern.length()];
+    boolean hasWildcards = false;
+    for (int i = 0; i < pattern.length(); ++i) {
+      char c = pattern.charAt(i);
+      if (c == ESCAPE && i + 1 < pattern.length()) {
+        literal.append(pattern.charAt(++i));
+      }
+      else {
+        if (c == ANY || c == ONE) {
+          wild[literal.length()] = true;
+          hasWildcards = true;
+        }
+        literal.append(c);
+      }
+    }
+    return new Glob(literal.toString(), hasWildcards ? wild : null);
+  }
+
+  private final String pattern;
+  private final boolean[] wild;
+
+  private Glob(String pattern, boolean[] wild) {
+    this.pattern = pattern;
+    this.wild = wild;
+  }
+
+  /** Returns true if the pattern has no wildcards. */
+  boolean isExact() {
+    return wild == null;
+  }
+
+  /** The value to compare with for exact patterns, wildcards are unescaped otherwise. */
+  String value() {
+    return pattern;
+  }
+
+  private boolean isWild(int i, char c) {
+    return wild[i] && pattern.charAt(i) == c;
+  }
+
+  boolean matches(String s) {
+    if (wild == null)
+      return pattern.equals(s);
+
+    // Greedy match with backtracking to the position after the last '*'
+    int p = 0;
+    int i = 0;
+    int star = -1;
+    int mark = 0;
+    while (i < s.length()) {
+      if (p < pattern.length() && isWild(p, ANY)) {
+        star = p++;
+        mark = i;
+      }
+      else if (p < pattern.length() && (isWild(p, ONE) || pattern.charAt(p) == s.charAt(i))) {
+        ++p;
+        ++i;
+      }
+      else if (star >= 0) {
+        p = star + 1;
+        i = ++mark;
+      }
+      else {
+        return false;
+      }
+    }
+    while (p < pattern.length() && isWild(p, ANY))
+      ++p;
+    return p == pattern.length();
+  }
+
+  @Override
+  public String toString() {
+    return pattern;
+  }
+}
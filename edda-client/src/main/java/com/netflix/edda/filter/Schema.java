@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Tag;
+
+/**
+ * Filter names supported for a type of resource along with how to get the values for each name
+ * from the SDK model. Values can be strings, numbers, booleans, or collections of these. If the
+ * resource has tags, then the {@code tag:<key>}, {@code tag-key}, and {@code tag-value} filters
+ * are also supported.
+ */
+public final class Schema<T> {
+  private final String name;
+  private final Function<T, List<Tag>> tags;
+  private final Map<String, Function<T, ?>> fields = new LinkedHashMap<String, Function<T, ?>>();
+
+  Schema(String name, Function<T, List<Tag>> tags) {
+    this.name = name;
+    this.tags = tags;
+  }
+
+  /** Add a filter name and the function used to get the values for a resource. */
+  Schema<T> field(String filterName, Function<T, ?> values) {
+    fields.put(filterName, values);
+    return this;
+  }
+
+  /** Add a filter for a nested object, the value is null if the nested object is null. */
+  <U> Schema<T> field(String filterName, Function<T, U> nested, Function<U, ?> values) {
+    return field(filterName, t -> {
+      U u = nested.apply(t);
+      return (u == null) ? null : values.apply(u);
+    });
+  }
+
+  /** Add a filter for each item of a nested list. */
+  <U> Schema<T> each(String filterName, Function<T, List<U>> list, Function<U, ?> values) {
+    return field(filterName, t -> {
+      List<U> us = list.apply(t);
+      if (us == null || us.isEmpty()) return null;
+      List<Object> vs = new ArrayList<Object>(us.size());
+      for (U u : us) {
+        if (u != null) vs.add(values.apply(u));
+      }
+      return vs;
+    });
+  }
+
+  /** Returns true if the filter name is supported for this type. */
+  public boolean supports(String filterName) {
+    return fields.containsKey(filterName) || (tags != null && isTagFilter(filterName));
+  }
+
+  private static boolean isTagFilter(String filterName) {
+    return filterName.startsWith("tag:") || "tag-key".equals(filterName) || "tag-value".equals(filterName);
+  }
+
+  private Function<T, ?> values(String filterName) {
+    Function<T, ?> f = fields.get(filterName);
+    if (f != null || tags == null) return f;
+    if ("tag-key".equals(filterName))
+      return t -> tagValues(tags.apply(t), null, true);
+    if ("tag-value".equals(filterName))
+      return t -> tagValues(tags.apply(t), null, false);
+    if (filterName.startsWith("tag:")) {
+      final String key = filterName.substring("tag:".length());
+      return t -> tagValues(tags.apply(t), key, false);
+    }
+    return null;
+  }
+
+  private static List<String> tagValues(List<Tag> ts, String key, boolean keys) {
+    if (ts == null || ts.isEmpty()) return null;
+    List<String> vs = new ArrayList<String>(ts.size());
+    for (Tag t : ts) {
+      if (key == null || key.equals(t.getKey()))
+        vs.add(keys ? t.getKey() : t.getValue());
+    }
+    return vs;
+  }
+
+  /**
+   * Compile the filters into a predicate. All filters must match and a filter matches if any
+   * value of the resource matches any of the patterns for the filter. Filters with names that
+   * are supported by one of the other schemas are skipped, e.g. the reservation level filters
+   * when filtering instances. Throws UnsupportedOperationException for other unknown names.
+   */
+  public Ec2Filter<T> compile(Collection<Filter> filters, Schema<?>... others) {
+    List<Ec2Filter.Clause<T>> clauses = new ArrayList<Ec2Filter.Clause<T>>();
+    if (filters != null) {
+      for (Filter filter : filters) {
+        String filterName = (filter == null) ? null : filter.getName();
+        if (filterName == null)
+          throw new UnsupportedOperationException("Filter without a name not supported");
+        Function<T, ?> values = values(filterName);
+        if (values == null) {
+          if (isSupportedByOther(filterName, others)) continue;
+          throw new UnsupportedOperationException("Filter " + filterName + " not supported for " + name);
+        }
+        List<String> patterns = filter.getValues();
+        if (patterns == null || patterns.isEmpty())
+          throw new UnsupportedOperationException("Filter " + filterName + " without values not supported");
+        List<Glob> globs = new ArrayList<Glob>(patterns.size());
+        for (String p : patterns)
+          globs.add(Glob.parse(p));
+        clauses.add(new Ec2Filter.Clause<T>(filterName, values, globs));
+      }
+    }
+    return new Ec2Filter<T>(clauses);
+  }
+
+  private static boolean isSupportedByOther(String filterName, Schema<?>[] others) {
+    for (Schema<?> other : others) {
+      if (other.supports(filterName)) return true;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "Schema(" + name + ")";
+  }
+}
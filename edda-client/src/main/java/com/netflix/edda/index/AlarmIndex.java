@@ -0,0 +1,309 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricAlarm;
+
+/**
+ * Index over a list of CloudWatch alarms. Alarm names and action ARNs are kept in sorted arrays
+ * so exact and prefix lookups are binary searches, and there is a reverse index from each metric
+ * dimension to the alarms that use it. The index is immutable, the clients keep it along with
+ * the hash of the response it was built from and only rebuild it if the response changes.
+ * Results are in the order of the list.
+ */
+public class AlarmIndex {
+  private final List<MetricAlarm> alarms;
+
+  // Alarm names in sorted order along with the position of the alarm in the list
+  private final String[] names;
+  private final int[] namePositions;
+
+  // Action ARNs in sorted order along with the position of the alarm using the action, there
+  // is an entry for each use of an action
+  private final String[] actions;
+  private final int[] actionPositions;
+
+  private final Map<String, Map<String, int[]>> dimensions;
+
+  public AlarmIndex(List<MetricAlarm> alarms) {
+    this.alarms = alarms;
+    int n = alarms.size();
+
+    String[] alarmNames = new String[n];
+    for (int i = 0; i < n; ++i)
+      alarmNames[i] = nullToEmpty(alarms.get(i).getAlarmName());
+    names = new String[n];
+    namePositions = sortedPositions(alarmNames, names);
+
+    List<String> as = new ArrayList<String>();
+    List<Integer> ps = new ArrayList<Integer>();
+    Map<String, Map<String, List<Integer>>> dims = new HashMap<String, Map<String, List<Integer>>>();
+    for (int i = 0; i < n; ++i) {
+      MetricAlarm alarm = alarms.get(i);
+      for (String a : actions(alarm)) {
+        as.add(a);
+        ps.add(i);
+      }
+      for (Dimension d : alarm.getDimensions()) {
+        Map<String, List<Integer>> values = dims.get(d.getName());
+        if (values == null) {
+          values = new HashMap<String, List<Integer>>();
+          dims.put(d.getName(), values);
+        }
+        List<Integer> positions = values.get(d.getValue());
+        if (positions == null) {
+          positions = new ArrayList<Integer>(2);
+          values.put(d.getValue(), positions);
+        }
+        positions.add(i);
+      }
+    }
+
+    actions = new String[as.size()];
+    int[] order = sortedPositions(as.toArray(new String[as.size()]), actions);
+    actionPositions = new int[order.length];
+    for (int i = 0; i < order.length; ++i)
+      actionPositions[i] = ps.get(order[i]);
+
+    dimensions = new HashMap<String, Map<String, int[]>>();
+    for (Map.Entry<String, Map<String, List<Integer>>> d : dims.entrySet()) {
+      Map<String, int[]> values = new HashMap<String, int[]>();
+      for (Map.Entry<String, List<Integer>> v : d.getValue().entrySet())
+        values.put(v.getKey(), toArray(v.getValue()));
+      dimensions.put(d.getKey(), values);
+    }
+  }
+
+  /**
+   * Sort the values into the sorted array and return the original position of each value in
+   * the sorted array.
+   */
+  private static int[] sortedPositions(final String[] values, String[] sorted) {
+    Integer[] order = new Integer[values.length];
+    for (int i = 0; i < order.length; ++i)
+      order[i] = i;
+    Arrays.sort(order, (a, b) -> values[a].compareTo(values[b]));
+    int[] positions = new int[order.length];
+    for (int i = 0; i < order.length; ++i) {
+      positions[i] = order[i];
+      sorted[i] = values[order[i]];
+    }
+    return positions;
+  }
+
+  private static String nullToEmpty(String s) {
+    return (s == null) ? "" : s;
+  }
+
+  private static List<String> actions(MetricAlarm alarm) {
+    List<String> as = new ArrayList<String>();
+    as.addAll(alarm.getAlarmActions());
+    as.addAll(alarm.getOKActions());
+    as.addAll(alarm.getInsufficientDataActions());
+    return as;
+  }
+
+  private static int[] toArray(List<Integer> vs) {
+    int[] array = new int[vs.size()];
+    for (int i = 0; i < array.length; ++i)
+      array[i] = vs.get(i);
+    return array;
+  }
+
+  /** All alarms in the index. */
+  public List<MetricAlarm> getAlarms() {
+    return alarms;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Sorted arrays
+
+  /** Position of the first value in the sorted array that is greater than or equal to key. */
+  private static int lowerBound(String[] values, String key) {
+    int lo = 0;
+    int hi = values.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (values[mid].compareTo(key) < 0)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo;
+  }
+
+  private static void setPrefix(String[] values, int[] positions, String prefix, BitSet matches) {
+    for (int i = lowerBound(values, prefix); i < values.length; ++i) {
+      if (!values[i].startsWith(prefix)) break;
+      matches.set(positions[i]);
+    }
+  }
+
+  private static void setExact(String[] values, int[] positions, String key, BitSet matches) {
+    for (int i = lowerBound(values, key); i < values.length; ++i) {
+      if (!values[i].equals(key)) break;
+      matches.set(positions[i]);
+    }
+  }
+
+  private List<MetricAlarm> resolve(BitSet matches) {
+    List<MetricAlarm> vs = new ArrayList<MetricAlarm>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1))
+      vs.add(alarms.get(i));
+    return vs;
+  }
+
+  private static BitSet and(BitSet a, BitSet b) {
+    if (a == null) return b;
+    a.and(b);
+    return a;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Lookups
+
+  public List<MetricAlarm> getByName(String name) {
+    BitSet matches = new BitSet(alarms.size());
+    setExact(names, namePositions, name, matches);
+    return resolve(matches);
+  }
+
+  public List<MetricAlarm> getByNamePrefix(String prefix) {
+    BitSet matches = new BitSet(alarms.size());
+    setPrefix(names, namePositions, prefix, matches);
+    return resolve(matches);
+  }
+
+  /** Alarms with an alarm, OK or insufficient data action that starts with the prefix. */
+  public List<MetricAlarm> getByActionPrefix(String prefix) {
+    BitSet matches = new BitSet(alarms.size());
+    setPrefix(actions, actionPositions, prefix, matches);
+    return resolve(matches);
+  }
+
+  /** Alarms for metrics with the dimension, e.g., AutoScalingGroupName=foo. */
+  public List<MetricAlarm> getByDimension(String name, String value) {
+    int[] positions = positions(name, value);
+    List<MetricAlarm> vs = new ArrayList<MetricAlarm>(positions.length);
+    for (int i : positions)
+      vs.add(alarms.get(i));
+    return vs;
+  }
+
+  private int[] positions(String name, String value) {
+    Map<String, int[]> values = dimensions.get(name);
+    int[] positions = (values == null) ? null : values.get(value);
+    return (positions == null) ? new int[0] : positions;
+  }
+
+  /**
+   * Alarms matching all of the criteria that are set, null or empty criteria are ignored. This
+   * corresponds to the filters supported by the CloudWatch DescribeAlarms call. If no criteria
+   * are set, then the list for the index is returned.
+   */
+  public List<MetricAlarm> find(
+    Collection<String> alarmNames,
+    String namePrefix,
+    String actionPrefix,
+    String state
+  ) {
+    BitSet matches = null;
+    if (alarmNames != null && !alarmNames.isEmpty()) {
+      BitSet m = new BitSet(alarms.size());
+      for (String name : alarmNames)
+        setExact(names, namePositions, name, m);
+      matches = and(matches, m);
+    }
+    if (namePrefix != null && namePrefix.length() > 0) {
+      BitSet m = new BitSet(alarms.size());
+      setPrefix(names, namePositions, namePrefix, m);
+      matches = and(matches, m);
+    }
+    if (actionPrefix != null && actionPrefix.length() > 0) {
+      BitSet m = new BitSet(alarms.size());
+      setPrefix(actions, actionPositions, actionPrefix, m);
+      matches = and(matches, m);
+    }
+    boolean filterState = state != null && state.length() > 0;
+    if (matches == null) {
+      if (!filterState) return alarms;
+      matches = new BitSet(alarms.size());
+      matches.set(0, alarms.size());
+    }
+    if (filterState) {
+      for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+        if (!state.equals(alarms.get(i).getStateValue()))
+          matches.clear(i);
+      }
+    }
+    return resolve(matches);
+  }
+
+  /**
+   * Alarms for the metric, corresponds to the CloudWatch DescribeAlarmsForMetric call. The
+   * namespace and metric name are required, the other criteria are ignored if null. If
+   * dimensions are specified then the alarm must have exactly the same set of dimensions.
+   */
+  public List<MetricAlarm> findForMetric(
+    String namespace,
+    String metricName,
+    List<Dimension> metricDimensions,
+    String statistic,
+    Integer period,
+    String unit
+  ) {
+    List<MetricAlarm> vs = new ArrayList<MetricAlarm>();
+    List<Dimension> dims = (metricDimensions == null)
+      ? Collections.<Dimension>emptyList()
+      : metricDimensions;
+
+    // Candidates are the alarms for the dimension with the fewest alarms, if there are no
+    // dimensions then all alarms need to be checked
+    int[] candidates = null;
+    for (Dimension d : dims) {
+      int[] positions = positions(d.getName(), d.getValue());
+      if (candidates == null || positions.length < candidates.length)
+        candidates = positions;
+    }
+
+    int n = (candidates == null) ? alarms.size() : candidates.length;
+    for (int j = 0; j < n; ++j) {
+      MetricAlarm alarm = alarms.get((candidates == null) ? j : candidates[j]);
+      boolean matches = namespace.equals(alarm.getNamespace())
+        && metricName.equals(alarm.getMetricName())
+        && (statistic == null || statistic.equals(alarm.getStatistic()))
+        && (period == null || period.equals(alarm.getPeriod()))
+        && (unit == null || unit.equals(alarm.getUnit()))
+        && (dims.isEmpty() || sameDimensions(dims, alarm.getDimensions()));
+      if (matches) vs.add(alarm);
+    }
+    return vs;
+  }
+
+  private static boolean sameDimensions(List<Dimension> a, List<Dimension> b) {
+    return a.size() == b.size() && a.containsAll(b);
+  }
+}
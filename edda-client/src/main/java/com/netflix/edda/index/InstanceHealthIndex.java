@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.elasticloadbalancing.model.InstanceState;
+
+import com.netflix.edda.mapper.InstanceStateView;
+
+/**
+ * Health of the instances for all load balancers indexed by load balancer name and by instance
+ * id. Built from a single fetch of the loadBalancerInstances view so the health for many load
+ * balancers can be answered without a request for each one. The index is immutable, the clients
+ * only rebuild it if the response for the view changes.
+ */
+public class InstanceHealthIndex {
+  private final List<InstanceStateView> views;
+  private final Map<String, List<InstanceState>> byLoadBalancer;
+  private final Map<String, Map<String, InstanceState>> byInstance;
+
+  public InstanceHealthIndex(List<InstanceStateView> views) {
+    this.views = views;
+    this.byLoadBalancer = new HashMap<String, List<InstanceState>>(views.size());
+    this.byInstance = new HashMap<String, Map<String, InstanceState>>();
+    for (InstanceStateView view : views) {
+      String name = view.getName();
+      if (name == null) continue;
+      byLoadBalancer.put(name, view.getInstances());
+      for (InstanceState state : view.getInstances()) {
+        Map<String, InstanceState> states = byInstance.get(state.getInstanceId());
+        if (states == null) {
+          states = new LinkedHashMap<String, InstanceState>(2);
+          byInstance.put(state.getInstanceId(), states);
+        }
+        states.put(name, state);
+      }
+    }
+  }
+
+  /** Views for all load balancers in the order returned by edda. */
+  public List<InstanceStateView> getViews() {
+    return views;
+  }
+
+  public boolean containsLoadBalancer(String name) {
+    return byLoadBalancer.containsKey(name);
+  }
+
+  /** Health of the instances registered with the load balancer or null if it is not known. */
+  public List<InstanceState> getInstanceStates(String loadBalancerName) {
+    return byLoadBalancer.get(loadBalancerName);
+  }
+
+  /** Health of the instance for each load balancer it is registered with. */
+  public Map<String, InstanceState> getInstanceStatesByLoadBalancer(String instanceId) {
+    Map<String, InstanceState> states = byInstance.get(instanceId);
+    return (states == null)
+      ? Collections.<String, InstanceState>emptyMap()
+      : Collections.unmodifiableMap(states);
+  }
+
+  /** Names of the load balancers that the instance is registered with. */
+  public List<String> getLoadBalancerNames(String instanceId) {
+    return new ArrayList<String>(getInstanceStatesByLoadBalancer(instanceId).keySet());
+  }
+
+  /** Returns true if the instance is registered with a load balancer and InService for all. */
+  public boolean isInService(String instanceId) {
+    Map<String, InstanceState> states = byInstance.get(instanceId);
+    if (states == null) return false;
+    for (InstanceState state : states.values()) {
+      if (!"InService".equals(state.getState())) return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceNetworkInterface;
+import com.amazonaws.services.ec2.model.InstancePrivateIpAddress;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.Vpc;
+
+import com.netflix.edda.EddaBundle;
+import com.netflix.edda.EddaCollection;
+import com.netflix.edda.Snapshot;
+import com.netflix.edda.util.CidrTrie;
+import com.netflix.edda.util.LongIntMap;
+
+/**
+ * Maps IPv4 addresses to the subnet, VPC and instance they belong to. Subnet and VPC CIDR
+ * blocks are kept in tries and the private and public addresses of the instances, including
+ * the secondary addresses of all network interfaces, in a hash index. Lookups do not allocate
+ * so large batches such as flow log records can be resolved with a single reused
+ * {@link Resolution}.
+ *
+ * <p>Private ranges can overlap across VPCs. If more than one subnet or VPC has the same CIDR
+ * block, then the first one is used. The VPC for an address is the VPC of the matching subnet,
+ * the VPC CIDR blocks are only used for addresses that are not in a known subnet. An address
+ * used by instances in several VPCs resolves to the instance in the VPC of the matching subnet.
+ */
+public class IpResolver {
+
+  /** Results of a bulk lookup, entry i has the resources for address i or null if unknown. */
+  public static final class Resolution {
+    private Subnet[] subnets;
+    private Vpc[] vpcs;
+    private Instance[] instances;
+    private int size;
+
+    public Resolution(int capacity) {
+      subnets = new Subnet[capacity];
+      vpcs = new Vpc[capacity];
+      instances = new Instance[capacity];
+    }
+
+    void reset(int n) {
+      if (subnets.length < n) {
+        subnets = new Subnet[n];
+        vpcs = new Vpc[n];
+        instances = new Instance[n];
+      }
+      size = n;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public Subnet getSubnet(int i) {
+      return subnets[i];
+    }
+
+    public Vpc getVpc(int i) {
+      return vpcs[i];
+    }
+
+    public Instance getInstance(int i) {
+      return instances[i];
+    }
+  }
+
+  /** Instances by address, entries with the same address are chained using next. */
+  private static final class Hosts {
+    static final Hosts EMPTY = new Hosts(new ArrayList<Instance>(), new ArrayList<String>(),
+      new LongIntMap(1, -1), new int[0]);
+
+    final Instance[] instances;
+    final String[] vpcIds;
+    final LongIntMap first;
+    final int[] next;
+
+    Hosts(List<Instance> instances, List<String> vpcIds, LongIntMap first, int[] next) {
+      this.instances = instances.toArray(new Instance[instances.size()]);
+      this.vpcIds = vpcIds.toArray(new String[vpcIds.size()]);
+      this.first = first;
+      this.next = next;
+    }
+  }
+
+  /** VPCs by id for addresses in a known subnet and by CIDR block for other addresses. */
+  private static final class Vpcs {
+    static final Vpcs EMPTY = new Vpcs(Collections.<String, Vpc>emptyMap(), new CidrTrie<Vpc>(0));
+
+    final Map<String, Vpc> byId;
+    final CidrTrie<Vpc> byCidr;
+
+    Vpcs(Map<String, Vpc> byId, CidrTrie<Vpc> byCidr) {
+      this.byId = byId;
+      this.byCidr = byCidr;
+    }
+
+    /** VPC of the subnet if the address matched one, otherwise the VPC containing it. */
+    Vpc get(Subnet s, int address) {
+      return (s == null) ? byCidr.longestMatch(address) : byId.get(s.getVpcId());
+    }
+  }
+
+  private volatile CidrTrie<Subnet> subnets = new CidrTrie<Subnet>(0);
+  private volatile Vpcs vpcs = Vpcs.EMPTY;
+  private volatile Hosts hosts = Hosts.EMPTY;
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Updates
+
+  /** Update with all collections that were successfully fetched for the bundle. */
+  public void update(EddaBundle bundle) {
+    Snapshot<Subnet> ss = bundle.getSnapshot(EddaCollection.SUBNETS);
+    if (ss != null) updateSubnets(ss);
+    Snapshot<Vpc> vs = bundle.getSnapshot(EddaCollection.VPCS);
+    if (vs != null) updateVpcs(vs);
+    Snapshot<Reservation> rs = bundle.getSnapshot(EddaCollection.INSTANCES);
+    if (rs != null) updateInstances(rs);
+  }
+
+  public void updateSubnets(Snapshot<Subnet> snapshot) {
+    CidrTrie<Subnet> trie = new CidrTrie<Subnet>(snapshot.getItems().size());
+    for (Subnet s : snapshot.getItems()) {
+      if (s.getCidrBlock() != null)
+        trie.put(s.getCidrBlock(), s, (a, b) -> a);
+    }
+    subnets = trie;
+  }
+
+  public void updateVpcs(Snapshot<Vpc> snapshot) {
+    Map<String, Vpc> byId = new HashMap<String, Vpc>();
+    CidrTrie<Vpc> trie = new CidrTrie<Vpc>(snapshot.getItems().size());
+    for (Vpc v : snapshot.getItems()) {
+      byId.put(v.getVpcId(), v);
+      if (v.getCidrBlock() != null)
+        trie.put(v.getCidrBlock(), v, (a, b) -> a);
+    }
+    vpcs = new Vpcs(byId, trie);
+  }
+
+  public void updateInstances(Snapshot<Reservation> snapshot) {
+    List<Instance> instances = new ArrayList<Instance>();
+    List<String> vpcIds = new ArrayList<String>();
+    List<Long> addresses = new ArrayList<Long>();
+    for (Reservation r : snapshot.getItems()) {
+      for (Instance i : r.getInstances()) {
+        int n = addresses.size();
+        add(addresses, n, i.getPrivateIpAddress());
+        add(addresses, n, i.getPublicIpAddress());
+        if (i.getNetworkInterfaces() != null) {
+          for (InstanceNetworkInterface ni : i.getNetworkInterfaces()) {
+            if (ni.getAssociation() != null)
+              add(addresses, n, ni.getAssociation().getPublicIp());
+            if (ni.getPrivateIpAddresses() == null) continue;
+            for (InstancePrivateIpAddress pa : ni.getPrivateIpAddresses()) {
+              add(addresses, n, pa.getPrivateIpAddress());
+              if (pa.getAssociation() != null)
+                add(addresses, n, pa.getAssociation().getPublicIp());
+            }
+          }
+        }
+        for (int j = n; j < addresses.size(); ++j) {
+          instances.add(i);
+          vpcIds.add(i.getVpcId());
+        }
+      }
+    }
+
+    // Chain entries for the same address so the first one added stays at the head
+    LongIntMap first = new LongIntMap(addresses.size(), -1);
+    int[] next = new int[addresses.size()];
+    for (int j = addresses.size() - 1; j >= 0; --j) {
+      long address = addresses.get(j);
+      next[j] = first.get(address);
+      first.put(address, j);
+    }
+    hosts = new Hosts(instances, vpcIds, first, next);
+  }
+
+  /** Add the address if it is valid and not already listed for the instance starting at n. */
+  private static void add(List<Long> addresses, int n, String ip) {
+    long address = (ip == null) ? -1L : CidrTrie.tryParseAddress(ip);
+    if (address < 0L) return;
+    for (int j = n; j < addresses.size(); ++j) {
+      if (addresses.get(j) == address) return;
+    }
+    addresses.add(address);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Lookups
+
+  /** Subnet with the most specific CIDR block containing the address or null. */
+  public Subnet getSubnet(String ip) {
+    long address = CidrTrie.tryParseAddress(ip);
+    return (address < 0L) ? null : subnets.longestMatch((int) address);
+  }
+
+  /**
+   * VPC of the subnet containing the address. If the address is not in a known subnet, then the
+   * VPC with the most specific CIDR block containing the address. Returns null if not known.
+   */
+  public Vpc getVpc(String ip) {
+    long address = CidrTrie.tryParseAddress(ip);
+    if (address < 0L) return null;
+    return vpcs.get(subnets.longestMatch((int) address), (int) address);
+  }
+
+  /** Instance using the address or null. */
+  public Instance getInstance(String ip) {
+    long address = CidrTrie.tryParseAddress(ip);
+    if (address < 0L) return null;
+    Subnet s = subnets.longestMatch((int) address);
+    return instance(hosts, address, (s == null) ? null : s.getVpcId());
+  }
+
+  /** Resolve a batch of addresses. */
+  public Resolution resolve(String[] ips) {
+    Resolution result = new Resolution(ips.length);
+    resolve(ips, result);
+    return result;
+  }
+
+  /**
+   * Resolve a batch of addresses into an existing result so that it can be reused across
+   * batches. Invalid addresses resolve to nulls.
+   */
+  public void resolve(String[] ips, Resolution result) {
+    CidrTrie<Subnet> ss = subnets;
+    Vpcs vs = vpcs;
+    Hosts hs = hosts;
+    result.reset(ips.length);
+    for (int i = 0; i < ips.length; ++i) {
+      long address = (ips[i] == null) ? -1L : CidrTrie.tryParseAddress(ips[i]);
+      if (address < 0L) {
+        result.subnets[i] = null;
+        result.vpcs[i] = null;
+        result.instances[i] = null;
+      }
+      else {
+        Subnet s = ss.longestMatch((int) address);
+        result.subnets[i] = s;
+        result.vpcs[i] = vs.get(s, (int) address);
+        result.instances[i] = instance(hs, address, (s == null) ? null : s.getVpcId());
+      }
+    }
+  }
+
+  /** Resolve a batch of addresses given as unsigned ints, e.g. from binary flow logs. */
+  public void resolve(int[] addresses, Resolution result) {
+    CidrTrie<Subnet> ss = subnets;
+    Vpcs vs = vpcs;
+    Hosts hs = hosts;
+    result.reset(addresses.length);
+    for (int i = 0; i < addresses.length; ++i) {
+      Subnet s = ss.longestMatch(addresses[i]);
+      result.subnets[i] = s;
+      result.vpcs[i] = vs.get(s, addresses[i]);
+      result.instances[i] =
+        instance(hs, addresses[i] & 0xFFFFFFFFL, (s == null) ? null : s.getVpcId());
+    }
+  }
+
+  /** Instance for the address, preferring one in the VPC if there are several. */
+  private static Instance instance(Hosts hs, long address, String vpcId) {
+    int j = hs.first.get(address);
+    if (j < 0 || vpcId == null) return (j < 0) ? null : hs.instances[j];
+    for (int k = j; k >= 0; k = hs.next[k]) {
+      if (vpcId.equals(hs.vpcIds[k])) return hs.instances[k];
+    }
+    return hs.instances[j];
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.netflix.edda.util.IdIndex;
+import com.netflix.edda.util.IdSet;
+
+/**
+ * Resources from a single collection keyed by id along with reverse edges from the ids of
+ * related resources to the ids in this collection. A layer is only modified while it is being
+ * built and is read only once it has been published. Ids are kept in primitive indexes where
+ * possible, see {@link IdIndex}.
+ */
+class Layer<T> {
+  private final long timestamp;
+  private final List<T> resources = new ArrayList<T>();
+  private final IdIndex byId = new IdIndex();
+  private final Map<String, Map<String, IdSet>> edges = new HashMap<String, Map<String, IdSet>>();
+
+  Layer(long timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  long timestamp() {
+    return timestamp;
+  }
+
+  void add(String id, T resource) {
+    if (id == null) return;
+    int i = byId.get(id);
+    if (i >= 0) {
+      resources.set(i, resource);
+    }
+    else {
+      byId.put(id, resources.size());
+      resources.add(resource);
+    }
+  }
+
+  void edge(String name, String key, String id) {
+    if (key == null || id == null) return;
+    Map<String, IdSet> edge = edges.get(name);
+    if (edge == null) {
+      edge = new HashMap<String, IdSet>();
+      edges.put(name, edge);
+    }
+    IdSet ids = edge.get(key);
+    if (ids == null) {
+      ids = new IdSet(2);
+      edge.put(key, ids);
+    }
+    ids.add(id);
+  }
+
+  T get(String id) {
+    int i = (id == null) ? -1 : byId.get(id);
+    return (i < 0) ? null : resources.get(i);
+  }
+
+  List<String> ids(String name, String key) {
+    Map<String, IdSet> edge = edges.get(name);
+    IdSet ids = (edge == null) ? null : edge.get(key);
+    return (ids == null) ? Collections.<String>emptyList() : ids.toList();
+  }
+
+  /** Ids with an edge from any key for the name. */
+  List<String> ids(String name) {
+    Map<String, IdSet> edge = edges.get(name);
+    if (edge == null) return Collections.<String>emptyList();
+    if (edge.size() == 1) return edge.values().iterator().next().toList();
+    IdSet all = new IdSet();
+    for (IdSet ids : edge.values()) {
+      for (String id : ids.toList())
+        all.add(id);
+    }
+    return all.toList();
+  }
+
+  /** Keys with at least one edge for the name. */
+  Set<String> keys(String name) {
+    Map<String, IdSet> edge = edges.get(name);
+    return (edge == null)
+      ? Collections.<String>emptySet()
+      : Collections.unmodifiableSet(edge.keySet());
+  }
+
+  /** Check if there is an edge from the key to the id, a null key matches any key. */
+  boolean hasEdge(String name, String key, String id) {
+    Map<String, IdSet> edge = edges.get(name);
+    if (edge == null) return false;
+    if (key != null) {
+      IdSet ids = edge.get(key);
+      return ids != null && ids.contains(id);
+    }
+    for (IdSet ids : edge.values()) {
+      if (ids.contains(id)) return true;
+    }
+    return false;
+  }
+
+  List<T> related(String name, String key) {
+    return resolve(ids(name, key));
+  }
+
+  /**
+   * Resources with an edge from each of the name and key pairs, a null key matches any key. The
+   * ids for the first pair are checked against the edges for the others.
+   */
+  List<T> relatedToAll(Map<String, String> keys) {
+    List<T> vs = new ArrayList<T>();
+    if (keys.isEmpty()) return vs;
+    Map.Entry<String, String> first = keys.entrySet().iterator().next();
+    List<String> candidates = (first.getValue() == null)
+      ? ids(first.getKey())
+      : ids(first.getKey(), first.getValue());
+    for (String id : candidates) {
+      boolean matches = true;
+      for (Map.Entry<String, String> k : keys.entrySet()) {
+        if (!hasEdge(k.getKey(), k.getValue(), id)) {
+          matches = false;
+          break;
+        }
+      }
+      T v = matches ? get(id) : null;
+      if (v != null) vs.add(v);
+    }
+    return vs;
+  }
+
+  List<T> resolve(Iterable<String> ids) {
+    List<T> vs = new ArrayList<T>();
+    if (ids == null) return vs;
+    for (String id : ids) {
+      T v = get(id);
+      if (v != null) vs.add(v);
+    }
+    return vs;
+  }
+
+  T first(String name, String key) {
+    List<String> ids = ids(name, key);
+    return ids.isEmpty() ? null : get(ids.get(0));
+  }
+}
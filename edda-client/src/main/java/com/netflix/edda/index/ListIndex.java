@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.netflix.edda.ExpiringValue;
+import com.netflix.edda.Snapshot;
+
+/**
+ * Index from keys to the items of a list, e.g., from instance id to the auto scaling group with
+ * the instance. An item can have many keys and a key can map to many items. Results are in the
+ * order of the list and an item is only included once even if it matches several keys. The
+ * index is immutable and is built for a specific list, see {@link Cached} to keep the index for
+ * the most recent snapshot.
+ */
+public class ListIndex<T> {
+
+  /**
+   * Holds the index for the most recent snapshot. The index is reused as long as the snapshots
+   * come from a response with the same hash, it is rebuilt when the content changes or if the
+   * hash of the snapshot is not known.
+   */
+  public static final class Cached<T> {
+    private final Function<T, Collection<String>> keys;
+    private final ExpiringValue<ListIndex<T>> index = new ExpiringValue<ListIndex<T>>(0L);
+
+    public Cached(Function<T, Collection<String>> keys) {
+      this.keys = keys;
+    }
+
+    /** Return the index for the items of the snapshot. */
+    public ListIndex<T> get(Snapshot<T> snapshot) {
+      BigInteger hash = snapshot.getHash();
+      ListIndex<T> idx = (hash == null) ? null : index.getLast(hash);
+      if (idx == null) {
+        idx = new ListIndex<T>(snapshot.getItems(), keys);
+        if (hash != null) index.set(idx, hash);
+      }
+      return idx;
+    }
+  }
+
+  /** Create an index where each item has a single key. */
+  public static <T> Cached<T> cached(final Function<T, String> key) {
+    return new Cached<T>(item -> Collections.singletonList(key.apply(item)));
+  }
+
+  /** Create an index where each item has many keys. */
+  public static <T> Cached<T> cachedMulti(Function<T, Collection<String>> keys) {
+    return new Cached<T>(keys);
+  }
+
+  private static final int[] EMPTY = new int[0];
+
+  private final List<T> items;
+  private final Map<String, int[]> positions;
+
+  public ListIndex(List<T> items, Function<T, Collection<String>> keys) {
+    this.items = items;
+    Map<String, List<Integer>> tmp = new HashMap<String, List<Integer>>(items.size());
+    for (int i = 0; i < items.size(); ++i) {
+      for (String k : keys.apply(items.get(i))) {
+        if (k == null) continue;
+        List<Integer> ps = tmp.get(k);
+        if (ps == null) {
+          ps = new ArrayList<Integer>(1);
+          tmp.put(k, ps);
+        }
+        if (ps.isEmpty() || ps.get(ps.size() - 1) != i)
+          ps.add(i);
+      }
+    }
+    positions = new HashMap<String, int[]>(tmp.size());
+    for (Map.Entry<String, List<Integer>> e : tmp.entrySet()) {
+      List<Integer> ps = e.getValue();
+      int[] array = new int[ps.size()];
+      for (int i = 0; i < array.length; ++i)
+        array[i] = ps.get(i);
+      positions.put(e.getKey(), array);
+    }
+  }
+
+  private int[] positions(String key) {
+    int[] ps = (key == null) ? null : positions.get(key);
+    return (ps == null) ? EMPTY : ps;
+  }
+
+  /** Items in the index. */
+  public List<T> getItems() {
+    return items;
+  }
+
+  public boolean containsKey(String key) {
+    return positions(key).length > 0;
+  }
+
+  /** First item with the key or null if there is no such item. */
+  public T first(String key) {
+    int[] ps = positions(key);
+    return (ps.length == 0) ? null : items.get(ps[0]);
+  }
+
+  /** Items with the key. */
+  public List<T> get(String key) {
+    int[] ps = positions(key);
+    List<T> vs = new ArrayList<T>(ps.length);
+    for (int p : ps)
+      vs.add(items.get(p));
+    return vs;
+  }
+
+  /** Items with any of the keys, each item is only included once. */
+  public List<T> getAll(Collection<String> keys) {
+    BitSet matches = new BitSet(items.size());
+    for (String k : keys) {
+      for (int p : positions(k))
+        matches.set(p);
+    }
+    List<T> vs = new ArrayList<T>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1))
+      vs.add(items.get(i));
+    return vs;
+  }
+}
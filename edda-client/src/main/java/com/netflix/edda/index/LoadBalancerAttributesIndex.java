@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.elasticloadbalancing.model.LoadBalancerAttributes;
+
+import com.netflix.edda.mapper.LoadBalancerAttributesView;
+
+/**
+ * Attributes for all load balancers keyed by name. Built from a single fetch of the
+ * loadBalancerAttributes view so the attributes for a load balancer are a hash lookup. The
+ * index is immutable, the clients only rebuild it if the response for the view changes.
+ */
+public class LoadBalancerAttributesIndex {
+  private final List<LoadBalancerAttributesView> views;
+  private final Map<String, LoadBalancerAttributes> byName;
+
+  public LoadBalancerAttributesIndex(List<LoadBalancerAttributesView> views) {
+    this.views = views;
+    this.byName = new HashMap<String, LoadBalancerAttributes>(views.size());
+    for (LoadBalancerAttributesView view : views) {
+      if (view.getName() != null)
+        byName.put(view.getName(), view.getAttributes());
+    }
+  }
+
+  /** Views for all load balancers in the order returned by edda. */
+  public List<LoadBalancerAttributesView> getViews() {
+    return views;
+  }
+
+  /** Attributes for the load balancer or null if it is not known. */
+  public LoadBalancerAttributes getAttributes(String loadBalancerName) {
+    return byName.get(loadBalancerName);
+  }
+}
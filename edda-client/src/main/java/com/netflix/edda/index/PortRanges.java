@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable set of port ranges for each IP protocol. The ranges for a protocol are merged and
+ * sorted so a check is a binary search. The protocol {@link #ALL} allows any port for any
+ * protocol.
+ */
+final class PortRanges {
+  static final int ALL = -1;
+  static final int ICMP = 1;
+  static final int TCP = 6;
+  static final int UDP = 17;
+  static final int ICMPV6 = 58;
+
+  static final PortRanges EMPTY = new PortRanges(new int[0], new int[0][]);
+
+  /** Convert a protocol name or number as used by EC2 to the protocol number. */
+  static int protocol(String name) {
+    if (name == null) return ALL;
+    switch (name.toLowerCase()) {
+      case "-1":     return ALL;
+      case "all":    return ALL;
+      case "icmp":   return ICMP;
+      case "tcp":    return TCP;
+      case "udp":    return UDP;
+      case "icmpv6": return ICMPV6;
+      default:
+        try {
+          return Integer.parseInt(name);
+        }
+        catch (NumberFormatException e) {
+          throw new IllegalArgumentException("invalid protocol: " + name, e);
+        }
+    }
+  }
+
+  /**
+   * Create the ranges for a single permission. A null or -1 from port allows all ports. For ICMP
+   * the from port is the ICMP type and the to port is the code, the code is ignored so the
+   * permission allows the type or all types if the type is -1.
+   */
+  static PortRanges of(int protocol, Integer fromPort, Integer toPort) {
+    boolean icmp = protocol == ICMP || protocol == ICMPV6;
+    int from = (fromPort == null) ? -1 : fromPort;
+    int to = (toPort == null || icmp) ? -1 : toPort;
+    int max = icmp ? 255 : 65535;
+    if (from < 0) {
+      from = 0;
+      to = max;
+    }
+    else if (icmp) {
+      to = from;
+    }
+    else if (to < 0) {
+      to = max;
+    }
+    return new PortRanges(new int[] {protocol}, new int[][] {{from, to}});
+  }
+
+  // Protocols in sorted order, the ranges for protocol i are in ranges[i] as start and end
+  // pairs sorted by start
+  private final int[] protocols;
+  private final int[][] ranges;
+
+  private PortRanges(int[] protocols, int[][] ranges) {
+    this.protocols = protocols;
+    this.ranges = ranges;
+  }
+
+  boolean isEmpty() {
+    return protocols.length == 0;
+  }
+
+  /** Check if the port is allowed for the protocol. */
+  boolean allows(int protocol, int port) {
+    if (protocols.length > 0 && protocols[0] == ALL) return true;
+    int i = Arrays.binarySearch(protocols, protocol);
+    if (i < 0) return false;
+    int[] rs = ranges[i];
+
+    // Find the last range with a start less than or equal to the port
+    int lo = 0;
+    int hi = rs.length / 2;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (rs[2 * mid] <= port)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo > 0 && rs[2 * (lo - 1) + 1] >= port;
+  }
+
+  /** Union of two sets of ranges. */
+  static PortRanges union(PortRanges a, PortRanges b) {
+    int[] ps = new int[a.protocols.length + b.protocols.length];
+    int[][] rs = new int[ps.length][];
+    int n = 0;
+    int i = 0;
+    int j = 0;
+    while (i < a.protocols.length || j < b.protocols.length) {
+      int pa = (i < a.protocols.length) ? a.protocols[i] : Integer.MAX_VALUE;
+      int pb = (j < b.protocols.length) ? b.protocols[j] : Integer.MAX_VALUE;
+      if (pa == pb) {
+        ps[n] = pa;
+        rs[n++] = merge(a.ranges[i++], b.ranges[j++]);
+      }
+      else if (pa < pb) {
+        ps[n] = pa;
+        rs[n++] = a.ranges[i++];
+      }
+      else {
+        ps[n] = pb;
+        rs[n++] = b.ranges[j++];
+      }
+    }
+    return new PortRanges(Arrays.copyOf(ps, n), Arrays.copyOf(rs, n));
+  }
+
+  private static int[] merge(int[] a, int[] b) {
+    List<int[]> all = new ArrayList<int[]>();
+    for (int i = 0; i < a.length; i += 2)
+      all.add(new int[] {a[i], a[i + 1]});
+    for (int i = 0; i < b.length; i += 2)
+      all.add(new int[] {b[i], b[i + 1]});
+    all.sort((x, y) -> Integer.compare(x[0], y[0]));
+
+    int[] merged = new int[all.size() * 2];
+    int n = 0;
+    for (int[] r : all) {
+      if (n > 0 && r[0] <= merged[n - 1] + 1) {
+        merged[n - 1] = Math.max(merged[n - 1], r[1]);
+      }
+      else {
+        merged[n++] = r[0];
+        merged[n++] = r[1];
+      }
+    }
+    return Arrays.copyOf(merged, n);
+  }
+}
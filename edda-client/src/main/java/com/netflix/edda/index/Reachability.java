@@ -0,0 +1,326 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.ec2.model.GroupIdentifier;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.IpPermission;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.UserIdGroupPair;
+
+import com.netflix.edda.EddaBundle;
+import com.netflix.edda.EddaCollection;
+import com.netflix.edda.Snapshot;
+import com.netflix.edda.util.CidrTrie;
+
+/**
+ * Answers whether traffic is allowed between instances based on their security groups. The
+ * rules for each group are compiled into CIDR tries of port ranges and maps of the referenced
+ * groups, so a check is a few trie walks and hash lookups instead of a scan of the permissions.
+ * References to other groups are resolved using the groups of the instances involved.
+ *
+ * <p>When the security groups are refreshed only the groups that changed are compiled again.
+ * The instances and subnets are indexed separately and do not require the rules to be
+ * recompiled. Routing, network ACLs and VPC peering are not considered, group references only
+ * apply within a VPC.
+ */
+public class Reachability {
+
+  /** Compiled rules for a single direction of a security group. */
+  private static final class Rules {
+    static final Rules EMPTY = new Rules(new CidrTrie<PortRanges>(0), Collections.emptyMap());
+
+    final CidrTrie<PortRanges> cidrs;
+    final Map<String, PortRanges> groups;
+
+    Rules(CidrTrie<PortRanges> cidrs, Map<String, PortRanges> groups) {
+      this.cidrs = cidrs;
+      this.groups = groups;
+    }
+
+    static Rules compile(List<IpPermission> permissions) {
+      if (permissions == null || permissions.isEmpty()) return EMPTY;
+      CidrTrie<PortRanges> cidrs = new CidrTrie<PortRanges>(permissions.size());
+      Map<String, PortRanges> groups = new HashMap<String, PortRanges>();
+      for (IpPermission p : permissions) {
+        int protocol;
+        try {
+          protocol = PortRanges.protocol(p.getIpProtocol());
+        }
+        catch (IllegalArgumentException e) {
+          // Skip rules for protocols we cannot match rather than failing the whole update
+          continue;
+        }
+        PortRanges ports = PortRanges.of(protocol, p.getFromPort(), p.getToPort());
+        if (p.getIpRanges() != null) {
+          for (String cidr : p.getIpRanges())
+            cidrs.put(cidr, ports, PortRanges::union);
+        }
+        if (p.getUserIdGroupPairs() != null) {
+          for (UserIdGroupPair pair : p.getUserIdGroupPairs()) {
+            if (pair.getGroupId() != null)
+              groups.merge(pair.getGroupId(), ports, PortRanges::union);
+          }
+        }
+      }
+      return new Rules(cidrs, groups);
+    }
+
+    boolean allows(int protocol, int port, int address, String[] peerGroups) {
+      if (cidrs.anyMatch(address, r -> r.allows(protocol, port))) return true;
+      if (peerGroups != null) {
+        for (String g : peerGroups) {
+          PortRanges r = groups.get(g);
+          if (r != null && r.allows(protocol, port)) return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** Security group with the compiled rules for both directions. */
+  private static final class Group {
+    final SecurityGroup source;
+    final Rules ingress;
+    final Rules egress;
+
+    // EC2-classic groups do not have egress rules and allow all outbound traffic
+    final boolean allowAllEgress;
+
+    Group(SecurityGroup source) {
+      this.source = source;
+      this.ingress = Rules.compile(source.getIpPermissions());
+      this.egress = Rules.compile(source.getIpPermissionsEgress());
+      this.allowAllEgress = source.getVpcId() == null;
+    }
+  }
+
+  /** Addresses and groups for an instance. */
+  private static final class Host {
+    final String instanceId;
+    final String vpcId;
+    final String subnetId;
+    final String[] groups;
+    final boolean hasPrivate;
+    final int privateAddress;
+    final boolean hasPublic;
+    final int publicAddress;
+
+    Host(Instance i) {
+      instanceId = i.getInstanceId();
+      vpcId = i.getVpcId();
+      subnetId = i.getSubnetId();
+      List<GroupIdentifier> gs = i.getSecurityGroups();
+      groups = new String[(gs == null) ? 0 : gs.size()];
+      for (int j = 0; j < groups.length; ++j)
+        groups[j] = gs.get(j).getGroupId();
+      hasPrivate = isAddress(i.getPrivateIpAddress());
+      privateAddress = hasPrivate ? CidrTrie.parseAddress(i.getPrivateIpAddress()) : 0;
+      hasPublic = isAddress(i.getPublicIpAddress());
+      publicAddress = hasPublic ? CidrTrie.parseAddress(i.getPublicIpAddress()) : 0;
+    }
+
+    String vpcId(Map<String, String> subnetVpcs) {
+      return (vpcId == null && subnetId != null) ? subnetVpcs.get(subnetId) : vpcId;
+    }
+  }
+
+  private static boolean isAddress(String ip) {
+    return ip != null && CidrTrie.isAddress(ip);
+  }
+
+  private static boolean equals(String a, String b) {
+    return (a == null) ? b == null : a.equals(b);
+  }
+
+  private volatile Map<String, Group> groups = Collections.emptyMap();
+  private volatile Map<String, Host> hosts = Collections.emptyMap();
+  private volatile Map<Integer, List<Host>> hostsByAddress = Collections.emptyMap();
+  private volatile Map<String, List<String>> members = Collections.emptyMap();
+  private volatile Map<String, String> subnetVpcs = Collections.emptyMap();
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Updates
+
+  /** Update with all collections that were successfully fetched for the bundle. */
+  public void update(EddaBundle bundle) {
+    Snapshot<SecurityGroup> sgs = bundle.getSnapshot(EddaCollection.SECURITY_GROUPS);
+    if (sgs != null) updateSecurityGroups(sgs);
+    Snapshot<Reservation> rs = bundle.getSnapshot(EddaCollection.INSTANCES);
+    if (rs != null) updateInstances(rs);
+    Snapshot<Subnet> ss = bundle.getSnapshot(EddaCollection.SUBNETS);
+    if (ss != null) updateSubnets(ss);
+  }
+
+  /**
+   * Compile the rules for the security groups. Groups that are unchanged since the previous
+   * update reuse the compiled rules.
+   */
+  public void updateSecurityGroups(Snapshot<SecurityGroup> snapshot) {
+    Map<String, Group> prev = groups;
+    Map<String, Group> updated = new HashMap<String, Group>();
+    for (SecurityGroup sg : snapshot.getItems()) {
+      Group g = prev.get(sg.getGroupId());
+      if (g == null || (g.source != sg && !g.source.equals(sg)))
+        g = new Group(sg);
+      updated.put(sg.getGroupId(), g);
+    }
+    groups = updated;
+  }
+
+  public void updateInstances(Snapshot<Reservation> snapshot) {
+    Map<String, Host> byId = new HashMap<String, Host>();
+    Map<Integer, List<Host>> byAddress = new HashMap<Integer, List<Host>>();
+    Map<String, List<String>> byGroup = new HashMap<String, List<String>>();
+    for (Reservation r : snapshot.getItems()) {
+      for (Instance i : r.getInstances()) {
+        Host h = new Host(i);
+        byId.put(h.instanceId, h);
+        if (h.hasPrivate)
+          byAddress.computeIfAbsent(h.privateAddress, k -> new ArrayList<Host>(1)).add(h);
+        if (h.hasPublic)
+          byAddress.computeIfAbsent(h.publicAddress, k -> new ArrayList<Host>(1)).add(h);
+        for (String g : h.groups)
+          byGroup.computeIfAbsent(g, k -> new ArrayList<String>()).add(h.instanceId);
+      }
+    }
+    hosts = byId;
+    hostsByAddress = byAddress;
+    members = byGroup;
+  }
+
+  public void updateSubnets(Snapshot<Subnet> snapshot) {
+    Map<String, String> vpcs = new HashMap<String, String>();
+    for (Subnet s : snapshot.getItems())
+      vpcs.put(s.getSubnetId(), s.getVpcId());
+    subnetVpcs = vpcs;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Queries
+
+  /** Security group with the id or null if it is not known. */
+  public SecurityGroup getSecurityGroup(String groupId) {
+    Group g = groups.get(groupId);
+    return (g == null) ? null : g.source;
+  }
+
+  /** Ids of the instances that are members of the security group. */
+  public List<String> getInstancesInGroup(String groupId) {
+    List<String> ids = members.get(groupId);
+    return (ids == null) ? Collections.<String>emptyList() : Collections.unmodifiableList(ids);
+  }
+
+  /**
+   * Check if the security groups allow traffic from one instance to another. The protocol can
+   * be a name such as tcp or a protocol number, for icmp and icmpv6 the port is the type. Instances
+   * in the same VPC use the private addresses and can match group references, otherwise the
+   * public addresses are used. Returns false if either instance is not known.
+   */
+  public boolean canReach(String fromInstanceId, String toInstanceId, String protocol, int port) {
+    return canReach(fromInstanceId, toInstanceId, PortRanges.protocol(protocol), port);
+  }
+
+  private boolean canReach(String fromInstanceId, String toInstanceId, int protocol, int port) {
+    Map<String, Host> hs = hosts;
+    Host src = hs.get(fromInstanceId);
+    Host dst = hs.get(toInstanceId);
+    if (src == null || dst == null) return false;
+
+    Map<String, String> vpcs = subnetVpcs;
+    boolean sameVpc = equals(src.vpcId(vpcs), dst.vpcId(vpcs));
+    if (sameVpc) {
+      return src.hasPrivate && dst.hasPrivate
+        && allowsEgress(src, protocol, port, dst.privateAddress, dst.groups)
+        && allowsIngress(dst, protocol, port, src.privateAddress, src.groups);
+    }
+    return src.hasPublic && dst.hasPublic
+      && allowsEgress(src, protocol, port, dst.publicAddress, null)
+      && allowsIngress(dst, protocol, port, src.publicAddress, null);
+  }
+
+  /**
+   * Check if the security groups of the instance allow inbound traffic from the address. If the
+   * address belongs to a known instance in the same VPC, then group references are matched
+   * using the groups of that instance.
+   */
+  public boolean allowsIngress(String instanceId, String sourceAddress, String protocol, int port) {
+    Host dst = hosts.get(instanceId);
+    if (dst == null) return false;
+    int address = CidrTrie.parseAddress(sourceAddress);
+    Host peer = peer(dst, address);
+    String[] peerGroups = (peer == null) ? null : peer.groups;
+    return allowsIngress(dst, PortRanges.protocol(protocol), port, address, peerGroups);
+  }
+
+  /**
+   * Check if the security groups of the instance allow outbound traffic to the address. If the
+   * address belongs to a known instance in the same VPC, then group references are matched
+   * using the groups of that instance.
+   */
+  public boolean allowsEgress(String instanceId, String destAddress, String protocol, int port) {
+    Host src = hosts.get(instanceId);
+    if (src == null) return false;
+    int address = CidrTrie.parseAddress(destAddress);
+    Host peer = peer(src, address);
+    String[] peerGroups = (peer == null) ? null : peer.groups;
+    return allowsEgress(src, PortRanges.protocol(protocol), port, address, peerGroups);
+  }
+
+  /** Instance in the same VPC as the host with the private address. */
+  private Host peer(Host host, int address) {
+    List<Host> candidates = hostsByAddress.get(address);
+    if (candidates == null) return null;
+    Map<String, String> vpcs = subnetVpcs;
+    String vpcId = host.vpcId(vpcs);
+    for (Host h : candidates) {
+      if (h.hasPrivate && h.privateAddress == address && equals(vpcId, h.vpcId(vpcs)))
+        return h;
+    }
+    return null;
+  }
+
+  private boolean allowsIngress(
+      Host host, int protocol, int port, int address, String[] peerGroups) {
+    Map<String, Group> gs = groups;
+    for (String id : host.groups) {
+      Group g = gs.get(id);
+      if (g != null && g.ingress.allows(protocol, port, address, peerGroups))
+        return true;
+    }
+    return false;
+  }
+
+  private boolean allowsEgress(
+      Host host, int protocol, int port, int address, String[] peerGroups) {
+    Map<String, Group> gs = groups;
+    for (String id : host.groups) {
+      Group g = gs.get(id);
+      if (g != null
+          && (g.allowAllEgress || g.egress.allows(protocol, port, address, peerGroups)))
+        return true;
+    }
+    return false;
+  }
+}
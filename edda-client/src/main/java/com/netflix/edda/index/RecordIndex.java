@@ -0,0 +1,182 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.amazonaws.services.route53.model.ResourceRecord;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+
+import com.netflix.edda.ResourceRecordSetPager;
+import com.netflix.edda.mapper.HostedRecordView;
+import com.netflix.edda.util.DnsNames;
+
+/**
+ * Index over the record sets for all hosted zones. Records are grouped by zone in the order
+ * used for pagination, and the names are kept in a trie keyed by the labels from the root down
+ * so exact, wildcard and subtree lookups only visit the labels of the name. There is also a
+ * reverse index from record values, e.g. an IP address or alias target, to the record sets.
+ * The index is immutable, the clients only rebuild it if the response for the records changes.
+ */
+public class RecordIndex {
+  private static final String WILDCARD = "*";
+
+  /** Node of the trie, children are sorted so a walk visits the names in Route53 order. */
+  private static final class Node {
+    final TreeMap<String, Node> children = new TreeMap<String, Node>();
+    final List<ResourceRecordSet> records = new ArrayList<ResourceRecordSet>(1);
+
+    Node child(String label) {
+      Node n = children.get(label);
+      if (n == null) {
+        n = new Node();
+        children.put(label, n);
+      }
+      return n;
+    }
+
+    void collect(List<ResourceRecordSet> vs) {
+      vs.addAll(records);
+      for (Node n : children.values())
+        n.collect(vs);
+    }
+  }
+
+  /** Normalize a zone id so that both {@code /hostedzone/Z123} and {@code Z123} can be used. */
+  public static String normalizeZoneId(String id) {
+    if (id == null) return null;
+    int i = id.lastIndexOf('/');
+    return (i >= 0) ? id.substring(i + 1) : id;
+  }
+
+  private final List<ResourceRecordSet> sorted;
+  private final Map<String, List<ResourceRecordSet>> byZone;
+  private final Map<String, List<ResourceRecordSet>> byValue;
+  private final Node root = new Node();
+
+  public RecordIndex(List<HostedRecordView> records) {
+    this.sorted = new ArrayList<ResourceRecordSet>(records);
+    Collections.sort(sorted, ResourceRecordSetPager.ORDER);
+    this.byZone = new HashMap<String, List<ResourceRecordSet>>();
+    this.byValue = new HashMap<String, List<ResourceRecordSet>>();
+    for (ResourceRecordSet r : sorted) {
+      HostedRecordView.Zone zone = ((HostedRecordView) r).getZone();
+      String zoneId = (zone == null) ? null : normalizeZoneId(zone.getId());
+      if (zoneId != null)
+        add(byZone, zoneId, r);
+
+      Node n = root;
+      for (String label : DnsNames.reversedLabels(r.getName()))
+        n = n.child(label);
+      n.records.add(r);
+
+      for (ResourceRecord rr : r.getResourceRecords())
+        add(byValue, DnsNames.normalize(rr.getValue()), r);
+      if (r.getAliasTarget() != null)
+        add(byValue, DnsNames.normalize(r.getAliasTarget().getDNSName()), r);
+    }
+  }
+
+  private static void add(Map<String, List<ResourceRecordSet>> map, String k, ResourceRecordSet r) {
+    if (k == null) return;
+    List<ResourceRecordSet> vs = map.get(k);
+    if (vs == null) {
+      vs = new ArrayList<ResourceRecordSet>(1);
+      map.put(k, vs);
+    }
+    vs.add(r);
+  }
+
+  private static List<ResourceRecordSet> unmodifiable(List<ResourceRecordSet> vs) {
+    return (vs == null)
+      ? Collections.<ResourceRecordSet>emptyList()
+      : Collections.unmodifiableList(vs);
+  }
+
+  /** Find the node for the name or null if there is no such name. */
+  private Node find(String name) {
+    Node n = root;
+    for (String label : DnsNames.reversedLabels(name)) {
+      n = n.children.get(label);
+      if (n == null) return null;
+    }
+    return n;
+  }
+
+  /** All record sets in Route53 order. */
+  public List<ResourceRecordSet> getRecords() {
+    return Collections.unmodifiableList(sorted);
+  }
+
+  /** Ids of the hosted zones with at least one record set. */
+  public Set<String> getZoneIds() {
+    return Collections.unmodifiableSet(byZone.keySet());
+  }
+
+  /** Record sets for the hosted zone in Route53 order, ready to be paged. */
+  public List<ResourceRecordSet> getRecordsByZone(String zoneId) {
+    return unmodifiable(byZone.get(normalizeZoneId(zoneId)));
+  }
+
+  /**
+   * Record sets with exactly the name. A wildcard name such as {@code *.example.com} only
+   * matches the record sets with that literal name.
+   */
+  public List<ResourceRecordSet> getByName(String name) {
+    Node n = find(name);
+    return unmodifiable((n == null) ? null : n.records);
+  }
+
+  /**
+   * Record sets that would answer a query for the name. If the name does not exist, then the
+   * wildcard at the closest enclosing name is used. Names that exist without record sets, i.e.,
+   * only have names below them, do not match a wildcard.
+   */
+  public List<ResourceRecordSet> resolve(String name) {
+    Node n = root;
+    for (String label : DnsNames.reversedLabels(name)) {
+      Node child = n.children.get(label);
+      if (child == null) {
+        Node wildcard = n.children.get(WILDCARD);
+        return unmodifiable((wildcard == null) ? null : wildcard.records);
+      }
+      n = child;
+    }
+    return unmodifiable(n.records);
+  }
+
+  /** Record sets for the name and all names below it in Route53 order. */
+  public List<ResourceRecordSet> getSubtree(String name) {
+    List<ResourceRecordSet> vs = new ArrayList<ResourceRecordSet>();
+    Node n = find(name);
+    if (n != null) n.collect(vs);
+    return vs;
+  }
+
+  /**
+   * Record sets with a value or alias target matching the value, e.g., all names pointing to
+   * an IP address or load balancer. Values are compared ignoring case and the trailing dot.
+   */
+  public List<ResourceRecordSet> getByValue(String value) {
+    return unmodifiable(byValue.get(DnsNames.normalize(value)));
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.ec2.model.GroupIdentifier;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.Volume;
+import com.amazonaws.services.ec2.model.VolumeAttachment;
+import com.amazonaws.services.ec2.model.Vpc;
+import com.amazonaws.services.elasticloadbalancing.model.LoadBalancerDescription;
+
+import com.netflix.edda.EddaBundle;
+import com.netflix.edda.EddaCollection;
+import com.netflix.edda.Snapshot;
+
+/**
+ * In-memory graph of the relationships between EC2, AutoScaling and ELB resources. Each
+ * collection is indexed separately with reverse edges to the resources it references, so when a
+ * collection is refreshed only the edges derived from that collection are rebuilt. Lookups in
+ * either direction are hash lookups instead of scans over the describe results.
+ */
+public class ResourceGraph {
+  private static final String INSTANCE = "instance";
+  private static final String LOAD_BALANCER = "loadBalancer";
+  private static final String SECURITY_GROUP = "securityGroup";
+  private static final String SUBNET = "subnet";
+  private static final String VPC = "vpc";
+
+  private volatile Layer<Instance> instances = new Layer<Instance>(0L);
+  private volatile Layer<SecurityGroup> securityGroups = new Layer<SecurityGroup>(0L);
+  private volatile Layer<Subnet> subnets = new Layer<Subnet>(0L);
+  private volatile Layer<Vpc> vpcs = new Layer<Vpc>(0L);
+  private volatile Layer<Volume> volumes = new Layer<Volume>(0L);
+  private volatile Layer<AutoScalingGroup> autoScalingGroups = new Layer<AutoScalingGroup>(0L);
+  private volatile Layer<LoadBalancerDescription> loadBalancers =
+    new Layer<LoadBalancerDescription>(0L);
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Updates
+
+  /** Update the graph with all collections that were successfully fetched for the bundle. */
+  public void update(EddaBundle bundle) {
+    Snapshot<Reservation> rs = bundle.getSnapshot(EddaCollection.INSTANCES);
+    if (rs != null) updateInstances(rs);
+    Snapshot<SecurityGroup> sgs = bundle.getSnapshot(EddaCollection.SECURITY_GROUPS);
+    if (sgs != null) updateSecurityGroups(sgs);
+    Snapshot<Subnet> ss = bundle.getSnapshot(EddaCollection.SUBNETS);
+    if (ss != null) updateSubnets(ss);
+    Snapshot<Vpc> vs = bundle.getSnapshot(EddaCollection.VPCS);
+    if (vs != null) updateVpcs(vs);
+    Snapshot<Volume> vols = bundle.getSnapshot(EddaCollection.VOLUMES);
+    if (vols != null) updateVolumes(vols);
+    Snapshot<AutoScalingGroup> asgs = bundle.getSnapshot(EddaCollection.AUTO_SCALING_GROUPS);
+    if (asgs != null) updateAutoScalingGroups(asgs);
+    Snapshot<LoadBalancerDescription> lbs = bundle.getSnapshot(EddaCollection.LOAD_BALANCERS);
+    if (lbs != null) updateLoadBalancers(lbs);
+  }
+
+  public void updateInstances(Snapshot<Reservation> snapshot) {
+    Layer<Instance> layer = new Layer<Instance>(snapshot.getTimestamp());
+    for (Reservation r : snapshot.getItems()) {
+      for (Instance i : r.getInstances()) {
+        String id = i.getInstanceId();
+        layer.add(id, i);
+        layer.edge(SUBNET, i.getSubnetId(), id);
+        layer.edge(VPC, i.getVpcId(), id);
+        for (GroupIdentifier g : i.getSecurityGroups())
+          layer.edge(SECURITY_GROUP, g.getGroupId(), id);
+      }
+    }
+    instances = layer;
+  }
+
+  public void updateSecurityGroups(Snapshot<SecurityGroup> snapshot) {
+    Layer<SecurityGroup> layer = new Layer<SecurityGroup>(snapshot.getTimestamp());
+    for (SecurityGroup sg : snapshot.getItems()) {
+      layer.add(sg.getGroupId(), sg);
+      layer.edge(VPC, sg.getVpcId(), sg.getGroupId());
+    }
+    securityGroups = layer;
+  }
+
+  public void updateSubnets(Snapshot<Subnet> snapshot) {
+    Layer<Subnet> layer = new Layer<Subnet>(snapshot.getTimestamp());
+    for (Subnet s : snapshot.getItems()) {
+      layer.add(s.getSubnetId(), s);
+      layer.edge(VPC, s.getVpcId(), s.getSubnetId());
+    }
+    subnets = layer;
+  }
+
+  public void updateVpcs(Snapshot<Vpc> snapshot) {
+    Layer<Vpc> layer = new Layer<Vpc>(snapshot.getTimestamp());
+    for (Vpc v : snapshot.getItems())
+      layer.add(v.getVpcId(), v);
+    vpcs = layer;
+  }
+
+  public void updateVolumes(Snapshot<Volume> snapshot) {
+    Layer<Volume> layer = new Layer<Volume>(snapshot.getTimestamp());
+    for (Volume v : snapshot.getItems()) {
+      layer.add(v.getVolumeId(), v);
+      for (VolumeAttachment a : v.getAttachments())
+        layer.edge(INSTANCE, a.getInstanceId(), v.getVolumeId());
+    }
+    volumes = layer;
+  }
+
+  public void updateAutoScalingGroups(Snapshot<AutoScalingGroup> snapshot) {
+    Layer<AutoScalingGroup> layer = new Layer<AutoScalingGroup>(snapshot.getTimestamp());
+    for (AutoScalingGroup asg : snapshot.getItems()) {
+      String name = asg.getAutoScalingGroupName();
+      layer.add(name, asg);
+      for (com.amazonaws.services.autoscaling.model.Instance i : asg.getInstances())
+        layer.edge(INSTANCE, i.getInstanceId(), name);
+      for (String lb : asg.getLoadBalancerNames())
+        layer.edge(LOAD_BALANCER, lb, name);
+      for (String s : subnetIds(asg))
+        layer.edge(SUBNET, s, name);
+    }
+    autoScalingGroups = layer;
+  }
+
+  public void updateLoadBalancers(Snapshot<LoadBalancerDescription> snapshot) {
+    Layer<LoadBalancerDescription> layer =
+      new Layer<LoadBalancerDescription>(snapshot.getTimestamp());
+    for (LoadBalancerDescription lb : snapshot.getItems()) {
+      String name = lb.getLoadBalancerName();
+      layer.add(name, lb);
+      layer.edge(VPC, lb.getVPCId(), name);
+      for (com.amazonaws.services.elasticloadbalancing.model.Instance i : lb.getInstances())
+        layer.edge(INSTANCE, i.getInstanceId(), name);
+      for (String sg : lb.getSecurityGroups())
+        layer.edge(SECURITY_GROUP, sg, name);
+      for (String s : lb.getSubnets())
+        layer.edge(SUBNET, s, name);
+    }
+    loadBalancers = layer;
+  }
+
+  private static List<String> subnetIds(AutoScalingGroup asg) {
+    List<String> ids = new ArrayList<String>();
+    String zoneIdentifier = asg.getVPCZoneIdentifier();
+    if (zoneIdentifier != null) {
+      for (String s : zoneIdentifier.split(",")) {
+        String id = s.trim();
+        if (id.length() > 0) ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Resources by id
+
+  public Instance getInstance(String instanceId) {
+    return instances.get(instanceId);
+  }
+
+  public SecurityGroup getSecurityGroup(String groupId) {
+    return securityGroups.get(groupId);
+  }
+
+  public Subnet getSubnet(String subnetId) {
+    return subnets.get(subnetId);
+  }
+
+  public Vpc getVpc(String vpcId) {
+    return vpcs.get(vpcId);
+  }
+
+  public Volume getVolume(String volumeId) {
+    return volumes.get(volumeId);
+  }
+
+  public AutoScalingGroup getAutoScalingGroup(String name) {
+    return autoScalingGroups.get(name);
+  }
+
+  public LoadBalancerDescription getLoadBalancer(String name) {
+    return loadBalancers.get(name);
+  }
+
+  /** Timestamp of the snapshot used for the collection or 0 if it has not been loaded. */
+  public long getTimestamp(EddaCollection<?> collection) {
+    if (collection == EddaCollection.INSTANCES) return instances.timestamp();
+    if (collection == EddaCollection.SECURITY_GROUPS) return securityGroups.timestamp();
+    if (collection == EddaCollection.SUBNETS) return subnets.timestamp();
+    if (collection == EddaCollection.VPCS) return vpcs.timestamp();
+    if (collection == EddaCollection.VOLUMES) return volumes.timestamp();
+    if (collection == EddaCollection.AUTO_SCALING_GROUPS) return autoScalingGroups.timestamp();
+    if (collection == EddaCollection.LOAD_BALANCERS) return loadBalancers.timestamp();
+    throw new IllegalArgumentException("collection not indexed: " + collection);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Instances
+
+  public List<Instance> getInstancesBySubnet(String subnetId) {
+    return instances.related(SUBNET, subnetId);
+  }
+
+  public List<Instance> getInstancesByVpc(String vpcId) {
+    return instances.related(VPC, vpcId);
+  }
+
+  public List<Instance> getInstancesBySecurityGroup(String groupId) {
+    return instances.related(SECURITY_GROUP, groupId);
+  }
+
+  public List<Instance> getInstancesByAutoScalingGroup(String name) {
+    AutoScalingGroup asg = autoScalingGroups.get(name);
+    List<String> ids = new ArrayList<String>();
+    if (asg != null) {
+      for (com.amazonaws.services.autoscaling.model.Instance i : asg.getInstances())
+        ids.add(i.getInstanceId());
+    }
+    return instances.resolve(ids);
+  }
+
+  public List<Instance> getInstancesByLoadBalancer(String name) {
+    LoadBalancerDescription lb = loadBalancers.get(name);
+    List<String> ids = new ArrayList<String>();
+    if (lb != null) {
+      for (com.amazonaws.services.elasticloadbalancing.model.Instance i : lb.getInstances())
+        ids.add(i.getInstanceId());
+    }
+    return instances.resolve(ids);
+  }
+
+  public List<Instance> getInstancesByVolume(String volumeId) {
+    Volume v = volumes.get(volumeId);
+    List<String> ids = new ArrayList<String>();
+    if (v != null) {
+      for (VolumeAttachment a : v.getAttachments())
+        ids.add(a.getInstanceId());
+    }
+    return instances.resolve(ids);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Security groups
+
+  public List<SecurityGroup> getSecurityGroupsByInstance(String instanceId) {
+    Instance i = instances.get(instanceId);
+    List<String> ids = new ArrayList<String>();
+    if (i != null) {
+      for (GroupIdentifier g : i.getSecurityGroups())
+        ids.add(g.getGroupId());
+    }
+    return securityGroups.resolve(ids);
+  }
+
+  public List<SecurityGroup> getSecurityGroupsByVpc(String vpcId) {
+    return securityGroups.related(VPC, vpcId);
+  }
+
+  public List<SecurityGroup> getSecurityGroupsByLoadBalancer(String name) {
+    LoadBalancerDescription lb = loadBalancers.get(name);
+    return securityGroups.resolve((lb == null) ? null : lb.getSecurityGroups());
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Subnets and VPCs
+
+  public Subnet getSubnetByInstance(String instanceId) {
+    Instance i = instances.get(instanceId);
+    return (i == null) ? null : subnets.get(i.getSubnetId());
+  }
+
+  public List<Subnet> getSubnetsByVpc(String vpcId) {
+    return subnets.related(VPC, vpcId);
+  }
+
+  public List<Subnet> getSubnetsByAutoScalingGroup(String name) {
+    AutoScalingGroup asg = autoScalingGroups.get(name);
+    return subnets.resolve((asg == null) ? null : subnetIds(asg));
+  }
+
+  public List<Subnet> getSubnetsByLoadBalancer(String name) {
+    LoadBalancerDescription lb = loadBalancers.get(name);
+    return subnets.resolve((lb == null) ? null : lb.getSubnets());
+  }
+
+  public Vpc getVpcByInstance(String instanceId) {
+    Instance i = instances.get(instanceId);
+    return (i == null) ? null : vpcs.get(i.getVpcId());
+  }
+
+  public Vpc getVpcBySubnet(String subnetId) {
+    Subnet s = subnets.get(subnetId);
+    return (s == null) ? null : vpcs.get(s.getVpcId());
+  }
+
+  public Vpc getVpcBySecurityGroup(String groupId) {
+    SecurityGroup sg = securityGroups.get(groupId);
+    return (sg == null) ? null : vpcs.get(sg.getVpcId());
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Volumes
+
+  public List<Volume> getVolumesByInstance(String instanceId) {
+    return volumes.related(INSTANCE, instanceId);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // AutoScaling groups
+
+  public AutoScalingGroup getAutoScalingGroupByInstance(String instanceId) {
+    return autoScalingGroups.first(INSTANCE, instanceId);
+  }
+
+  public List<AutoScalingGroup> getAutoScalingGroupsByLoadBalancer(String name) {
+    return autoScalingGroups.related(LOAD_BALANCER, name);
+  }
+
+  public List<AutoScalingGroup> getAutoScalingGroupsBySubnet(String subnetId) {
+    return autoScalingGroups.related(SUBNET, subnetId);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Load balancers
+
+  public List<LoadBalancerDescription> getLoadBalancersByInstance(String instanceId) {
+    return loadBalancers.related(INSTANCE, instanceId);
+  }
+
+  public List<LoadBalancerDescription> getLoadBalancersByAutoScalingGroup(String name) {
+    AutoScalingGroup asg = autoScalingGroups.get(name);
+    return loadBalancers.resolve((asg == null) ? null : asg.getLoadBalancerNames());
+  }
+
+  public List<LoadBalancerDescription> getLoadBalancersBySecurityGroup(String groupId) {
+    return loadBalancers.related(SECURITY_GROUP, groupId);
+  }
+
+  public List<LoadBalancerDescription> getLoadBalancersBySubnet(String subnetId) {
+    return loadBalancers.related(SUBNET, subnetId);
+  }
+
+  public List<LoadBalancerDescription> getLoadBalancersByVpc(String vpcId) {
+    return loadBalancers.related(VPC, vpcId);
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.autoscaling.model.TagDescription;
+import com.amazonaws.services.ec2.model.Image;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.Tag;
+import com.amazonaws.services.ec2.model.Volume;
+import com.amazonaws.services.ec2.model.Vpc;
+
+import com.netflix.edda.EddaBundle;
+import com.netflix.edda.EddaCollection;
+import com.netflix.edda.Snapshot;
+
+/**
+ * Inverted index from tags to the resources with the tag. Each collection is indexed separately
+ * and the index for a collection is rebuilt when it is refreshed, so a lookup by tag is a probe
+ * of the index for the collection instead of a scan over the tags of every resource. Lookups
+ * with a null tag value match any resource that has the tag key.
+ */
+public class TagIndex {
+  private volatile Layer<Instance> instances = new Layer<Instance>(0L);
+  private volatile Layer<Volume> volumes = new Layer<Volume>(0L);
+  private volatile Layer<Image> images = new Layer<Image>(0L);
+  private volatile Layer<SecurityGroup> securityGroups = new Layer<SecurityGroup>(0L);
+  private volatile Layer<Subnet> subnets = new Layer<Subnet>(0L);
+  private volatile Layer<Vpc> vpcs = new Layer<Vpc>(0L);
+  private volatile Layer<AutoScalingGroup> autoScalingGroups = new Layer<AutoScalingGroup>(0L);
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Updates
+
+  /** Update the index with all collections that were successfully fetched for the bundle. */
+  public void update(EddaBundle bundle) {
+    Snapshot<Reservation> rs = bundle.getSnapshot(EddaCollection.INSTANCES);
+    if (rs != null) updateInstances(rs);
+    Snapshot<Volume> vols = bundle.getSnapshot(EddaCollection.VOLUMES);
+    if (vols != null) updateVolumes(vols);
+    Snapshot<Image> imgs = bundle.getSnapshot(EddaCollection.IMAGES);
+    if (imgs != null) updateImages(imgs);
+    Snapshot<SecurityGroup> sgs = bundle.getSnapshot(EddaCollection.SECURITY_GROUPS);
+    if (sgs != null) updateSecurityGroups(sgs);
+    Snapshot<Subnet> ss = bundle.getSnapshot(EddaCollection.SUBNETS);
+    if (ss != null) updateSubnets(ss);
+    Snapshot<Vpc> vs = bundle.getSnapshot(EddaCollection.VPCS);
+    if (vs != null) updateVpcs(vs);
+    Snapshot<AutoScalingGroup> asgs = bundle.getSnapshot(EddaCollection.AUTO_SCALING_GROUPS);
+    if (asgs != null) updateAutoScalingGroups(asgs);
+  }
+
+  /** Update the index for a single collection, e.g. with each snapshot from a poller. */
+  @SuppressWarnings("unchecked")
+  public <T> void update(EddaCollection<T> collection, Snapshot<T> snapshot) {
+    if (collection == EddaCollection.INSTANCES)
+      updateInstances((Snapshot<Reservation>) snapshot);
+    else if (collection == EddaCollection.VOLUMES)
+      updateVolumes((Snapshot<Volume>) snapshot);
+    else if (collection == EddaCollection.IMAGES)
+      updateImages((Snapshot<Image>) snapshot);
+    else if (collection == EddaCollection.SECURITY_GROUPS)
+      updateSecurityGroups((Snapshot<SecurityGroup>) snapshot);
+    else if (collection == EddaCollection.SUBNETS)
+      updateSubnets((Snapshot<Subnet>) snapshot);
+    else if (collection == EddaCollection.VPCS)
+      updateVpcs((Snapshot<Vpc>) snapshot);
+    else if (collection == EddaCollection.AUTO_SCALING_GROUPS)
+      updateAutoScalingGroups((Snapshot<AutoScalingGroup>) snapshot);
+    else
+      throw new IllegalArgumentException("collection not indexed: " + collection);
+  }
+
+  public void updateInstances(Snapshot<Reservation> snapshot) {
+    Layer<Instance> layer = new Layer<Instance>(snapshot.getTimestamp());
+    for (Reservation r : snapshot.getItems()) {
+      for (Instance i : r.getInstances())
+        add(layer, i.getInstanceId(), i, i.getTags());
+    }
+    instances = layer;
+  }
+
+  public void updateVolumes(Snapshot<Volume> snapshot) {
+    Layer<Volume> layer = new Layer<Volume>(snapshot.getTimestamp());
+    for (Volume v : snapshot.getItems())
+      add(layer, v.getVolumeId(), v, v.getTags());
+    volumes = layer;
+  }
+
+  public void updateImages(Snapshot<Image> snapshot) {
+    Layer<Image> layer = new Layer<Image>(snapshot.getTimestamp());
+    for (Image i : snapshot.getItems())
+      add(layer, i.getImageId(), i, i.getTags());
+    images = layer;
+  }
+
+  public void updateSecurityGroups(Snapshot<SecurityGroup> snapshot) {
+    Layer<SecurityGroup> layer = new Layer<SecurityGroup>(snapshot.getTimestamp());
+    for (SecurityGroup sg : snapshot.getItems())
+      add(layer, sg.getGroupId(), sg, sg.getTags());
+    securityGroups = layer;
+  }
+
+  public void updateSubnets(Snapshot<Subnet> snapshot) {
+    Layer<Subnet> layer = new Layer<Subnet>(snapshot.getTimestamp());
+    for (Subnet s : snapshot.getItems())
+      add(layer, s.getSubnetId(), s, s.getTags());
+    subnets = layer;
+  }
+
+  public void updateVpcs(Snapshot<Vpc> snapshot) {
+    Layer<Vpc> layer = new Layer<Vpc>(snapshot.getTimestamp());
+    for (Vpc v : snapshot.getItems())
+      add(layer, v.getVpcId(), v, v.getTags());
+    vpcs = layer;
+  }
+
+  public void updateAutoScalingGroups(Snapshot<AutoScalingGroup> snapshot) {
+    Layer<AutoScalingGroup> layer = new Layer<AutoScalingGroup>(snapshot.getTimestamp());
+    for (AutoScalingGroup asg : snapshot.getItems()) {
+      String name = asg.getAutoScalingGroupName();
+      layer.add(name, asg);
+      for (TagDescription t : asg.getTags())
+        layer.edge(t.getKey(), t.getValue(), name);
+    }
+    autoScalingGroups = layer;
+  }
+
+  private static <T> void add(Layer<T> layer, String id, T resource, List<Tag> tags) {
+    layer.add(id, resource);
+    for (Tag t : tags)
+      layer.edge(t.getKey(), t.getValue(), id);
+  }
+
+  /** Timestamp of the snapshot used for the collection or 0 if it has not been loaded. */
+  public long getTimestamp(EddaCollection<?> collection) {
+    return layer(collection).timestamp();
+  }
+
+  private Layer<?> layer(EddaCollection<?> collection) {
+    if (collection == EddaCollection.INSTANCES) return instances;
+    if (collection == EddaCollection.VOLUMES) return volumes;
+    if (collection == EddaCollection.IMAGES) return images;
+    if (collection == EddaCollection.SECURITY_GROUPS) return securityGroups;
+    if (collection == EddaCollection.SUBNETS) return subnets;
+    if (collection == EddaCollection.VPCS) return vpcs;
+    if (collection == EddaCollection.AUTO_SCALING_GROUPS) return autoScalingGroups;
+    throw new IllegalArgumentException("collection not indexed: " + collection);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Tags
+
+  /** Values used for the tag key by resources in the collection, sorted. */
+  public Set<String> getTagValues(EddaCollection<?> collection, String key) {
+    return Collections.unmodifiableSet(new TreeSet<String>(layer(collection).keys(key)));
+  }
+
+  /** Ids of resources in the collection with the tag, for instances these are instance ids. */
+  public List<String> getIds(EddaCollection<?> collection, String key, String value) {
+    Layer<?> layer = layer(collection);
+    return (value == null) ? layer.ids(key) : layer.ids(key, value);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Resources by tag
+
+  public List<Instance> getInstancesByTag(String key, String value) {
+    return byTag(instances, key, value);
+  }
+
+  public List<Instance> getInstancesByTags(Map<String, String> tags) {
+    return instances.relatedToAll(tags);
+  }
+
+  public List<Volume> getVolumesByTag(String key, String value) {
+    return byTag(volumes, key, value);
+  }
+
+  public List<Volume> getVolumesByTags(Map<String, String> tags) {
+    return volumes.relatedToAll(tags);
+  }
+
+  public List<Image> getImagesByTag(String key, String value) {
+    return byTag(images, key, value);
+  }
+
+  public List<Image> getImagesByTags(Map<String, String> tags) {
+    return images.relatedToAll(tags);
+  }
+
+  public List<SecurityGroup> getSecurityGroupsByTag(String key, String value) {
+    return byTag(securityGroups, key, value);
+  }
+
+  public List<SecurityGroup> getSecurityGroupsByTags(Map<String, String> tags) {
+    return securityGroups.relatedToAll(tags);
+  }
+
+  public List<Subnet> getSubnetsByTag(String key, String value) {
+    return byTag(subnets, key, value);
+  }
+
+  public List<Subnet> getSubnetsByTags(Map<String, String> tags) {
+    return subnets.relatedToAll(tags);
+  }
+
+  public List<Vpc> getVpcsByTag(String key, String value) {
+    return byTag(vpcs, key, value);
+  }
+
+  public List<Vpc> getVpcsByTags(Map<String, String> tags) {
+    return vpcs.relatedToAll(tags);
+  }
+
+  public List<AutoScalingGroup> getAutoScalingGroupsByTag(String key, String value) {
+    return byTag(autoScalingGroups, key, value);
+  }
+
+  public List<AutoScalingGroup> getAutoScalingGroupsByTags(Map<String, String> tags) {
+    return autoScalingGroups.relatedToAll(tags);
+  }
+
+  private static <T> List<T> byTag(Layer<T> layer, String key, String value) {
+    return layer.resolve((value == null) ? layer.ids(key) : layer.ids(key, value));
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.mapper;
+
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+
+/**
+ * Record set from the edda hostedRecords collection. Edda adds a reference to the hosted zone
+ * for the record so the records for all zones can be fetched together and grouped by zone.
+ */
+public class HostedRecordView extends ResourceRecordSet {
+  public static class Zone {
+    private String id = null;
+    private String name = null;
+
+    public String getId() {
+      return id;
+    }
+    public String getName() {
+      return name;
+    }
+    public void setId(String id) {
+      this.id = id;
+    }
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  private Zone zone = null;
+
+  public Zone getZone() {
+    return zone;
+  }
+  public void setZone(Zone zone) {
+    this.zone = zone;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.mapper;
+
+import java.io.IOException;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import com.netflix.edda.util.StringInterner;
+
+/**
+ * String deserializer that canonicalizes the values for a set of field names, e.g.,
+ * availabilityZone or instanceType. For arrays of strings the name of the array field is used.
+ * Names in the set can be qualified with the name of the parent field, e.g. state.name will
+ * match the name field of the instance state, but not the name field of other objects. For
+ * objects in an array the name of the array field is used as the parent.
+ */
+public class InterningStringDeserializer extends StdScalarDeserializer<String> {
+  private final StringInterner interner;
+  private final Set<String> fields;
+
+  public InterningStringDeserializer(StringInterner interner, Set<String> fields) {
+    super(String.class);
+    this.interner = interner;
+    this.fields = fields;
+  }
+
+  /** Skip the array context so values in an array use the name of the array field. */
+  private static JsonStreamContext field(JsonStreamContext ctxt) {
+    return (ctxt != null && ctxt.inArray()) ? ctxt.getParent() : ctxt;
+  }
+
+  private boolean shouldIntern(JsonParser p) {
+    JsonStreamContext ctxt = field(p.getParsingContext());
+    String name = (ctxt == null) ? null : ctxt.getCurrentName();
+    if (name == null) return false;
+    if (fields.contains(name)) return true;
+    JsonStreamContext parent = field(ctxt.getParent());
+    String parentName = (parent == null) ? null : parent.getCurrentName();
+    return parentName != null && fields.contains(parentName + "." + name);
+  }
+
+  @Override
+  public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.getCurrentToken() == JsonToken.VALUE_STRING) {
+      String value = p.getText();
+      return shouldIntern(p) ? interner.intern(value) : value;
+    }
+    return StringDeserializer.instance.deserialize(p, ctxt);
+  }
+}
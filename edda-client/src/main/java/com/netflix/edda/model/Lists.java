@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/** Helpers for the lists in the read model classes. */
+public class Lists {
+  private Lists() {}
+
+  /** Immutable copy of the list, null is treated as an empty list. */
+  public static <T> List<T> immutable(List<T> items) {
+    if (items == null || items.isEmpty())
+      return Collections.emptyList();
+    return Collections.unmodifiableList(new ArrayList<T>(items));
+  }
+
+  /** Apply the function to each item of the list. */
+  public static <A, B> List<B> map(List<A> items, Function<A, B> f) {
+    List<B> result = new ArrayList<B>(items.size());
+    for (A item : items)
+      result.add(f.apply(item));
+    return result;
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.autoscaling;
+
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/** Immutable read model for an auto scaling group. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class AutoScalingGroup {
+  private final String autoScalingGroupName;
+  private final String autoScalingGroupARN;
+  private final String launchConfigurationName;
+  private final int minSize;
+  private final int maxSize;
+  private final int desiredCapacity;
+  private final int defaultCooldown;
+  private final List<String> availabilityZones;
+  private final List<String> loadBalancerNames;
+  private final String healthCheckType;
+  private final int healthCheckGracePeriod;
+  private final List<Instance> instances;
+  private final long createdTime;
+  private final String vpcZoneIdentifier;
+  private final List<TagDescription> tags;
+
+  @JsonCreator
+  public AutoScalingGroup(
+    @JsonProperty("autoScalingGroupName") String autoScalingGroupName,
+    @JsonProperty("autoScalingGroupARN") String autoScalingGroupARN,
+    @JsonProperty("launchConfigurationName") String launchConfigurationName,
+    @JsonProperty("minSize") Integer minSize,
+    @JsonProperty("maxSize") Integer maxSize,
+    @JsonProperty("desiredCapacity") Integer desiredCapacity,
+    @JsonProperty("defaultCooldown") Integer defaultCooldown,
+    @JsonProperty("availabilityZones") List<String> availabilityZones,
+    @JsonProperty("loadBalancerNames") List<String> loadBalancerNames,
+    @JsonProperty("healthCheckType") String healthCheckType,
+    @JsonProperty("healthCheckGracePeriod") Integer healthCheckGracePeriod,
+    @JsonProperty("instances") List<Instance> instances,
+    @JsonProperty("createdTime") Date createdTime,
+    @JsonProperty("VPCZoneIdentifier") String vpcZoneIdentifier,
+    @JsonProperty("tags") List<TagDescription> tags
+  ) {
+    this.autoScalingGroupName = autoScalingGroupName;
+    this.autoScalingGroupARN = autoScalingGroupARN;
+    this.launchConfigurationName = launchConfigurationName;
+    this.minSize = (minSize == null) ? 0 : minSize;
+    this.maxSize = (maxSize == null) ? 0 : maxSize;
+    this.desiredCapacity = (desiredCapacity == null) ? 0 : desiredCapacity;
+    this.defaultCooldown = (defaultCooldown == null) ? 0 : defaultCooldown;
+    this.availabilityZones = Lists.immutable(availabilityZones);
+    this.loadBalancerNames = Lists.immutable(loadBalancerNames);
+    this.healthCheckType = healthCheckType;
+    this.healthCheckGracePeriod = (healthCheckGracePeriod == null) ? 0 : healthCheckGracePeriod;
+    this.instances = Lists.immutable(instances);
+    this.createdTime = (createdTime == null) ? 0L : createdTime.getTime();
+    this.vpcZoneIdentifier = vpcZoneIdentifier;
+    this.tags = Lists.immutable(tags);
+  }
+
+  public String getAutoScalingGroupName() {
+    return autoScalingGroupName;
+  }
+
+  public String getAutoScalingGroupARN() {
+    return autoScalingGroupARN;
+  }
+
+  public String getLaunchConfigurationName() {
+    return launchConfigurationName;
+  }
+
+  public int getMinSize() {
+    return minSize;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public int getDesiredCapacity() {
+    return desiredCapacity;
+  }
+
+  public int getDefaultCooldown() {
+    return defaultCooldown;
+  }
+
+  public List<String> getAvailabilityZones() {
+    return availabilityZones;
+  }
+
+  public List<String> getLoadBalancerNames() {
+    return loadBalancerNames;
+  }
+
+  public String getHealthCheckType() {
+    return healthCheckType;
+  }
+
+  public int getHealthCheckGracePeriod() {
+    return healthCheckGracePeriod;
+  }
+
+  public List<Instance> getInstances() {
+    return instances;
+  }
+
+  /** Time in milliseconds since the epoch, 0 if not set. */
+  public long getCreatedTime() {
+    return createdTime;
+  }
+
+  public String getVpcZoneIdentifier() {
+    return vpcZoneIdentifier;
+  }
+
+  public List<TagDescription> getTags() {
+    return tags;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.autoscaling.model.AutoScalingGroup toSdk() {
+    return new com.amazonaws.services.autoscaling.model.AutoScalingGroup()
+      .withAutoScalingGroupName(autoScalingGroupName)
+      .withAutoScalingGroupARN(autoScalingGroupARN)
+      .withLaunchConfigurationName(launchConfigurationName)
+      .withMinSize(minSize)
+      .withMaxSize(maxSize)
+      .withDesiredCapacity(desiredCapacity)
+      .withDefaultCooldown(defaultCooldown)
+      .withAvailabilityZones(availabilityZones)
+      .withLoadBalancerNames(loadBalancerNames)
+      .withHealthCheckType(healthCheckType)
+      .withHealthCheckGracePeriod(healthCheckGracePeriod)
+      .withInstances(Lists.map(instances, v -> v.toSdk()))
+      .withCreatedTime((createdTime == 0L) ? null : new Date(createdTime))
+      .withVPCZoneIdentifier(vpcZoneIdentifier)
+      .withTags(Lists.map(tags, v -> v.toSdk()));
+  }
+}
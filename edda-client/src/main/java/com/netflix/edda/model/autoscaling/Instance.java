@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.autoscaling;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Immutable read model for an instance that is a member of an auto scaling group. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Instance {
+  private final String instanceId;
+  private final String availabilityZone;
+  private final String lifecycleState;
+  private final String healthStatus;
+  private final String launchConfigurationName;
+
+  @JsonCreator
+  public Instance(
+    @JsonProperty("instanceId") String instanceId,
+    @JsonProperty("availabilityZone") String availabilityZone,
+    @JsonProperty("lifecycleState") String lifecycleState,
+    @JsonProperty("healthStatus") String healthStatus,
+    @JsonProperty("launchConfigurationName") String launchConfigurationName
+  ) {
+    this.instanceId = instanceId;
+    this.availabilityZone = availabilityZone;
+    this.lifecycleState = lifecycleState;
+    this.healthStatus = healthStatus;
+    this.launchConfigurationName = launchConfigurationName;
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  public String getAvailabilityZone() {
+    return availabilityZone;
+  }
+
+  public String getLifecycleState() {
+    return lifecycleState;
+  }
+
+  public String getHealthStatus() {
+    return healthStatus;
+  }
+
+  public String getLaunchConfigurationName() {
+    return launchConfigurationName;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.autoscaling.model.Instance toSdk() {
+    return new com.amazonaws.services.autoscaling.model.Instance()
+      .withInstanceId(instanceId)
+      .withAvailabilityZone(availabilityZone)
+      .withLifecycleState(lifecycleState)
+      .withHealthStatus(healthStatus)
+      .withLaunchConfigurationName(launchConfigurationName);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.autoscaling;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Immutable read model for an auto scaling group tag. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class TagDescription {
+  private final String resourceId;
+  private final String resourceType;
+  private final String key;
+  private final String value;
+  private final boolean propagateAtLaunch;
+
+  @JsonCreator
+  public TagDescription(
+    @JsonProperty("resourceId") String resourceId,
+    @JsonProperty("resourceType") String resourceType,
+    @JsonProperty("key") String key,
+    @JsonProperty("value") String value,
+    @JsonProperty("propagateAtLaunch") Boolean propagateAtLaunch
+  ) {
+    this.resourceId = resourceId;
+    this.resourceType = resourceType;
+    this.key = key;
+    this.value = value;
+    this.propagateAtLaunch = (propagateAtLaunch == null) ? false : propagateAtLaunch;
+  }
+
+  public String getResourceId() {
+    return resourceId;
+  }
+
+  public String getResourceType() {
+    return resourceType;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public boolean isPropagateAtLaunch() {
+    return propagateAtLaunch;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.autoscaling.model.TagDescription toSdk() {
+    return new com.amazonaws.services.autoscaling.model.TagDescription()
+      .withResourceId(resourceId)
+      .withResourceType(resourceType)
+      .withKey(key)
+      .withValue(value)
+      .withPropagateAtLaunch(propagateAtLaunch);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.ec2;
+
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/**
+ * Immutable read model for an EC2 instance. Only the commonly used fields are kept, use {@link
+ * #toSdk()} to get an SDK object with those fields.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Instance {
+  private final String instanceId;
+  private final String imageId;
+  private final String instanceType;
+  private final String keyName;
+  private final long launchTime;
+  private final Placement placement;
+  private final String platform;
+  private final String architecture;
+  private final String privateDnsName;
+  private final String privateIpAddress;
+  private final String publicDnsName;
+  private final String publicIpAddress;
+  private final InstanceState state;
+  private final String subnetId;
+  private final String vpcId;
+  private final String rootDeviceType;
+  private final String virtualizationType;
+  private final List<GroupIdentifier> securityGroups;
+  private final List<Tag> tags;
+
+  @JsonCreator
+  public Instance(
+    @JsonProperty("instanceId") String instanceId,
+    @JsonProperty("imageId") String imageId,
+    @JsonProperty("instanceType") String instanceType,
+    @JsonProperty("keyName") String keyName,
+    @JsonProperty("launchTime") Date launchTime,
+    @JsonProperty("placement") Placement placement,
+    @JsonProperty("platform") String platform,
+    @JsonProperty("architecture") String architecture,
+    @JsonProperty("privateDnsName") String privateDnsName,
+    @JsonProperty("privateIpAddress") String privateIpAddress,
+    @JsonProperty("publicDnsName") String publicDnsName,
+    @JsonProperty("publicIpAddress") String publicIpAddress,
+    @JsonProperty("state") InstanceState state,
+    @JsonProperty("subnetId") String subnetId,
+    @JsonProperty("vpcId") String vpcId,
+    @JsonProperty("rootDeviceType") String rootDeviceType,
+    @JsonProperty("virtualizationType") String virtualizationType,
+    @JsonProperty("securityGroups") List<GroupIdentifier> securityGroups,
+    @JsonProperty("tags") List<Tag> tags
+  ) {
+    this.instanceId = instanceId;
+    this.imageId = imageId;
+    this.instanceType = instanceType;
+    this.keyName = keyName;
+    this.launchTime = (launchTime == null) ? 0L : launchTime.getTime();
+    this.placement = placement;
+    this.platform = platform;
+    this.architecture = architecture;
+    this.privateDnsName = privateDnsName;
+    this.privateIpAddress = privateIpAddress;
+    this.publicDnsName = publicDnsName;
+    this.publicIpAddress = publicIpAddress;
+    this.state = state;
+    this.subnetId = subnetId;
+    this.vpcId = vpcId;
+    this.rootDeviceType = rootDeviceType;
+    this.virtualizationType = virtualizationType;
+    this.securityGroups = Lists.immutable(securityGroups);
+    this.tags = Lists.immutable(tags);
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  public String getImageId() {
+    return imageId;
+  }
+
+  public String getInstanceType() {
+    return instanceType;
+  }
+
+  public String getKeyName() {
+    return keyName;
+  }
+
+  /** Time in milliseconds since the epoch, 0 if not set. */
+  public long getLaunchTime() {
+    return launchTime;
+  }
+
+  public Placement getPlacement() {
+    return placement;
+  }
+
+  public String getPlatform() {
+    return platform;
+  }
+
+  public String getArchitecture() {
+    return architecture;
+  }
+
+  public String getPrivateDnsName() {
+    return privateDnsName;
+  }
+
+  public String getPrivateIpAddress() {
+    return privateIpAddress;
+  }
+
+  public String getPublicDnsName() {
+    return publicDnsName;
+  }
+
+  public String getPublicIpAddress() {
+    return publicIpAddress;
+  }
+
+  public InstanceState getState() {
+    return state;
+  }
+
+  public String getSubnetId() {
+    return subnetId;
+  }
+
+  public String getVpcId() {
+    return vpcId;
+  }
+
+  public String getRootDeviceType() {
+    return rootDeviceType;
+  }
+
+  public String getVirtualizationType() {
+    return virtualizationType;
+  }
+
+  public List<GroupIdentifier> getSecurityGroups() {
+    return securityGroups;
+  }
+
+  public List<Tag> getTags() {
+    return tags;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.ec2.model.Instance toSdk() {
+    return new com.amazonaws.services.ec2.model.Instance()
+      .withInstanceId(instanceId)
+      .withImageId(imageId)
+      .withInstanceType(instanceType)
+      .withKeyName(keyName)
+      .withLaunchTime((launchTime == 0L) ? null : new Date(launchTime))
+      .withPlacement((placement == null) ? null : placement.toSdk())
+      .withPlatform(platform)
+      .withArchitecture(architecture)
+      .withPrivateDnsName(privateDnsName)
+      .withPrivateIpAddress(privateIpAddress)
+      .withPublicDnsName(publicDnsName)
+      .withPublicIpAddress(publicIpAddress)
+      .withState((state == null) ? null : state.toSdk())
+      .withSubnetId(subnetId)
+      .withVpcId(vpcId)
+      .withRootDeviceType(rootDeviceType)
+      .withVirtualizationType(virtualizationType)
+      .withSecurityGroups(Lists.map(securityGroups, v -> v.toSdk()))
+      .withTags(Lists.map(tags, v -> v.toSdk()));
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.ec2;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/** Immutable read model for a security group permission. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class IpPermission {
+  private final String ipProtocol;
+  private final int fromPort;
+  private final int toPort;
+  private final List<String> ipRanges;
+  private final List<UserIdGroupPair> userIdGroupPairs;
+
+  @JsonCreator
+  public IpPermission(
+    @JsonProperty("ipProtocol") String ipProtocol,
+    @JsonProperty("fromPort") Integer fromPort,
+    @JsonProperty("toPort") Integer toPort,
+    @JsonProperty("ipRanges") List<String> ipRanges,
+    @JsonProperty("userIdGroupPairs") List<UserIdGroupPair> userIdGroupPairs
+  ) {
+    this.ipProtocol = ipProtocol;
+    this.fromPort = (fromPort == null) ? 0 : fromPort;
+    this.toPort = (toPort == null) ? 0 : toPort;
+    this.ipRanges = Lists.immutable(ipRanges);
+    this.userIdGroupPairs = Lists.immutable(userIdGroupPairs);
+  }
+
+  public String getIpProtocol() {
+    return ipProtocol;
+  }
+
+  public int getFromPort() {
+    return fromPort;
+  }
+
+  public int getToPort() {
+    return toPort;
+  }
+
+  public List<String> getIpRanges() {
+    return ipRanges;
+  }
+
+  public List<UserIdGroupPair> getUserIdGroupPairs() {
+    return userIdGroupPairs;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.ec2.model.IpPermission toSdk() {
+    return new com.amazonaws.services.ec2.model.IpPermission()
+      .withIpProtocol(ipProtocol)
+      .withFromPort(fromPort)
+      .withToPort(toPort)
+      .withIpRanges(ipRanges)
+      .withUserIdGroupPairs(Lists.map(userIdGroupPairs, v -> v.toSdk()));
+  }
+}
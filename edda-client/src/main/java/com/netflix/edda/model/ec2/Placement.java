@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.ec2;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Immutable read model for the placement of an instance. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Placement {
+  private final String availabilityZone;
+  private final String groupName;
+  private final String tenancy;
+
+  @JsonCreator
+  public Placement(
+    @JsonProperty("availabilityZone") String availabilityZone,
+    @JsonProperty("groupName") String groupName,
+    @JsonProperty("tenancy") String tenancy
+  ) {
+    this.availabilityZone = availabilityZone;
+    this.groupName = groupName;
+    this.tenancy = tenancy;
+  }
+
+  public String getAvailabilityZone() {
+    return availabilityZone;
+  }
+
+  public String getGroupName() {
+    return groupName;
+  }
+
+  public String getTenancy() {
+    return tenancy;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.ec2.model.Placement toSdk() {
+    return new com.amazonaws.services.ec2.model.Placement()
+      .withAvailabilityZone(availabilityZone)
+      .withGroupName(groupName)
+      .withTenancy(tenancy);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.ec2;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/** Immutable read model for an EC2 reservation. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Reservation {
+  private final String reservationId;
+  private final String ownerId;
+  private final String requesterId;
+  private final List<Instance> instances;
+
+  @JsonCreator
+  public Reservation(
+    @JsonProperty("reservationId") String reservationId,
+    @JsonProperty("ownerId") String ownerId,
+    @JsonProperty("requesterId") String requesterId,
+    @JsonProperty("instances") List<Instance> instances
+  ) {
+    this.reservationId = reservationId;
+    this.ownerId = ownerId;
+    this.requesterId = requesterId;
+    this.instances = Lists.immutable(instances);
+  }
+
+  public String getReservationId() {
+    return reservationId;
+  }
+
+  public String getOwnerId() {
+    return ownerId;
+  }
+
+  public String getRequesterId() {
+    return requesterId;
+  }
+
+  public List<Instance> getInstances() {
+    return instances;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.ec2.model.Reservation toSdk() {
+    return new com.amazonaws.services.ec2.model.Reservation()
+      .withReservationId(reservationId)
+      .withOwnerId(ownerId)
+      .withRequesterId(requesterId)
+      .withInstances(Lists.map(instances, v -> v.toSdk()));
+  }
+}
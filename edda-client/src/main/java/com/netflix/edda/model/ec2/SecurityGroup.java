@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.ec2;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/** Immutable read model for an EC2 security group. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class SecurityGroup {
+  private final String groupId;
+  private final String groupName;
+  private final String description;
+  private final String ownerId;
+  private final String vpcId;
+  private final List<IpPermission> ipPermissions;
+  private final List<IpPermission> ipPermissionsEgress;
+  private final List<Tag> tags;
+
+  @JsonCreator
+  public SecurityGroup(
+    @JsonProperty("groupId") String groupId,
+    @JsonProperty("groupName") String groupName,
+    @JsonProperty("description") String description,
+    @JsonProperty("ownerId") String ownerId,
+    @JsonProperty("vpcId") String vpcId,
+    @JsonProperty("ipPermissions") List<IpPermission> ipPermissions,
+    @JsonProperty("ipPermissionsEgress") List<IpPermission> ipPermissionsEgress,
+    @JsonProperty("tags") List<Tag> tags
+  ) {
+    this.groupId = groupId;
+    this.groupName = groupName;
+    this.description = description;
+    this.ownerId = ownerId;
+    this.vpcId = vpcId;
+    this.ipPermissions = Lists.immutable(ipPermissions);
+    this.ipPermissionsEgress = Lists.immutable(ipPermissionsEgress);
+    this.tags = Lists.immutable(tags);
+  }
+
+  public String getGroupId() {
+    return groupId;
+  }
+
+  public String getGroupName() {
+    return groupName;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public String getOwnerId() {
+    return ownerId;
+  }
+
+  public String getVpcId() {
+    return vpcId;
+  }
+
+  public List<IpPermission> getIpPermissions() {
+    return ipPermissions;
+  }
+
+  public List<IpPermission> getIpPermissionsEgress() {
+    return ipPermissionsEgress;
+  }
+
+  public List<Tag> getTags() {
+    return tags;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.ec2.model.SecurityGroup toSdk() {
+    return new com.amazonaws.services.ec2.model.SecurityGroup()
+      .withGroupId(groupId)
+      .withGroupName(groupName)
+      .withDescription(description)
+      .withOwnerId(ownerId)
+      .withVpcId(vpcId)
+      .withIpPermissions(Lists.map(ipPermissions, v -> v.toSdk()))
+      .withIpPermissionsEgress(Lists.map(ipPermissionsEgress, v -> v.toSdk()))
+      .withTags(Lists.map(tags, v -> v.toSdk()));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.ec2;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/** Immutable read model for a VPC subnet. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Subnet {
+  private final String subnetId;
+  private final String vpcId;
+  private final String cidrBlock;
+  private final String availabilityZone;
+  private final int availableIpAddressCount;
+  private final String state;
+  private final boolean defaultForAz;
+  private final boolean mapPublicIpOnLaunch;
+  private final List<Tag> tags;
+
+  @JsonCreator
+  public Subnet(
+    @JsonProperty("subnetId") String subnetId,
+    @JsonProperty("vpcId") String vpcId,
+    @JsonProperty("cidrBlock") String cidrBlock,
+    @JsonProperty("availabilityZone") String availabilityZone,
+    @JsonProperty("availableIpAddressCount") Integer availableIpAddressCount,
+    @JsonProperty("state") String state,
+    @JsonProperty("defaultForAz") Boolean defaultForAz,
+    @JsonProperty("mapPublicIpOnLaunch") Boolean mapPublicIpOnLaunch,
+    @JsonProperty("tags") List<Tag> tags
+  ) {
+    this.subnetId = subnetId;
+    this.vpcId = vpcId;
+    this.cidrBlock = cidrBlock;
+    this.availabilityZone = availabilityZone;
+    this.availableIpAddressCount = (availableIpAddressCount == null) ? 0 : availableIpAddressCount;
+    this.state = state;
+    this.defaultForAz = (defaultForAz == null) ? false : defaultForAz;
+    this.mapPublicIpOnLaunch = (mapPublicIpOnLaunch == null) ? false : mapPublicIpOnLaunch;
+    this.tags = Lists.immutable(tags);
+  }
+
+  public String getSubnetId() {
+    return subnetId;
+  }
+
+  public String getVpcId() {
+    return vpcId;
+  }
+
+  public String getCidrBlock() {
+    return cidrBlock;
+  }
+
+  public String getAvailabilityZone() {
+    return availabilityZone;
+  }
+
+  public int getAvailableIpAddressCount() {
+    return availableIpAddressCount;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public boolean isDefaultForAz() {
+    return defaultForAz;
+  }
+
+  public boolean isMapPublicIpOnLaunch() {
+    return mapPublicIpOnLaunch;
+  }
+
+  public List<Tag> getTags() {
+    return tags;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.ec2.model.Subnet toSdk() {
+    return new com.amazonaws.services.ec2.model.Subnet()
+      .withSubnetId(subnetId)
+      .withVpcId(vpcId)
+      .withCidrBlock(cidrBlock)
+      .withAvailabilityZone(availabilityZone)
+      .withAvailableIpAddressCount(availableIpAddressCount)
+      .withState(state)
+      .withDefaultForAz(defaultForAz)
+      .withMapPublicIpOnLaunch(mapPublicIpOnLaunch)
+      .withTags(Lists.map(tags, v -> v.toSdk()));
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.ec2;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Immutable read model for a security group referenced by a permission. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class UserIdGroupPair {
+  private final String userId;
+  private final String groupId;
+  private final String groupName;
+
+  @JsonCreator
+  public UserIdGroupPair(
+    @JsonProperty("userId") String userId,
+    @JsonProperty("groupId") String groupId,
+    @JsonProperty("groupName") String groupName
+  ) {
+    this.userId = userId;
+    this.groupId = groupId;
+    this.groupName = groupName;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public String getGroupId() {
+    return groupId;
+  }
+
+  public String getGroupName() {
+    return groupName;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.ec2.model.UserIdGroupPair toSdk() {
+    return new com.amazonaws.services.ec2.model.UserIdGroupPair()
+      .withUserId(userId)
+      .withGroupId(groupId)
+      .withGroupName(groupName);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.ec2;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/** Immutable read model for a VPC. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Vpc {
+  private final String vpcId;
+  private final String cidrBlock;
+  private final String state;
+  private final String dhcpOptionsId;
+  private final String instanceTenancy;
+  private final boolean isDefault;
+  private final List<Tag> tags;
+
+  @JsonCreator
+  public Vpc(
+    @JsonProperty("vpcId") String vpcId,
+    @JsonProperty("cidrBlock") String cidrBlock,
+    @JsonProperty("state") String state,
+    @JsonProperty("dhcpOptionsId") String dhcpOptionsId,
+    @JsonProperty("instanceTenancy") String instanceTenancy,
+    @JsonProperty("isDefault") Boolean isDefault,
+    @JsonProperty("tags") List<Tag> tags
+  ) {
+    this.vpcId = vpcId;
+    this.cidrBlock = cidrBlock;
+    this.state = state;
+    this.dhcpOptionsId = dhcpOptionsId;
+    this.instanceTenancy = instanceTenancy;
+    this.isDefault = (isDefault == null) ? false : isDefault;
+    this.tags = Lists.immutable(tags);
+  }
+
+  public String getVpcId() {
+    return vpcId;
+  }
+
+  public String getCidrBlock() {
+    return cidrBlock;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public String getDhcpOptionsId() {
+    return dhcpOptionsId;
+  }
+
+  public String getInstanceTenancy() {
+    return instanceTenancy;
+  }
+
+  public boolean isDefault() {
+    return isDefault;
+  }
+
+  public List<Tag> getTags() {
+    return tags;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.ec2.model.Vpc toSdk() {
+    return new com.amazonaws.services.ec2.model.Vpc()
+      .withVpcId(vpcId)
+      .withCidrBlock(cidrBlock)
+      .withState(state)
+      .withDhcpOptionsId(dhcpOptionsId)
+      .withInstanceTenancy(instanceTenancy)
+      .withIsDefault(isDefault)
+      .withTags(Lists.map(tags, v -> v.toSdk()));
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.elasticloadbalancing;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Immutable read model for a load balancer health check. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class HealthCheck {
+  private final String target;
+  private final int interval;
+  private final int timeout;
+  private final int unhealthyThreshold;
+  private final int healthyThreshold;
+
+  @JsonCreator
+  public HealthCheck(
+    @JsonProperty("target") String target,
+    @JsonProperty("interval") Integer interval,
+    @JsonProperty("timeout") Integer timeout,
+    @JsonProperty("unhealthyThreshold") Integer unhealthyThreshold,
+    @JsonProperty("healthyThreshold") Integer healthyThreshold
+  ) {
+    this.target = target;
+    this.interval = (interval == null) ? 0 : interval;
+    this.timeout = (timeout == null) ? 0 : timeout;
+    this.unhealthyThreshold = (unhealthyThreshold == null) ? 0 : unhealthyThreshold;
+    this.healthyThreshold = (healthyThreshold == null) ? 0 : healthyThreshold;
+  }
+
+  public String getTarget() {
+    return target;
+  }
+
+  public int getInterval() {
+    return interval;
+  }
+
+  public int getTimeout() {
+    return timeout;
+  }
+
+  public int getUnhealthyThreshold() {
+    return unhealthyThreshold;
+  }
+
+  public int getHealthyThreshold() {
+    return healthyThreshold;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.elasticloadbalancing.model.HealthCheck toSdk() {
+    return new com.amazonaws.services.elasticloadbalancing.model.HealthCheck()
+      .withTarget(target)
+      .withInterval(interval)
+      .withTimeout(timeout)
+      .withUnhealthyThreshold(unhealthyThreshold)
+      .withHealthyThreshold(healthyThreshold);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.elasticloadbalancing;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Immutable read model for an instance registered with a load balancer. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Instance {
+  private final String instanceId;
+
+  @JsonCreator
+  public Instance(
+    @JsonProperty("instanceId") String instanceId
+  ) {
+    this.instanceId = instanceId;
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.elasticloadbalancing.model.Instance toSdk() {
+    return new com.amazonaws.services.elasticloadbalancing.model.Instance()
+      .withInstanceId(instanceId);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.elasticloadbalancing;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Immutable read model for a load balancer listener. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class Listener {
+  private final String protocol;
+  private final int loadBalancerPort;
+  private final String instanceProtocol;
+  private final int instancePort;
+  private final String sslCertificateId;
+
+  @JsonCreator
+  public Listener(
+    @JsonProperty("protocol") String protocol,
+    @JsonProperty("loadBalancerPort") Integer loadBalancerPort,
+    @JsonProperty("instanceProtocol") String instanceProtocol,
+    @JsonProperty("instancePort") Integer instancePort,
+    @JsonProperty("SSLCertificateId") String sslCertificateId
+  ) {
+    this.protocol = protocol;
+    this.loadBalancerPort = (loadBalancerPort == null) ? 0 : loadBalancerPort;
+    this.instanceProtocol = instanceProtocol;
+    this.instancePort = (instancePort == null) ? 0 : instancePort;
+    this.sslCertificateId = sslCertificateId;
+  }
+
+  public String getProtocol() {
+    return protocol;
+  }
+
+  public int getLoadBalancerPort() {
+    return loadBalancerPort;
+  }
+
+  public String getInstanceProtocol() {
+    return instanceProtocol;
+  }
+
+  public int getInstancePort() {
+    return instancePort;
+  }
+
+  public String getSslCertificateId() {
+    return sslCertificateId;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.elasticloadbalancing.model.Listener toSdk() {
+    return new com.amazonaws.services.elasticloadbalancing.model.Listener()
+      .withProtocol(protocol)
+      .withLoadBalancerPort(loadBalancerPort)
+      .withInstanceProtocol(instanceProtocol)
+      .withInstancePort(instancePort)
+      .withSSLCertificateId(sslCertificateId);
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.elasticloadbalancing;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/** Immutable read model for a listener and the policies enabled for it. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class ListenerDescription {
+  private final Listener listener;
+  private final List<String> policyNames;
+
+  @JsonCreator
+  public ListenerDescription(
+    @JsonProperty("listener") Listener listener,
+    @JsonProperty("policyNames") List<String> policyNames
+  ) {
+    this.listener = listener;
+    this.policyNames = Lists.immutable(policyNames);
+  }
+
+  public Listener getListener() {
+    return listener;
+  }
+
+  public List<String> getPolicyNames() {
+    return policyNames;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.elasticloadbalancing.model.ListenerDescription toSdk() {
+    return new com.amazonaws.services.elasticloadbalancing.model.ListenerDescription()
+      .withListener((listener == null) ? null : listener.toSdk())
+      .withPolicyNames(policyNames);
+  }
+}
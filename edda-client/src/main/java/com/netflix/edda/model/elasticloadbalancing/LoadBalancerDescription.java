@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model.elasticloadbalancing;
+
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.netflix.edda.model.Lists;
+
+/** Immutable read model for a classic load balancer. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class LoadBalancerDescription {
+  private final String loadBalancerName;
+  private final String dnsName;
+  private final String canonicalHostedZoneName;
+  private final String canonicalHostedZoneNameId;
+  private final List<ListenerDescription> listenerDescriptions;
+  private final List<String> availabilityZones;
+  private final List<String> subnets;
+  private final String vpcId;
+  private final List<Instance> instances;
+  private final HealthCheck healthCheck;
+  private final List<String> securityGroups;
+  private final long createdTime;
+  private final String scheme;
+
+  @JsonCreator
+  public LoadBalancerDescription(
+    @JsonProperty("loadBalancerName") String loadBalancerName,
+    @JsonProperty("DNSName") String dnsName,
+    @JsonProperty("canonicalHostedZoneName") String canonicalHostedZoneName,
+    @JsonProperty("canonicalHostedZoneNameID") String canonicalHostedZoneNameId,
+    @JsonProperty("listenerDescriptions") List<ListenerDescription> listenerDescriptions,
+    @JsonProperty("availabilityZones") List<String> availabilityZones,
+    @JsonProperty("subnets") List<String> subnets,
+    @JsonProperty("VPCId") String vpcId,
+    @JsonProperty("instances") List<Instance> instances,
+    @JsonProperty("healthCheck") HealthCheck healthCheck,
+    @JsonProperty("securityGroups") List<String> securityGroups,
+    @JsonProperty("createdTime") Date createdTime,
+    @JsonProperty("scheme") String scheme
+  ) {
+    this.loadBalancerName = loadBalancerName;
+    this.dnsName = dnsName;
+    this.canonicalHostedZoneName = canonicalHostedZoneName;
+    this.canonicalHostedZoneNameId = canonicalHostedZoneNameId;
+    this.listenerDescriptions = Lists.immutable(listenerDescriptions);
+    this.availabilityZones = Lists.immutable(availabilityZones);
+    this.subnets = Lists.immutable(subnets);
+    this.vpcId = vpcId;
+    this.instances = Lists.immutable(instances);
+    this.healthCheck = healthCheck;
+    this.securityGroups = Lists.immutable(securityGroups);
+    this.createdTime = (createdTime == null) ? 0L : createdTime.getTime();
+    this.scheme = scheme;
+  }
+
+  public String getLoadBalancerName() {
+    return loadBalancerName;
+  }
+
+  public String getDnsName() {
+    return dnsName;
+  }
+
+  public String getCanonicalHostedZoneName() {
+    return canonicalHostedZoneName;
+  }
+
+  public String getCanonicalHostedZoneNameId() {
+    return canonicalHostedZoneNameId;
+  }
+
+  public List<ListenerDescription> getListenerDescriptions() {
+    return listenerDescriptions;
+  }
+
+  public List<String> getAvailabilityZones() {
+    return availabilityZones;
+  }
+
+  public List<String> getSubnets() {
+    return subnets;
+  }
+
+  public String getVpcId() {
+    return vpcId;
+  }
+
+  public List<Instance> getInstances() {
+    return instances;
+  }
+
+  public HealthCheck getHealthCheck() {
+    return healthCheck;
+  }
+
+  public List<String> getSecurityGroups() {
+    return securityGroups;
+  }
+
+  /** Time in milliseconds since the epoch, 0 if not set. */
+  public long getCreatedTime() {
+    return createdTime;
+  }
+
+  public String getScheme() {
+    return scheme;
+  }
+
+  /** Create a new SDK object with the values from this object. */
+  public com.amazonaws.services.elasticloadbalancing.model.LoadBalancerDescription toSdk() {
+    return new com.amazonaws.services.elasticloadbalancing.model.LoadBalancerDescription()
+      .withLoadBalancerName(loadBalancerName)
+      .withDNSName(dnsName)
+      .withCanonicalHostedZoneName(canonicalHostedZoneName)
+      .withCanonicalHostedZoneNameID(canonicalHostedZoneNameId)
+      .withListenerDescriptions(Lists.map(listenerDescriptions, v -> v.toSdk()))
+      .withAvailabilityZones(availabilityZones)
+      .withSubnets(subnets)
+      .withVPCId(vpcId)
+      .withInstances(Lists.map(instances, v -> v.toSdk()))
+      .withHealthCheck((healthCheck == null) ? null : healthCheck.toSdk())
+      .withSecurityGroups(securityGroups)
+      .withCreatedTime((createdTime == 0L) ? null : new Date(createdTime))
+      .withScheme(scheme);
+  }
+}
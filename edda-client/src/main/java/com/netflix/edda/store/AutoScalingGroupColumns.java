@@ -0,0 +1,344 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.autoscaling.model.TagDescription;
+
+import com.netflix.edda.util.StringDictionary;
+
+/**
+ * Columnar representation of the auto scaling groups collection. See {@link InstanceColumns}
+ * for the layout. Membership is stored as instance ids so it can be joined with the instance
+ * columns using {@link InstanceColumns#row(String)}.
+ */
+public class AutoScalingGroupColumns {
+  private final int size;
+  private final StringDictionary dictionary;
+  private final String[] names;
+  private final Map<String, Integer> rowsByName;
+  private final int[] launchConfigurationNames;
+  private final int[] healthCheckTypes;
+  private final int[] vpcZoneIdentifiers;
+  private final int[] minSizes;
+  private final int[] maxSizes;
+  private final int[] desiredCapacities;
+  private final long[] createdTimes;
+  private final int[] instanceOffsets;
+  private final String[] instances;
+  private final int[] loadBalancerOffsets;
+  private final int[] loadBalancers;
+  private final int[] tagOffsets;
+  private final int[] tagKeys;
+  private final int[] tagValues;
+
+  private AutoScalingGroupColumns(Builder b) {
+    size = b.names.size();
+    dictionary = b.dictionary;
+    names = b.names.toArray(new String[size]);
+    rowsByName = new HashMap<String, Integer>(size * 4 / 3 + 1);
+    for (int i = 0; i < size; ++i)
+      rowsByName.put(names[i], i);
+    launchConfigurationNames = b.launchConfigurationNames.toArray();
+    healthCheckTypes = b.healthCheckTypes.toArray();
+    vpcZoneIdentifiers = b.vpcZoneIdentifiers.toArray();
+    minSizes = b.minSizes.toArray();
+    maxSizes = b.maxSizes.toArray();
+    desiredCapacities = b.desiredCapacities.toArray();
+    createdTimes = b.createdTimes.toArray();
+    instanceOffsets = b.instanceOffsets.toArray();
+    instances = b.instances.toArray(new String[b.instances.size()]);
+    loadBalancerOffsets = b.loadBalancerOffsets.toArray();
+    loadBalancers = b.loadBalancers.toArray();
+    tagOffsets = b.tagOffsets.toArray();
+    tagKeys = b.tagKeys.toArray();
+    tagValues = b.tagValues.toArray();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Row for the group name or -1 if the group is not in the store. */
+  public int row(String name) {
+    Integer row = rowsByName.get(name);
+    return (row == null) ? -1 : row;
+  }
+
+  public String getName(int row) {
+    return names[row];
+  }
+
+  public String getLaunchConfigurationName(int row) {
+    return dictionary.value(launchConfigurationNames[row]);
+  }
+
+  public int getMinSize(int row) {
+    return minSizes[row];
+  }
+
+  public int getMaxSize(int row) {
+    return maxSizes[row];
+  }
+
+  public int getDesiredCapacity(int row) {
+    return desiredCapacities[row];
+  }
+
+  public long getCreatedTime(int row) {
+    return createdTimes[row];
+  }
+
+  /** Number of instances in the group. */
+  public int getInstanceCount(int row) {
+    return instanceOffsets[row + 1] - instanceOffsets[row];
+  }
+
+  public List<String> getInstanceIds(int row) {
+    List<String> ids = new ArrayList<String>(getInstanceCount(row));
+    for (int i = instanceOffsets[row]; i < instanceOffsets[row + 1]; ++i)
+      ids.add(instances[i]);
+    return ids;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Predicates
+
+  public BitSet all() {
+    BitSet rows = new BitSet(size);
+    rows.set(0, size);
+    return rows;
+  }
+
+  /** Rows using the launch configuration. */
+  public BitSet whereLaunchConfiguration(String name) {
+    return whereEquals(launchConfigurationNames, name);
+  }
+
+  /** Rows registered with the load balancer. */
+  public BitSet whereLoadBalancer(String name) {
+    BitSet rows = new BitSet(size);
+    int code = dictionary.code(name);
+    if (code < 0) return rows;
+    for (int i = 0; i < size; ++i) {
+      for (int j = loadBalancerOffsets[i]; j < loadBalancerOffsets[i + 1]; ++j) {
+        if (loadBalancers[j] == code) {
+          rows.set(i);
+          break;
+        }
+      }
+    }
+    return rows;
+  }
+
+  /** Rows that have the tag. If the value is null, then any value will match. */
+  public BitSet whereTag(String key, String value) {
+    BitSet rows = new BitSet(size);
+    int k = dictionary.code(key);
+    int v = dictionary.code(value);
+    if (k < 0 || (value != null && v < 0)) return rows;
+    for (int i = 0; i < size; ++i) {
+      for (int j = tagOffsets[i]; j < tagOffsets[i + 1]; ++j) {
+        if (tagKeys[j] == k && (value == null || tagValues[j] == v)) {
+          rows.set(i);
+          break;
+        }
+      }
+    }
+    return rows;
+  }
+
+  /** Rows where the number of instances differs from the desired capacity. */
+  public BitSet whereNotAtDesiredCapacity() {
+    BitSet rows = new BitSet(size);
+    for (int i = 0; i < size; ++i) {
+      if (getInstanceCount(i) != desiredCapacities[i]) rows.set(i);
+    }
+    return rows;
+  }
+
+  private BitSet whereEquals(int[] col, String value) {
+    BitSet rows = new BitSet(size);
+    int code = dictionary.code(value);
+    if (code < 0) return rows;
+    for (int i = 0; i < size; ++i) {
+      if (col[i] == code) rows.set(i);
+    }
+    return rows;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Materialization
+
+  /**
+   * Create an SDK group for the row with the fields kept by the store. Instances are not
+   * included, use {@link #getInstanceIds(int)} to join with the instance columns.
+   */
+  public AutoScalingGroup materialize(int row) {
+    List<String> lbs =
+      new ArrayList<String>(loadBalancerOffsets[row + 1] - loadBalancerOffsets[row]);
+    for (int i = loadBalancerOffsets[row]; i < loadBalancerOffsets[row + 1]; ++i)
+      lbs.add(dictionary.value(loadBalancers[i]));
+    List<TagDescription> tags =
+      new ArrayList<TagDescription>(tagOffsets[row + 1] - tagOffsets[row]);
+    for (int i = tagOffsets[row]; i < tagOffsets[row + 1]; ++i) {
+      tags.add(new TagDescription()
+        .withResourceId(names[row])
+        .withResourceType("auto-scaling-group")
+        .withKey(dictionary.value(tagKeys[i]))
+        .withValue(dictionary.value(tagValues[i])));
+    }
+    return new AutoScalingGroup()
+      .withAutoScalingGroupName(names[row])
+      .withLaunchConfigurationName(getLaunchConfigurationName(row))
+      .withHealthCheckType(dictionary.value(healthCheckTypes[row]))
+      .withVPCZoneIdentifier(dictionary.value(vpcZoneIdentifiers[row]))
+      .withMinSize(minSizes[row])
+      .withMaxSize(maxSizes[row])
+      .withDesiredCapacity(desiredCapacities[row])
+      .withCreatedTime((createdTimes[row] == 0L) ? null : new Date(createdTimes[row]))
+      .withLoadBalancerNames(lbs)
+      .withTags(tags);
+  }
+
+  public List<AutoScalingGroup> materialize(BitSet rows) {
+    List<AutoScalingGroup> groups = new ArrayList<AutoScalingGroup>(rows.cardinality());
+    for (int i = rows.nextSetBit(0); i >= 0 && i < size; i = rows.nextSetBit(i + 1))
+      groups.add(materialize(i));
+    return groups;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Building
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Builds the columns from the json for the groups in the auto scaling groups collection. */
+  public static class Builder {
+    private final StringDictionary dictionary = new StringDictionary();
+    private final List<String> names = new ArrayList<String>();
+    private final Columns.Ints launchConfigurationNames = new Columns.Ints();
+    private final Columns.Ints healthCheckTypes = new Columns.Ints();
+    private final Columns.Ints vpcZoneIdentifiers = new Columns.Ints();
+    private final Columns.Ints minSizes = new Columns.Ints();
+    private final Columns.Ints maxSizes = new Columns.Ints();
+    private final Columns.Ints desiredCapacities = new Columns.Ints();
+    private final Columns.Longs createdTimes = new Columns.Longs();
+    private final Columns.Ints instanceOffsets = new Columns.Ints();
+    private final List<String> instances = new ArrayList<String>();
+    private final Columns.Ints loadBalancerOffsets = new Columns.Ints();
+    private final Columns.Ints loadBalancers = new Columns.Ints();
+    private final Columns.Ints tagOffsets = new Columns.Ints();
+    private final Columns.Ints tagKeys = new Columns.Ints();
+    private final Columns.Ints tagValues = new Columns.Ints();
+
+    Builder() {
+      instanceOffsets.add(0);
+      loadBalancerOffsets.add(0);
+      tagOffsets.add(0);
+    }
+
+    /** Add all groups from a json array. */
+    public Builder addGroups(JsonParser p) throws IOException {
+      if (p.getCurrentToken() == null) p.nextToken();
+      if (p.getCurrentToken() == JsonToken.START_ARRAY) {
+        while (p.nextToken() == JsonToken.START_OBJECT)
+          addGroup(p);
+      }
+      return this;
+    }
+
+    /** Add a group, the parser should be positioned on the start of the object. */
+    public Builder addGroup(JsonParser p) throws IOException {
+      if (p.getCurrentToken() == null) p.nextToken();
+      if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        return this;
+      }
+      String name = null;
+      String lc = null;
+      String healthCheckType = null;
+      String vpcZoneIdentifier = null;
+      int min = 0;
+      int max = 0;
+      int desired = 0;
+      long createdTime = 0L;
+      List<String> ids = null;
+      List<String> lbs = null;
+      List<String> tags = null;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String field = p.getCurrentName();
+        p.nextToken();
+        switch (field) {
+          case "autoScalingGroupName":    name = Columns.text(p);                  break;
+          case "launchConfigurationName": lc = Columns.text(p);                    break;
+          case "healthCheckType":         healthCheckType = Columns.text(p);       break;
+          case "VPCZoneIdentifier":       vpcZoneIdentifier = Columns.text(p);     break;
+          case "minSize":                 min = Columns.intValue(p);               break;
+          case "maxSize":                 max = Columns.intValue(p);               break;
+          case "desiredCapacity":         desired = Columns.intValue(p);           break;
+          case "createdTime":             createdTime = Columns.timestamp(p);      break;
+          case "instances":               ids = Columns.fields(p, "instanceId");   break;
+          case "loadBalancerNames":       lbs = Columns.fields(p, null);           break;
+          case "tags":                    tags = Columns.tags(p);                  break;
+          default:                        p.skipChildren();                        break;
+        }
+      }
+      if (name == null) return this;
+
+      names.add(name);
+      launchConfigurationNames.add(dictionary.add(lc));
+      healthCheckTypes.add(dictionary.add(healthCheckType));
+      vpcZoneIdentifiers.add(dictionary.add(vpcZoneIdentifier));
+      minSizes.add(min);
+      maxSizes.add(max);
+      desiredCapacities.add(desired);
+      createdTimes.add(createdTime);
+      if (ids != null) instances.addAll(ids);
+      instanceOffsets.add(instances.size());
+      if (lbs != null) {
+        for (String lb : lbs)
+          loadBalancers.add(dictionary.add(lb));
+      }
+      loadBalancerOffsets.add(loadBalancers.size);
+      if (tags != null) {
+        for (int i = 0; i < tags.size(); i += 2) {
+          tagKeys.add(dictionary.add(tags.get(i)));
+          tagValues.add(dictionary.add(tags.get(i + 1)));
+        }
+      }
+      tagOffsets.add(tagKeys.size);
+      return this;
+    }
+
+    public AutoScalingGroupColumns build() {
+      return new AutoScalingGroupColumns(this);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/** Helpers for building columns from a stream of json tokens. */
+class Columns {
+  private Columns() {}
+
+  /** Growable int array. */
+  static final class Ints {
+    int[] data = new int[64];
+    int size = 0;
+
+    void add(int v) {
+      if (size == data.length) data = Arrays.copyOf(data, size * 2);
+      data[size++] = v;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+  }
+
+  /** Growable long array. */
+  static final class Longs {
+    long[] data = new long[64];
+    int size = 0;
+
+    void add(long v) {
+      if (size == data.length) data = Arrays.copyOf(data, size * 2);
+      data[size++] = v;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+  }
+
+  /** Value of a scalar token, null for json null. Objects and arrays are skipped. */
+  static String text(JsonParser p) throws IOException {
+    JsonToken t = p.getCurrentToken();
+    if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+      p.skipChildren();
+      return null;
+    }
+    return (t == JsonToken.VALUE_NULL) ? null : p.getText();
+  }
+
+  static int intValue(JsonParser p) throws IOException {
+    JsonToken t = p.getCurrentToken();
+    if (t == JsonToken.VALUE_NUMBER_INT) return p.getIntValue();
+    return parseInt(text(p), 0);
+  }
+
+  /** Parse an int, the default is returned if the value is null or not a valid int. */
+  static int parseInt(String s, int dflt) {
+    if (s == null) return dflt;
+    try {
+      return Integer.parseInt(s);
+    }
+    catch (NumberFormatException e) {
+      return dflt;
+    }
+  }
+
+  /** Timestamps can be milliseconds since the epoch or an ISO-8601 string. */
+  static long timestamp(JsonParser p) throws IOException {
+    JsonToken t = p.getCurrentToken();
+    if (t == JsonToken.VALUE_NUMBER_INT) return p.getLongValue();
+    String s = text(p);
+    if (s == null) return 0L;
+    try {
+      return Long.parseLong(s);
+    }
+    catch (NumberFormatException e) {
+      try {
+        return Instant.parse(s).toEpochMilli();
+      }
+      catch (DateTimeParseException ex) {
+        return 0L;
+      }
+    }
+  }
+
+  /** Value of a field in an object, the parser should be on the start of the object. */
+  static String field(JsonParser p, String name) throws IOException {
+    String value = null;
+    if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+      p.skipChildren();
+      return null;
+    }
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String n = p.getCurrentName();
+      p.nextToken();
+      if (n.equals(name))
+        value = text(p);
+      else
+        p.skipChildren();
+    }
+    return value;
+  }
+
+  /** Values of a field for each object in an array, e.g. the groupId of the securityGroups. */
+  static List<String> fields(JsonParser p, String name) throws IOException {
+    List<String> values = new ArrayList<String>();
+    if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+      p.skipChildren();
+      return values;
+    }
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      String v = (p.getCurrentToken() == JsonToken.START_OBJECT) ? field(p, name) : text(p);
+      if (v != null) values.add(v);
+    }
+    return values;
+  }
+
+  /** Key value pairs from an array of tags, the result alternates key and value. */
+  static List<String> tags(JsonParser p) throws IOException {
+    List<String> kvs = new ArrayList<String>();
+    if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+      p.skipChildren();
+      return kvs;
+    }
+    while (p.nextToken() == JsonToken.START_OBJECT) {
+      String k = null;
+      String v = null;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String n = p.getCurrentName();
+        p.nextToken();
+        if ("key".equals(n))
+          k = text(p);
+        else if ("value".equals(n))
+          v = text(p);
+        else
+          p.skipChildren();
+      }
+      if (k != null) {
+        kvs.add(k);
+        kvs.add(v);
+      }
+    }
+    return kvs;
+  }
+
+  /** Pack a dotted quad IPv4 address into an int, 0 if not set or invalid. */
+  static int ipv4(String ip) {
+    if (ip == null) return 0;
+    int v = 0;
+    int octet = 0;
+    int dots = 0;
+    int digits = 0;
+    for (int i = 0; i < ip.length(); ++i) {
+      char c = ip.charAt(i);
+      if (c == '.') {
+        if (digits == 0 || ++dots > 3) return 0;
+        v = (v << 8) | octet;
+        octet = 0;
+        digits = 0;
+      }
+      else if (c >= '0' && c <= '9') {
+        octet = octet * 10 + (c - '0');
+        if (octet > 255 || ++digits > 3) return 0;
+      }
+      else {
+        return 0;
+      }
+    }
+    return (dots == 3 && digits > 0) ? (v << 8) | octet : 0;
+  }
+
+  static String ipv4(int ip) {
+    if (ip == 0) return null;
+    return ((ip >>> 24) & 0xFF) + "." + ((ip >>> 16) & 0xFF) + "."
+      + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF);
+  }
+}
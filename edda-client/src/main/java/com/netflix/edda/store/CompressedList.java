@@ -0,0 +1,280 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import com.netflix.edda.JsonHelper;
+import com.netflix.edda.util.IdIndex;
+
+/**
+ * Immutable list that keeps the raw json for the elements in lz4 compressed blocks. Accessing an
+ * element decompresses the block containing it and decodes the element. Recently decoded
+ * elements are kept in a small LRU so the hot set does not need to be decompressed again. The
+ * last decompressed block is also kept so sequential access, e.g. iterating or copying the list,
+ * decompresses each block once. Raw json from edda typically compresses by an order of magnitude
+ * so the full collection can be retained with a fraction of the heap needed for the decoded
+ * objects.
+ */
+public class CompressedList<T> extends AbstractList<T> implements KeyedList<T>, RandomAccess {
+  private static final int BLOCK_SIZE = 64 * 1024;
+
+  private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+  /** Decompressed block, kept to avoid decompressing it again for the next element. */
+  private static final class Block {
+    final int id;
+    final byte[] data;
+
+    Block(int id, byte[] data) {
+      this.id = id;
+      this.data = data;
+    }
+  }
+
+  private final TypeReference<T> ref;
+  private final byte[][] blocks;
+  private final int[] blockLengths;
+  private final int[] blockIds;
+  private final int[] offsets;
+  private final int[] lengths;
+  private final IdIndex index;
+  private final Map<Integer, T> decoded;
+  private final AtomicLong decompressions = new AtomicLong();
+  private volatile Block last;
+
+  private CompressedList(Builder<T> b) {
+    ref = b.ref;
+    blocks = b.blocks.toArray(new byte[b.blocks.size()][]);
+    blockLengths = b.blockLengths.toArray();
+    blockIds = b.blockIds.toArray();
+    offsets = b.offsets.toArray();
+    lengths = b.lengths.toArray();
+    index = b.index;
+    final int cacheSize = b.cacheSize;
+    decoded = new LinkedHashMap<Integer, T>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return offsets.length;
+  }
+
+  private byte[] decompress(int block) {
+    byte[] data = new byte[blockLengths[block]];
+    LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+    decompressor.decompress(blocks[block], 0, data, 0, data.length);
+    decompressions.incrementAndGet();
+    return data;
+  }
+
+  /** Data for the block, the last block that was decompressed is reused. */
+  private byte[] block(int id) {
+    Block b = last;
+    if (b == null || b.id != id) {
+      b = new Block(id, decompress(id));
+      last = b;
+    }
+    return b.data;
+  }
+
+  private synchronized T cached(int i) {
+    return decoded.get(i);
+  }
+
+  private T decode(int i, byte[] block) {
+    synchronized (this) {
+      T v = decoded.get(i);
+      if (v != null) return v;
+    }
+    T v = null;
+    ByteArrayInputStream in = new ByteArrayInputStream(block, offsets[i], lengths[i]);
+    try (JsonParser p = JsonHelper.createParser(in)) {
+      v = p.readValueAs(ref);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    synchronized (this) {
+      decoded.put(i, v);
+    }
+    return v;
+  }
+
+  /**
+   * Decode the element, the block is only decompressed if the element is not cached and the
+   * block is not the last one that was decompressed.
+   */
+  @Override
+  public T get(int i) {
+    if (i < 0 || i >= offsets.length)
+      throw new IndexOutOfBoundsException("index " + i + ", size " + offsets.length);
+    T v = cached(i);
+    return (v != null) ? v : decode(i, block(blockIds[i]));
+  }
+
+  @Override
+  public int indexOfKey(String key) {
+    return index.get(key);
+  }
+
+  /**
+   * Decode the elements that match any of the keys. Each block with a matching element that is
+   * not cached is decompressed once.
+   */
+  @Override
+  public List<T> select(Collection<String> keys) {
+    int[] matches = new int[keys.size()];
+    int n = 0;
+    for (String key : keys) {
+      int i = index.get(key);
+      if (i >= 0) matches[n++] = i;
+    }
+    Arrays.sort(matches, 0, n);
+    List<T> result = new ArrayList<T>(n);
+    int blockId = -1;
+    byte[] block = null;
+    for (int j = 0; j < n; ++j) {
+      int i = matches[j];
+      if (j > 0 && i == matches[j - 1]) continue;
+      T v = cached(i);
+      if (v == null) {
+        if (blockIds[i] != blockId) {
+          blockId = blockIds[i];
+          block = block(blockId);
+        }
+        v = decode(i, block);
+      }
+      result.add(v);
+    }
+    return result;
+  }
+
+  /** Number of compressed blocks. */
+  int blockCount() {
+    return blocks.length;
+  }
+
+  /** Number of times a block has been decompressed. */
+  long decompressions() {
+    return decompressions.get();
+  }
+
+  /** Number of bytes used for the compressed blocks. */
+  public long compressedBytes() {
+    long total = 0L;
+    for (byte[] block : blocks)
+      total += block.length;
+    return total;
+  }
+
+  public static <T> Builder<T> builder(TypeReference<T> ref, KeyExtractor keys, int cacheSize) {
+    return new Builder<T>(ref, keys, cacheSize);
+  }
+
+  /** Packs the raw json for the elements into blocks and compresses each block when full. */
+  public static class Builder<T> implements KeyedList.Builder<T> {
+    private final TypeReference<T> ref;
+    private final KeyExtractor extractor;
+    private final int cacheSize;
+    private final LZ4Compressor compressor = LZ4.fastCompressor();
+    private final List<byte[]> blocks = new ArrayList<byte[]>();
+    private final Columns.Ints blockLengths = new Columns.Ints();
+    private final Columns.Ints blockIds = new Columns.Ints();
+    private final Columns.Ints offsets = new Columns.Ints();
+    private final Columns.Ints lengths = new Columns.Ints();
+    private final IdIndex index = new IdIndex();
+    private final List<String> keys = new ArrayList<String>();
+    private byte[] current = new byte[BLOCK_SIZE];
+    private int position = 0;
+
+    Builder(TypeReference<T> ref, KeyExtractor extractor, int cacheSize) {
+      this.ref = ref;
+      this.extractor = extractor;
+      this.cacheSize = cacheSize;
+    }
+
+    private void flush() {
+      if (position == 0) return;
+      byte[] compressed = new byte[compressor.maxCompressedLength(position)];
+      int length = compressor.compress(current, 0, position, compressed, 0, compressed.length);
+      blocks.add(Arrays.copyOf(compressed, length));
+      blockLengths.add(position);
+      position = 0;
+      if (current.length > BLOCK_SIZE) current = new byte[BLOCK_SIZE];
+    }
+
+    @Override
+    public Builder<T> add(ByteBuf bb) throws IOException {
+      byte[] data = new byte[bb.readableBytes()];
+      bb.getBytes(bb.readerIndex(), data);
+      return add(data, 0, data.length);
+    }
+
+    /** Add a single element. */
+    public Builder<T> add(byte[] data, int offset, int length) throws IOException {
+      if (position > 0 && position + length > current.length) flush();
+      if (length > current.length) current = new byte[length];
+      System.arraycopy(data, offset, current, position, length);
+      blockIds.add(blocks.size());
+      offsets.add(position);
+      lengths.add(length);
+      position += length;
+
+      keys.clear();
+      RawJson.keys(extractor, data, offset, length, keys);
+      for (String key : keys)
+        index.put(key, offsets.size - 1);
+      return this;
+    }
+
+    @Override
+    public Builder<T> addAll(byte[] json) throws IOException {
+      RawJson.split(json, this::add);
+      return this;
+    }
+
+    @Override
+    public CompressedList<T> build() {
+      flush();
+      return new CompressedList<T>(this);
+    }
+  }
+}
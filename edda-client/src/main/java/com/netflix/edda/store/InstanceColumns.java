@@ -0,0 +1,414 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import com.amazonaws.services.ec2.model.GroupIdentifier;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceState;
+import com.amazonaws.services.ec2.model.Placement;
+import com.amazonaws.services.ec2.model.Tag;
+
+import com.netflix.edda.util.IdIndex;
+import com.netflix.edda.util.StringDictionary;
+
+/**
+ * Columnar representation of the instances collection. Strings are dictionary encoded, numeric
+ * fields are stored in primitive arrays and variable length fields such as tags use an offsets
+ * array into a flat values array. Predicates return bitsets of the matching rows so scans and
+ * counts over the fleet do not need to touch SDK objects. Instances are only created for rows
+ * that are materialized and only have the fields kept by the store.
+ */
+public class InstanceColumns {
+  /** State code for instances where the state is missing or invalid. */
+  public static final int UNKNOWN_STATE = -1;
+
+  /** Stored value for an unknown state, valid codes only use the low byte from 0 to 80. */
+  private static final byte UNKNOWN = (byte) 0xFF;
+
+  /** Dictionary encoded string columns. */
+  public enum Column {
+    INSTANCE_TYPE,
+    AVAILABILITY_ZONE,
+    VPC_ID,
+    SUBNET_ID,
+    IMAGE_ID,
+    KEY_NAME
+  }
+
+  private final int size;
+  private final StringDictionary dictionary;
+  private final String[] instanceIds;
+  private final IdIndex rowsById;
+  private final int[][] columns;
+  private final byte[] states;
+  private final long[] launchTimes;
+  private final int[] privateIps;
+  private final int[] publicIps;
+  private final int[] tagOffsets;
+  private final int[] tagKeys;
+  private final int[] tagValues;
+  private final int[] groupOffsets;
+  private final int[] groups;
+
+  private InstanceColumns(Builder b) {
+    size = b.instanceIds.size();
+    dictionary = b.dictionary;
+    instanceIds = b.instanceIds.toArray(new String[size]);
+    rowsById = new IdIndex(size);
+    for (int i = 0; i < size; ++i)
+      rowsById.put(instanceIds[i], i);
+    columns = new int[Column.values().length][];
+    for (int c = 0; c < columns.length; ++c)
+      columns[c] = b.columns[c].toArray();
+    states = new byte[size];
+    int[] ss = b.states.toArray();
+    for (int i = 0; i < size; ++i)
+      states[i] = (byte) ss[i];
+    launchTimes = b.launchTimes.toArray();
+    privateIps = b.privateIps.toArray();
+    publicIps = b.publicIps.toArray();
+    tagOffsets = b.tagOffsets.toArray();
+    tagKeys = b.tagKeys.toArray();
+    tagValues = b.tagValues.toArray();
+    groupOffsets = b.groupOffsets.toArray();
+    groups = b.groups.toArray();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Row for the instance id or -1 if the instance is not in the store. */
+  public int row(String instanceId) {
+    return rowsById.get(instanceId);
+  }
+
+  public String getInstanceId(int row) {
+    return instanceIds[row];
+  }
+
+  public String get(Column column, int row) {
+    return dictionary.value(columns[column.ordinal()][row]);
+  }
+
+  /** Low byte of the state code, e.g. 16 for running, or {@link #UNKNOWN_STATE}. */
+  public int getStateCode(int row) {
+    byte s = states[row];
+    return (s == UNKNOWN) ? UNKNOWN_STATE : s & 0xFF;
+  }
+
+  public long getLaunchTime(int row) {
+    return launchTimes[row];
+  }
+
+  public String getPrivateIpAddress(int row) {
+    return Columns.ipv4(privateIps[row]);
+  }
+
+  public String getPublicIpAddress(int row) {
+    return Columns.ipv4(publicIps[row]);
+  }
+
+  /** Value of the tag for the row or null if the instance does not have the tag. */
+  public String getTag(int row, String key) {
+    int k = dictionary.code(key);
+    if (k < 0) return null;
+    for (int i = tagOffsets[row]; i < tagOffsets[row + 1]; ++i) {
+      if (tagKeys[i] == k) return dictionary.value(tagValues[i]);
+    }
+    return null;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Predicates
+
+  /** All rows. */
+  public BitSet all() {
+    BitSet rows = new BitSet(size);
+    rows.set(0, size);
+    return rows;
+  }
+
+  /** Rows where the column is equal to the value. */
+  public BitSet where(Column column, String value) {
+    BitSet rows = new BitSet(size);
+    int code = dictionary.code(value);
+    if (code < 0) return rows;
+    int[] col = columns[column.ordinal()];
+    for (int i = 0; i < size; ++i) {
+      if (col[i] == code) rows.set(i);
+    }
+    return rows;
+  }
+
+  /**
+   * Rows where the low byte of the state code matches, e.g. 16 for running. Use
+   * {@link #UNKNOWN_STATE} to find rows without a valid state.
+   */
+  public BitSet whereState(int code) {
+    BitSet rows = new BitSet(size);
+    for (int i = 0; i < size; ++i) {
+      if (getStateCode(i) == code) rows.set(i);
+    }
+    return rows;
+  }
+
+  /** Rows that have the tag. If the value is null, then any value will match. */
+  public BitSet whereTag(String key, String value) {
+    BitSet rows = new BitSet(size);
+    int k = dictionary.code(key);
+    int v = dictionary.code(value);
+    if (k < 0 || (value != null && v < 0)) return rows;
+    for (int i = 0; i < size; ++i) {
+      for (int j = tagOffsets[i]; j < tagOffsets[i + 1]; ++j) {
+        if (tagKeys[j] == k && (value == null || tagValues[j] == v)) {
+          rows.set(i);
+          break;
+        }
+      }
+    }
+    return rows;
+  }
+
+  /** Rows that are members of the security group. */
+  public BitSet whereSecurityGroup(String groupId) {
+    BitSet rows = new BitSet(size);
+    int g = dictionary.code(groupId);
+    if (g < 0) return rows;
+    for (int i = 0; i < size; ++i) {
+      for (int j = groupOffsets[i]; j < groupOffsets[i + 1]; ++j) {
+        if (groups[j] == g) {
+          rows.set(i);
+          break;
+        }
+      }
+    }
+    return rows;
+  }
+
+  /** Rows launched before the timestamp. */
+  public BitSet launchedBefore(long timestamp) {
+    BitSet rows = new BitSet(size);
+    for (int i = 0; i < size; ++i) {
+      if (launchTimes[i] < timestamp) rows.set(i);
+    }
+    return rows;
+  }
+
+  /** Number of rows for each distinct value of the column within the set of rows. */
+  public Map<String, Integer> countBy(Column column, BitSet rows) {
+    int[] col = columns[column.ordinal()];
+    int[] counts = new int[dictionary.size() + 1];
+    for (int i = rows.nextSetBit(0); i >= 0 && i < size; i = rows.nextSetBit(i + 1))
+      ++counts[col[i] + 1];
+    Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+    for (int c = 0; c < counts.length; ++c) {
+      if (counts[c] > 0) result.put(dictionary.value(c - 1), counts[c]);
+    }
+    return result;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Materialization
+
+  private static String stateName(int code) {
+    switch (code) {
+      case 0:  return "pending";
+      case 16: return "running";
+      case 32: return "shutting-down";
+      case 48: return "terminated";
+      case 64: return "stopping";
+      case 80: return "stopped";
+      default: return null;
+    }
+  }
+
+  /** Create an SDK instance for the row with the fields kept by the store. */
+  public Instance materialize(int row) {
+    List<Tag> tags = new ArrayList<Tag>(tagOffsets[row + 1] - tagOffsets[row]);
+    for (int i = tagOffsets[row]; i < tagOffsets[row + 1]; ++i)
+      tags.add(new Tag(dictionary.value(tagKeys[i]), dictionary.value(tagValues[i])));
+    List<GroupIdentifier> sgs =
+      new ArrayList<GroupIdentifier>(groupOffsets[row + 1] - groupOffsets[row]);
+    for (int i = groupOffsets[row]; i < groupOffsets[row + 1]; ++i)
+      sgs.add(new GroupIdentifier().withGroupId(dictionary.value(groups[i])));
+    int state = getStateCode(row);
+    InstanceState s = (state == UNKNOWN_STATE)
+      ? null
+      : new InstanceState().withCode(state).withName(stateName(state));
+    return new Instance()
+      .withInstanceId(instanceIds[row])
+      .withInstanceType(get(Column.INSTANCE_TYPE, row))
+      .withPlacement(new Placement().withAvailabilityZone(get(Column.AVAILABILITY_ZONE, row)))
+      .withVpcId(get(Column.VPC_ID, row))
+      .withSubnetId(get(Column.SUBNET_ID, row))
+      .withImageId(get(Column.IMAGE_ID, row))
+      .withKeyName(get(Column.KEY_NAME, row))
+      .withState(s)
+      .withLaunchTime((launchTimes[row] == 0L) ? null : new Date(launchTimes[row]))
+      .withPrivateIpAddress(getPrivateIpAddress(row))
+      .withPublicIpAddress(getPublicIpAddress(row))
+      .withTags(tags)
+      .withSecurityGroups(sgs);
+  }
+
+  /** Create SDK instances for the set of rows. */
+  public List<Instance> materialize(BitSet rows) {
+    List<Instance> instances = new ArrayList<Instance>(rows.cardinality());
+    for (int i = rows.nextSetBit(0); i >= 0 && i < size; i = rows.nextSetBit(i + 1))
+      instances.add(materialize(i));
+    return instances;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Building
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Builds the columns from the json for the reservations in the instances collection. */
+  public static class Builder {
+    private final StringDictionary dictionary = new StringDictionary();
+    private final List<String> instanceIds = new ArrayList<String>();
+    private final Columns.Ints[] columns = new Columns.Ints[Column.values().length];
+    private final Columns.Ints states = new Columns.Ints();
+    private final Columns.Longs launchTimes = new Columns.Longs();
+    private final Columns.Ints privateIps = new Columns.Ints();
+    private final Columns.Ints publicIps = new Columns.Ints();
+    private final Columns.Ints tagOffsets = new Columns.Ints();
+    private final Columns.Ints tagKeys = new Columns.Ints();
+    private final Columns.Ints tagValues = new Columns.Ints();
+    private final Columns.Ints groupOffsets = new Columns.Ints();
+    private final Columns.Ints groups = new Columns.Ints();
+
+    Builder() {
+      for (int c = 0; c < columns.length; ++c)
+        columns[c] = new Columns.Ints();
+      tagOffsets.add(0);
+      groupOffsets.add(0);
+    }
+
+    /** Add a reservation, the parser should be positioned on the start of the object. */
+    public Builder addReservation(JsonParser p) throws IOException {
+      if (p.getCurrentToken() == null) p.nextToken();
+      if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        return this;
+      }
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String name = p.getCurrentName();
+        JsonToken t = p.nextToken();
+        if ("instances".equals(name) && t == JsonToken.START_ARRAY) {
+          while (p.nextToken() == JsonToken.START_OBJECT)
+            addInstance(p);
+        }
+        else {
+          p.skipChildren();
+        }
+      }
+      return this;
+    }
+
+    /** Add all reservations from a json array. */
+    public Builder addReservations(JsonParser p) throws IOException {
+      if (p.getCurrentToken() == null) p.nextToken();
+      if (p.getCurrentToken() == JsonToken.START_ARRAY) {
+        while (p.nextToken() == JsonToken.START_OBJECT)
+          addReservation(p);
+      }
+      return this;
+    }
+
+    private void set(String[] strs, Column c, String v) {
+      strs[c.ordinal()] = v;
+    }
+
+    /** Add an instance, the parser should be positioned on the start of the object. */
+    public Builder addInstance(JsonParser p) throws IOException {
+      String id = null;
+      String[] strs = new String[columns.length];
+      byte state = UNKNOWN;
+      long launchTime = 0L;
+      String privateIp = null;
+      String publicIp = null;
+      List<String> tags = null;
+      List<String> sgs = null;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String name = p.getCurrentName();
+        p.nextToken();
+        switch (name) {
+          case "instanceId":       id = Columns.text(p);                                   break;
+          case "instanceType":     set(strs, Column.INSTANCE_TYPE, Columns.text(p));        break;
+          case "placement":
+            set(strs, Column.AVAILABILITY_ZONE, Columns.field(p, "availabilityZone"));
+            break;
+          case "vpcId":            set(strs, Column.VPC_ID, Columns.text(p));               break;
+          case "subnetId":         set(strs, Column.SUBNET_ID, Columns.text(p));            break;
+          case "imageId":          set(strs, Column.IMAGE_ID, Columns.text(p));             break;
+          case "keyName":          set(strs, Column.KEY_NAME, Columns.text(p));             break;
+          case "state":
+            int code = Columns.parseInt(Columns.field(p, "code"), UNKNOWN_STATE);
+            state = (code == UNKNOWN_STATE) ? UNKNOWN : (byte) code;
+            break;
+          case "launchTime":       launchTime = Columns.timestamp(p);                      break;
+          case "privateIpAddress": privateIp = Columns.text(p);                            break;
+          case "publicIpAddress":  publicIp = Columns.text(p);                             break;
+          case "tags":             tags = Columns.tags(p);                                 break;
+          case "securityGroups":   sgs = Columns.fields(p, "groupId");                     break;
+          default:                 p.skipChildren();                                       break;
+        }
+      }
+      if (id == null) return this;
+
+      instanceIds.add(id);
+      for (int c = 0; c < columns.length; ++c)
+        columns[c].add(dictionary.add(strs[c]));
+      states.add(state);
+      launchTimes.add(launchTime);
+      privateIps.add(Columns.ipv4(privateIp));
+      publicIps.add(Columns.ipv4(publicIp));
+      if (tags != null) {
+        for (int i = 0; i < tags.size(); i += 2) {
+          tagKeys.add(dictionary.add(tags.get(i)));
+          tagValues.add(dictionary.add(tags.get(i + 1)));
+        }
+      }
+      tagOffsets.add(tagKeys.size);
+      if (sgs != null) {
+        for (String sg : sgs)
+          groups.add(dictionary.add(sg));
+      }
+      groupOffsets.add(groups.size);
+      return this;
+    }
+
+    public InstanceColumns build() {
+      return new InstanceColumns(this);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Extracts the keys used to look up an element of an {@link OffHeapList} from the raw json. The
+ * element is only tokenized, no objects are bound.
+ */
+public interface KeyExtractor {
+  /** Add the keys for the element, the parser is positioned on the start of the element. */
+  void extract(JsonParser p, Collection<String> keys) throws IOException;
+
+  /**
+   * Return the first key for the raw json element in the buffer or null if there are no keys.
+   * The reader index of the buffer is not modified.
+   */
+  default String first(ByteBuf bb) throws IOException {
+    List<String> keys = new ArrayList<String>(1);
+    int n = bb.readableBytes();
+    if (bb.hasArray()) {
+      RawJson.keys(this, bb.array(), bb.arrayOffset() + bb.readerIndex(), n, keys);
+    }
+    else {
+      byte[] tmp = new byte[n];
+      bb.getBytes(bb.readerIndex(), tmp);
+      RawJson.keys(this, tmp, 0, n, keys);
+    }
+    return keys.isEmpty() ? null : keys.get(0);
+  }
+
+  /** Key is the value of a top level field, e.g. imageId for images. */
+  static KeyExtractor field(final String name) {
+    return (p, keys) -> {
+      if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        return;
+      }
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String n = p.getCurrentName();
+        p.nextToken();
+        if (n.equals(name) && p.getCurrentToken().isScalarValue())
+          keys.add(p.getText());
+        else
+          p.skipChildren();
+      }
+    };
+  }
+
+  /**
+   * Keys are the values of a field for each object in a top level array, e.g. the instanceId of
+   * each instance in a reservation.
+   */
+  static KeyExtractor nested(final String array, final String name) {
+    final KeyExtractor inner = field(name);
+    return (p, keys) -> {
+      if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        return;
+      }
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String n = p.getCurrentName();
+        p.nextToken();
+        if (n.equals(array) && p.getCurrentToken() == JsonToken.START_ARRAY) {
+          while (p.nextToken() != JsonToken.END_ARRAY)
+            inner.extract(p, keys);
+        }
+        else {
+          p.skipChildren();
+        }
+      }
+    };
+  }
+}
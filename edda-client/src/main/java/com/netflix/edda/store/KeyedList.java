@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * List of raw elements that decodes elements on access and has an index of the keys found by a
+ * {@link KeyExtractor}. Lookups by key only decode the matching elements.
+ */
+public interface KeyedList<T> extends List<T> {
+  /** Index of the element with the key or -1 if there is no such element. */
+  int indexOfKey(String key);
+
+  /** Decode the elements that match any of the keys. The elements are in list order. */
+  List<T> select(Collection<String> keys);
+
+  /** Collects the raw json for the elements of a keyed list. */
+  interface Builder<T> {
+    /** Add a single element. The buffer is not released. */
+    Builder<T> add(ByteBuf bb) throws IOException;
+
+    /** Add each element of a json array. */
+    Builder<T> addAll(byte[] json) throws IOException;
+
+    KeyedList<T> build();
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.netty.buffer.ByteBuf;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import com.netflix.edda.JsonHelper;
+import com.netflix.edda.util.IdIndex;
+
+/**
+ * Immutable list that keeps the raw json for each element and decodes it the first time the
+ * element is accessed. The decoded element is kept and the raw json dropped, so all callers
+ * sharing the list see the same instance. Callers that only need the size or a few elements skip
+ * most of the cost of binding the response. If a key extractor is used, then {@link
+ * #select(Collection)} can find elements by key without decoding the others.
+ */
+public class LazyList<T> extends AbstractList<T> implements KeyedList<T>, RandomAccess {
+  private final TypeReference<T> ref;
+  private final AtomicReferenceArray<byte[]> raw;
+  private final AtomicReferenceArray<T> decoded;
+  private final IdIndex index;
+
+  private LazyList(Builder<T> b) {
+    ref = b.ref;
+    raw = new AtomicReferenceArray<byte[]>(b.elements.toArray(new byte[b.elements.size()][]));
+    decoded = new AtomicReferenceArray<T>(raw.length());
+    index = b.index;
+  }
+
+  @Override
+  public int size() {
+    return raw.length();
+  }
+
+  /** Decode the element if it has not already been decoded. */
+  @Override
+  public T get(int i) {
+    T v = decoded.get(i);
+    if (v == null) {
+      byte[] data = raw.get(i);
+      if (data == null) return decoded.get(i);
+      try (JsonParser p = JsonHelper.createParser(new ByteArrayInputStream(data))) {
+        v = p.readValueAs(ref);
+      }
+      catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      if (decoded.compareAndSet(i, null, v))
+        raw.set(i, null);
+      else
+        v = decoded.get(i);
+    }
+    return v;
+  }
+
+  /** Returns true if the element has already been decoded. */
+  public boolean isDecoded(int i) {
+    return decoded.get(i) != null;
+  }
+
+  @Override
+  public int indexOfKey(String key) {
+    return index.get(key);
+  }
+
+  @Override
+  public List<T> select(Collection<String> keys) {
+    int[] matches = new int[keys.size()];
+    int n = 0;
+    for (String key : keys) {
+      int i = index.get(key);
+      if (i >= 0) matches[n++] = i;
+    }
+    Arrays.sort(matches, 0, n);
+    List<T> result = new ArrayList<T>(n);
+    for (int j = 0; j < n; ++j) {
+      if (j == 0 || matches[j] != matches[j - 1])
+        result.add(get(matches[j]));
+    }
+    return result;
+  }
+
+  public static <T> Builder<T> builder(TypeReference<T> ref) {
+    return new Builder<T>(ref, null);
+  }
+
+  public static <T> Builder<T> builder(TypeReference<T> ref, KeyExtractor keys) {
+    return new Builder<T>(ref, keys);
+  }
+
+  /** Collects the raw json for each element. */
+  public static class Builder<T> implements KeyedList.Builder<T> {
+    private final TypeReference<T> ref;
+    private final KeyExtractor extractor;
+    private final List<byte[]> elements = new ArrayList<byte[]>();
+    private final IdIndex index = new IdIndex();
+    private final List<String> keys = new ArrayList<String>();
+
+    Builder(TypeReference<T> ref, KeyExtractor extractor) {
+      this.ref = ref;
+      this.extractor = extractor;
+    }
+
+    @Override
+    public Builder<T> add(ByteBuf bb) throws IOException {
+      byte[] data = new byte[bb.readableBytes()];
+      bb.getBytes(bb.readerIndex(), data);
+      return add(data, 0, data.length);
+    }
+
+    /** Add a single element. */
+    public Builder<T> add(byte[] data, int offset, int length) throws IOException {
+      byte[] element = (offset == 0 && length == data.length)
+        ? data
+        : Arrays.copyOfRange(data, offset, offset + length);
+      elements.add(element);
+      if (extractor != null) {
+        keys.clear();
+        RawJson.keys(extractor, element, 0, element.length, keys);
+        for (String key : keys)
+          index.put(key, elements.size() - 1);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder<T> addAll(byte[] json) throws IOException {
+      RawJson.split(json, this::add);
+      return this;
+    }
+
+    @Override
+    public LazyList<T> build() {
+      return new LazyList<T>(this);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import com.netflix.edda.JsonHelper;
+import com.netflix.edda.util.IdIndex;
+
+/**
+ * Immutable list that keeps the raw json for each element in direct memory and decodes an
+ * element each time it is accessed. Only the offsets and the key index are kept on the heap so
+ * large collections such as images do not add to the old gen. Use {@link #select(Collection)}
+ * to decode just the elements matching a set of keys.
+ *
+ * <p>The direct buffers are not freed explicitly, they are released by the cleaner once the
+ * list has been garbage collected. Since the list itself is small it can take a while for that
+ * to happen, so -XX:MaxDirectMemorySize should allow for a few snapshots of each collection.
+ */
+public class OffHeapList<T> extends AbstractList<T> implements KeyedList<T>, RandomAccess {
+  private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private final TypeReference<T> ref;
+  private final ByteBuffer[] chunks;
+  private final int[] chunkIds;
+  private final int[] offsets;
+  private final int[] lengths;
+  private final IdIndex index;
+  private final long bytes;
+
+  private OffHeapList(Builder<T> b) {
+    ref = b.ref;
+    chunks = b.chunks.toArray(new ByteBuffer[b.chunks.size()]);
+    chunkIds = b.chunkIds.toArray();
+    offsets = b.offsets.toArray();
+    lengths = b.lengths.toArray();
+    index = b.index;
+    bytes = b.bytes;
+  }
+
+  @Override
+  public int size() {
+    return offsets.length;
+  }
+
+  /** Decode the element. */
+  @Override
+  public T get(int i) {
+    if (i < 0 || i >= offsets.length)
+      throw new IndexOutOfBoundsException("index " + i + ", size " + offsets.length);
+    ByteBuffer buf = chunks[chunkIds[i]].duplicate();
+    buf.limit(offsets[i] + lengths[i]).position(offsets[i]);
+    try (JsonParser p = JsonHelper.createParser(new ByteBufferBackedInputStream(buf))) {
+      return p.readValueAs(ref);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public int indexOfKey(String key) {
+    return index.get(key);
+  }
+
+  @Override
+  public List<T> select(Collection<String> keys) {
+    int[] matches = new int[keys.size()];
+    int n = 0;
+    for (String key : keys) {
+      int i = index.get(key);
+      if (i >= 0) matches[n++] = i;
+    }
+    Arrays.sort(matches, 0, n);
+    List<T> result = new ArrayList<T>(n);
+    for (int j = 0; j < n; ++j) {
+      if (j == 0 || matches[j] != matches[j - 1])
+        result.add(get(matches[j]));
+    }
+    return result;
+  }
+
+  /** Number of bytes of raw json stored off heap. */
+  public long bytes() {
+    return bytes;
+  }
+
+  /** Number of bytes of direct memory allocated for the chunks. */
+  long capacity() {
+    long total = 0L;
+    for (ByteBuffer chunk : chunks)
+      total += chunk.capacity();
+    return total;
+  }
+
+  public static <T> Builder<T> builder(TypeReference<T> ref, KeyExtractor keys) {
+    return new Builder<T>(ref, keys);
+  }
+
+  /**
+   * Copies the raw json for each element into direct memory. Elements are packed into chunks so
+   * an element never spans two buffers.
+   */
+  public static class Builder<T> implements KeyedList.Builder<T> {
+    private final TypeReference<T> ref;
+    private final KeyExtractor extractor;
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+    private final Columns.Ints chunkIds = new Columns.Ints();
+    private final Columns.Ints offsets = new Columns.Ints();
+    private final Columns.Ints lengths = new Columns.Ints();
+    private final IdIndex index = new IdIndex();
+    private final List<String> keys = new ArrayList<String>();
+    private ByteBuffer current = null;
+    private long bytes = 0L;
+
+    Builder(TypeReference<T> ref, KeyExtractor extractor) {
+      this.ref = ref;
+      this.extractor = extractor;
+    }
+
+    private ByteBuffer reserve(int length) {
+      if (current == null || current.remaining() < length) {
+        current = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, length));
+        chunks.add(current);
+      }
+      chunkIds.add(chunks.size() - 1);
+      offsets.add(current.position());
+      lengths.add(length);
+      bytes += length;
+      return current;
+    }
+
+    private void index(List<String> keys) {
+      int i = offsets.size - 1;
+      for (String key : keys)
+        index.put(key, i);
+    }
+
+    @Override
+    public Builder<T> add(ByteBuf bb) throws IOException {
+      int length = bb.readableBytes();
+      reserve(length).put(bb.nioBuffer(bb.readerIndex(), length));
+      keys.clear();
+      try (JsonParser p = RawJson.TOKENIZER.createParser(new ByteBufInputStream(bb.duplicate()))) {
+        p.nextToken();
+        extractor.extract(p, keys);
+      }
+      index(keys);
+      return this;
+    }
+
+    /** Add a single element. */
+    public Builder<T> add(byte[] data, int offset, int length) throws IOException {
+      reserve(length).put(data, offset, length);
+      keys.clear();
+      RawJson.keys(extractor, data, offset, length, keys);
+      index(keys);
+      return this;
+    }
+
+    @Override
+    public Builder<T> addAll(byte[] json) throws IOException {
+      RawJson.split(json, this::add);
+      return this;
+    }
+
+    /**
+     * Copy the last chunk into a buffer of the size that is used. Otherwise a small collection
+     * would hold on to a full chunk of direct memory until the list is collected.
+     */
+    private void trim() {
+      if (current == null || current.remaining() == 0) return;
+      ByteBuffer used = current.duplicate();
+      used.flip();
+      ByteBuffer copy = ByteBuffer.allocateDirect(used.remaining());
+      copy.put(used);
+      chunks.set(chunks.size() - 1, copy);
+      current = copy;
+    }
+
+    @Override
+    public OffHeapList<T> build() {
+      trim();
+      return new OffHeapList<T>(this);
+    }
+  }
+}
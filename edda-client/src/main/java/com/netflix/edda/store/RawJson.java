@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/** Helpers for working with the raw json of the elements in an edda response. */
+public class RawJson {
+  private RawJson() {}
+
+  /** Factory used to tokenize the raw json, no objects are bound. */
+  static final JsonFactory TOKENIZER = new JsonFactory();
+
+  /** Receives the location of each element in a json array. */
+  public interface Sink {
+    void add(byte[] data, int offset, int length) throws IOException;
+  }
+
+  /** Find the bounds of each element in a json array without binding the elements. */
+  public static void split(byte[] json, Sink sink) throws IOException {
+    try (JsonParser p = TOKENIZER.createParser(json)) {
+      if (p.nextToken() != JsonToken.START_ARRAY)
+        throw new IOException("expected json array");
+      while (p.nextToken() != JsonToken.END_ARRAY) {
+        // The token location can include the separator and whitespace before the element
+        int start = (int) p.getTokenLocation().getByteOffset();
+        while (json[start] == ',' || Character.isWhitespace(json[start])) {
+          ++start;
+        }
+        if (p.getCurrentToken().isScalarValue()) {
+          // Scalars such as strings are parsed lazily, read the value so that the current
+          // location is at the end of the token
+          p.getText();
+        }
+        else {
+          p.skipChildren();
+        }
+        int end = (int) p.getCurrentLocation().getByteOffset();
+        sink.add(json, start, end - start);
+      }
+    }
+  }
+
+  /** Extract the keys for a single element. */
+  static void keys(KeyExtractor extractor, byte[] data, int offset, int length, Collection<String> keys)
+      throws IOException {
+    try (JsonParser p = TOKENIZER.createParser(data, offset, length)) {
+      p.nextToken();
+      extractor.extract(p, keys);
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.Arrays;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * Binary trie of IPv4 prefixes. Each prefix can have a value and a lookup walks at most 32
+ * nodes for the bits of the address, visiting the values of all prefixes that contain it.
+ * Nodes are kept in parallel arrays so lookups do not allocate. Not thread safe while being
+ * built, safe to share for reads after that.
+ */
+public final class CidrTrie<T> {
+
+  /** Parse a dotted quad IPv4 address, throws IllegalArgumentException if it is invalid. */
+  public static int parseAddress(String ip) {
+    long address = tryParseAddress(ip);
+    if (address < 0L)
+      throw new IllegalArgumentException("invalid IPv4 address: " + ip);
+    return (int) address;
+  }
+
+  /**
+   * Parse a dotted quad IPv4 address without allocating. Returns the unsigned address or -1 if
+   * it is invalid.
+   */
+  public static long tryParseAddress(String ip) {
+    long address = 0L;
+    int octet = -1;
+    int octets = 0;
+    for (int i = 0; i < ip.length(); ++i) {
+      char c = ip.charAt(i);
+      if (c >= '0' && c <= '9') {
+        octet = (octet < 0) ? c - '0' : octet * 10 + (c - '0');
+        if (octet > 255) return -1L;
+      }
+      else if (c == '.' && octet >= 0 && octets < 3) {
+        address = (address << 8) | octet;
+        octet = -1;
+        ++octets;
+      }
+      else {
+        return -1L;
+      }
+    }
+    if (octet < 0 || octets != 3) return -1L;
+    return (address << 8) | octet;
+  }
+
+  /** Returns true if the string is a dotted quad IPv4 address. */
+  public static boolean isAddress(String ip) {
+    return tryParseAddress(ip) >= 0L;
+  }
+
+  /** Format an address as a dotted quad. */
+  public static String formatAddress(int address) {
+    return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "."
+      + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+  }
+
+  private int[] zero;
+  private int[] one;
+  private Object[] values;
+  private int nodes;
+  private int size;
+
+  public CidrTrie() {
+    this(16);
+  }
+
+  public CidrTrie(int expected) {
+    int n = Math.max(16, expected * 2);
+    zero = new int[n];
+    one = new int[n];
+    values = new Object[n];
+    nodes = 1;
+  }
+
+  private int newNode() {
+    if (nodes == zero.length) {
+      int n = nodes * 2;
+      zero = Arrays.copyOf(zero, n);
+      one = Arrays.copyOf(one, n);
+      values = Arrays.copyOf(values, n);
+    }
+    return nodes++;
+  }
+
+  /**
+   * Set the value for a prefix in CIDR notation, e.g. 10.0.0.0/8. An address without a prefix
+   * length is treated as a /32. If the prefix already has a value, then the merge function is
+   * used to combine them.
+   */
+  public void put(String cidr, T value, BinaryOperator<T> merge) {
+    int pos = cidr.indexOf('/');
+    if (pos < 0) {
+      put(parseAddress(cidr), 32, value, merge);
+      return;
+    }
+    int length;
+    try {
+      length = Integer.parseInt(cidr.substring(pos + 1));
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid CIDR: " + cidr, e);
+    }
+    if (length < 0 || length > 32)
+      throw new IllegalArgumentException("invalid CIDR: " + cidr);
+    put(parseAddress(cidr.substring(0, pos)), length, value, merge);
+  }
+
+  /** Set the value for the first length bits of the address. */
+  @SuppressWarnings("unchecked")
+  public void put(int address, int length, T value, BinaryOperator<T> merge) {
+    int node = 0;
+    for (int i = 0; i < length; ++i) {
+      boolean bit = (address & (1 << (31 - i))) != 0;
+      int next = bit ? one[node] : zero[node];
+      if (next == 0) {
+        next = newNode();
+        if (bit) one[node] = next; else zero[node] = next;
+      }
+      node = next;
+    }
+    T prev = (T) values[node];
+    if (prev == null) ++size;
+    values[node] = (prev == null) ? value : merge.apply(prev, value);
+  }
+
+  /** Number of prefixes with a value. */
+  public int size() {
+    return size;
+  }
+
+  /** Value for the most specific prefix containing the address or null if none. */
+  @SuppressWarnings("unchecked")
+  public T longestMatch(int address) {
+    Object match = values[0];
+    int node = 0;
+    for (int i = 0; i < 32; ++i) {
+      node = ((address & (1 << (31 - i))) != 0) ? one[node] : zero[node];
+      if (node == 0) break;
+      if (values[node] != null) match = values[node];
+    }
+    return (T) match;
+  }
+
+  /** Check if the value for any prefix containing the address matches the predicate. */
+  @SuppressWarnings("unchecked")
+  public boolean anyMatch(int address, Predicate<? super T> p) {
+    int node = 0;
+    for (int i = 0; ; ++i) {
+      if (values[node] != null && p.test((T) values[node])) return true;
+      if (i == 32) return false;
+      node = ((address & (1 << (31 - i))) != 0) ? one[node] : zero[node];
+      if (node == 0) return false;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.Locale;
+
+public class DnsNames {
+  private DnsNames() {}
+
+  /**
+   * Normalize a name so it can be compared. Route53 returns names with a trailing dot and with
+   * a wildcard label escaped as {@code \052}.
+   */
+  public static String normalize(String name) {
+    if (name == null) return null;
+    String n = name.toLowerCase(Locale.US).replace("\\052", "*");
+    return (n.endsWith(".")) ? n.substring(0, n.length() - 1) : n;
+  }
+
+  /** Labels of the name from the root down, e.g. www.example.com. is [com, example, www]. */
+  public static String[] reversedLabels(String name) {
+    String n = normalize(name);
+    if (n == null || n.length() == 0) return new String[0];
+    String[] labels = n.split("\\.");
+    for (int i = 0, j = labels.length - 1; i < j; ++i, --j) {
+      String tmp = labels[i];
+      labels[i] = labels[j];
+      labels[j] = tmp;
+    }
+    return labels;
+  }
+
+  /** Compare names label by label from the root down, this is the order used by Route53. */
+  public static int compare(String a, String b) {
+    if (a == null || b == null) return (a == null) ? ((b == null) ? 0 : -1) : 1;
+    String[] as = reversedLabels(a);
+    String[] bs = reversedLabels(b);
+    int n = Math.min(as.length, bs.length);
+    for (int i = 0; i < n; ++i) {
+      int c = as[i].compareTo(bs[i]);
+      if (c != 0) return c;
+    }
+    return as.length - bs.length;
+  }
+}
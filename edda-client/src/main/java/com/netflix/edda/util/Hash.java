@@ -17,18 +17,29 @@ package com.netflix.edda.util;
 
 import java.math.BigInteger;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import io.netty.buffer.ByteBuf;
+
 public class Hash {
   private Hash() {}
 
+  private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+    @Override protected MessageDigest initialValue() { return newDigest("MD5"); }
+  };
+
+  private static final ThreadLocal<MessageDigest> SHA1 = new ThreadLocal<MessageDigest>() {
+    @Override protected MessageDigest initialValue() { return newDigest("SHA1"); }
+  };
+
   public static BigInteger md5(String input) throws UnsupportedEncodingException {
     return md5(input.getBytes("UTF-8"));
   }
 
   public static BigInteger md5(byte[] input) {
-    return computeHash("MD5", input);
+    return computeHash(MD5.get(), input);
   }
 
   public static BigInteger sha1(String input) throws UnsupportedEncodingException {
@@ -36,17 +47,214 @@ public class Hash {
   }
 
   public static BigInteger sha1(byte[] input) {
-    return computeHash("SHA1", input);
+    return computeHash(SHA1.get(), input);
+  }
+
+  /** 128-bit MurmurHash3 (x64 variant). Not suitable where a cryptographic hash is needed. */
+  public static BigInteger murmur3_128(byte[] input) {
+    return murmur3().update(input).digest();
+  }
+
+  /** Lower 64 bits of the 128-bit MurmurHash3, i.e., the first long of the output. */
+  public static long murmur3_64(byte[] input) {
+    return murmur3().update(input).digest64();
   }
 
-  private static BigInteger computeHash(String algorithm, byte[] bytes) {
+  /** Create an incremental MD5 hasher. */
+  public static Hasher md5() {
+    return new DigestHasher(newDigest("MD5"));
+  }
+
+  /** Create an incremental SHA1 hasher. */
+  public static Hasher sha1() {
+    return new DigestHasher(newDigest("SHA1"));
+  }
+
+  /** Create an incremental 128-bit MurmurHash3 hasher. */
+  public static Hasher murmur3() {
+    return new Murmur3Hasher();
+  }
+
+  private static MessageDigest newDigest(String algorithm) {
     try {
-      MessageDigest md = MessageDigest.getInstance(algorithm);
-      md.update(bytes);
-      return new BigInteger(1, md.digest());
+      return MessageDigest.getInstance(algorithm);
     }
     catch (NoSuchAlgorithmException e) {
       throw new RuntimeException("algorithm " + algorithm + " not found", e);
     }
   }
+
+  private static BigInteger computeHash(MessageDigest md, byte[] bytes) {
+    md.reset();
+    md.update(bytes);
+    return new BigInteger(1, md.digest());
+  }
+
+  /**
+   * Hash computed incrementally as data arrives. Updating with a buffer does not modify the
+   * position or reader index of the buffer. A hasher is not thread safe.
+   */
+  public static abstract class Hasher {
+    public abstract Hasher update(byte[] bytes, int offset, int length);
+
+    /** Hash of the data so far, does not reset the hasher. */
+    public abstract BigInteger digest();
+
+    /** 64-bit value of the hash, cheaper to store and compare than the full digest. */
+    public long digest64() {
+      return digest().longValue();
+    }
+
+    public Hasher update(byte[] bytes) {
+      return update(bytes, 0, bytes.length);
+    }
+
+    public Hasher update(ByteBuffer buffer) {
+      ByteBuffer b = buffer.duplicate();
+      if (b.hasArray())
+        return update(b.array(), b.arrayOffset() + b.position(), b.remaining());
+      byte[] tmp = new byte[Math.min(b.remaining(), 8192)];
+      while (b.hasRemaining()) {
+        int n = Math.min(tmp.length, b.remaining());
+        b.get(tmp, 0, n);
+        update(tmp, 0, n);
+      }
+      return this;
+    }
+
+    public Hasher update(ByteBuf buf) {
+      int n = buf.readableBytes();
+      if (buf.hasArray())
+        return update(buf.array(), buf.arrayOffset() + buf.readerIndex(), n);
+      for (ByteBuffer b : buf.nioBuffers(buf.readerIndex(), n))
+        update(b);
+      return this;
+    }
+  }
+
+  private static final class DigestHasher extends Hasher {
+    private final MessageDigest md;
+
+    DigestHasher(MessageDigest md) {
+      this.md = md;
+    }
+
+    @Override public Hasher update(byte[] bytes, int offset, int length) {
+      md.update(bytes, offset, length);
+      return this;
+    }
+
+    @Override public BigInteger digest() {
+      try {
+        return new BigInteger(1, ((MessageDigest) md.clone()).digest());
+      }
+      catch (CloneNotSupportedException e) {
+        throw new IllegalStateException("digest cannot be cloned: " + md.getAlgorithm(), e);
+      }
+    }
+  }
+
+  private static final class Murmur3Hasher extends Hasher {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final byte[] tail = new byte[16];
+    private int tailLength = 0;
+    private long length = 0L;
+    private long h1 = 0L;
+    private long h2 = 0L;
+
+    private static long getLong(byte[] b, int i) {
+      return (b[i] & 0xFFL)
+        | (b[i + 1] & 0xFFL) << 8
+        | (b[i + 2] & 0xFFL) << 16
+        | (b[i + 3] & 0xFFL) << 24
+        | (b[i + 4] & 0xFFL) << 32
+        | (b[i + 5] & 0xFFL) << 40
+        | (b[i + 6] & 0xFFL) << 48
+        | (b[i + 7] & 0xFFL) << 56;
+    }
+
+    private static long mixK1(long k1) {
+      return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2) {
+      return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix(long k) {
+      k ^= k >>> 33;
+      k *= 0xff51afd7ed558ccdL;
+      k ^= k >>> 33;
+      k *= 0xc4ceb9fe1a85ec53L;
+      k ^= k >>> 33;
+      return k;
+    }
+
+    private void block(byte[] b, int i) {
+      h1 ^= mixK1(getLong(b, i));
+      h1 = Long.rotateLeft(h1, 27) + h2;
+      h1 = h1 * 5 + 0x52dce729;
+      h2 ^= mixK2(getLong(b, i + 8));
+      h2 = Long.rotateLeft(h2, 31) + h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    @Override public Hasher update(byte[] bytes, int offset, int len) {
+      length += len;
+      int i = offset;
+      int end = offset + len;
+      if (tailLength > 0) {
+        int n = Math.min(16 - tailLength, len);
+        System.arraycopy(bytes, i, tail, tailLength, n);
+        tailLength += n;
+        i += n;
+        if (tailLength < 16) return this;
+        block(tail, 0);
+        tailLength = 0;
+      }
+      for (; end - i >= 16; i += 16)
+        block(bytes, i);
+      if (i < end) {
+        System.arraycopy(bytes, i, tail, 0, end - i);
+        tailLength = end - i;
+      }
+      return this;
+    }
+
+    private long[] finish() {
+      long k1 = 0L;
+      long k2 = 0L;
+      for (int i = tailLength - 1; i >= 8; --i)
+        k2 = (k2 << 8) | (tail[i] & 0xFFL);
+      for (int i = Math.min(tailLength, 8) - 1; i >= 0; --i)
+        k1 = (k1 << 8) | (tail[i] & 0xFFL);
+      long r1 = h1 ^ ((tailLength > 0) ? mixK1(k1) : 0L);
+      long r2 = h2 ^ ((tailLength > 8) ? mixK2(k2) : 0L);
+      r1 ^= length;
+      r2 ^= length;
+      r1 += r2;
+      r2 += r1;
+      r1 = fmix(r1);
+      r2 = fmix(r2);
+      r1 += r2;
+      r2 += r1;
+      return new long[] {r1, r2};
+    }
+
+    @Override public BigInteger digest() {
+      long[] h = finish();
+      byte[] bytes = new byte[16];
+      for (int i = 0; i < 8; ++i) {
+        bytes[i] = (byte) (h[0] >>> (56 - 8 * i));
+        bytes[i + 8] = (byte) (h[1] >>> (56 - 8 * i));
+      }
+      return new BigInteger(1, bytes);
+    }
+
+    @Override public long digest64() {
+      return finish()[0];
+    }
+  }
 }
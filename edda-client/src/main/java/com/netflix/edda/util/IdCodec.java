@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+/**
+ * Packs AWS resource ids such as {@code i-0123456789abcdef0} or {@code sg-1234abcd} into a long.
+ * The ids are a prefix, a dash, and either 8 or 17 lower case hex digits. A codec is for a
+ * single prefix and only the hex digits are encoded:
+ *
+ * <ul>
+ *   <li>Short ids with 8 digits are stored in the range {@code [0, 2^32)}.</li>
+ *   <li>Long ids with 17 digits must start with {@code 0}, the other 16 digits fill the long.
+ *       The few long ids that would fall in the range used for short ids or that would be
+ *       equal to {@link #NONE} cannot be encoded.</li>
+ * </ul>
+ *
+ * Ids that cannot be encoded, including ids with a different prefix, should be kept as strings
+ * by the caller. See {@link IdIndex} and {@link IdSet}.
+ */
+public final class IdCodec {
+
+  /** Returned by {@link #encode(String)} if the id cannot be encoded. */
+  public static final long NONE = -1L;
+
+  private static final int SHORT_DIGITS = 8;
+  private static final int LONG_DIGITS = 17;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * Return the codec for the prefix of the id or null if the id does not look like an AWS
+   * resource id.
+   */
+  public static IdCodec forId(String id) {
+    if (id == null) return null;
+    int dash = id.indexOf('-');
+    if (dash <= 0) return null;
+    IdCodec codec = new IdCodec(id.substring(0, dash));
+    return (codec.encode(id) == NONE) ? null : codec;
+  }
+
+  /** Create a codec for ids with the prefix, e.g. {@code i} for instances. */
+  public static IdCodec of(String prefix) {
+    return new IdCodec(prefix);
+  }
+
+  private final String prefix;
+
+  private IdCodec(String prefix) {
+    this.prefix = prefix + "-";
+  }
+
+  /** Prefix of the ids including the dash. */
+  public String prefix() {
+    return prefix;
+  }
+
+  /** Encode the id or return {@link #NONE} if it cannot be encoded with this codec. */
+  public long encode(String id) {
+    if (id == null || !id.startsWith(prefix)) return NONE;
+    int start = prefix.length();
+    int n = id.length() - start;
+    if (n == SHORT_DIGITS) {
+      return parseHex(id, start, id.length());
+    }
+    else if (n == LONG_DIGITS && id.charAt(start) == '0') {
+      long v = parseHex(id, start + 1, id.length());
+      return (v == NONE || (v >>> 32) == 0L) ? NONE : v;
+    }
+    return NONE;
+  }
+
+  /** Decode a value returned by {@link #encode(String)}. */
+  public String decode(long code) {
+    if (code == NONE)
+      throw new IllegalArgumentException("invalid code: " + code);
+    boolean isShort = (code >>> 32) == 0L;
+    int digits = isShort ? SHORT_DIGITS : LONG_DIGITS - 1;
+    char[] cs = new char[prefix.length() + (isShort ? SHORT_DIGITS : LONG_DIGITS)];
+    prefix.getChars(0, prefix.length(), cs, 0);
+    int pos = prefix.length();
+    if (!isShort) cs[pos++] = '0';
+    for (int i = digits - 1; i >= 0; --i)
+      cs[pos++] = HEX[(int) (code >>> (4 * i)) & 0xF];
+    return new String(cs);
+  }
+
+  /** Parse lower case hex digits, returns NONE if there are other characters. */
+  private static long parseHex(String s, int start, int end) {
+    long v = 0L;
+    for (int i = start; i < end; ++i) {
+      char c = s.charAt(i);
+      int d;
+      if (c >= '0' && c <= '9') d = c - '0';
+      else if (c >= 'a' && c <= 'f') d = c - 'a' + 10;
+      else return NONE;
+      v = (v << 4) | d;
+    }
+    return v;
+  }
+
+  @Override
+  public String toString() {
+    return "IdCodec(" + prefix + ")";
+  }
+}
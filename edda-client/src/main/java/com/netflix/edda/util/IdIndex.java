@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map from resource ids to int positions. Ids that can be packed with the {@link IdCodec} for
+ * the prefix of the first id added are stored in a {@link LongIntMap}, others such as names or
+ * ids with a different prefix fall back to a hash map of strings. Lookups of encoded ids do not
+ * allocate. Not thread safe while being built, safe to share for reads after that.
+ */
+public final class IdIndex {
+  private final LongIntMap codes;
+  private IdCodec codec;
+  private Map<String, Integer> others;
+
+  public IdIndex() {
+    this(16);
+  }
+
+  public IdIndex(int expected) {
+    codes = new LongIntMap(expected, -1);
+  }
+
+  private long encode(String id, boolean adding) {
+    if (codec == null && adding) codec = IdCodec.forId(id);
+    return (codec == null) ? IdCodec.NONE : codec.encode(id);
+  }
+
+  /** Set the position for the id, the position must not be negative. */
+  public void put(String id, int i) {
+    long code = encode(id, true);
+    if (code != IdCodec.NONE) {
+      codes.put(code, i);
+    }
+    else {
+      if (others == null) others = new HashMap<String, Integer>();
+      others.put(id, i);
+    }
+  }
+
+  /** Return the position for the id or -1 if it is not in the index. */
+  public int get(String id) {
+    long code = encode(id, false);
+    if (code != IdCodec.NONE)
+      return codes.get(code);
+    Integer i = (others == null || id == null) ? null : others.get(id);
+    return (i == null) ? -1 : i;
+  }
+
+  public boolean containsKey(String id) {
+    return get(id) >= 0;
+  }
+
+  public int size() {
+    return codes.size() + ((others == null) ? 0 : others.size());
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of resource ids. Ids that can be packed with the {@link IdCodec} for the prefix of the
+ * first id added are stored in a {@link LongSet}, others fall back to a set of strings. Lookups
+ * of encoded ids do not allocate. Not thread safe while being built, safe to share for reads
+ * after that.
+ */
+public final class IdSet {
+
+  /** Create a set with the ids. */
+  public static IdSet of(Collection<String> ids) {
+    IdSet set = new IdSet(ids.size());
+    for (String id : ids)
+      set.add(id);
+    return set;
+  }
+
+  private final LongSet codes;
+  private IdCodec codec;
+  private Set<String> others;
+
+  public IdSet() {
+    this(16);
+  }
+
+  public IdSet(int expected) {
+    codes = new LongSet(expected);
+  }
+
+  private long encode(String id, boolean adding) {
+    if (codec == null && adding) codec = IdCodec.forId(id);
+    return (codec == null) ? IdCodec.NONE : codec.encode(id);
+  }
+
+  /** Add the id, returns true if it was not already in the set. */
+  public boolean add(String id) {
+    long code = encode(id, true);
+    if (code != IdCodec.NONE) {
+      int n = codes.size();
+      return codes.add(code) == n;
+    }
+    if (others == null) others = new LinkedHashSet<String>();
+    return others.add(id);
+  }
+
+  public boolean contains(String id) {
+    long code = encode(id, false);
+    if (code != IdCodec.NONE)
+      return codes.contains(code);
+    return others != null && others.contains(id);
+  }
+
+  public int size() {
+    return codes.size() + ((others == null) ? 0 : others.size());
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Return the ids as a list. Encoded ids come first in the order they were added followed by
+   * the other ids in the order they were added.
+   */
+  public List<String> toList() {
+    List<String> ids = new ArrayList<String>(size());
+    for (int i = 0; i < codes.size(); ++i)
+      ids.add(codec.decode(codes.get(i)));
+    if (others != null)
+      ids.addAll(others);
+    return ids;
+  }
+
+  @Override
+  public String toString() {
+    return toList().toString();
+  }
+}
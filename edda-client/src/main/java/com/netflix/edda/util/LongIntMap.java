@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+/**
+ * Map from primitive long keys to int values using open addressing with linear probing. Lookups
+ * do not allocate. Entries cannot be removed. Not thread safe.
+ */
+public final class LongIntMap {
+  private final int missing;
+  private long[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int size;
+
+  /**
+   * Create a new map.
+   *
+   * @param expected
+   *     Expected number of entries, the map will grow if needed.
+   * @param missing
+   *     Value returned by {@link #get(long)} for keys that are not in the map.
+   */
+  public LongIntMap(int expected, int missing) {
+    this.missing = missing;
+    int n = 8;
+    while (n < expected * 2) n <<= 1;
+    keys = new long[n];
+    values = new int[n];
+    used = new boolean[n];
+  }
+
+  private static int slot(long[] ks, boolean[] us, long k) {
+    int mask = ks.length - 1;
+    int i = LongSet.mix(k) & mask;
+    while (us[i] && ks[i] != k)
+      i = (i + 1) & mask;
+    return i;
+  }
+
+  /** Return the value for the key or the missing value. */
+  public int get(long k) {
+    int i = slot(keys, used, k);
+    return used[i] ? values[i] : missing;
+  }
+
+  public boolean containsKey(long k) {
+    return used[slot(keys, used, k)];
+  }
+
+  /** Set the value for the key, returns the previous value or the missing value. */
+  public int put(long k, int v) {
+    int i = slot(keys, used, k);
+    if (used[i]) {
+      int prev = values[i];
+      values[i] = v;
+      return prev;
+    }
+    keys[i] = k;
+    values[i] = v;
+    used[i] = true;
+    if (++size * 2 > keys.length) resize();
+    return missing;
+  }
+
+  private void resize() {
+    long[] ks = new long[keys.length * 2];
+    int[] vs = new int[ks.length];
+    boolean[] us = new boolean[ks.length];
+    for (int i = 0; i < keys.length; ++i) {
+      if (used[i]) {
+        int j = slot(ks, us, keys[i]);
+        ks[j] = keys[i];
+        vs[j] = values[i];
+        us[j] = true;
+      }
+    }
+    keys = ks;
+    values = vs;
+    used = us;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder().append('{');
+    for (int i = 0; i < keys.length; ++i) {
+      if (used[i]) {
+        if (buf.length() > 1) buf.append(", ");
+        buf.append(keys[i]).append('=').append(values[i]);
+      }
+    }
+    return buf.append('}').toString();
+  }
+}
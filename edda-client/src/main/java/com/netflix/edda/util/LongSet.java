@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs using open addressing. The values are kept in a dense array in the
+ * order they were added, so each value has a stable position that can be used as a row number
+ * and the hash table only stores the positions. Lookups do not allocate. Values cannot be
+ * removed. Not thread safe.
+ */
+public final class LongSet {
+  private long[] values;
+  private int[] table;
+  private int size;
+
+  public LongSet() {
+    this(16);
+  }
+
+  public LongSet(int expected) {
+    values = new long[Math.max(expected, 4)];
+    table = new int[tableSize(expected)];
+  }
+
+  private static int tableSize(int expected) {
+    int n = 8;
+    while (n < expected * 2) n <<= 1;
+    return n;
+  }
+
+  static int mix(long v) {
+    v ^= v >>> 33;
+    v *= 0xff51afd7ed558ccdL;
+    v ^= v >>> 33;
+    return (int) v;
+  }
+
+  /** Slot in the table for the value, either the slot with the value or an empty slot. */
+  private int slot(int[] t, long v) {
+    int mask = t.length - 1;
+    int i = mix(v) & mask;
+    while (t[i] != 0 && values[t[i] - 1] != v)
+      i = (i + 1) & mask;
+    return i;
+  }
+
+  /** Return the position of the value or -1 if it is not in the set. */
+  public int indexOf(long v) {
+    return table[slot(table, v)] - 1;
+  }
+
+  public boolean contains(long v) {
+    return indexOf(v) >= 0;
+  }
+
+  /**
+   * Add the value if it is not already present. Returns the position of the value, the
+   * position of a new value is the size of the set before it was added.
+   */
+  public int add(long v) {
+    int i = slot(table, v);
+    if (table[i] != 0) return table[i] - 1;
+    if (size == values.length)
+      values = Arrays.copyOf(values, size * 2);
+    values[size++] = v;
+    table[i] = size;
+    if (size * 2 > table.length) resize();
+    return size - 1;
+  }
+
+  private void resize() {
+    int[] t = new int[table.length * 2];
+    for (int p = 0; p < size; ++p)
+      t[slot(t, values[p])] = p + 1;
+    table = t;
+  }
+
+  /** Value at the position. */
+  public long get(int i) {
+    if (i < 0 || i >= size)
+      throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+    return values[i];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Copy of the values in the order they were added. */
+  public long[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash array mapped trie. Updates return a new map that shares all nodes that are not
+ * on the path to the modified key, so changing k entries of a map with n entries allocates
+ * O(k log32 n) nodes and older versions remain valid. Values are compared by identity when
+ * computing a diff so unchanged entries should reuse the same value instance.
+ */
+public final class PersistentMap<K, V> {
+  /** Receives the differences between two versions of a map. */
+  public interface Differ<K, V> {
+    void added(K key, V value);
+    void removed(K key, V value);
+    void changed(K key, V oldValue, V newValue);
+  }
+
+  private static final PersistentMap<Object, Object> EMPTY = new PersistentMap<Object, Object>(null, 0);
+
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentMap<K, V> empty() {
+    return (PersistentMap<K, V>) EMPTY;
+  }
+
+  private final Node root;
+  private final int size;
+
+  private PersistentMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(K key) {
+    return (root == null) ? null : (V) root.find(0, hash(key), key);
+  }
+
+  public boolean containsKey(K key) {
+    return get(key) != null;
+  }
+
+  /** Return a map with the key set to the value. Null values are not supported. */
+  public PersistentMap<K, V> plus(K key, V value) {
+    if (value == null) throw new NullPointerException("value");
+    boolean[] added = new boolean[1];
+    Node r = (root == null) ? BitmapNode.EMPTY : root;
+    Node n = r.put(0, hash(key), key, value, added);
+    return (n == root) ? this : new PersistentMap<K, V>(n, added[0] ? size + 1 : size);
+  }
+
+  /** Return a map without the key. */
+  public PersistentMap<K, V> minus(K key) {
+    if (root == null) return this;
+    Node n = root.remove(0, hash(key), key);
+    return (n == root) ? this : new PersistentMap<K, V>(n, size - 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super V> f) {
+    if (root != null) root.forEach((BiConsumer<Object, Object>) f);
+  }
+
+  public List<K> keys() {
+    List<K> keys = new ArrayList<K>(size);
+    forEach((k, v) -> keys.add(k));
+    return keys;
+  }
+
+  public List<V> values() {
+    List<V> values = new ArrayList<V>(size);
+    forEach((k, v) -> values.add(v));
+    return values;
+  }
+
+  /**
+   * Compute the differences from this map to a newer version. Subtrees that are shared between
+   * the versions are skipped, so the cost is proportional to the number of changes when the newer
+   * version was derived from this one.
+   */
+  @SuppressWarnings("unchecked")
+  public void diff(PersistentMap<K, V> newer, Differ<K, V> differ) {
+    diff(root, newer.root, 0, (Differ<Object, Object>) differ);
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & 0x1F);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Diff
+
+  private static void diff(Node a, Node b, int shift, Differ<Object, Object> differ) {
+    if (a == b) return;
+    if (a == null) {
+      b.forEach(differ::added);
+    }
+    else if (b == null) {
+      a.forEach(differ::removed);
+    }
+    else if (a instanceof BitmapNode && b instanceof BitmapNode) {
+      BitmapNode x = (BitmapNode) a;
+      BitmapNode y = (BitmapNode) b;
+      int bits = x.bitmap | y.bitmap;
+      while (bits != 0) {
+        int bit = Integer.lowestOneBit(bits);
+        bits &= ~bit;
+        Object[] sx = x.slot(bit);
+        Object[] sy = y.slot(bit);
+        if (sx != null && sy != null && sx[0] == null && sy[0] == null)
+          diff((Node) sx[1], (Node) sy[1], shift + 5, differ);
+        else
+          diffEntries(entries(sx), entries(sy), differ);
+      }
+    }
+    else {
+      Map<Object, Object> xs = new HashMap<Object, Object>();
+      a.forEach(xs::put);
+      Map<Object, Object> ys = new HashMap<Object, Object>();
+      b.forEach(ys::put);
+      diffEntries(xs, ys, differ);
+    }
+  }
+
+  private static Map<Object, Object> entries(Object[] slot) {
+    Map<Object, Object> entries = new HashMap<Object, Object>();
+    if (slot == null) return entries;
+    if (slot[0] == null)
+      ((Node) slot[1]).forEach(entries::put);
+    else
+      entries.put(slot[0], slot[1]);
+    return entries;
+  }
+
+  private static void diffEntries(Map<Object, Object> xs, Map<Object, Object> ys, Differ<Object, Object> differ) {
+    for (Map.Entry<Object, Object> e : xs.entrySet()) {
+      Object y = ys.get(e.getKey());
+      if (y == null)
+        differ.removed(e.getKey(), e.getValue());
+      else if (y != e.getValue())
+        differ.changed(e.getKey(), e.getValue(), y);
+    }
+    for (Map.Entry<Object, Object> e : ys.entrySet()) {
+      if (!xs.containsKey(e.getKey()))
+        differ.added(e.getKey(), e.getValue());
+    }
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // Nodes
+
+  private static abstract class Node {
+    abstract Object find(int shift, int hash, Object key);
+
+    abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+    /** Returns the same node if the key is not present, or null if the node is now empty. */
+    abstract Node remove(int shift, int hash, Object key);
+
+    abstract void forEach(BiConsumer<Object, Object> f);
+  }
+
+  private static Node createNode(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+    int h1 = hash(k1);
+    if (h1 == h2)
+      return new CollisionNode(h1, new Object[] {k1, v1, k2, v2});
+    boolean[] added = new boolean[1];
+    return BitmapNode.EMPTY
+      .put(shift, h1, k1, v1, added)
+      .put(shift, h2, k2, v2, added);
+  }
+
+  /**
+   * Node with up to 32 slots indexed by 5 bits of the hash. Each slot is a pair in the array
+   * that is either a key and value, or null and a child node.
+   */
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    final int bitmap;
+    final Object[] array;
+
+    BitmapNode(int bitmap, Object[] array) {
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    Object[] slot(int bit) {
+      if ((bitmap & bit) == 0) return null;
+      int i = 2 * index(bit);
+      return new Object[] {array[i], array[i + 1]};
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) return null;
+      int i = 2 * index(bit);
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) return ((Node) v).find(shift + 5, hash, key);
+      return key.equals(k) ? v : null;
+    }
+
+    private BitmapNode set(int i, Object k, Object v) {
+      Object[] copy = array.clone();
+      copy[i] = k;
+      copy[i + 1] = v;
+      return new BitmapNode(bitmap, copy);
+    }
+
+    @Override
+    Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+      int bit = bit(hash, shift);
+      int i = 2 * index(bit);
+      if ((bitmap & bit) == 0) {
+        Object[] copy = new Object[array.length + 2];
+        System.arraycopy(array, 0, copy, 0, i);
+        copy[i] = key;
+        copy[i + 1] = value;
+        System.arraycopy(array, i, copy, i + 2, array.length - i);
+        added[0] = true;
+        return new BitmapNode(bitmap | bit, copy);
+      }
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) {
+        Node n = ((Node) v).put(shift + 5, hash, key, value, added);
+        return (n == v) ? this : set(i, null, n);
+      }
+      if (key.equals(k))
+        return (value == v) ? this : set(i, k, value);
+      added[0] = true;
+      return set(i, null, createNode(shift + 5, k, v, hash, key, value));
+    }
+
+    @Override
+    Node remove(int shift, int hash, Object key) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) return this;
+      int i = 2 * index(bit);
+      Object k = array[i];
+      Object v = array[i + 1];
+      if (k == null) {
+        Node n = ((Node) v).remove(shift + 5, hash, key);
+        if (n == v) return this;
+        if (n != null) return set(i, null, n);
+      }
+      else if (!key.equals(k)) {
+        return this;
+      }
+      if (bitmap == bit) return null;
+      Object[] copy = new Object[array.length - 2];
+      System.arraycopy(array, 0, copy, 0, i);
+      System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+      return new BitmapNode(bitmap & ~bit, copy);
+    }
+
+    @Override
+    void forEach(BiConsumer<Object, Object> f) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (array[i] == null)
+          ((Node) array[i + 1]).forEach(f);
+        else
+          f.accept(array[i], array[i + 1]);
+      }
+    }
+  }
+
+  /** Node for keys where the full hash is the same. */
+  private static final class CollisionNode extends Node {
+    final int hash;
+    final Object[] array;
+
+    CollisionNode(int hash, Object[] array) {
+      this.hash = hash;
+      this.array = array;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) return i;
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int i = indexOf(key);
+      return (i < 0) ? null : array[i + 1];
+    }
+
+    @Override
+    Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+      if (hash != this.hash) {
+        BitmapNode n = new BitmapNode(bit(this.hash, shift), new Object[] {null, this});
+        return n.put(shift, hash, key, value, added);
+      }
+      int i = indexOf(key);
+      if (i >= 0) {
+        if (array[i + 1] == value) return this;
+        Object[] copy = array.clone();
+        copy[i + 1] = value;
+        return new CollisionNode(hash, copy);
+      }
+      Object[] copy = new Object[array.length + 2];
+      System.arraycopy(array, 0, copy, 0, array.length);
+      copy[array.length] = key;
+      copy[array.length + 1] = value;
+      added[0] = true;
+      return new CollisionNode(hash, copy);
+    }
+
+    @Override
+    Node remove(int shift, int hash, Object key) {
+      int i = indexOf(key);
+      if (i < 0) return this;
+      if (array.length == 2) return null;
+      Object[] copy = new Object[array.length - 2];
+      System.arraycopy(array, 0, copy, 0, i);
+      System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+      return new CollisionNode(hash, copy);
+    }
+
+    @Override
+    void forEach(BiConsumer<Object, Object> f) {
+      for (int i = 0; i < array.length; i += 2)
+        f.accept(array[i], array[i + 1]);
+    }
+  }
+}
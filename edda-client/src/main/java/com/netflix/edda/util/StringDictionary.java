@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for strings. Each distinct value is assigned a dense int code in the order
+ * it was first added. Code -1 is used for null. The dictionary is built by a single thread and
+ * is read only once it is shared.
+ */
+public class StringDictionary {
+  private final Map<String, Integer> codes = new HashMap<String, Integer>();
+  private String[] values = new String[16];
+  private int size = 0;
+
+  /** Add a value if not already present and return its code. */
+  public int add(String value) {
+    if (value == null) return -1;
+    Integer code = codes.get(value);
+    if (code != null) return code;
+    if (size == values.length) values = Arrays.copyOf(values, size * 2);
+    values[size] = value;
+    codes.put(value, size);
+    return size++;
+  }
+
+  /** Return the code for the value or -1 if it is not in the dictionary. */
+  public int code(String value) {
+    if (value == null) return -1;
+    Integer code = codes.get(value);
+    return (code == null) ? -1 : code;
+  }
+
+  /** Return the value for the code. */
+  public String value(int code) {
+    return (code < 0) ? null : values[code];
+  }
+
+  public int size() {
+    return size;
+  }
+}
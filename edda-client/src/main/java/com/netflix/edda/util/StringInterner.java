@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded table of canonical string instances. Unlike {@link String#intern()} the table is
+ * owned by the application, when it fills up it is cleared so values that are no longer in use
+ * do not accumulate.
+ */
+public class StringInterner {
+  private final int maxSize;
+  private final ConcurrentHashMap<String, String> table;
+
+  public StringInterner(int maxSize) {
+    this.maxSize = maxSize;
+    this.table = new ConcurrentHashMap<String, String>(Math.min(maxSize, 4096));
+  }
+
+  /** Return the canonical instance equal to the string. */
+  public String intern(String s) {
+    if (s == null) return null;
+    String v = table.get(s);
+    if (v != null) return v;
+    if (table.size() >= maxSize) table.clear();
+    v = table.putIfAbsent(s, s);
+    return (v == null) ? s : v;
+  }
+
+  public int size() {
+    return table.size();
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.autoscaling.model.DescribeAutoScalingGroupsRequest;
+import com.amazonaws.services.autoscaling.model.DescribeAutoScalingGroupsResult;
+import com.amazonaws.services.autoscaling.model.LaunchConfiguration;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import com.netflix.edda.index.ListIndex;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class AutoScalingClientTests {
+  private static final String ASG_PATH = "aws/autoScalingGroups;_expand";
+  private static final String LC_PATH = "aws/launchConfigurations;_expand";
+
+  private static String group(String name, String lc) {
+    return "{\"autoScalingGroupName\":\"" + name + "\",\"launchConfigurationName\":\"" + lc + "\","
+      + "\"instances\":[]}";
+  }
+
+  private static final String GROUPS = "["
+    + group("app-v001", "app-v001-lc") + ","
+    + group("app-v002", "app-v002-lc") + ","
+    + group("other-v001", "app-v001-lc") + "]";
+
+  private static final String LAUNCH_CONFIGURATIONS =
+    "[{\"launchConfigurationName\":\"app-v001-lc\"},{\"launchConfigurationName\":\"app-v002-lc\"}]";
+
+  private static EddaAutoScalingClient client(FakeEdda edda) {
+    return new EddaAutoScalingClient(TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        return edda.get(uri);
+      }
+    };
+  }
+
+  private static EddaAutoScalingRxNettyClient rxClient(FakeEdda edda) {
+    return new EddaAutoScalingRxNettyClient(TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return edda.content(uri);
+      }
+    };
+  }
+
+  private static FakeEdda edda() {
+    return new FakeEdda().put(ASG_PATH, GROUPS).put(LC_PATH, LAUNCH_CONFIGURATIONS);
+  }
+
+  @Test
+  public void describeAutoScalingGroupsByName() {
+    EddaAutoScalingClient client = client(edda());
+    DescribeAutoScalingGroupsRequest request = new DescribeAutoScalingGroupsRequest()
+      .withAutoScalingGroupNames("other-v001", "app-v001", "unknown");
+    DescribeAutoScalingGroupsResult result = client.describeAutoScalingGroups(request);
+    List<AutoScalingGroup> groups = result.getAutoScalingGroups();
+    assertEquals(2, groups.size());
+    assertEquals("app-v001", groups.get(0).getAutoScalingGroupName());
+    assertEquals("other-v001", groups.get(1).getAutoScalingGroupName());
+  }
+
+  @Test
+  public void indexReusedForSameResponse() throws IOException {
+    FakeEdda edda = edda();
+    EddaAutoScalingClient client = client(edda);
+    TypeReference<List<AutoScalingGroup>> ref = new TypeReference<List<AutoScalingGroup>>() {};
+    String url = "http://localhost/api/v2/" + ASG_PATH;
+    ListIndex.Cached<AutoScalingGroup> byName =
+      ListIndex.cached(AutoScalingGroup::getAutoScalingGroupName);
+
+    Snapshot<AutoScalingGroup> s1 = client.doGetSnapshot(ref, url, null, null);
+    Snapshot<AutoScalingGroup> s2 = client.doGetSnapshot(ref, url, null, null);
+    assertNotSame(s1.getItems(), s2.getItems());
+    assertEquals(s1.getHash(), s2.getHash());
+    ListIndex<AutoScalingGroup> idx = byName.get(s1);
+    assertSame(idx, byName.get(s2));
+    assertEquals(2, edda.count(ASG_PATH));
+
+    edda.put(ASG_PATH, "[" + group("app-v003", "app-v001-lc") + "]");
+    ListIndex<AutoScalingGroup> updated = byName.get(client.doGetSnapshot(ref, url, null, null));
+    assertNotSame(idx, updated);
+    assertTrue(updated.containsKey("app-v003"));
+    assertFalse(updated.containsKey("app-v001"));
+  }
+
+  @Test
+  public void rxSnapshotHasHash() {
+    FakeEdda edda = edda();
+    EddaAutoScalingRxNettyClient client = rxClient(edda);
+    TypeReference<AutoScalingGroup> ref = new TypeReference<AutoScalingGroup>() {};
+    String url = "http://localhost/api/v2/" + ASG_PATH;
+    Snapshot<AutoScalingGroup> s1 = client.doGetSnapshot(ref, url, null, null)
+      .toBlocking().single();
+    Snapshot<AutoScalingGroup> s2 = client.doGetSnapshot(ref, url, null, null)
+      .toBlocking().single();
+    assertNotNull(s1.getHash());
+    assertEquals(s1.getHash(), s2.getHash());
+    assertEquals(3, s2.getItems().size());
+  }
+
+  @Test
+  public void launchConfigurationsByGroup() {
+    Map<String, LaunchConfiguration> lcs = client(edda())
+      .getLaunchConfigurationsByGroup(Arrays.asList("app-v002", "other-v001"));
+    assertEquals(Arrays.asList("app-v002", "other-v001"), Arrays.asList(lcs.keySet().toArray()));
+    assertEquals("app-v002-lc", lcs.get("app-v002").getLaunchConfigurationName());
+    assertEquals("app-v001-lc", lcs.get("other-v001").getLaunchConfigurationName());
+  }
+
+  @Test
+  public void rxLaunchConfigurationsByGroup() {
+    Map<String, LaunchConfiguration> lcs = rxClient(edda())
+      .getLaunchConfigurationsByGroup(null)
+      .toBlocking().single();
+    assertEquals(3, lcs.size());
+    assertSame(lcs.get("app-v001"), lcs.get("other-v001"));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
+
+import com.amazonaws.services.cloudwatch.model.DescribeAlarmsRequest;
+import com.amazonaws.services.cloudwatch.model.MetricAlarm;
+
+import com.netflix.edda.index.AlarmIndex;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class CloudWatchClientTests {
+  private static final String PATH = "aws/alarms;_expand";
+
+  private static String alarms(String... names) {
+    StringBuilder buf = new StringBuilder("[");
+    for (String name : names) {
+      if (buf.length() > 1) buf.append(',');
+      buf.append("{\"alarmName\":\"").append(name).append("\",\"stateValue\":\"OK\"}");
+    }
+    return buf.append(']').toString();
+  }
+
+  private static EddaCloudWatchClient client(FakeEdda edda) {
+    return new EddaCloudWatchClient(TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        return edda.get(uri);
+      }
+    };
+  }
+
+  private static EddaCloudWatchRxNettyClient rxClient(FakeEdda edda) {
+    return new EddaCloudWatchRxNettyClient(TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return edda.content(uri);
+      }
+    };
+  }
+
+  private static List<MetricAlarm> describe(EddaCloudWatchClient client, String prefix) {
+    return client.describeAlarms(new DescribeAlarmsRequest().withAlarmNamePrefix(prefix))
+      .getMetricAlarms();
+  }
+
+  private static AlarmIndex describe(EddaCloudWatchRxNettyClient client, String prefix) {
+    client.describeAlarms(new DescribeAlarmsRequest().withAlarmNamePrefix(prefix))
+      .toBlocking()
+      .single();
+    return client.alarmIndex.getLast();
+  }
+
+  @Test
+  public void indexReusedWhileResponseUnchanged() {
+    FakeEdda edda = new FakeEdda().put(PATH, alarms("a1", "a2", "b1"));
+    EddaCloudWatchClient client = client(edda);
+    assertEquals(2, describe(client, "a").size());
+    AlarmIndex index = client.alarmIndex.getLast();
+    assertEquals(1, describe(client, "b").size());
+    assertSame(index, client.alarmIndex.getLast());
+    assertEquals(2, edda.count(PATH));
+
+    edda.put(PATH, alarms("a1", "b1", "b2"));
+    assertEquals(2, describe(client, "b").size());
+    assertNotSame(index, client.alarmIndex.getLast());
+    assertEquals(3, edda.count(PATH));
+  }
+
+  @Test
+  public void rxIndexReusedWhileResponseUnchanged() {
+    FakeEdda edda = new FakeEdda().put(PATH, alarms("a1", "a2", "b1"));
+    EddaCloudWatchRxNettyClient client = rxClient(edda);
+    AlarmIndex index = describe(client, "a");
+    assertEquals(2, index.getByNamePrefix("a").size());
+    assertSame(index, describe(client, "b"));
+    assertEquals(2, edda.count(PATH));
+
+    edda.put(PATH, alarms("a1", "b1", "b2"));
+    AlarmIndex updated = describe(client, "b");
+    assertNotSame(index, updated);
+    assertEquals(2, updated.getByNamePrefix("b").size());
+    assertEquals(3, edda.count(PATH));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void indexedListIsUnmodifiable() {
+    FakeEdda edda = new FakeEdda().put(PATH, alarms("a1"));
+    EddaCloudWatchClient client = client(edda);
+    client.describeAlarms();
+    client.alarmIndex.getLast().getAlarms().clear();
+  }
+}
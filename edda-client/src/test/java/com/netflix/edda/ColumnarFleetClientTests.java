@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
+
+import com.netflix.edda.store.AutoScalingGroupColumns;
+import com.netflix.edda.store.InstanceColumns;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ColumnarFleetClientTests {
+  private ColumnarFleetClient client(FakeEdda edda) {
+    return new ColumnarFleetClient(TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return edda.content(uri);
+      }
+    };
+  }
+
+  @Test
+  public void instances() {
+    FakeEdda edda = new FakeEdda().put("aws/instances;_expand", "["
+      + "{\"reservationId\":\"r-1\","
+      + "\"instances\":[{\"instanceId\":\"i-1\"},{\"instanceId\":\"i-2\"}]},"
+      + "{\"reservationId\":\"r-2\",\"instances\":[{\"instanceId\":\"i-3\"}]}"
+      + "]");
+    InstanceColumns cols = client(edda).instances().toBlocking().single();
+    assertEquals(3, cols.size());
+    assertEquals(2, cols.row("i-3"));
+  }
+
+  @Test
+  public void autoScalingGroups() {
+    FakeEdda edda = new FakeEdda().put("aws/autoScalingGroups;_expand", "["
+      + "{\"autoScalingGroupName\":\"a\"},{\"autoScalingGroupName\":\"b\"}"
+      + "]");
+    AutoScalingGroupColumns cols = client(edda).autoScalingGroups().toBlocking().single();
+    assertEquals(2, cols.size());
+    assertEquals(1, cols.row("b"));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.observers.TestSubscriber;
+
+import com.amazonaws.AmazonClientException;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class DecodeSchedulerTests {
+  private static long stageCount(Registry registry, String stage) {
+    return registry.timer("edda.client.stageTime", "stage", stage).count();
+  }
+
+  /** The decode time is recorded after the subscriber is notified, so wait for it. */
+  private static void awaitStageCount(Registry registry, String stage, long expected)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (stageCount(registry, stage) < expected && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(expected, stageCount(registry, stage));
+  }
+
+  @Test
+  public void rejectedWhenQueueFull() throws Exception {
+    Registry registry = new DefaultRegistry();
+    DecodeScheduler scheduler = new DecodeScheduler(1, 1, registry);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger cleanups = new AtomicInteger();
+
+    TestSubscriber<String> running = new TestSubscriber<>();
+    scheduler.submit(() -> {
+      started.countDown();
+      try {
+        release.await();
+      }
+      catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return "running";
+    }, cleanups::incrementAndGet).subscribe(running);
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    TestSubscriber<String> queued = new TestSubscriber<>();
+    scheduler.submit(() -> "queued", cleanups::incrementAndGet).subscribe(queued);
+
+    TestSubscriber<String> rejected = new TestSubscriber<>();
+    scheduler.submit(() -> "rejected", cleanups::incrementAndGet).subscribe(rejected);
+    rejected.assertNoValues();
+    assertEquals(1, rejected.getOnErrorEvents().size());
+    assertTrue(rejected.getOnErrorEvents().get(0) instanceof AmazonClientException);
+    assertEquals(1, cleanups.get());
+    assertEquals(1L, registry.counter("edda.client.decodeRejected").count());
+
+    release.countDown();
+    running.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    queued.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    running.assertValue("running");
+    queued.assertValue("queued");
+    assertEquals(1, cleanups.get());
+    assertEquals(1L, registry.counter("edda.client.decodeRejected").count());
+  }
+
+  @Test
+  public void stageTimes() throws Exception {
+    Registry registry = new DefaultRegistry();
+    DecodeScheduler scheduler = new DecodeScheduler(2, 4, registry);
+    scheduler.recordFetch(TimeUnit.MILLISECONDS.toNanos(5));
+    assertEquals("a", scheduler.submit(() -> "a", () -> {}).toBlocking().single());
+    assertEquals("b", scheduler.submit(() -> "b", () -> {}).toBlocking().single());
+
+    assertEquals(1L, stageCount(registry, "fetch"));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(5),
+      registry.timer("edda.client.stageTime", "stage", "fetch").totalTime());
+    assertEquals(2L, stageCount(registry, "queue"));
+    awaitStageCount(registry, "decode", 2L);
+    assertEquals(0L, registry.counter("edda.client.decodeRejected").count());
+  }
+
+  @Test
+  public void workFailure() throws Exception {
+    Registry registry = new DefaultRegistry();
+    DecodeScheduler scheduler = new DecodeScheduler(1, 1, registry);
+    TestSubscriber<String> subscriber = new TestSubscriber<>();
+    scheduler.<String>submit(() -> {
+      throw new IllegalArgumentException("bad");
+    }, () -> {}).subscribe(subscriber);
+    subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    subscriber.assertError(IllegalArgumentException.class);
+    awaitStageCount(registry, "decode", 1L);
+  }
+
+  @Test
+  public void cleanupWhenUnsubscribedBeforeStart() throws Exception {
+    Registry registry = new DefaultRegistry();
+    DecodeScheduler scheduler = new DecodeScheduler(1, 1, registry);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    TestSubscriber<String> running = new TestSubscriber<>();
+    scheduler.submit(() -> {
+      started.countDown();
+      try {
+        release.await();
+      }
+      catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return "running";
+    }, () -> {}).subscribe(running);
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    CountDownLatch cleaned = new CountDownLatch(1);
+    TestSubscriber<String> queued = new TestSubscriber<>();
+    scheduler.submit(() -> "queued", cleaned::countDown).subscribe(queued);
+    queued.unsubscribe();
+    release.countDown();
+
+    assertTrue(cleaned.await(10, TimeUnit.SECONDS));
+    queued.assertNoValues();
+    running.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    running.assertValue("running");
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.Collections;
+
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.ec2.model.Subnet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class EddaBundleClientTests {
+  private EddaBundleClient client(FakeEdda edda) {
+    return new EddaBundleClient(TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return edda.content(uri);
+      }
+    };
+  }
+
+  @Test
+  public void fetchAll() {
+    FakeEdda edda = new FakeEdda()
+      .put("aws/subnets;_expand", "[{\"subnetId\":\"subnet-1\"},{\"subnetId\":\"subnet-2\"}]")
+      .put("aws/vpcs;_expand", "[{\"vpcId\":\"vpc-1\"}]");
+    EddaBundle bundle = client(edda)
+      .fetch(EddaCollection.SUBNETS, EddaCollection.VPCS)
+      .toBlocking()
+      .single();
+    assertEquals(Collections.emptyMap(), bundle.getFailures());
+    assertTrue(bundle.isComplete());
+    assertEquals(2, bundle.getSnapshot(EddaCollection.SUBNETS).getItems().size());
+    assertEquals("vpc-1", bundle.getSnapshot(EddaCollection.VPCS).getItems().get(0).getVpcId());
+  }
+
+  @Test
+  public void partialFailure() {
+    FakeEdda edda = new FakeEdda()
+      .put("aws/subnets;_expand", "[{\"subnetId\":\"subnet-1\"}]");
+    EddaBundle bundle = client(edda)
+      .fetch(EddaCollection.SUBNETS, EddaCollection.VPCS)
+      .toBlocking()
+      .single();
+
+    assertFalse(bundle.isComplete());
+    Subnet s = bundle.getSnapshot(EddaCollection.SUBNETS).getItems().get(0);
+    assertEquals("subnet-1", s.getSubnetId());
+    assertNull(bundle.getFailure(EddaCollection.SUBNETS));
+
+    assertNull(bundle.getSnapshot(EddaCollection.VPCS));
+    Throwable t = bundle.getFailure(EddaCollection.VPCS);
+    assertTrue(t instanceof AmazonServiceException);
+    assertEquals(404, ((AmazonServiceException) t).getStatusCode());
+    assertEquals(Collections.singleton(EddaCollection.SUBNETS), bundle.getCollections());
+    assertEquals(1, bundle.getFailures().size());
+  }
+
+  @Test
+  public void allFailed() {
+    EddaBundle bundle = client(new FakeEdda())
+      .fetch(EddaCollection.SUBNETS, EddaCollection.VPCS)
+      .toBlocking()
+      .single();
+    assertTrue(bundle.getCollections().isEmpty());
+    assertEquals(2, bundle.getFailures().size());
+  }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.ServiceResult;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeInstanceHealthRequest;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeInstanceHealthResult;
+import com.amazonaws.services.elasticloadbalancing.model.DescribeLoadBalancerAttributesRequest;
+import com.amazonaws.services.elasticloadbalancing.model.Instance;
+import com.amazonaws.services.elasticloadbalancing.model.InstanceState;
+
+import com.netflix.edda.index.InstanceHealthIndex;
+import com.netflix.edda.index.LoadBalancerAttributesIndex;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ElasticLoadBalancingClientTests {
+  private static final String ALL = "view/loadBalancerInstances;_expand";
+  private static final String FRONTEND = "view/loadBalancerInstances/frontend;_expand";
+
+  private static final String FRONTEND_VIEW = "{\"name\":\"frontend\",\"instances\":["
+    + "{\"instanceId\":\"i-1\",\"state\":\"InService\"},"
+    + "{\"instanceId\":\"i-2\",\"state\":\"OutOfService\"},"
+    + "{\"instanceId\":\"i-3\",\"state\":\"InService\"}]}";
+
+  private static final String BACKEND_VIEW = "{\"name\":\"backend\",\"instances\":["
+    + "{\"instanceId\":\"i-2\",\"state\":\"InService\"}]}";
+
+  private static final String NEW = "view/loadBalancerInstances/new;_expand";
+  private static final String NEW_VIEW = "{\"name\":\"new\",\"instances\":["
+    + "{\"instanceId\":\"i-4\",\"state\":\"InService\"}]}";
+
+  private static final String ALL_ATTRS = "view/loadBalancerAttributes;_expand";
+  private static final String FRONTEND_ATTRS = "view/loadBalancerAttributes/frontend;_expand";
+  private static final String NEW_ATTRS = "view/loadBalancerAttributes/new;_expand";
+
+  private static String attributesView(String name, int idleTimeout) {
+    return "{\"name\":\"" + name + "\",\"attributes\":"
+      + "{\"connectionSettings\":{\"idleTimeout\":" + idleTimeout + "}}}";
+  }
+
+  private static FakeEdda attributesEdda() {
+    return new FakeEdda()
+      .put(FRONTEND_ATTRS, attributesView("frontend", 60))
+      .put(NEW_ATTRS, attributesView("new", 120))
+      .put(ALL_ATTRS, "[" + attributesView("frontend", 60) + "]");
+  }
+
+  private static int idleTimeout(EddaElasticLoadBalancingClient client, String name) {
+    return client.describeLoadBalancerAttributes(
+        new DescribeLoadBalancerAttributesRequest().withLoadBalancerName(name))
+      .getLoadBalancerAttributes()
+      .getConnectionSettings()
+      .getIdleTimeout();
+  }
+
+  private static FakeEdda edda() {
+    return new FakeEdda()
+      .put(FRONTEND, FRONTEND_VIEW)
+      .put(ALL, "[" + FRONTEND_VIEW + "," + BACKEND_VIEW + "]");
+  }
+
+  private static EddaElasticLoadBalancingClient client(FakeEdda edda, String... config) {
+    return new EddaElasticLoadBalancingClient(TestConfig.create(config), "vip", "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        return edda.get(uri);
+      }
+    };
+  }
+
+  private static EddaElasticLoadBalancingRxNettyClient rxClient(
+      FakeEdda edda, String... config) {
+    return new EddaElasticLoadBalancingRxNettyClient(
+        TestConfig.create(config), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return edda.content(uri);
+      }
+    };
+  }
+
+  private static List<String> describe(EddaElasticLoadBalancingClient client, String... ids) {
+    DescribeInstanceHealthRequest request = new DescribeInstanceHealthRequest()
+      .withLoadBalancerName("frontend");
+    for (String id : ids)
+      request.withInstances(new Instance().withInstanceId(id));
+    List<String> result = new ArrayList<String>();
+    for (InstanceState s : client.describeInstanceHealth(request).getInstanceStates())
+      result.add(s.getInstanceId());
+    return result;
+  }
+
+  @Test
+  public void describeInstanceHealthFiltersInstances() {
+    // Regression test, the filtered states were computed and then the full list was returned
+    FakeEdda edda = edda();
+    EddaElasticLoadBalancingClient client = client(edda);
+    assertEquals(Arrays.asList("i-1", "i-3"), describe(client, "i-3", "i-1"));
+    assertEquals(Arrays.asList("i-1", "i-2", "i-3"), describe(client));
+    assertTrue(describe(client, "i-4").isEmpty());
+    assertEquals(3, edda.count(FRONTEND));
+    assertEquals(0, edda.count(ALL));
+  }
+
+  @Test
+  public void bulkDescribeInstanceHealthFiltersInstances() {
+    FakeEdda edda = edda();
+    EddaElasticLoadBalancingClient client = client(edda, "bulkInstanceHealth", "true");
+    assertEquals(Arrays.asList("i-2"), describe(client, "i-2"));
+    assertEquals(Arrays.asList("i-1", "i-2", "i-3"), describe(client));
+    assertEquals(1, edda.count(ALL));
+    assertEquals(0, edda.count(FRONTEND));
+  }
+
+  @Test
+  public void bulkUnknownLoadBalancer() {
+    // Not in the cached view, so the single load balancer is fetched like the non-bulk path
+    FakeEdda edda = edda();
+    EddaElasticLoadBalancingClient client =
+      client(edda, "bulkInstanceHealth", "true", "instanceHealthTtl", "PT1H");
+    client.getInstanceHealthIndex();
+    edda.put(NEW, NEW_VIEW);
+    List<InstanceState> states = client.describeInstanceHealth(
+      new DescribeInstanceHealthRequest().withLoadBalancerName("new")).getInstanceStates();
+    assertEquals(1, states.size());
+    assertEquals("i-4", states.get(0).getInstanceId());
+    assertEquals(1, edda.count(ALL));
+    assertEquals(1, edda.count(NEW));
+
+    try {
+      client.describeInstanceHealth(
+        new DescribeInstanceHealthRequest().withLoadBalancerName("missing"));
+      fail("expected missing load balancer to fail");
+    }
+    catch (AmazonServiceException e) {
+      assertEquals(404, e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void rxBulkUnknownLoadBalancer() {
+    FakeEdda edda = edda();
+    EddaElasticLoadBalancingRxNettyClient client =
+      rxClient(edda, "bulkInstanceHealth", "true", "instanceHealthTtl", "PT1H");
+    client.getInstanceHealthIndex().toBlocking().single();
+    edda.put(NEW, NEW_VIEW);
+
+    TestSubscriber<ServiceResult<DescribeInstanceHealthResult>> s =
+      new TestSubscriber<ServiceResult<DescribeInstanceHealthResult>>();
+    client.describeInstanceHealth(new DescribeInstanceHealthRequest().withLoadBalancerName("new"))
+      .subscribe(s);
+    s.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    s.assertNoErrors();
+    s.assertValueCount(1);
+    assertEquals(1, edda.count(ALL));
+    assertEquals(1, edda.count(NEW));
+  }
+
+  @Test
+  public void indexReusedWhileResponseUnchanged() {
+    FakeEdda edda = edda();
+    EddaElasticLoadBalancingClient client = client(edda, "instanceHealthTtl", "PT0S");
+    InstanceHealthIndex index = client.getInstanceHealthIndex();
+    assertEquals(Arrays.asList("frontend", "backend"), index.getLoadBalancerNames("i-2"));
+    assertSame(index, client.getInstanceHealthIndex());
+    assertEquals(2, edda.count(ALL));
+
+    edda.put(ALL, "[" + BACKEND_VIEW + "]");
+    InstanceHealthIndex updated = client.getInstanceHealthIndex();
+    assertNotSame(index, updated);
+    assertEquals(Arrays.asList("backend"), updated.getLoadBalancerNames("i-2"));
+  }
+
+  @Test
+  public void indexNotFetchedAgainWithinTtl() {
+    FakeEdda edda = edda();
+    EddaElasticLoadBalancingClient client = client(edda, "instanceHealthTtl", "PT1H");
+    InstanceHealthIndex index = client.getInstanceHealthIndex();
+    edda.put(ALL, "[" + BACKEND_VIEW + "]");
+    assertSame(index, client.getInstanceHealthIndex());
+    assertEquals(1, edda.count(ALL));
+  }
+
+  @Test
+  public void singleFlightRefresh() throws Exception {
+    final FakeEdda edda = edda();
+    final CountDownLatch fetching = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final EddaElasticLoadBalancingClient client = new EddaElasticLoadBalancingClient(
+        TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        fetching.countDown();
+        try {
+          release.await();
+        }
+        catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        return edda.get(uri);
+      }
+    };
+
+    final InstanceHealthIndex[] results = new InstanceHealthIndex[2];
+    Thread t1 = new Thread(() -> results[0] = client.getInstanceHealthIndex());
+    Thread t2 = new Thread(() -> results[1] = client.getInstanceHealthIndex());
+    t1.start();
+    assertTrue(fetching.await(10, TimeUnit.SECONDS));
+    t2.start();
+    while (t2.getState() != Thread.State.BLOCKED && t2.isAlive())
+      Thread.sleep(1);
+    release.countDown();
+    t1.join(10000);
+    t2.join(10000);
+
+    assertNotNull(results[0]);
+    assertSame(results[0], results[1]);
+    assertEquals(1, edda.count(ALL));
+  }
+
+  @Test
+  public void rxSingleFlightRefresh() throws Exception {
+    final FakeEdda edda = edda();
+    final PublishSubject<ByteBuf> content = PublishSubject.create();
+    final EddaElasticLoadBalancingRxNettyClient client = new EddaElasticLoadBalancingRxNettyClient(
+        TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return Observable.defer(() -> {
+          edda.get(uri);
+          return content;
+        });
+      }
+    };
+
+    TestSubscriber<InstanceHealthIndex> s1 = new TestSubscriber<InstanceHealthIndex>();
+    TestSubscriber<InstanceHealthIndex> s2 = new TestSubscriber<InstanceHealthIndex>();
+    client.getInstanceHealthIndex().subscribe(s1);
+    client.getInstanceHealthIndex().subscribe(s2);
+    assertEquals(1, edda.count(ALL));
+
+    content.onNext(Unpooled.wrappedBuffer(edda.get("/api/v2/" + ALL).data));
+    content.onCompleted();
+    s1.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    s2.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    s1.assertNoErrors();
+    s2.assertNoErrors();
+    assertSame(s1.getOnNextEvents().get(0), s2.getOnNextEvents().get(0));
+
+    // Once the refresh completes the value is used until the ttl expires
+    InstanceHealthIndex index = client.getInstanceHealthIndex().toBlocking().single();
+    assertSame(s1.getOnNextEvents().get(0), index);
+    assertEquals(2, edda.count(ALL));
+  }
+
+  @Test
+  public void rxIndexReusedWhileResponseUnchanged() {
+    FakeEdda edda = edda();
+    EddaElasticLoadBalancingRxNettyClient client = rxClient(edda, "instanceHealthTtl", "PT0S");
+    InstanceHealthIndex index = client.getInstanceHealthIndex().toBlocking().single();
+    assertSame(index, client.getInstanceHealthIndex().toBlocking().single());
+    assertEquals(2, edda.count(ALL));
+
+    edda.put(ALL, "[" + BACKEND_VIEW + "]");
+    InstanceHealthIndex updated = client.getInstanceHealthIndex().toBlocking().single();
+    assertNotSame(index, updated);
+    assertFalse(updated.containsLoadBalancer("frontend"));
+  }
+
+  @Test
+  public void attributesFetchedIndividuallyByDefault() {
+    FakeEdda edda = attributesEdda();
+    EddaElasticLoadBalancingClient client = client(edda);
+    assertEquals(60, idleTimeout(client, "frontend"));
+    assertEquals(60, idleTimeout(client, "frontend"));
+    assertEquals(2, edda.count(FRONTEND_ATTRS));
+    assertEquals(0, edda.count(ALL_ATTRS));
+  }
+
+  @Test
+  public void bulkAttributes() {
+    FakeEdda edda = attributesEdda();
+    EddaElasticLoadBalancingClient client = client(edda, "bulkLoadBalancerAttributes", "true");
+    assertEquals(60, idleTimeout(client, "frontend"));
+    assertEquals(60, idleTimeout(client, "frontend"));
+    assertEquals(1, edda.count(ALL_ATTRS));
+    assertEquals(0, edda.count(FRONTEND_ATTRS));
+
+    // not in the bulk view, fall back to fetching the load balancer
+    assertEquals(120, idleTimeout(client, "new"));
+    assertEquals(1, edda.count(NEW_ATTRS));
+    assertEquals(1, edda.count(ALL_ATTRS));
+  }
+
+  @Test
+  public void attributesIndexReusedWhileResponseUnchanged() {
+    FakeEdda edda = attributesEdda();
+    EddaElasticLoadBalancingClient client = client(edda, "loadBalancerAttributesTtl", "PT0S");
+    LoadBalancerAttributesIndex index = client.getLoadBalancerAttributesIndex();
+    assertSame(index, client.getLoadBalancerAttributesIndex());
+    assertEquals(2, edda.count(ALL_ATTRS));
+
+    edda.put(ALL_ATTRS, "[" + attributesView("frontend", 30) + "]");
+    LoadBalancerAttributesIndex updated = client.getLoadBalancerAttributesIndex();
+    assertNotSame(index, updated);
+    assertEquals(
+      30,
+      updated.getAttributes("frontend").getConnectionSettings().getIdleTimeout().intValue());
+  }
+
+  @Test
+  public void rxAttributesIndexReusedWhileResponseUnchanged() {
+    FakeEdda edda = attributesEdda();
+    EddaElasticLoadBalancingRxNettyClient client =
+      rxClient(edda, "loadBalancerAttributesTtl", "PT0S");
+    LoadBalancerAttributesIndex index =
+      client.getLoadBalancerAttributesIndex().toBlocking().single();
+    assertSame(index, client.getLoadBalancerAttributesIndex().toBlocking().single());
+    assertEquals(2, edda.count(ALL_ATTRS));
+  }
+
+  @Test
+  public void rxAttributesFetchedIndividuallyByDefault() {
+    FakeEdda edda = attributesEdda();
+    EddaElasticLoadBalancingRxNettyClient client = rxClient(edda);
+    client.describeLoadBalancerAttributes(
+        new DescribeLoadBalancerAttributesRequest().withLoadBalancerName("frontend"))
+      .toBlocking()
+      .single();
+    assertEquals(1, edda.count(FRONTEND_ATTRS));
+    assertEquals(0, edda.count(ALL_ATTRS));
+
+    assertEquals(1, client.describeLoadBalancerAttributes().toList().toBlocking().single().size());
+    assertEquals(1, edda.count(ALL_ATTRS));
+  }
+
+  @Test
+  public void rxBulkAttributes() {
+    FakeEdda edda = attributesEdda();
+    EddaElasticLoadBalancingRxNettyClient client =
+      rxClient(edda, "bulkLoadBalancerAttributes", "true");
+    for (String name : new String[] {"frontend", "frontend", "new"}) {
+      client.describeLoadBalancerAttributes(
+          new DescribeLoadBalancerAttributesRequest().withLoadBalancerName(name))
+        .toBlocking()
+        .single();
+    }
+    assertEquals(1, client.describeLoadBalancerAttributes().toList().toBlocking().single().size());
+    assertEquals(1, edda.count(ALL_ATTRS));
+    assertEquals(0, edda.count(FRONTEND_ATTRS));
+    assertEquals(1, edda.count(NEW_ATTRS));
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import rx.Observable;
+
+import com.amazonaws.AmazonServiceException;
+
+import com.netflix.edda.util.Hash;
+
+/**
+ * Canned edda responses for client tests. Responses are keyed by the part of the url after
+ * {@code /api/v2/} and every request is recorded so tests can check what was fetched.
+ */
+public final class FakeEdda {
+  private final Map<String, byte[]> responses = new HashMap<String, byte[]>();
+  private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+  /** Set the json for a path such as {@code aws/instances;_expand}. */
+  public synchronized FakeEdda put(String path, String json) {
+    responses.put(path, json.getBytes(StandardCharsets.UTF_8));
+    return this;
+  }
+
+  /** Paths that were requested in order. */
+  List<String> requests() {
+    synchronized (requests) {
+      return new ArrayList<String>(requests);
+    }
+  }
+
+  /** Number of times the path was requested. */
+  int count(String path) {
+    int n = 0;
+    for (String r : requests()) {
+      if (r.equals(path)) ++n;
+    }
+    return n;
+  }
+
+  /** Response body for the uri, fails with a 404 if there is no response for the path. */
+  synchronized EddaAwsClient.Body get(String uri) {
+    String path = uri.substring(uri.indexOf("/api/v2/") + "/api/v2/".length());
+    requests.add(path);
+    byte[] data = responses.get(path);
+    if (data == null) {
+      AmazonServiceException e = new AmazonServiceException("Failed to fetch " + uri);
+      e.setStatusCode(404);
+      e.setErrorCode("Edda");
+      throw e;
+    }
+    return new EddaAwsClient.Body(data, Hash.murmur3().update(data).digest());
+  }
+
+  /** Response content for the RxNetty clients, a missing path results in an error. */
+  Observable<ByteBuf> content(String uri) {
+    return Observable.defer(() -> Observable.just(Unpooled.wrappedBuffer(get(uri).data)));
+  }
+
+  /** Bundle client with the default configuration that fetches from this fake. */
+  public EddaBundleClient bundleClient() {
+    return new EddaBundleClient(TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return content(uri);
+      }
+    };
+  }
+}
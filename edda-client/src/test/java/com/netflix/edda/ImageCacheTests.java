@@ -0,0 +1,305 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import com.amazonaws.services.ServiceResult;
+import com.amazonaws.services.ec2.model.BlockDeviceMapping;
+import com.amazonaws.services.ec2.model.DescribeImagesRequest;
+import com.amazonaws.services.ec2.model.DescribeImagesResult;
+import com.amazonaws.services.ec2.model.EbsBlockDevice;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Image;
+
+import com.netflix.edda.filter.Ec2Filter;
+import com.netflix.edda.filter.Ec2Filters;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ImageCacheTests {
+  private static final String IMAGES = "aws/images;_expand";
+
+  private static final String IMAGES_JSON = "["
+    + "{\"imageId\":\"ami-1\",\"ownerId\":\"a\",\"state\":\"available\"},"
+    + "{\"imageId\":\"ami-2\",\"ownerId\":\"b\",\"state\":\"available\"}]";
+
+  private Image image(String id, String owner, String state) {
+    return new Image()
+      .withImageId(id)
+      .withOwnerId(owner)
+      .withState(state)
+      .withBlockDeviceMappings(new BlockDeviceMapping()
+        .withDeviceName("/dev/sda1")
+        .withEbs(new EbsBlockDevice().withSnapshotId("snap-" + id).withVolumeSize(10)));
+  }
+
+  private List<String> ids(List<Image> images) {
+    List<String> ids = new ArrayList<String>();
+    for (Image i : images)
+      ids.add(i.getImageId());
+    Collections.sort(ids);
+    return ids;
+  }
+
+  @Test
+  public void loadAndGet() {
+    ImageCache cache = new ImageCache(60000L, 3600000L);
+    assertTrue(cache.isEmpty());
+    assertTrue(cache.needsRefresh(0L));
+    cache.load(0L, Arrays.asList(
+      image("ami-1", "a", "available"),
+      image("ami-2", "a", "available"),
+      image("ami-3", "b", "available")));
+    assertFalse(cache.isEmpty());
+    assertFalse(cache.needsRefresh(1000L));
+    assertTrue(cache.needsRefresh(60000L));
+
+    assertEquals(Arrays.asList("ami-1", "ami-2", "ami-3"), ids(cache.get(null, null)));
+    assertEquals(Arrays.asList("ami-1", "ami-2"), ids(cache.get(Arrays.asList("a"), null)));
+    assertEquals(Arrays.asList("ami-3"), ids(cache.get(null, Arrays.asList("ami-3", "ami-9"))));
+    assertEquals(0, cache.get(Arrays.asList("a"), Arrays.asList("ami-3")).size());
+  }
+
+  @Test
+  public void blockDeviceMappings() {
+    ImageCache cache = new ImageCache(60000L, 3600000L);
+    Image original = image("ami-1", "a", "available");
+    cache.load(0L, Arrays.asList(original));
+    Image i = cache.get(null, null).get(0);
+    assertEquals(original.getBlockDeviceMappings(), i.getBlockDeviceMappings());
+    assertSame(i, cache.get(null, null).get(0));
+    assertEquals(original.getBlockDeviceMappings(), i.getBlockDeviceMappings());
+  }
+
+  @Test
+  public void noBlockDeviceMappings() {
+    ImageCache cache = new ImageCache(60000L, 3600000L);
+    Image original = image("ami-1", "a", "available").withBlockDeviceMappings(
+      Collections.<BlockDeviceMapping>emptyList());
+    cache.load(0L, Arrays.asList(original));
+    assertSame(original, cache.get(null, null).get(0));
+  }
+
+  @Test
+  public void update() {
+    ImageCache cache = new ImageCache(60000L, 3600000L);
+    cache.load(0L, Arrays.asList(
+      image("ami-1", "a", "available"),
+      image("ami-2", "a", "pending"),
+      image("ami-3", "b", "available"),
+      image("ami-5", "b", "failed")));
+
+    // ami-3 was deregistered, ami-2 is still pending, ami-4 is new and ami-5 failed
+    List<String> current = Arrays.asList("ami-1", "ami-2", "ami-4", "ami-5");
+    assertEquals(Arrays.asList("ami-2", "ami-4"), cache.missing(current));
+    cache.update(60000L, current, Arrays.asList(
+      image("ami-2", "a", "available"),
+      image("ami-4", "c", "available")));
+
+    assertEquals(current, ids(cache.get(null, null)));
+    assertEquals(Arrays.asList("ami-5"), ids(cache.get(Arrays.asList("b"), null)));
+    assertEquals("available", cache.get(null, Arrays.asList("ami-2")).get(0).getState());
+    assertEquals(Collections.emptyList(), cache.missing(current));
+    assertFalse(cache.needsRefresh(60000L));
+  }
+
+  @Test
+  public void reload() {
+    ImageCache cache = new ImageCache(60000L, 3600000L);
+    assertTrue(cache.needsReload(0L));
+    cache.load(0L, Arrays.asList(image("ami-1", "a", "available")));
+    cache.update(60000L, Arrays.asList("ami-1"), Collections.<Image>emptyList());
+    assertFalse(cache.needsReload(60000L));
+    assertTrue(cache.needsReload(3600000L));
+
+    cache.load(3600000L, Arrays.asList(
+      image("ami-1", "a", "available").withDescription("updated")));
+    assertEquals("updated", cache.get(null, null).get(0).getDescription());
+    assertFalse(cache.needsReload(3660000L));
+  }
+
+  private Ec2Filter<Image> filter(String name, String value) {
+    return Ec2Filters.IMAGES.compile(
+      Arrays.asList(new Filter().withName(name).withValues(value)));
+  }
+
+  @Test
+  public void filterDecodesOnlyMatching() {
+    ImageCache cache = new ImageCache(60000L, 3600000L);
+    cache.load(0L, Arrays.asList(
+      image("ami-1", "a", "available"),
+      image("ami-2", "a", "available"),
+      image("ami-3", "b", "pending")));
+
+    List<Image> images = cache.get(null, null, filter("state", "pending"));
+    assertEquals(Arrays.asList("ami-3"), ids(images));
+    assertEquals(1L, cache.decodes());
+    assertEquals("/dev/sda1", images.get(0).getBlockDeviceMappings().get(0).getDeviceName());
+
+    assertEquals(0, cache.get(null, null, filter("state", "failed")).size());
+    assertEquals(1L, cache.decodes());
+  }
+
+  @Test
+  public void filterOnMappings() {
+    ImageCache cache = new ImageCache(60000L, 3600000L);
+    cache.load(0L, Arrays.asList(
+      image("ami-1", "a", "available"),
+      image("ami-2", "a", "pending"),
+      image("ami-3", "b", "available")));
+
+    Ec2Filter<Image> filter = Ec2Filters.IMAGES.compile(Arrays.asList(
+      new Filter().withName("state").withValues("available"),
+      new Filter().withName("block-device-mapping.snapshot-id").withValues("snap-ami-3")));
+    assertEquals(Arrays.asList("ami-3"), ids(cache.get(null, null, filter)));
+    assertEquals(2L, cache.decodes());
+  }
+
+  @Test
+  public void rxSingleFlightRefresh() {
+    final FakeEdda edda = new FakeEdda().put(IMAGES, IMAGES_JSON);
+    final PublishSubject<ByteBuf> content = PublishSubject.create();
+    EddaEc2RxNettyClient client = new EddaEc2RxNettyClient(
+        TestConfig.create("useImageCache", "true"), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return Observable.defer(() -> {
+          edda.get(uri);
+          return content;
+        });
+      }
+    };
+
+    TestSubscriber<ServiceResult<DescribeImagesResult>> s1 =
+      new TestSubscriber<ServiceResult<DescribeImagesResult>>();
+    TestSubscriber<ServiceResult<DescribeImagesResult>> s2 =
+      new TestSubscriber<ServiceResult<DescribeImagesResult>>();
+    client.describeImages().subscribe(s1);
+    client.describeImages().subscribe(s2);
+    assertEquals(1, edda.count(IMAGES));
+
+    content.onNext(Unpooled.wrappedBuffer(edda.get("/api/v2/" + IMAGES).data));
+    content.onCompleted();
+    for (TestSubscriber<ServiceResult<DescribeImagesResult>> s : Arrays.asList(s1, s2)) {
+      s.awaitTerminalEvent(10, TimeUnit.SECONDS);
+      s.assertNoErrors();
+      s.assertValueCount(1);
+    }
+
+    // Loaded and within the refresh interval so nothing else is fetched
+    TestSubscriber<ServiceResult<DescribeImagesResult>> s3 =
+      new TestSubscriber<ServiceResult<DescribeImagesResult>>();
+    client.describeImages().subscribe(s3);
+    s3.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    s3.assertNoErrors();
+    assertEquals(2, edda.count(IMAGES));
+  }
+
+  @Test
+  public void rxRefreshRetriedAfterFailure() {
+    final FakeEdda edda = new FakeEdda().put(IMAGES, IMAGES_JSON);
+    final AtomicBoolean fail = new AtomicBoolean(true);
+    EddaEc2RxNettyClient client = new EddaEc2RxNettyClient(
+        TestConfig.create("useImageCache", "true"), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return fail.get()
+          ? Observable.<ByteBuf>error(new RuntimeException("fetch failed"))
+          : edda.content(uri);
+      }
+    };
+
+    TestSubscriber<ServiceResult<DescribeImagesResult>> s1 =
+      new TestSubscriber<ServiceResult<DescribeImagesResult>>();
+    client.describeImages().subscribe(s1);
+    s1.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    assertEquals(1, s1.getOnErrorEvents().size());
+
+    fail.set(false);
+    TestSubscriber<ServiceResult<DescribeImagesResult>> s2 =
+      new TestSubscriber<ServiceResult<DescribeImagesResult>>();
+    client.describeImages().subscribe(s2);
+    s2.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    s2.assertNoErrors();
+    s2.assertValueCount(1);
+    assertEquals(1, edda.count(IMAGES));
+  }
+
+  @Test
+  public void refreshWithParallelDecoding() {
+    final FakeEdda edda = new FakeEdda()
+      .put(IMAGES, IMAGES_JSON)
+      .put("aws/images", "[\"ami-1\",\"ami-3333\"]")
+      .put("aws/images;imageId=ami-3333;_expand",
+        "[{\"imageId\":\"ami-3333\",\"ownerId\":\"c\",\"state\":\"available\"}]");
+    EddaEc2Client client = new EddaEc2Client(
+        TestConfig.create(
+          "useImageCache", "true",
+          "imageCacheRefreshInterval", "PT0S",
+          "parallelDecoding", "true",
+          "parallelDecodeThreshold", "1"),
+        "vip",
+        "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        return edda.get(uri);
+      }
+    };
+
+    assertEquals(Arrays.asList("ami-1", "ami-2"), ids(client.describeImages().getImages()));
+
+    // The refresh decodes the list of ids, ami-2 was deregistered and ami-3333 is new
+    DescribeImagesResult result = client.describeImages(new DescribeImagesRequest());
+    assertEquals(Arrays.asList("ami-1", "ami-3333"), ids(result.getImages()));
+    assertEquals(1, edda.count("aws/images;imageId=ami-3333;_expand"));
+  }
+
+  @Test
+  public void reloadPicksUpChanges() {
+    final FakeEdda edda = new FakeEdda().put(IMAGES, IMAGES_JSON);
+    EddaEc2Client client = new EddaEc2Client(
+        TestConfig.create(
+          "useImageCache", "true",
+          "imageCacheRefreshInterval", "PT0S",
+          "imageCacheReloadInterval", "PT0S"),
+        "vip",
+        "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        return edda.get(uri);
+      }
+    };
+
+    assertNull(client.describeImages().getImages().get(0).getDescription());
+    edda.put(IMAGES, "["
+      + "{\"imageId\":\"ami-1\",\"ownerId\":\"a\",\"state\":\"available\","
+      + "\"description\":\"updated\"}]");
+    List<Image> images = client.describeImages().getImages();
+    assertEquals(Arrays.asList("ami-1"), ids(images));
+    assertEquals("updated", images.get(0).getDescription());
+    assertEquals(2, edda.count(IMAGES));
+    assertEquals(0, edda.count("aws/images"));
+  }
+}
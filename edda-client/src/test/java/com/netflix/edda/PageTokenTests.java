@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.amazonaws.AmazonServiceException;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class PageTokenTests {
+  private final List<String> items = Arrays.asList("a", "b", "c", "d", "e");
+
+  private void assertInvalid(String token) {
+    try {
+      PageToken.parse(token);
+      fail("expected exception for " + token);
+    }
+    catch (AmazonServiceException e) {
+      assertEquals(400, e.getStatusCode());
+      assertEquals("InvalidNextToken", e.getErrorCode());
+    }
+  }
+
+  @Test
+  public void roundTrip() {
+    PageToken token = new PageToken(1456789012345L, 1000);
+    PageToken parsed = PageToken.parse(token.toString());
+    assertEquals(token.getTimestamp(), parsed.getTimestamp());
+    assertEquals(token.getOffset(), parsed.getOffset());
+  }
+
+  @Test
+  public void noToken() {
+    assertNull(PageToken.parse(null));
+    assertNull(PageToken.parse(""));
+  }
+
+  @Test
+  public void malformed() {
+    assertInvalid("abc");
+    assertInvalid(".1");
+    assertInvalid("1.");
+    assertInvalid("1.zz!");
+    assertInvalid("0.1");
+    assertInvalid("1.-1");
+  }
+
+  @Test
+  public void pages() {
+    Snapshot<String> snapshot = new Snapshot<String>(42L, items);
+    assertSame(items, PageToken.page(items, null, null));
+    assertNull(PageToken.next(snapshot, items.size(), null, null));
+
+    assertEquals(Arrays.asList("a", "b"), PageToken.page(items, null, 2));
+    String next = PageToken.next(snapshot, items.size(), null, 2);
+    PageToken token = PageToken.parse(next);
+    assertEquals(42L, token.getTimestamp());
+    assertEquals(Arrays.asList("c", "d"), PageToken.page(items, token, 2));
+
+    token = PageToken.parse(PageToken.next(snapshot, items.size(), token, 2));
+    assertEquals(Arrays.asList("e"), PageToken.page(items, token, 2));
+    assertNull(PageToken.next(snapshot, items.size(), token, 2));
+  }
+
+  @Test
+  public void offsetPastEnd() {
+    assertEquals(Collections.emptyList(), PageToken.page(items, new PageToken(42L, 10), 2));
+  }
+
+  @Test
+  public void weightedPages() {
+    List<List<String>> groups = Arrays.asList(
+      Arrays.asList("a", "b"),
+      Arrays.asList("c", "d", "e", "f"),
+      Arrays.asList("g"),
+      Arrays.asList("h"));
+    Snapshot<List<String>> snapshot = new Snapshot<List<String>>(42L, groups);
+
+    // Groups are never split, a group heavier than max is returned on its own
+    assertEquals(groups.subList(0, 1), PageToken.page(groups, null, 3, List::size));
+    PageToken token = PageToken.parse(PageToken.next(snapshot, groups, null, 3, List::size));
+    assertEquals(1, token.getOffset());
+    assertEquals(groups.subList(1, 2), PageToken.page(groups, token, 3, List::size));
+
+    token = PageToken.parse(PageToken.next(snapshot, groups, token, 3, List::size));
+    assertEquals(groups.subList(2, 4), PageToken.page(groups, token, 3, List::size));
+    assertNull(PageToken.next(snapshot, groups, token, 3, List::size));
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ParallelDecoderTests {
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  private List<String> inputs(int n) {
+    List<String> inputs = new ArrayList<String>(n);
+    for (int i = 0; i < n; ++i)
+      inputs.add(Integer.toString(i));
+    return inputs;
+  }
+
+  @Test
+  public void inOrder() {
+    ParallelDecoder decoder = new ParallelDecoder(pool, 100);
+    for (int n : new int[] {0, 1, 99, 100, 1000, 12345}) {
+      List<Integer> values = decoder.decode(inputs(n), Integer::parseInt, s -> {});
+      assertEquals(n, values.size());
+      for (int i = 0; i < n; ++i)
+        assertEquals(i, values.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void failureReleasesRemaining() {
+    ParallelDecoder decoder = new ParallelDecoder(pool, 100);
+    final AtomicInteger handled = new AtomicInteger();
+    try {
+      decoder.decode(inputs(10000), s -> {
+        handled.incrementAndGet();
+        if (s.equals("5000")) throw new IOException("failed");
+        return s;
+      }, s -> handled.incrementAndGet());
+      fail("expected exception");
+    }
+    catch (RuntimeException e) {
+      assertEquals("failed", e.getCause().getMessage());
+    }
+    assertEquals(10000, handled.get());
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class PinnedSnapshotsTests {
+  private final TypeReference<List<String>> ref = new TypeReference<List<String>>() {};
+
+  @Test
+  public void getAndPut() {
+    PinnedSnapshots pinned = new PinnedSnapshots(2, 60000L);
+    long now = System.currentTimeMillis();
+    Snapshot<String> snapshot = new Snapshot<String>(now, Arrays.asList("a"));
+    pinned.put("url", snapshot);
+    assertSame(snapshot, pinned.get("url", now));
+    assertNull(pinned.get("url", now - 1));
+    assertNull(pinned.get("other", now));
+  }
+
+  @Test
+  public void expired() {
+    PinnedSnapshots pinned = new PinnedSnapshots(2, 1000L);
+    long timestamp = System.currentTimeMillis() - 2000L;
+    pinned.put("url", new Snapshot<String>(timestamp, Arrays.asList("a")));
+    assertNull(pinned.get("url", timestamp));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    PinnedSnapshots pinned = new PinnedSnapshots(2, 60000L);
+    long now = System.currentTimeMillis();
+    pinned.put("a", new Snapshot<String>(now, Arrays.asList("a")));
+    pinned.put("b", new Snapshot<String>(now, Arrays.asList("b")));
+    assertNotNull(pinned.get("a", now));
+    pinned.put("c", new Snapshot<String>(now, Arrays.asList("c")));
+    assertNotNull(pinned.get("a", now));
+    assertNull(pinned.get("b", now));
+    assertNotNull(pinned.get("c", now));
+  }
+
+  private EddaAwsClient client(FakeEdda edda, String... overrides) {
+    return new EddaAwsClient(TestConfig.create(overrides), "vip", "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        return edda.get(uri);
+      }
+    };
+  }
+
+  @Test
+  public void nextPageUsesPinnedSnapshot() throws IOException {
+    FakeEdda edda = new FakeEdda().put("aws/items", "[\"a\",\"b\",\"c\"]");
+    EddaAwsClient client = client(edda);
+    String url = "http://edda/api/v2/aws/items";
+
+    Snapshot<String> first = client.doGetSnapshot(ref, url, null, 2);
+    PageToken token = new PageToken(first.getTimestamp(), 2);
+    Snapshot<String> second = client.doGetSnapshot(ref, url, token, 2);
+    assertSame(first, second);
+    assertEquals(Arrays.asList("aws/items"), edda.requests());
+  }
+
+  @Test
+  public void notPinnedWithoutMax() throws IOException {
+    FakeEdda edda = new FakeEdda().put("aws/items", "[\"a\",\"b\",\"c\"]");
+    EddaAwsClient client = client(edda);
+    String url = "http://edda/api/v2/aws/items";
+
+    Snapshot<String> first = client.doGetSnapshot(ref, url, null, null);
+    assertNull(client.pinnedSnapshots.get(url, first.getTimestamp()));
+  }
+
+  @Test
+  public void expiredSnapshotIsFetchedAt() throws IOException {
+    long timestamp = System.currentTimeMillis() - 10 * 60000L;
+    FakeEdda edda = new FakeEdda()
+      .put("aws/items", "[\"a\",\"b\",\"c\",\"d\"]")
+      .put("aws/items;_at=" + timestamp, "[\"a\",\"b\",\"c\"]");
+    EddaAwsClient client = client(edda, "pinnedSnapshotTtl", "PT1M");
+    String url = "http://edda/api/v2/aws/items";
+
+    PageToken token = new PageToken(timestamp, 2);
+    Snapshot<String> snapshot = client.doGetSnapshot(ref, url, token, 2);
+    assertEquals(timestamp, snapshot.getTimestamp());
+    assertEquals(Arrays.asList("a", "b", "c"), snapshot.getItems());
+    assertEquals(Arrays.asList("aws/items;_at=" + timestamp), edda.requests());
+  }
+}
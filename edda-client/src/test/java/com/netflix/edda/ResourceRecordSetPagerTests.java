@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.route53.model.ListResourceRecordSetsRequest;
+import com.amazonaws.services.route53.model.ListResourceRecordSetsResult;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ResourceRecordSetPagerTests {
+  private ResourceRecordSet record(String name, String type, String id) {
+    return new ResourceRecordSet().withName(name).withType(type).withSetIdentifier(id);
+  }
+
+  private List<String> names(List<ResourceRecordSet> records) {
+    List<String> names = new ArrayList<String>();
+    for (ResourceRecordSet r : records) {
+      String id = (r.getSetIdentifier() == null) ? "" : "/" + r.getSetIdentifier();
+      names.add(r.getName() + "/" + r.getType() + id);
+    }
+    return names;
+  }
+
+  private final List<ResourceRecordSet> records = ResourceRecordSetPager.sort(Arrays.asList(
+    record("www.example.com.", "A", null),
+    record("example.com.", "NS", null),
+    record("api.example.com.", "CNAME", "b"),
+    record("example.com.", "A", null),
+    record("api.example.com.", "CNAME", "a"),
+    record("a.b.example.com.", "A", null),
+    record("example.org.", "A", null)));
+
+  @Test
+  public void sortReversedLabels() {
+    assertEquals(Arrays.asList(
+      "example.com./A",
+      "example.com./NS",
+      "api.example.com./CNAME/a",
+      "api.example.com./CNAME/b",
+      "a.b.example.com./A",
+      "www.example.com./A",
+      "example.org./A"), names(records));
+  }
+
+  @Test
+  public void allRecords() {
+    ListResourceRecordSetsResult result =
+      ResourceRecordSetPager.page(records, new ListResourceRecordSetsRequest());
+    assertEquals(records.size(), result.getResourceRecordSets().size());
+    assertFalse(result.isTruncated());
+    assertNull(result.getNextRecordName());
+  }
+
+  @Test
+  public void followNextRecord() {
+    List<ResourceRecordSet> all = new ArrayList<ResourceRecordSet>();
+    ListResourceRecordSetsRequest request = new ListResourceRecordSetsRequest().withMaxItems("3");
+    int pages = 0;
+    while (true) {
+      ListResourceRecordSetsResult result = ResourceRecordSetPager.page(records, request);
+      all.addAll(result.getResourceRecordSets());
+      ++pages;
+      if (!result.isTruncated()) break;
+      request
+        .withStartRecordName(result.getNextRecordName())
+        .withStartRecordType(result.getNextRecordType())
+        .withStartRecordIdentifier(result.getNextRecordIdentifier());
+    }
+    assertEquals(3, pages);
+    assertEquals(names(records), names(all));
+  }
+
+  @Test
+  public void startBetweenRecords() {
+    // Name that is not present starts at the next record in Route53 order
+    ListResourceRecordSetsRequest request = new ListResourceRecordSetsRequest()
+      .withStartRecordName("b.example.com")
+      .withMaxItems("2");
+    ListResourceRecordSetsResult result = ResourceRecordSetPager.page(records, request);
+    assertEquals(Arrays.asList("a.b.example.com./A", "www.example.com./A"),
+      names(result.getResourceRecordSets()));
+    assertTrue(result.isTruncated());
+    assertEquals("example.org.", result.getNextRecordName());
+    assertEquals("A", result.getNextRecordType());
+  }
+
+  @Test
+  public void startWithType() {
+    ListResourceRecordSetsRequest request = new ListResourceRecordSetsRequest()
+      .withStartRecordName("example.com.")
+      .withStartRecordType("NS");
+    ListResourceRecordSetsResult result = ResourceRecordSetPager.page(records, request);
+    assertEquals("example.com./NS", names(result.getResourceRecordSets()).get(0));
+  }
+
+  @Test
+  public void invalidMaxItems() {
+    try {
+      ResourceRecordSetPager.page(records, new ListResourceRecordSetsRequest().withMaxItems("0"));
+      fail("expected exception");
+    }
+    catch (AmazonServiceException e) {
+      assertEquals("InvalidInput", e.getErrorCode());
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import com.amazonaws.services.ec2.model.Subnet;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ResultCacheTests {
+  private static final TypeReference<List<Subnet>> REF = new TypeReference<List<Subnet>>() {};
+  private static final String URI = "http://edda/api/v2/aws/subnets;_expand";
+
+  private static EddaAwsClient client(FakeEdda edda, String... config) {
+    return new EddaAwsClient(TestConfig.create(config), "vip", "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        return edda.get(uri);
+      }
+    };
+  }
+
+  private static FakeEdda edda() {
+    return new FakeEdda().put("aws/subnets;_expand", "[{\"subnetId\":\"subnet-1\"}]");
+  }
+
+  @Test
+  public void disabledByDefault() throws Exception {
+    EddaAwsClient client = client(edda());
+    assertFalse(client.resultCache.isEnabled());
+    assertNotSame(client.doGet(REF, URI), client.doGet(REF, URI));
+  }
+
+  @Test
+  public void sameBodyReused() throws Exception {
+    FakeEdda edda = edda();
+    EddaAwsClient client = client(edda, "resultCacheSize", "4");
+    List<Subnet> subnets = client.doGet(REF, URI);
+    assertSame(subnets, client.doGet(REF, URI));
+    assertEquals(2, edda.count("aws/subnets;_expand"));
+
+    edda.put("aws/subnets;_expand", "[{\"subnetId\":\"subnet-2\"}]");
+    List<Subnet> updated = client.doGet(REF, URI);
+    assertNotSame(subnets, updated);
+    assertEquals("subnet-2", updated.get(0).getSubnetId());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void cachedListIsUnmodifiable() throws Exception {
+    EddaAwsClient client = client(edda(), "resultCacheSize", "4");
+    client.doGet(REF, URI).clear();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void listIsUnmodifiable() throws Exception {
+    client(edda()).doGet(REF, URI).add(new Subnet());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    ResultCache cache = new ResultCache(2);
+    BigInteger h = BigInteger.ONE;
+    cache.put("a", "t", h, "a");
+    cache.put("b", "t", h, "b");
+    assertEquals("a", cache.get("a", "t", h));
+    cache.put("c", "t", h, "c");
+    assertNull(cache.get("b", "t", h));
+    assertEquals("a", cache.get("a", "t", h));
+    assertNull(cache.get("a", "t", BigInteger.TEN));
+    assertNull(cache.get("a", "other", h));
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import com.amazonaws.services.route53.model.ListResourceRecordSetsRequest;
+import com.amazonaws.services.route53.model.ListResourceRecordSetsResult;
+
+import com.netflix.edda.index.RecordIndex;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class Route53ClientTests {
+  private static final String PATH = "aws/hostedRecords;_expand";
+
+  private static String record(String zone, String name, String value) {
+    return "{\"name\":\"" + name + "\",\"type\":\"A\","
+      + "\"resourceRecords\":[{\"value\":\"" + value + "\"}],"
+      + "\"zone\":{\"id\":\"/hostedzone/" + zone + "\",\"name\":\"example.com.\"}}";
+  }
+
+  private static final String RECORDS = "["
+    + record("Z1", "www.example.com.", "10.0.0.1") + ","
+    + record("Z1", "\\\\052.example.com.", "10.0.0.2") + ","
+    + record("Z1", "api.example.com.", "10.0.0.3") + "]";
+
+  private static EddaRoute53Client client(FakeEdda edda, String... config) {
+    return new EddaRoute53Client(TestConfig.create(config), "vip", "us-east-1") {
+      @Override protected Body doGetBody(String uri) {
+        return edda.get(uri);
+      }
+    };
+  }
+
+  private static EddaRoute53RxNettyClient rxClient(FakeEdda edda, String... config) {
+    return new EddaRoute53RxNettyClient(TestConfig.create(config), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return edda.content(uri);
+      }
+    };
+  }
+
+  @Test
+  public void listResourceRecordSets() {
+    FakeEdda edda = new FakeEdda().put(PATH, RECORDS);
+    EddaRoute53Client client = client(edda);
+    ListResourceRecordSetsResult result = client.listResourceRecordSets(
+      new ListResourceRecordSetsRequest()
+        .withHostedZoneId("/hostedzone/Z1")
+        .withStartRecordName("*.example.com")
+        .withMaxItems("1"));
+    assertEquals("\\052.example.com.", result.getResourceRecordSets().get(0).getName());
+    assertEquals("api.example.com.", result.getNextRecordName());
+    assertEquals(1, client.getRecordIndex().resolve("foo.example.com").size());
+    assertEquals(1, edda.count(PATH));
+  }
+
+  @Test
+  public void indexReusedWhileResponseUnchanged() {
+    FakeEdda edda = new FakeEdda().put(PATH, RECORDS);
+    EddaRoute53Client client = client(edda, "hostedRecordsTtl", "PT0S");
+    RecordIndex index = client.getRecordIndex();
+    assertSame(index, client.getRecordIndex());
+    assertEquals(2, edda.count(PATH));
+
+    edda.put(PATH, "[" + record("Z1", "www.example.com.", "10.0.0.1") + "]");
+    RecordIndex updated = client.getRecordIndex();
+    assertNotSame(index, updated);
+    assertEquals(1, updated.getRecords().size());
+  }
+
+  @Test
+  public void rxIndexReusedWhileResponseUnchanged() {
+    FakeEdda edda = new FakeEdda().put(PATH, RECORDS);
+    EddaRoute53RxNettyClient client = rxClient(edda, "hostedRecordsTtl", "PT0S");
+    RecordIndex index = client.getRecordIndex().toBlocking().single();
+    assertSame(index, client.getRecordIndex().toBlocking().single());
+    assertEquals(3, index.getRecords().size());
+    assertEquals(2, edda.count(PATH));
+  }
+
+  @Test
+  public void rxSingleFlightRefresh() {
+    final FakeEdda edda = new FakeEdda().put(PATH, RECORDS);
+    final PublishSubject<ByteBuf> content = PublishSubject.create();
+    EddaRoute53RxNettyClient client = new EddaRoute53RxNettyClient(
+        TestConfig.create(), "vip", "us-east-1") {
+      @Override protected Observable<ByteBuf> doGetContent(String uri) {
+        return Observable.defer(() -> {
+          edda.get(uri);
+          return content;
+        });
+      }
+    };
+
+    TestSubscriber<RecordIndex> s1 = new TestSubscriber<RecordIndex>();
+    TestSubscriber<RecordIndex> s2 = new TestSubscriber<RecordIndex>();
+    client.getRecordIndex().subscribe(s1);
+    client.getRecordIndex().subscribe(s2);
+    content.onNext(Unpooled.wrappedBuffer(edda.get("/api/v2/" + PATH).data));
+    content.onCompleted();
+    s1.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    s2.awaitTerminalEvent(10, TimeUnit.SECONDS);
+    s1.assertNoErrors();
+    s2.assertNoErrors();
+    assertSame(s1.getOnNextEvents().get(0), s2.getOnNextEvents().get(0));
+
+    // one fetch by the client and one to get the content above
+    assertEquals(2, edda.count(PATH));
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.Duration;
+import org.joda.time.Period;
+
+import com.netflix.iep.config.DefaultValue;
+
+/**
+ * Configuration for tests that use the default values of {@link AwsConfiguration} with some
+ * overrides, without needing to load the properties.
+ */
+final class TestConfig {
+  private TestConfig() {}
+
+  /** Create a config, overrides are pairs of method name and value. */
+  static AwsConfiguration create(String... overrides) {
+    final Map<String, String> values = new HashMap<String, String>();
+    for (int i = 0; i < overrides.length; i += 2)
+      values.put(overrides[i], overrides[i + 1]);
+    return (AwsConfiguration) Proxy.newProxyInstance(
+      AwsConfiguration.class.getClassLoader(),
+      new Class<?>[] {AwsConfiguration.class},
+      (proxy, method, args) -> value(method, values)
+    );
+  }
+
+  private static Object value(Method method, Map<String, String> values) {
+    String v = values.get(method.getName());
+    if (v == null) {
+      DefaultValue dflt = method.getAnnotation(DefaultValue.class);
+      if (dflt == null) return null;
+      v = dflt.value();
+    }
+    Class<?> type = method.getReturnType();
+    if (type == boolean.class) return Boolean.parseBoolean(v);
+    if (type == int.class) return Integer.parseInt(v);
+    if (type == Duration.class) return Period.parse(v).toStandardDuration();
+    return v;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.change;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.ec2.model.Subnet;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ChangeDetectorTests {
+  private static Map<String, Subnet> subnets(String... idAndCidrs) {
+    Map<String, Subnet> subnets = new LinkedHashMap<String, Subnet>();
+    for (int i = 0; i < idAndCidrs.length; i += 2) {
+      Subnet s = new Subnet().withSubnetId(idAndCidrs[i]).withCidrBlock(idAndCidrs[i + 1]);
+      subnets.put(s.getSubnetId(), s);
+    }
+    return subnets;
+  }
+
+  private static String str(List<? extends ChangeEvent<?>> events) {
+    return events.toString();
+  }
+
+  @Test
+  public void firstUpdateAddsAll() {
+    ChangeDetector<Subnet> detector = new ChangeDetector<Subnet>();
+    List<ChangeEvent<Subnet>> events =
+      detector.update(1L, subnets("subnet-1", "10.0.0.0/24", "subnet-2", "10.0.1.0/24"));
+    assertEquals("[ADDED(subnet-1@1), ADDED(subnet-2@1)]", str(events));
+    assertEquals("10.0.0.0/24", events.get(0).getResource().getCidrBlock());
+  }
+
+  @Test
+  public void sameContentNoChanges() {
+    ChangeDetector<Subnet> detector = new ChangeDetector<Subnet>();
+    detector.update(1L, subnets("subnet-1", "10.0.0.0/24"));
+    // New objects with the same content are not reported
+    assertTrue(detector.update(2L, subnets("subnet-1", "10.0.0.0/24")).isEmpty());
+  }
+
+  @Test
+  public void modifiedAndRemoved() {
+    ChangeDetector<Subnet> detector = new ChangeDetector<Subnet>();
+    detector.update(1L, subnets("subnet-1", "10.0.0.0/24", "subnet-2", "10.0.1.0/24"));
+    List<ChangeEvent<Subnet>> events =
+      detector.update(2L, subnets("subnet-1", "10.0.2.0/24", "subnet-3", "10.0.3.0/24"));
+    assertEquals("[MODIFIED(subnet-1@2), ADDED(subnet-3@2), REMOVED(subnet-2@2)]", str(events));
+    assertEquals("10.0.2.0/24", events.get(0).getResource().getCidrBlock());
+    assertEquals("10.0.1.0/24", events.get(2).getResource().getCidrBlock());
+  }
+
+  @Test
+  public void removedOnlyOnce() {
+    ChangeDetector<Subnet> detector = new ChangeDetector<Subnet>();
+    detector.update(1L, subnets("subnet-1", "10.0.0.0/24"));
+    assertEquals("[REMOVED(subnet-1@2)]", str(detector.update(2L, subnets())));
+    assertTrue(detector.update(3L, subnets()).isEmpty());
+  }
+
+  @Test
+  public void diff() {
+    List<ChangeEvent<Subnet>> events = new ArrayList<ChangeEvent<Subnet>>();
+    ChangeDetector.diff(
+      5L,
+      subnets("subnet-1", "10.0.0.0/24", "subnet-2", "10.0.1.0/24", "subnet-3", "10.0.3.0/24"),
+      subnets("subnet-1", "10.0.0.0/24", "subnet-2", "10.0.4.0/24", "subnet-4", "10.0.5.0/24"),
+      events);
+    assertEquals("[MODIFIED(subnet-2@5), ADDED(subnet-4@5), REMOVED(subnet-3@5)]", str(events));
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.change;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.Subnet;
+
+import com.netflix.edda.EddaBundleClient;
+import com.netflix.edda.EddaCollection;
+import com.netflix.edda.EddaPoller;
+import com.netflix.edda.FakeEdda;
+import com.netflix.edda.Snapshot;
+import com.netflix.edda.VersionedSnapshot;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ChangeFeedTests {
+  private static final String INSTANCES = "aws/instances;_expand";
+  private static final String SUBNETS = "aws/subnets;_expand";
+
+  private static String reservation(String id, String... instances) {
+    StringBuilder builder = new StringBuilder();
+    builder.append("{\"reservationId\":\"").append(id).append("\",\"instances\":[");
+    for (int i = 0; i < instances.length; ++i) {
+      if (i > 0) builder.append(',');
+      builder.append(instances[i]);
+    }
+    return builder.append("]}").toString();
+  }
+
+  private static String instance(String id, String ip) {
+    return "{\"instanceId\":\"" + id + "\",\"privateIpAddress\":\"" + ip + "\"}";
+  }
+
+  private static String array(String... elements) {
+    return "[" + String.join(",", elements) + "]";
+  }
+
+  private static List<String> sorted(List<? extends ChangeEvent<?>> events) {
+    List<String> strs = new ArrayList<String>();
+    for (ChangeEvent<?> e : events)
+      strs.add(e.toString());
+    Collections.sort(strs);
+    return strs;
+  }
+
+  private static VersionedSnapshot<Reservation> fetch(
+    EddaBundleClient client,
+    VersionedSnapshot<Reservation> previous
+  ) {
+    return client.fetch(EddaCollection.INSTANCES, previous).toBlocking().single();
+  }
+
+  private static Map<String, Subnet> keyed(List<Subnet> subnets) {
+    Map<String, Subnet> keyed = new LinkedHashMap<String, Subnet>();
+    for (Subnet s : subnets)
+      keyed.put(s.getSubnetId(), s);
+    return keyed;
+  }
+
+  @Test
+  public void snapshots() {
+    PublishSubject<Snapshot<Subnet>> snapshots = PublishSubject.create();
+    ChangeFeed<Subnet> feed = new ChangeFeed<Subnet>(snapshots, ChangeFeedTests::keyed);
+    TestSubscriber<List<ChangeEvent<Subnet>>> batches =
+      new TestSubscriber<List<ChangeEvent<Subnet>>>();
+    TestSubscriber<ChangeEvent<Subnet>> events = new TestSubscriber<ChangeEvent<Subnet>>();
+    feed.batches().subscribe(batches);
+    feed.events().subscribe(events);
+
+    Subnet s1 = new Subnet().withSubnetId("subnet-1");
+    Subnet s2 = new Subnet().withSubnetId("subnet-2");
+    snapshots.onNext(new Snapshot<Subnet>(1L, Arrays.asList(s1)));
+    snapshots.onNext(new Snapshot<Subnet>(2L, Arrays.asList(s1)));
+    snapshots.onNext(new Snapshot<Subnet>(3L, Arrays.asList(s2)));
+
+    // Refreshes without changes are not emitted
+    assertEquals(2, batches.getOnNextEvents().size());
+    assertEquals("[ADDED(subnet-1@1)]", batches.getOnNextEvents().get(0).toString());
+    assertEquals(
+      "[ADDED(subnet-2@3), REMOVED(subnet-1@3)]",
+      batches.getOnNextEvents().get(1).toString());
+    assertEquals(3, events.getOnNextEvents().size());
+  }
+
+  @Test
+  public void instanceChanges() {
+    FakeEdda edda = new FakeEdda();
+    EddaBundleClient client = edda.bundleClient();
+    edda.put(INSTANCES, array(
+      reservation("r-1", instance("i-1", "10.0.0.1"), instance("i-2", "10.0.0.2")),
+      reservation("r-2", instance("i-3", "10.0.0.2")),
+      reservation("r-3", instance("i-4", "10.0.0.2"))));
+    VersionedSnapshot<Reservation> v1 = fetch(client, VersionedSnapshot.<Reservation>empty());
+    List<ChangeEvent<Instance>> events =
+      ChangeFeed.instanceChanges(VersionedSnapshot.<Reservation>empty(), v1);
+    assertEquals(4, events.size());
+    for (ChangeEvent<Instance> e : events)
+      assertEquals(ChangeEvent.Type.ADDED, e.getType());
+
+    edda.put(INSTANCES, array(
+      reservation("r-1", instance("i-1", "10.0.0.2"), instance("i-2", "10.0.0.2")),
+      reservation("r-3", instance("i-4", "10.0.0.2"), instance("i-5", "10.0.0.1")),
+      reservation("r-4", instance("i-6", "10.0.0.1"))));
+    VersionedSnapshot<Reservation> v2 = fetch(client, v1);
+    long t = v2.getTimestamp();
+    assertEquals(
+      Arrays.asList(
+        "ADDED(i-5@" + t + ")",
+        "ADDED(i-6@" + t + ")",
+        "MODIFIED(i-1@" + t + ")",
+        "REMOVED(i-3@" + t + ")"),
+      sorted(ChangeFeed.instanceChanges(v1, v2)));
+    assertTrue(ChangeFeed.instanceChanges(v2, v2).isEmpty());
+  }
+
+  @Test
+  public void instanceRemovedWithReservation() {
+    FakeEdda edda = new FakeEdda();
+    EddaBundleClient client = edda.bundleClient();
+    edda.put(INSTANCES, array(reservation("r-1", instance("i-1", "10.0.0.2"))));
+    VersionedSnapshot<Reservation> v1 = fetch(client, VersionedSnapshot.<Reservation>empty());
+    edda.put(INSTANCES, array());
+    VersionedSnapshot<Reservation> v2 = fetch(client, v1);
+    List<ChangeEvent<Instance>> events = ChangeFeed.instanceChanges(v1, v2);
+    assertEquals(1, events.size());
+    assertEquals(ChangeEvent.Type.REMOVED, events.get(0).getType());
+    assertEquals("10.0.0.2", events.get(0).getResource().getPrivateIpAddress());
+  }
+
+  @Test
+  public void sharedPerCollectionAndIdFunction() {
+    EddaPoller poller = new EddaPoller(new FakeEdda().bundleClient(), 1, TimeUnit.HOURS);
+    Func1<Subnet, String> id = Subnet::getSubnetId;
+    Func1<Subnet, String> cidr = Subnet::getCidrBlock;
+    ChangeFeed<Subnet> feed = ChangeFeed.of(poller, EddaCollection.SUBNETS, id);
+    assertSame(feed, ChangeFeed.of(poller, EddaCollection.SUBNETS, id));
+    assertNotSame(feed, ChangeFeed.of(poller, EddaCollection.SUBNETS, cidr));
+    assertSame(ChangeFeed.autoScalingGroups(poller), ChangeFeed.autoScalingGroups(poller));
+    assertSame(ChangeFeed.instances(poller), ChangeFeed.instances(poller));
+  }
+
+  @Test
+  public void versionedFeedUsesIdFunction() {
+    FakeEdda edda = new FakeEdda().put(SUBNETS, array(
+      "{\"subnetId\":\"subnet-1\",\"cidrBlock\":\"10.0.0.0/24\"}",
+      "{\"subnetId\":\"subnet-2\",\"cidrBlock\":\"10.0.1.0/24\"}"));
+    EddaPoller poller = new EddaPoller(edda.bundleClient(), 1, TimeUnit.HOURS);
+    ChangeFeed<Subnet> feed = ChangeFeed.of(poller, EddaCollection.SUBNETS, Subnet::getCidrBlock);
+    List<ChangeEvent<Subnet>> events = feed.batches().toBlocking().first();
+    List<String> ids = new ArrayList<String>();
+    for (ChangeEvent<Subnet> e : events) {
+      assertEquals(ChangeEvent.Type.ADDED, e.getType());
+      ids.add(e.getId());
+    }
+    Collections.sort(ids);
+    assertEquals(Arrays.asList("10.0.0.0/24", "10.0.1.0/24"), ids);
+  }
+
+  @Test
+  public void coalesce() {
+    List<ChangeEvent<String>> events = Arrays.asList(
+      new ChangeEvent<String>(ChangeEvent.Type.ADDED, "a", "a1", 1L),
+      new ChangeEvent<String>(ChangeEvent.Type.MODIFIED, "a", "a2", 2L),
+      new ChangeEvent<String>(ChangeEvent.Type.ADDED, "b", "b1", 1L),
+      new ChangeEvent<String>(ChangeEvent.Type.REMOVED, "b", "b1", 2L),
+      new ChangeEvent<String>(ChangeEvent.Type.REMOVED, "c", "c1", 1L),
+      new ChangeEvent<String>(ChangeEvent.Type.ADDED, "c", "c2", 2L));
+    List<ChangeEvent<String>> merged = ChangeFeed.coalesce(events);
+    assertEquals("[ADDED(a@2), MODIFIED(c@2)]", merged.toString());
+    assertEquals("a2", merged.get(0).getResource());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.filter;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceState;
+import com.amazonaws.services.ec2.model.Placement;
+import com.amazonaws.services.ec2.model.Tag;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class Ec2FiltersTests {
+  private final Instance instance = new Instance()
+    .withInstanceId("i-0123456789abcdef0")
+    .withState(new InstanceState().withName("running").withCode(16))
+    .withPlacement(new Placement().withAvailabilityZone("us-east-1c"))
+    .withVpcId("vpc-1234abcd")
+    .withTags(new Tag("Name", "app-main-v001"), new Tag("owner", "team@example.com"));
+
+  private Ec2Filter<Instance> compile(Filter... filters) {
+    return Ec2Filters.INSTANCES.compile(Arrays.asList(filters));
+  }
+
+  private Filter filter(String name, String... values) {
+    return new Filter(name, Arrays.asList(values));
+  }
+
+  @Test
+  public void empty() {
+    assertTrue(compile().isEmpty());
+    assertTrue(Ec2Filters.INSTANCES.compile(null).test(instance));
+  }
+
+  @Test
+  public void exact() {
+    assertTrue(compile(filter("instance-state-name", "stopped", "running")).test(instance));
+    assertFalse(compile(filter("instance-state-name", "stopped")).test(instance));
+    assertTrue(compile(filter("instance-state-code", "16")).test(instance));
+    assertTrue(compile(filter("availability-zone", "us-east-1c")).test(instance));
+  }
+
+  @Test
+  public void allFiltersMustMatch() {
+    assertTrue(compile(filter("vpc-id", "vpc-1234abcd"), filter("availability-zone", "us-east-1c")).test(instance));
+    assertFalse(compile(filter("vpc-id", "vpc-1234abcd"), filter("availability-zone", "us-east-1d")).test(instance));
+  }
+
+  @Test
+  public void wildcards() {
+    assertTrue(compile(filter("availability-zone", "us-east-1*")).test(instance));
+    assertTrue(compile(filter("availability-zone", "us-east-?c")).test(instance));
+    assertFalse(compile(filter("availability-zone", "us-west-*")).test(instance));
+    assertTrue(compile(filter("tag:Name", "app-*-v???")).test(instance));
+    assertFalse(compile(filter("tag:Name", "app-\\*")).test(instance));
+  }
+
+  @Test
+  public void tags() {
+    assertTrue(compile(filter("tag:owner", "team@example.com")).test(instance));
+    assertFalse(compile(filter("tag:Owner", "team@example.com")).test(instance));
+    assertTrue(compile(filter("tag-key", "owner")).test(instance));
+    assertTrue(compile(filter("tag-value", "app-main-v001")).test(instance));
+    assertFalse(compile(filter("tag-value", "owner")).test(instance));
+  }
+
+  @Test
+  public void missingValue() {
+    assertFalse(compile(filter("subnet-id", "*")).test(instance));
+  }
+
+  @Test
+  public void exactValues() {
+    Ec2Filter<Instance> f = compile(filter("instance-id", "i-1", "i-2"), filter("vpc-id", "vpc-*"));
+    assertEquals(Arrays.asList("i-1", "i-2"), f.exactValues("instance-id"));
+    assertNull(f.exactValues("vpc-id"));
+    assertNull(f.exactValues("subnet-id"));
+  }
+
+  @Test
+  public void otherSchemas() {
+    Filter f = filter("reservation-id", "r-1234abcd");
+    assertTrue(Ec2Filters.INSTANCES.compile(Collections.singletonList(f), Ec2Filters.RESERVATIONS).isEmpty());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void unknownName() {
+    compile(filter("foo", "bar"));
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricAlarm;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class AlarmIndexTests {
+  private static MetricAlarm alarm(String name, String state, String... dimensions) {
+    MetricAlarm alarm = new MetricAlarm()
+      .withAlarmName(name)
+      .withNamespace("AWS/EC2")
+      .withMetricName("CPUUtilization")
+      .withStatistic("Average")
+      .withPeriod(60)
+      .withStateValue(state);
+    for (int i = 0; i < dimensions.length; i += 2)
+      alarm.withDimensions(new Dimension().withName(dimensions[i]).withValue(dimensions[i + 1]));
+    return alarm;
+  }
+
+  private static List<Dimension> dims(String... kvs) {
+    List<Dimension> ds = new ArrayList<Dimension>();
+    for (int i = 0; i < kvs.length; i += 2)
+      ds.add(new Dimension().withName(kvs[i]).withValue(kvs[i + 1]));
+    return ds;
+  }
+
+  // Names of the matching alarms in the order returned, results are in the order of the list
+  private static List<String> names(List<MetricAlarm> alarms) {
+    List<String> names = new ArrayList<String>();
+    for (MetricAlarm a : alarms)
+      names.add(a.getAlarmName() + ":" + a.getStateValue());
+    return names;
+  }
+
+  private static AlarmIndex index() {
+    return new AlarmIndex(Arrays.asList(
+      alarm("abd", "OK", "AutoScalingGroupName", "app-v001"),
+      alarm("ab", "ALARM", "AutoScalingGroupName", "app-v002")
+        .withAlarmActions("arn:aws:sns:us-east-1:123:page"),
+      alarm("abc", "OK", "AutoScalingGroupName", "app-v001", "InstanceType", "m4.large")
+        .withOKActions("arn:aws:sns:us-east-1:123:email"),
+      alarm("a", "INSUFFICIENT_DATA"),
+      alarm("ab", "OK", "AutoScalingGroupName", "app-v001")
+        .withInsufficientDataActions("arn:aws:sns:us-east-1:123:page"),
+      alarm("b", "ALARM", "InstanceType", "m4.large", "AutoScalingGroupName", "app-v001")
+        .withAlarmActions("arn:aws:autoscaling:us-east-1:123:scale")
+        .withOKActions("arn:aws:autoscaling:us-east-1:123:scale")));
+  }
+
+  @Test
+  public void namePrefix() {
+    AlarmIndex index = index();
+    assertEquals(
+      Arrays.asList("abd:OK", "ab:ALARM", "abc:OK", "ab:OK"),
+      names(index.getByNamePrefix("ab")));
+    assertEquals(Arrays.asList("abd:OK"), names(index.getByNamePrefix("abd")));
+    assertEquals(6, index.getByNamePrefix("").size());
+    assertEquals(5, index.getByNamePrefix("a").size());
+  }
+
+  @Test
+  public void namePrefixBounds() {
+    AlarmIndex index = index();
+    // before the first name, after the last name, and between names
+    assertTrue(index.getByNamePrefix("0").isEmpty());
+    assertTrue(index.getByNamePrefix("c").isEmpty());
+    assertTrue(index.getByNamePrefix("aba").isEmpty());
+    assertTrue(index.getByNamePrefix("abcd").isEmpty());
+    assertEquals(Arrays.asList("b:ALARM"), names(index.getByNamePrefix("b")));
+    assertTrue(new AlarmIndex(Collections.<MetricAlarm>emptyList()).getByNamePrefix("a").isEmpty());
+  }
+
+  @Test
+  public void exactNameWithDuplicates() {
+    AlarmIndex index = index();
+    assertEquals(Arrays.asList("ab:ALARM", "ab:OK"), names(index.getByName("ab")));
+    assertEquals(Arrays.asList("a:INSUFFICIENT_DATA"), names(index.getByName("a")));
+    assertTrue(index.getByName("aa").isEmpty());
+    assertTrue(index.getByName("c").isEmpty());
+  }
+
+  @Test
+  public void actionPrefix() {
+    AlarmIndex index = index();
+    assertEquals(
+      Arrays.asList("ab:ALARM", "abc:OK", "ab:OK"),
+      names(index.getByActionPrefix("arn:aws:sns:")));
+    // an alarm using the action more than once is only returned once
+    assertEquals(
+      Arrays.asList("b:ALARM"),
+      names(index.getByActionPrefix("arn:aws:autoscaling:")));
+    assertTrue(index.getByActionPrefix("arn:aws:lambda:").isEmpty());
+  }
+
+  @Test
+  public void find() {
+    AlarmIndex index = index();
+    assertEquals(
+      Arrays.asList("ab:OK"),
+      names(index.find(Arrays.asList("ab"), null, null, "OK")));
+    assertEquals(
+      Arrays.asList("ab:ALARM", "b:ALARM"),
+      names(index.find(null, "", "", "ALARM")));
+    assertEquals(
+      Arrays.asList("ab:ALARM", "ab:OK"),
+      names(index.find(Arrays.asList("ab", "missing"), "a", "arn:aws:sns:", null)));
+    assertTrue(index.find(Arrays.asList("b"), "a", null, null).isEmpty());
+    assertEquals(6, index.find(null, null, null, null).size());
+    assertEquals(6, index.find(Collections.<String>emptyList(), null, null, "").size());
+  }
+
+  @Test
+  public void byDimension() {
+    AlarmIndex index = index();
+    assertEquals(
+      Arrays.asList("abc:OK", "b:ALARM"),
+      names(index.getByDimension("InstanceType", "m4.large")));
+    assertTrue(index.getByDimension("InstanceType", "m4.xlarge").isEmpty());
+    assertTrue(index.getByDimension("Missing", "m4.large").isEmpty());
+  }
+
+  @Test
+  public void findForMetricDimensions() {
+    AlarmIndex index = index();
+    assertEquals(
+      Arrays.asList("abd:OK", "ab:OK"),
+      names(index.findForMetric("AWS/EC2", "CPUUtilization",
+        dims("AutoScalingGroupName", "app-v001"), null, null, null)));
+
+    // dimensions must be the same set, order does not matter
+    assertEquals(
+      Arrays.asList("abc:OK", "b:ALARM"),
+      names(index.findForMetric("AWS/EC2", "CPUUtilization",
+        dims("InstanceType", "m4.large", "AutoScalingGroupName", "app-v001"), null, null, null)));
+    assertTrue(index.findForMetric("AWS/EC2", "CPUUtilization",
+      dims("AutoScalingGroupName", "app-v001", "InstanceType", "m4.xlarge"),
+      null, null, null).isEmpty());
+    assertTrue(index.findForMetric("AWS/EC2", "CPUUtilization",
+      dims("AutoScalingGroupName", "app-v003"), null, null, null).isEmpty());
+
+    // no dimensions checks all alarms for the metric
+    assertEquals(6, index.findForMetric("AWS/EC2", "CPUUtilization",
+      null, null, null, null).size());
+    assertEquals(6, index.findForMetric("AWS/EC2", "CPUUtilization",
+      dims(), "Average", 60, null).size());
+  }
+
+  @Test
+  public void findForMetricCriteria() {
+    AlarmIndex index = index();
+    List<Dimension> ds = dims("AutoScalingGroupName", "app-v002");
+    assertEquals(1, index.findForMetric("AWS/EC2", "CPUUtilization", ds, null, null, null).size());
+    assertTrue(index.findForMetric("AWS/ELB", "CPUUtilization", ds, null, null, null).isEmpty());
+    assertTrue(index.findForMetric("AWS/EC2", "NetworkIn", ds, null, null, null).isEmpty());
+    assertTrue(index.findForMetric("AWS/EC2", "CPUUtilization", ds, "Sum", null, null).isEmpty());
+    assertTrue(index.findForMetric("AWS/EC2", "CPUUtilization", ds, null, 300, null).isEmpty());
+    assertTrue(index.findForMetric("AWS/EC2", "CPUUtilization", ds, null, null, "Percent")
+      .isEmpty());
+  }
+}
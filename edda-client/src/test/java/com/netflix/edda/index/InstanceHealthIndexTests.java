@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.amazonaws.services.elasticloadbalancing.model.InstanceState;
+
+import com.netflix.edda.mapper.InstanceStateView;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class InstanceHealthIndexTests {
+  private static InstanceState state(String id, String state) {
+    return new InstanceState().withInstanceId(id).withState(state);
+  }
+
+  private static InstanceStateView view(String name, InstanceState... states) {
+    InstanceStateView view = new InstanceStateView();
+    view.setName(name);
+    view.setInstances(Arrays.asList(states));
+    return view;
+  }
+
+  private static List<String> ids(List<InstanceState> states) {
+    List<String> ids = new ArrayList<String>();
+    for (InstanceState s : states)
+      ids.add(s.getInstanceId());
+    return ids;
+  }
+
+  private static InstanceHealthIndex index() {
+    return new InstanceHealthIndex(Arrays.asList(
+      view("frontend", state("i-1", "InService"), state("i-2", "OutOfService")),
+      view("backend", state("i-2", "InService"), state("i-3", "InService")),
+      view("empty"),
+      view(null, state("i-4", "InService"))));
+  }
+
+  @Test
+  public void byLoadBalancer() {
+    InstanceHealthIndex index = index();
+    assertEquals(Arrays.asList("i-1", "i-2"), ids(index.getInstanceStates("frontend")));
+    assertEquals(Arrays.asList("i-2", "i-3"), ids(index.getInstanceStates("backend")));
+    assertEquals(Collections.<String>emptyList(), ids(index.getInstanceStates("empty")));
+    assertTrue(index.containsLoadBalancer("empty"));
+    assertFalse(index.containsLoadBalancer("missing"));
+    assertNull(index.getInstanceStates("missing"));
+    assertEquals(4, index.getViews().size());
+  }
+
+  @Test
+  public void byInstance() {
+    InstanceHealthIndex index = index();
+    assertEquals(Arrays.asList("frontend", "backend"), index.getLoadBalancerNames("i-2"));
+    assertEquals(
+      "OutOfService",
+      index.getInstanceStatesByLoadBalancer("i-2").get("frontend").getState());
+    assertEquals(Arrays.asList("backend"), index.getLoadBalancerNames("i-3"));
+    assertTrue(index.getLoadBalancerNames("i-5").isEmpty());
+    assertTrue(index.getInstanceStatesByLoadBalancer("i-5").isEmpty());
+  }
+
+  @Test
+  public void viewsWithoutNameAreSkipped() {
+    InstanceHealthIndex index = index();
+    assertTrue(index.getLoadBalancerNames("i-4").isEmpty());
+    assertFalse(index.isInService("i-4"));
+  }
+
+  @Test
+  public void inService() {
+    InstanceHealthIndex index = index();
+    assertTrue(index.isInService("i-1"));
+    assertFalse(index.isInService("i-2"));
+    assertTrue(index.isInService("i-3"));
+    assertFalse(index.isInService("i-5"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void statesByLoadBalancerUnmodifiable() {
+    index().getInstanceStatesByLoadBalancer("i-1").clear();
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.Arrays;
+
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceNetworkInterface;
+import com.amazonaws.services.ec2.model.InstanceNetworkInterfaceAssociation;
+import com.amazonaws.services.ec2.model.InstancePrivateIpAddress;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.Vpc;
+
+import com.netflix.edda.Snapshot;
+import com.netflix.edda.util.CidrTrie;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IpResolverTests {
+  private static Subnet subnet(String id, String vpcId, String cidr) {
+    return new Subnet().withSubnetId(id).withVpcId(vpcId).withCidrBlock(cidr);
+  }
+
+  private static Vpc vpc(String id, String cidr) {
+    return new Vpc().withVpcId(id).withCidrBlock(cidr);
+  }
+
+  private static Instance instance(String id, String vpcId, String privateIp, String publicIp) {
+    return new Instance()
+      .withInstanceId(id)
+      .withVpcId(vpcId)
+      .withPrivateIpAddress(privateIp)
+      .withPublicIpAddress(publicIp);
+  }
+
+  private static InstanceNetworkInterfaceAssociation association(String publicIp) {
+    return new InstanceNetworkInterfaceAssociation().withPublicIp(publicIp);
+  }
+
+  private static String id(Instance i) {
+    return (i == null) ? null : i.getInstanceId();
+  }
+
+  private static String id(Subnet s) {
+    return (s == null) ? null : s.getSubnetId();
+  }
+
+  private static String id(Vpc v) {
+    return (v == null) ? null : v.getVpcId();
+  }
+
+  private IpResolver resolver;
+
+  @Before
+  public void init() {
+    resolver = new IpResolver();
+
+    // Both VPCs use the same range, the subnets in 10.0.1.0/24 also overlap
+    resolver.updateVpcs(new Snapshot<Vpc>(0L, Arrays.asList(
+      vpc("vpc-a", "10.0.0.0/16"),
+      vpc("vpc-b", "10.0.0.0/16"),
+      vpc("vpc-c", "192.168.0.0/16"))));
+    resolver.updateSubnets(new Snapshot<Subnet>(0L, Arrays.asList(
+      subnet("subnet-b1", "vpc-b", "10.0.1.0/24"),
+      subnet("subnet-a1", "vpc-a", "10.0.1.0/24"),
+      subnet("subnet-a2", "vpc-a", "10.0.2.0/24"),
+      subnet("subnet-c1", "vpc-c", "192.168.1.0/24"))));
+
+    Instance eni = instance("i-eni", "vpc-a", "10.0.2.10", null).withNetworkInterfaces(
+      new InstanceNetworkInterface()
+        .withAssociation(association("54.0.0.3"))
+        .withPrivateIpAddresses(
+          new InstancePrivateIpAddress().withPrivateIpAddress("10.0.2.10"),
+          new InstancePrivateIpAddress()
+            .withPrivateIpAddress("10.0.2.11")
+            .withAssociation(association("54.0.0.4"))));
+    resolver.updateInstances(new Snapshot<Reservation>(0L, Arrays.asList(
+      new Reservation().withInstances(
+        instance("i-a", "vpc-a", "10.0.1.5", "54.0.0.1"),
+        instance("i-b", "vpc-b", "10.0.1.5", null)),
+      new Reservation().withInstances(
+        eni,
+        instance("i-c", "vpc-c", "192.168.1.7", "200.1.2.3")))));
+  }
+
+  @Test
+  public void vpcOfMatchingSubnet() {
+    assertEquals("subnet-b1", id(resolver.getSubnet("10.0.1.5")));
+    assertEquals("vpc-b", id(resolver.getVpc("10.0.1.5")));
+    assertEquals("vpc-a", id(resolver.getVpc("10.0.2.5")));
+  }
+
+  @Test
+  public void vpcByCidrWithoutSubnet() {
+    assertNull(resolver.getSubnet("10.0.9.9"));
+    assertEquals("vpc-a", id(resolver.getVpc("10.0.9.9")));
+    assertEquals("vpc-c", id(resolver.getVpc("192.168.200.1")));
+    assertNull(resolver.getVpc("8.8.8.8"));
+    assertNull(resolver.getVpc("not-an-ip"));
+  }
+
+  @Test
+  public void samePrivateAddressInTwoVpcs() {
+    // The subnet for 10.0.1.0/24 is in vpc-b, so the instance in vpc-b is used even though
+    // the instance in vpc-a was listed first
+    assertEquals("i-b", id(resolver.getInstance("10.0.1.5")));
+  }
+
+  @Test
+  public void publicAndSecondaryAddresses() {
+    assertEquals("i-a", id(resolver.getInstance("54.0.0.1")));
+    assertEquals("i-eni", id(resolver.getInstance("10.0.2.10")));
+    assertEquals("i-eni", id(resolver.getInstance("10.0.2.11")));
+    assertEquals("i-eni", id(resolver.getInstance("54.0.0.3")));
+    assertEquals("i-eni", id(resolver.getInstance("54.0.0.4")));
+    assertNull(resolver.getInstance("54.0.0.5"));
+  }
+
+  @Test
+  public void resolveStrings() {
+    IpResolver.Resolution r =
+      resolver.resolve(new String[] {"10.0.1.5", "54.0.0.4", null, "10.0.9.9"});
+    assertEquals(4, r.size());
+    assertEquals("subnet-b1", id(r.getSubnet(0)));
+    assertEquals("vpc-b", id(r.getVpc(0)));
+    assertEquals("i-b", id(r.getInstance(0)));
+    assertNull(r.getSubnet(1));
+    assertEquals("i-eni", id(r.getInstance(1)));
+    assertNull(r.getVpc(2));
+    assertNull(r.getInstance(2));
+    assertEquals("vpc-a", id(r.getVpc(3)));
+    assertNull(r.getInstance(3));
+  }
+
+  @Test
+  public void resolveUnsigned() {
+    // Addresses with the high bit set are negative as ints
+    int c = CidrTrie.parseAddress("192.168.1.7");
+    int pub = CidrTrie.parseAddress("200.1.2.3");
+    assertTrue(c < 0 && pub < 0);
+    IpResolver.Resolution r = new IpResolver.Resolution(2);
+    resolver.resolve(new int[] {c, pub, CidrTrie.parseAddress("10.0.2.11")}, r);
+    assertEquals(3, r.size());
+    assertEquals("subnet-c1", id(r.getSubnet(0)));
+    assertEquals("vpc-c", id(r.getVpc(0)));
+    assertEquals("i-c", id(r.getInstance(0)));
+    assertNull(r.getSubnet(1));
+    assertEquals("i-c", id(r.getInstance(1)));
+    assertEquals("vpc-a", id(r.getVpc(2)));
+    assertEquals("i-eni", id(r.getInstance(2)));
+  }
+
+  @Test
+  public void resolutionReused() {
+    IpResolver.Resolution r = new IpResolver.Resolution(1);
+    resolver.resolve(new String[] {"10.0.1.5", "192.168.1.7", "54.0.0.1"}, r);
+    assertEquals(3, r.size());
+    assertEquals("i-a", id(r.getInstance(2)));
+
+    // A smaller batch reuses the arrays and overwrites the entries, invalid addresses are null
+    resolver.resolve(new String[] {"bad", "54.0.0.1"}, r);
+    assertEquals(2, r.size());
+    assertNull(r.getSubnet(0));
+    assertNull(r.getVpc(0));
+    assertNull(r.getInstance(0));
+    assertEquals("i-a", id(r.getInstance(1)));
+  }
+
+  @Test
+  public void vpcsUnknown() {
+    IpResolver empty = new IpResolver();
+    empty.updateSubnets(new Snapshot<Subnet>(0L, Arrays.asList(
+      subnet("subnet-a1", "vpc-a", "10.0.1.0/24"))));
+    assertEquals("subnet-a1", id(empty.getSubnet("10.0.1.1")));
+    assertNull(empty.getVpc("10.0.1.1"));
+    assertNull(empty.getInstance("10.0.1.1"));
+  }
+}
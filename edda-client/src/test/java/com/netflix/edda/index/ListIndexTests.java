@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.netflix.edda.Snapshot;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ListIndexTests {
+  private static final List<String> ITEMS = Arrays.asList("a:1", "b:2", "a:3", "c:1");
+
+  private static ListIndex.Cached<String> byPrefix() {
+    return ListIndex.cached(s -> s.substring(0, s.indexOf(':')));
+  }
+
+  private static ListIndex.Cached<String> byParts() {
+    return ListIndex.cachedMulti(s -> Arrays.asList(s.split(":")));
+  }
+
+  // Snapshots always wrap the items so the list is never the same instance
+  private static Snapshot<String> snapshot(List<String> items, long hash) {
+    return new Snapshot<String>(0L, new ArrayList<String>(items), BigInteger.valueOf(hash));
+  }
+
+  @Test
+  public void get() {
+    ListIndex<String> idx = byPrefix().get(snapshot(ITEMS, 1L));
+    assertEquals(Arrays.asList("a:1", "a:3"), idx.get("a"));
+    assertEquals("b:2", idx.first("b"));
+    assertNull(idx.first("d"));
+    assertTrue(idx.get("d").isEmpty());
+    assertFalse(idx.containsKey(null));
+  }
+
+  @Test
+  public void getAllInListOrder() {
+    ListIndex<String> idx = byParts().get(snapshot(ITEMS, 1L));
+    assertEquals(Arrays.asList("a:1", "a:3", "c:1"), idx.getAll(Arrays.asList("1", "a", "3")));
+  }
+
+  @Test
+  public void reusedForSameHash() {
+    ListIndex.Cached<String> cached = byPrefix();
+    ListIndex<String> idx = cached.get(snapshot(ITEMS, 1L));
+    assertSame(idx, cached.get(snapshot(ITEMS, 1L)));
+  }
+
+  @Test
+  public void rebuiltWhenHashChanges() {
+    ListIndex.Cached<String> cached = byPrefix();
+    ListIndex<String> idx = cached.get(snapshot(ITEMS, 1L));
+    ListIndex<String> updated = cached.get(snapshot(Arrays.asList("d:4"), 2L));
+    assertNotSame(idx, updated);
+    assertEquals("d:4", updated.first("d"));
+    assertNull(updated.first("a"));
+  }
+
+  @Test
+  public void rebuiltWhenHashUnknown() {
+    ListIndex.Cached<String> cached = byPrefix();
+    ListIndex<String> idx = cached.get(new Snapshot<String>(0L, ITEMS));
+    assertNotSame(idx, cached.get(new Snapshot<String>(0L, ITEMS)));
+  }
+}
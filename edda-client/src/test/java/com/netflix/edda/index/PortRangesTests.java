@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class PortRangesTests {
+  private static final int TCP = PortRanges.TCP;
+  private static final int UDP = PortRanges.UDP;
+  private static final int ICMP = PortRanges.ICMP;
+
+  @Test
+  public void protocolNames() {
+    assertEquals(PortRanges.ALL, PortRanges.protocol(null));
+    assertEquals(PortRanges.ALL, PortRanges.protocol("-1"));
+    assertEquals(PortRanges.ALL, PortRanges.protocol("all"));
+    assertEquals(TCP, PortRanges.protocol("TCP"));
+    assertEquals(UDP, PortRanges.protocol("udp"));
+    assertEquals(ICMP, PortRanges.protocol("icmp"));
+    assertEquals(58, PortRanges.protocol("icmpv6"));
+    assertEquals(50, PortRanges.protocol("50"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void protocolUnknown() {
+    PortRanges.protocol("foo");
+  }
+
+  @Test
+  public void range() {
+    PortRanges r = PortRanges.of(TCP, 8000, 8080);
+    assertFalse(r.allows(TCP, 7999));
+    assertTrue(r.allows(TCP, 8000));
+    assertTrue(r.allows(TCP, 8080));
+    assertFalse(r.allows(TCP, 8081));
+    assertFalse(r.allows(UDP, 8000));
+  }
+
+  @Test
+  public void allPorts() {
+    PortRanges r = PortRanges.of(UDP, -1, -1);
+    assertTrue(r.allows(UDP, 0));
+    assertTrue(r.allows(UDP, 65535));
+    assertFalse(r.allows(TCP, 53));
+    assertTrue(PortRanges.of(UDP, null, null).allows(UDP, 53));
+  }
+
+  @Test
+  public void allProtocols() {
+    PortRanges r = PortRanges.of(PortRanges.ALL, null, null);
+    assertTrue(r.allows(TCP, 22));
+    assertTrue(r.allows(UDP, 53));
+    assertTrue(r.allows(ICMP, 8));
+    assertTrue(r.allows(50, 0));
+  }
+
+  @Test
+  public void icmpTypeIgnoresCode() {
+    // Type 3 (destination unreachable) with code 4, the code is not a range of types
+    PortRanges r = PortRanges.of(ICMP, 3, 4);
+    assertTrue(r.allows(ICMP, 3));
+    assertFalse(r.allows(ICMP, 4));
+    assertFalse(r.allows(ICMP, 2));
+
+    PortRanges echo = PortRanges.of(ICMP, 8, -1);
+    assertTrue(echo.allows(ICMP, 8));
+    assertFalse(echo.allows(ICMP, 9));
+  }
+
+  @Test
+  public void icmpAllTypes() {
+    PortRanges r = PortRanges.of(ICMP, -1, -1);
+    assertTrue(r.allows(ICMP, 0));
+    assertTrue(r.allows(ICMP, 255));
+    assertFalse(r.allows(TCP, 0));
+  }
+
+  @Test
+  public void icmpv6() {
+    int icmpv6 = PortRanges.protocol("icmpv6");
+    PortRanges r = PortRanges.of(icmpv6, 128, 0);
+    assertTrue(r.allows(icmpv6, 128));
+    assertFalse(r.allows(icmpv6, 0));
+    assertFalse(r.allows(ICMP, 128));
+  }
+
+  @Test
+  public void unionMergesRanges() {
+    PortRanges r = PortRanges.union(PortRanges.of(TCP, 80, 80), PortRanges.of(TCP, 81, 90));
+    r = PortRanges.union(r, PortRanges.of(TCP, 85, 100));
+    r = PortRanges.union(r, PortRanges.of(TCP, 443, 443));
+    assertFalse(r.allows(TCP, 79));
+    assertTrue(r.allows(TCP, 80));
+    assertTrue(r.allows(TCP, 95));
+    assertTrue(r.allows(TCP, 100));
+    assertFalse(r.allows(TCP, 101));
+    assertFalse(r.allows(TCP, 442));
+    assertTrue(r.allows(TCP, 443));
+    assertFalse(r.allows(TCP, 444));
+  }
+
+  @Test
+  public void unionProtocols() {
+    PortRanges r = PortRanges.union(PortRanges.of(UDP, 53, 53), PortRanges.of(TCP, 22, 22));
+    r = PortRanges.union(r, PortRanges.of(ICMP, 8, -1));
+    assertTrue(r.allows(TCP, 22));
+    assertFalse(r.allows(TCP, 53));
+    assertTrue(r.allows(UDP, 53));
+    assertFalse(r.allows(UDP, 22));
+    assertTrue(r.allows(ICMP, 8));
+  }
+
+  @Test
+  public void unionWithAll() {
+    PortRanges r = PortRanges.union(PortRanges.of(TCP, 22, 22), PortRanges.of(-1, -1, -1));
+    assertTrue(r.allows(UDP, 1234));
+  }
+
+  @Test
+  public void empty() {
+    assertTrue(PortRanges.EMPTY.isEmpty());
+    assertFalse(PortRanges.EMPTY.allows(TCP, 22));
+    assertFalse(PortRanges.union(PortRanges.EMPTY, PortRanges.of(TCP, 22, 22)).isEmpty());
+  }
+}
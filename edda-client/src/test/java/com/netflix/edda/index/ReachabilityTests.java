@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.amazonaws.services.ec2.model.GroupIdentifier;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.IpPermission;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.UserIdGroupPair;
+
+import com.netflix.edda.Snapshot;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReachabilityTests {
+  private static IpPermission cidr(String protocol, int from, int to, String... cidrs) {
+    return new IpPermission()
+      .withIpProtocol(protocol)
+      .withFromPort(from)
+      .withToPort(to)
+      .withIpRanges(cidrs);
+  }
+
+  private static IpPermission group(String protocol, int from, int to, String groupId) {
+    return new IpPermission()
+      .withIpProtocol(protocol)
+      .withFromPort(from)
+      .withToPort(to)
+      .withUserIdGroupPairs(new UserIdGroupPair().withGroupId(groupId));
+  }
+
+  private static Instance instance(String id, String privateIp, String publicIp, String... groups) {
+    Instance i = new Instance()
+      .withInstanceId(id)
+      .withPrivateIpAddress(privateIp)
+      .withPublicIpAddress(publicIp);
+    for (String g : groups)
+      i.withSecurityGroups(new GroupIdentifier().withGroupId(g));
+    return i;
+  }
+
+  private Reachability reachability;
+
+  @Before
+  public void init() {
+    SecurityGroup lb = new SecurityGroup()
+      .withGroupId("sg-lb")
+      .withVpcId("vpc-1")
+      .withIpPermissions(cidr("tcp", 443, 443, "0.0.0.0/0"))
+      .withIpPermissionsEgress(new IpPermission().withIpProtocol("-1").withIpRanges("0.0.0.0/0"));
+    SecurityGroup web = new SecurityGroup()
+      .withGroupId("sg-web")
+      .withVpcId("vpc-1")
+      .withIpPermissions(
+        group("tcp", 8080, 8080, "sg-lb"),
+        cidr("icmp", 8, -1, "10.0.0.0/8"),
+        cidr("icmp", 3, 4, "10.0.0.0/8"),
+        cidr("tcp", 9000, 9010, "10.0.0.0/8"),
+        cidr("tcp", 9005, 9020, "10.0.0.0/16"),
+        cidr("tcp", 9021, 9030, "10.0.0.0/16"));
+    SecurityGroup unknown = new SecurityGroup()
+      .withGroupId("sg-unknown")
+      .withVpcId("vpc-1")
+      .withIpPermissions(cidr("foo", -1, -1, "0.0.0.0/0"), cidr("tcp", 22, 22, "10.0.0.0/8"));
+    SecurityGroup noEgress = new SecurityGroup()
+      .withGroupId("sg-no-egress")
+      .withVpcId("vpc-1")
+      .withIpPermissions(new IpPermission().withIpProtocol("-1").withIpRanges("10.0.0.0/8"));
+    SecurityGroup classic = new SecurityGroup()
+      .withGroupId("sg-classic")
+      .withIpPermissions(cidr("tcp", 22, 22, "0.0.0.0/0"));
+
+    reachability = new Reachability();
+    reachability.updateSecurityGroups(new Snapshot<SecurityGroup>(
+      0L, Arrays.asList(lb, web, unknown, noEgress, classic)));
+    reachability.updateInstances(new Snapshot<Reservation>(0L, Arrays.asList(
+      new Reservation().withInstances(
+        instance("i-lb", "10.0.0.1", "54.0.0.1", "sg-lb").withVpcId("vpc-1"),
+        instance("i-web", "10.0.0.2", null, "sg-web", "sg-unknown").withSubnetId("subnet-1"),
+        instance("i-other", "10.0.0.3", null, "sg-no-egress").withVpcId("vpc-1")),
+      new Reservation().withInstances(
+        instance("i-classic", "10.1.0.4", "54.0.0.4", "sg-classic")))));
+    reachability.updateSubnets(new Snapshot<Subnet>(0L, Collections.singletonList(
+      new Subnet().withSubnetId("subnet-1").withVpcId("vpc-1"))));
+  }
+
+  @Test
+  public void groupReference() {
+    assertTrue(reachability.canReach("i-lb", "i-web", "tcp", 8080));
+    assertFalse(reachability.canReach("i-lb", "i-web", "tcp", 8081));
+    assertFalse(reachability.canReach("i-lb", "i-web", "udp", 8080));
+    assertTrue(reachability.allowsIngress("i-web", "10.0.0.1", "tcp", 8080));
+    assertFalse(reachability.allowsIngress("i-web", "10.0.0.3", "tcp", 8080));
+    assertFalse(reachability.allowsIngress("i-web", "10.9.9.9", "tcp", 8080));
+  }
+
+  @Test
+  public void egressVpcWithoutRules() {
+    // Ingress on the load balancer allows it, but VPC groups without egress rules deny all
+    assertTrue(reachability.allowsIngress("i-lb", "10.0.0.3", "tcp", 443));
+    assertFalse(reachability.allowsEgress("i-other", "10.0.0.1", "tcp", 443));
+    assertFalse(reachability.canReach("i-other", "i-lb", "tcp", 443));
+  }
+
+  @Test
+  public void egressClassic() {
+    assertTrue(reachability.allowsEgress("i-classic", "8.8.8.8", "udp", 53));
+    assertTrue(reachability.canReach("i-classic", "i-lb", "tcp", 443));
+    assertFalse(reachability.canReach("i-classic", "i-lb", "tcp", 80));
+  }
+
+  @Test
+  public void differentVpcUsesPublicAddresses() {
+    assertTrue(reachability.canReach("i-lb", "i-classic", "tcp", 22));
+    assertFalse(reachability.canReach("i-lb", "i-classic", "tcp", 23));
+    assertFalse(reachability.canReach("i-classic", "i-web", "tcp", 22));
+  }
+
+  @Test
+  public void allProtocolRules() {
+    assertTrue(reachability.allowsEgress("i-lb", "8.8.8.8", "udp", 53));
+    assertTrue(reachability.allowsEgress("i-lb", "8.8.8.8", "50", 0));
+    assertTrue(reachability.allowsIngress("i-other", "10.200.0.1", "icmp", 0));
+    assertFalse(reachability.allowsIngress("i-other", "192.168.0.1", "tcp", 22));
+  }
+
+  @Test
+  public void icmp() {
+    assertTrue(reachability.allowsIngress("i-web", "10.9.9.9", "icmp", 8));
+    assertFalse(reachability.allowsIngress("i-web", "10.9.9.9", "icmp", 0));
+    assertTrue(reachability.allowsIngress("i-web", "10.9.9.9", "icmp", 3));
+    assertFalse(reachability.allowsIngress("i-web", "10.9.9.9", "icmp", 4));
+    assertFalse(reachability.allowsIngress("i-web", "172.16.0.1", "icmp", 8));
+  }
+
+  @Test
+  public void mergedRanges() {
+    assertTrue(reachability.allowsIngress("i-web", "10.0.5.5", "tcp", 9000));
+    assertTrue(reachability.allowsIngress("i-web", "10.0.5.5", "tcp", 9025));
+    assertFalse(reachability.allowsIngress("i-web", "10.0.5.5", "tcp", 9031));
+    assertTrue(reachability.allowsIngress("i-web", "10.5.0.0", "tcp", 9010));
+    assertFalse(reachability.allowsIngress("i-web", "10.5.0.0", "tcp", 9015));
+  }
+
+  @Test
+  public void unknownProtocolSkipped() {
+    assertTrue(reachability.allowsIngress("i-web", "10.9.9.9", "tcp", 22));
+    assertFalse(reachability.allowsIngress("i-web", "192.168.0.1", "tcp", 22));
+  }
+
+  @Test
+  public void unknownInstance() {
+    assertFalse(reachability.canReach("i-lb", "i-missing", "tcp", 8080));
+    assertFalse(reachability.allowsIngress("i-missing", "10.0.0.1", "tcp", 8080));
+  }
+
+  @Test
+  public void groups() {
+    assertEquals("vpc-1", reachability.getSecurityGroup("sg-web").getVpcId());
+    assertNull(reachability.getSecurityGroup("sg-missing"));
+    assertEquals(Arrays.asList("i-web"), reachability.getInstancesInGroup("sg-unknown"));
+    assertTrue(reachability.getInstancesInGroup("sg-missing").isEmpty());
+  }
+
+  @Test
+  public void updateReplacesRules() {
+    reachability.updateSecurityGroups(new Snapshot<SecurityGroup>(0L, Collections.singletonList(
+      new SecurityGroup()
+        .withGroupId("sg-web")
+        .withVpcId("vpc-1")
+        .withIpPermissions(cidr("tcp", 80, 80, "10.0.0.0/8")))));
+    assertTrue(reachability.allowsIngress("i-web", "10.0.0.1", "tcp", 80));
+    assertFalse(reachability.allowsIngress("i-web", "10.0.0.1", "tcp", 8080));
+    assertNull(reachability.getSecurityGroup("sg-lb"));
+  }
+}
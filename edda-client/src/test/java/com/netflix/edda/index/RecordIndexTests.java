@@ -0,0 +1,260 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.amazonaws.services.route53.model.AliasTarget;
+import com.amazonaws.services.route53.model.ListResourceRecordSetsRequest;
+import com.amazonaws.services.route53.model.ListResourceRecordSetsResult;
+import com.amazonaws.services.route53.model.ResourceRecord;
+import com.amazonaws.services.route53.model.ResourceRecordSet;
+
+import com.netflix.edda.ResourceRecordSetPager;
+import com.netflix.edda.mapper.HostedRecordView;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class RecordIndexTests {
+  private static HostedRecordView record(
+      String zoneId, String name, String type, String... values) {
+    HostedRecordView r = new HostedRecordView();
+    HostedRecordView.Zone zone = new HostedRecordView.Zone();
+    zone.setId("/hostedzone/" + zoneId);
+    r.setZone(zone);
+    r.setName(name);
+    r.setType(type);
+    for (String v : values)
+      r.getResourceRecords().add(new ResourceRecord().withValue(v));
+    return r;
+  }
+
+  private static List<String> names(List<ResourceRecordSet> records) {
+    List<String> names = new ArrayList<String>();
+    for (ResourceRecordSet r : records) {
+      String id = (r.getSetIdentifier() == null) ? "" : "/" + r.getSetIdentifier();
+      names.add(r.getName() + "/" + r.getType() + id);
+    }
+    return names;
+  }
+
+  private static RecordIndex index() {
+    HostedRecordView alias = record("Z1", "lb.example.com.", "A");
+    alias.setAliasTarget(new AliasTarget()
+      .withHostedZoneId("Z35SXDOTRQ7X7K")
+      .withDNSName("app-123.us-east-1.elb.amazonaws.com."));
+    HostedRecordView weightedB = record("Z1", "api.example.com.", "CNAME", "b.example.net.");
+    weightedB.setSetIdentifier("b");
+    HostedRecordView weightedA = record("Z1", "api.example.com.", "CNAME", "a.example.net.");
+    weightedA.setSetIdentifier("a");
+    return new RecordIndex(Arrays.asList(
+      record("Z1", "www.example.com.", "A", "10.0.0.1"),
+      record("Z1", "example.com.", "NS", "ns-1.awsdns.com."),
+      weightedB,
+      record("Z1", "\\052.example.com.", "A", "10.0.0.2"),
+      record("Z1", "example.com.", "A", "10.0.0.1"),
+      weightedA,
+      record("Z1", "a.b.example.com.", "A", "10.0.0.3"),
+      record("Z1", "\\052.c.example.com.", "CNAME", "c.example.net."),
+      alias,
+      record("Z2", "example.org.", "A", "10.0.0.4")));
+  }
+
+  @Test
+  public void recordsByZone() {
+    RecordIndex index = index();
+    List<String> expected = Arrays.asList(
+      "example.com./A",
+      "example.com./NS",
+      "\\052.example.com./A",
+      "api.example.com./CNAME/a",
+      "api.example.com./CNAME/b",
+      "a.b.example.com./A",
+      "\\052.c.example.com./CNAME",
+      "lb.example.com./A",
+      "www.example.com./A");
+    assertEquals(expected, names(index.getRecordsByZone("Z1")));
+    assertEquals(expected, names(index.getRecordsByZone("/hostedzone/Z1")));
+    assertEquals(Arrays.asList("example.org./A"), names(index.getRecordsByZone("Z2")));
+    assertTrue(index.getRecordsByZone("Z3").isEmpty());
+    assertEquals(10, index.getRecords().size());
+    assertEquals(2, index.getZoneIds().size());
+  }
+
+  @Test
+  public void byName() {
+    RecordIndex index = index();
+    assertEquals(Arrays.asList("www.example.com./A"), names(index.getByName("www.example.com.")));
+    assertEquals(Arrays.asList("www.example.com./A"), names(index.getByName("WWW.Example.com")));
+    assertEquals(
+      Arrays.asList("example.com./A", "example.com./NS"),
+      names(index.getByName("example.com")));
+    assertTrue(index.getByName("missing.example.com").isEmpty());
+
+    // empty non-terminal, b.example.com only has names below it
+    assertTrue(index.getByName("b.example.com").isEmpty());
+  }
+
+  @Test
+  public void escapedWildcard() {
+    // Route53 returns the wildcard label as \052, lookups can use either form
+    RecordIndex index = index();
+    assertEquals(
+      Arrays.asList("\\052.example.com./A"),
+      names(index.getByName("*.example.com")));
+    assertEquals(
+      Arrays.asList("\\052.example.com./A"),
+      names(index.getByName("\\052.example.com.")));
+    assertEquals(
+      Arrays.asList("\\052.example.com./A"),
+      names(index.resolve("\\052.example.com.")));
+  }
+
+  @Test
+  public void resolveExact() {
+    RecordIndex index = index();
+    assertEquals(Arrays.asList("www.example.com./A"), names(index.resolve("www.example.com")));
+    assertEquals(
+      Arrays.asList("api.example.com./CNAME/a", "api.example.com./CNAME/b"),
+      names(index.resolve("api.example.com.")));
+  }
+
+  @Test
+  public void resolveWildcard() {
+    RecordIndex index = index();
+    assertEquals(Arrays.asList("\\052.example.com./A"), names(index.resolve("foo.example.com")));
+
+    // closest enclosing name is example.com since b.x.example.com does not exist
+    assertEquals(Arrays.asList("\\052.example.com./A"), names(index.resolve("b.x.example.com")));
+
+    // deeper wildcard takes precedence
+    assertEquals(
+      Arrays.asList("\\052.c.example.com./CNAME"),
+      names(index.resolve("foo.c.example.com")));
+    assertEquals(
+      Arrays.asList("\\052.c.example.com./CNAME"),
+      names(index.resolve("foo.bar.c.example.com")));
+  }
+
+  @Test
+  public void resolveExistingNamesBlockWildcard() {
+    RecordIndex index = index();
+
+    // b.example.com exists as an empty non-terminal so the wildcard does not apply
+    assertTrue(index.resolve("b.example.com").isEmpty());
+    assertTrue(index.resolve("x.b.example.com").isEmpty());
+
+    // www.example.com exists and has no wildcard below it
+    assertTrue(index.resolve("foo.www.example.com").isEmpty());
+
+    // no wildcard in the zone
+    assertTrue(index.resolve("foo.example.org").isEmpty());
+    assertTrue(index.resolve("example.net").isEmpty());
+  }
+
+  @Test
+  public void subtreeOrder() {
+    RecordIndex index = index();
+    assertEquals(
+      Arrays.asList(
+        "example.com./A",
+        "example.com./NS",
+        "\\052.example.com./A",
+        "api.example.com./CNAME/a",
+        "api.example.com./CNAME/b",
+        "a.b.example.com./A",
+        "\\052.c.example.com./CNAME",
+        "lb.example.com./A",
+        "www.example.com./A"),
+      names(index.getSubtree("example.com")));
+    assertEquals(Arrays.asList("a.b.example.com./A"), names(index.getSubtree("b.example.com")));
+    assertEquals(
+      Arrays.asList("\\052.c.example.com./CNAME"),
+      names(index.getSubtree("c.example.com.")));
+    assertTrue(index.getSubtree("missing.example.com").isEmpty());
+    assertEquals(10, index.getSubtree("").size());
+  }
+
+  @Test
+  public void byValue() {
+    RecordIndex index = index();
+    assertEquals(
+      Arrays.asList("example.com./A", "www.example.com./A"),
+      names(index.getByValue("10.0.0.1")));
+    assertEquals(
+      Arrays.asList("lb.example.com./A"),
+      names(index.getByValue("APP-123.us-east-1.elb.amazonaws.com")));
+    assertEquals(
+      Arrays.asList("api.example.com./CNAME/a"),
+      names(index.getByValue("a.example.net")));
+    assertTrue(index.getByValue("10.0.0.9").isEmpty());
+  }
+
+  @Test
+  public void pageFromStartRecordName() {
+    List<ResourceRecordSet> records = index().getRecordsByZone("Z1");
+    ListResourceRecordSetsRequest request = new ListResourceRecordSetsRequest()
+      .withHostedZoneId("Z1")
+      .withStartRecordName("api.example.com.")
+      .withStartRecordType("CNAME")
+      .withStartRecordIdentifier("b")
+      .withMaxItems("2");
+    ListResourceRecordSetsResult result = ResourceRecordSetPager.page(records, request);
+    assertEquals(
+      Arrays.asList("api.example.com./CNAME/b", "a.b.example.com./A"),
+      names(result.getResourceRecordSets()));
+    assertTrue(result.isTruncated());
+    assertEquals("\\052.c.example.com.", result.getNextRecordName());
+    assertEquals("CNAME", result.getNextRecordType());
+    assertNull(result.getNextRecordIdentifier());
+
+    // continue from the next record, the escaped wildcard is accepted as the start name
+    request
+      .withStartRecordName(result.getNextRecordName())
+      .withStartRecordType(result.getNextRecordType())
+      .withStartRecordIdentifier(result.getNextRecordIdentifier())
+      .withMaxItems("10");
+    result = ResourceRecordSetPager.page(records, request);
+    assertEquals(
+      Arrays.asList("\\052.c.example.com./CNAME", "lb.example.com./A", "www.example.com./A"),
+      names(result.getResourceRecordSets()));
+    assertFalse(result.isTruncated());
+  }
+
+  @Test
+  public void pageFromWildcardStartName() {
+    List<ResourceRecordSet> records = index().getRecordsByZone("Z1");
+    ListResourceRecordSetsRequest request = new ListResourceRecordSetsRequest()
+      .withStartRecordName("*.example.com")
+      .withMaxItems("1");
+    ListResourceRecordSetsResult result = ResourceRecordSetPager.page(records, request);
+    assertEquals(Arrays.asList("\\052.example.com./A"), names(result.getResourceRecordSets()));
+    assertEquals("api.example.com.", result.getNextRecordName());
+    assertEquals("a", result.getNextRecordIdentifier());
+  }
+
+  @Test
+  public void emptyIndex() {
+    RecordIndex index = new RecordIndex(Collections.<HostedRecordView>emptyList());
+    assertTrue(index.getRecords().isEmpty());
+    assertTrue(index.resolve("www.example.com").isEmpty());
+    assertTrue(index.getSubtree("example.com").isEmpty());
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.ec2.model.GroupIdentifier;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.SecurityGroup;
+import com.amazonaws.services.ec2.model.Subnet;
+import com.amazonaws.services.ec2.model.Volume;
+import com.amazonaws.services.ec2.model.VolumeAttachment;
+import com.amazonaws.services.ec2.model.Vpc;
+import com.amazonaws.services.elasticloadbalancing.model.LoadBalancerDescription;
+
+import com.netflix.edda.EddaBundle;
+import com.netflix.edda.EddaCollection;
+import com.netflix.edda.Snapshot;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ResourceGraphTests {
+  private static Instance instance(String id, String subnet, String... groups) {
+    Instance i = new Instance()
+      .withInstanceId(id)
+      .withSubnetId(subnet)
+      .withVpcId("vpc-1");
+    for (String g : groups)
+      i.withSecurityGroups(new GroupIdentifier().withGroupId(g));
+    return i;
+  }
+
+  private static com.amazonaws.services.autoscaling.model.Instance asgInstance(String id) {
+    return new com.amazonaws.services.autoscaling.model.Instance().withInstanceId(id);
+  }
+
+  private static com.amazonaws.services.elasticloadbalancing.model.Instance lbInstance(String id) {
+    return new com.amazonaws.services.elasticloadbalancing.model.Instance().withInstanceId(id);
+  }
+
+  private static <T> Snapshot<T> snapshot(long timestamp, T... items) {
+    return new Snapshot<T>(timestamp, Arrays.asList(items));
+  }
+
+  private static List<String> instanceIds(List<Instance> instances) {
+    List<String> ids = new ArrayList<String>();
+    for (Instance i : instances)
+      ids.add(i.getInstanceId());
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private static ResourceGraph graph() {
+    Map<EddaCollection<?>, Snapshot<?>> snapshots = new HashMap<EddaCollection<?>, Snapshot<?>>();
+    snapshots.put(EddaCollection.INSTANCES, snapshot(1L,
+      new Reservation().withReservationId("r-1").withInstances(
+        instance("i-1", "subnet-1", "sg-1"),
+        instance("i-2", "subnet-2", "sg-1", "sg-2")),
+      new Reservation().withReservationId("r-2").withInstances(
+        instance("i-3", "subnet-1"))));
+    snapshots.put(EddaCollection.SECURITY_GROUPS, snapshot(2L,
+      new SecurityGroup().withGroupId("sg-1").withVpcId("vpc-1"),
+      new SecurityGroup().withGroupId("sg-2").withVpcId("vpc-1")));
+    snapshots.put(EddaCollection.SUBNETS, snapshot(3L,
+      new Subnet().withSubnetId("subnet-1").withVpcId("vpc-1"),
+      new Subnet().withSubnetId("subnet-2").withVpcId("vpc-1")));
+    snapshots.put(EddaCollection.VPCS, snapshot(4L, new Vpc().withVpcId("vpc-1")));
+    snapshots.put(EddaCollection.VOLUMES, snapshot(5L,
+      new Volume().withVolumeId("vol-1").withAttachments(
+        new VolumeAttachment().withInstanceId("i-1"))));
+    snapshots.put(EddaCollection.AUTO_SCALING_GROUPS, snapshot(6L,
+      new AutoScalingGroup()
+        .withAutoScalingGroupName("app-v001")
+        .withInstances(asgInstance("i-1"), asgInstance("i-2"))
+        .withLoadBalancerNames("app-frontend")
+        .withVPCZoneIdentifier("subnet-1, subnet-2,")));
+    snapshots.put(EddaCollection.LOAD_BALANCERS, snapshot(7L,
+      new LoadBalancerDescription()
+        .withLoadBalancerName("app-frontend")
+        .withVPCId("vpc-1")
+        .withInstances(lbInstance("i-2"), lbInstance("i-4"))
+        .withSecurityGroups("sg-2")
+        .withSubnets("subnet-2")));
+    Map<EddaCollection<?>, Throwable> failures = Collections.emptyMap();
+    ResourceGraph graph = new ResourceGraph();
+    graph.update(new EddaBundle(snapshots, failures));
+    return graph;
+  }
+
+  @Test
+  public void byId() {
+    ResourceGraph graph = graph();
+    assertEquals("i-2", graph.getInstance("i-2").getInstanceId());
+    assertEquals("sg-1", graph.getSecurityGroup("sg-1").getGroupId());
+    assertEquals("app-v001", graph.getAutoScalingGroup("app-v001").getAutoScalingGroupName());
+    assertNull(graph.getInstance("i-4"));
+    assertNull(graph.getInstance(null));
+  }
+
+  @Test
+  public void timestamps() {
+    ResourceGraph graph = graph();
+    assertEquals(1L, graph.getTimestamp(EddaCollection.INSTANCES));
+    assertEquals(7L, graph.getTimestamp(EddaCollection.LOAD_BALANCERS));
+    assertEquals(0L, new ResourceGraph().getTimestamp(EddaCollection.INSTANCES));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void timestampNotIndexed() {
+    graph().getTimestamp(EddaCollection.IMAGES);
+  }
+
+  @Test
+  public void instanceEdges() {
+    ResourceGraph graph = graph();
+    assertEquals(Arrays.asList("i-1", "i-3"), instanceIds(graph.getInstancesBySubnet("subnet-1")));
+    assertEquals(Arrays.asList("i-1", "i-2", "i-3"), instanceIds(graph.getInstancesByVpc("vpc-1")));
+    assertEquals(
+      Arrays.asList("i-1", "i-2"),
+      instanceIds(graph.getInstancesBySecurityGroup("sg-1")));
+    assertEquals(Arrays.asList("i-2"), instanceIds(graph.getInstancesBySecurityGroup("sg-2")));
+    assertEquals(Arrays.asList("i-1"), instanceIds(graph.getInstancesByVolume("vol-1")));
+    assertEquals(
+      Arrays.asList("i-1", "i-2"),
+      instanceIds(graph.getInstancesByAutoScalingGroup("app-v001")));
+    assertTrue(graph.getInstancesBySubnet("subnet-3").isEmpty());
+  }
+
+  @Test
+  public void missingReferencesAreSkipped() {
+    // i-4 is registered with the load balancer but is not in the instances collection
+    ResourceGraph graph = graph();
+    assertEquals(
+      Arrays.asList("i-2"),
+      instanceIds(graph.getInstancesByLoadBalancer("app-frontend")));
+    assertTrue(graph.getInstancesByLoadBalancer("unknown").isEmpty());
+  }
+
+  @Test
+  public void securityGroupEdges() {
+    ResourceGraph graph = graph();
+    assertEquals(2, graph.getSecurityGroupsByInstance("i-2").size());
+    assertEquals(2, graph.getSecurityGroupsByVpc("vpc-1").size());
+    assertEquals(
+      "sg-2",
+      graph.getSecurityGroupsByLoadBalancer("app-frontend").get(0).getGroupId());
+    assertTrue(graph.getSecurityGroupsByInstance("i-3").isEmpty());
+    assertTrue(graph.getSecurityGroupsByLoadBalancer("unknown").isEmpty());
+  }
+
+  @Test
+  public void subnetAndVpcEdges() {
+    ResourceGraph graph = graph();
+    assertEquals("subnet-2", graph.getSubnetByInstance("i-2").getSubnetId());
+    assertEquals(2, graph.getSubnetsByVpc("vpc-1").size());
+    assertEquals(2, graph.getSubnetsByAutoScalingGroup("app-v001").size());
+    assertEquals("subnet-2", graph.getSubnetsByLoadBalancer("app-frontend").get(0).getSubnetId());
+    assertEquals("vpc-1", graph.getVpcByInstance("i-1").getVpcId());
+    assertEquals("vpc-1", graph.getVpcBySubnet("subnet-1").getVpcId());
+    assertEquals("vpc-1", graph.getVpcBySecurityGroup("sg-2").getVpcId());
+    assertNull(graph.getVpcByInstance("i-4"));
+  }
+
+  @Test
+  public void volumeEdges() {
+    ResourceGraph graph = graph();
+    assertEquals("vol-1", graph.getVolumesByInstance("i-1").get(0).getVolumeId());
+    assertTrue(graph.getVolumesByInstance("i-2").isEmpty());
+  }
+
+  @Test
+  public void autoScalingGroupEdges() {
+    ResourceGraph graph = graph();
+    assertEquals(
+      "app-v001",
+      graph.getAutoScalingGroupByInstance("i-2").getAutoScalingGroupName());
+    assertNull(graph.getAutoScalingGroupByInstance("i-3"));
+    assertEquals(1, graph.getAutoScalingGroupsByLoadBalancer("app-frontend").size());
+    assertEquals(1, graph.getAutoScalingGroupsBySubnet("subnet-1").size());
+    assertEquals(1, graph.getAutoScalingGroupsBySubnet("subnet-2").size());
+    assertTrue(graph.getAutoScalingGroupsBySubnet("").isEmpty());
+  }
+
+  @Test
+  public void loadBalancerEdges() {
+    ResourceGraph graph = graph();
+    assertEquals(1, graph.getLoadBalancersByInstance("i-2").size());
+    assertEquals(1, graph.getLoadBalancersByInstance("i-4").size());
+    assertTrue(graph.getLoadBalancersByInstance("i-1").isEmpty());
+    assertEquals(1, graph.getLoadBalancersByAutoScalingGroup("app-v001").size());
+    assertEquals(1, graph.getLoadBalancersBySecurityGroup("sg-2").size());
+    assertEquals(1, graph.getLoadBalancersBySubnet("subnet-2").size());
+    assertEquals(1, graph.getLoadBalancersByVpc("vpc-1").size());
+  }
+
+  @Test
+  public void refreshOnlyRebuildsUpdatedCollection() {
+    ResourceGraph graph = graph();
+    graph.updateInstances(snapshot(10L,
+      new Reservation().withReservationId("r-3").withInstances(instance("i-5", "subnet-2"))));
+    assertEquals(10L, graph.getTimestamp(EddaCollection.INSTANCES));
+    assertNull(graph.getInstance("i-1"));
+    assertEquals(Arrays.asList("i-5"), instanceIds(graph.getInstancesBySubnet("subnet-2")));
+    assertTrue(graph.getInstancesBySecurityGroup("sg-1").isEmpty());
+
+    // Edges from other collections are unchanged
+    assertEquals(6L, graph.getTimestamp(EddaCollection.AUTO_SCALING_GROUPS));
+    assertEquals(
+      "app-v001",
+      graph.getAutoScalingGroupByInstance("i-1").getAutoScalingGroupName());
+    assertTrue(graph.getInstancesByAutoScalingGroup("app-v001").isEmpty());
+  }
+
+  @Test
+  public void failedCollectionKeepsPrevious() {
+    ResourceGraph graph = graph();
+    Map<EddaCollection<?>, Snapshot<?>> snapshots = new HashMap<EddaCollection<?>, Snapshot<?>>();
+    snapshots.put(EddaCollection.VPCS, snapshot(20L, new Vpc().withVpcId("vpc-2")));
+    Map<EddaCollection<?>, Throwable> failures = new HashMap<EddaCollection<?>, Throwable>();
+    failures.put(EddaCollection.INSTANCES, new RuntimeException("failed"));
+    graph.update(new EddaBundle(snapshots, failures));
+
+    assertEquals(1L, graph.getTimestamp(EddaCollection.INSTANCES));
+    assertNotNull(graph.getInstance("i-1"));
+    assertEquals(20L, graph.getTimestamp(EddaCollection.VPCS));
+    assertNull(graph.getVpcByInstance("i-1"));
+    assertEquals("vpc-2", graph.getVpc("vpc-2").getVpcId());
+  }
+}
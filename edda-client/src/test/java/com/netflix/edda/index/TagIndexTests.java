@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.autoscaling.model.TagDescription;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.Tag;
+import com.amazonaws.services.ec2.model.Volume;
+
+import com.netflix.edda.EddaBundle;
+import com.netflix.edda.EddaCollection;
+import com.netflix.edda.Snapshot;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class TagIndexTests {
+  private static Instance instance(String id, String... tags) {
+    Instance i = new Instance().withInstanceId(id);
+    for (int j = 0; j < tags.length; j += 2)
+      i.withTags(new Tag(tags[j], tags[j + 1]));
+    return i;
+  }
+
+  private static AutoScalingGroup asg(String name, String... tags) {
+    AutoScalingGroup asg = new AutoScalingGroup().withAutoScalingGroupName(name);
+    for (int j = 0; j < tags.length; j += 2)
+      asg.withTags(new TagDescription().withKey(tags[j]).withValue(tags[j + 1]));
+    return asg;
+  }
+
+  private static <T> Snapshot<T> snapshot(long timestamp, T... items) {
+    return new Snapshot<T>(timestamp, Arrays.asList(items));
+  }
+
+  private static List<String> instanceIds(List<Instance> instances) {
+    List<String> ids = new ArrayList<String>();
+    for (Instance i : instances)
+      ids.add(i.getInstanceId());
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private static List<String> asgNames(List<AutoScalingGroup> asgs) {
+    List<String> names = new ArrayList<String>();
+    for (AutoScalingGroup asg : asgs)
+      names.add(asg.getAutoScalingGroupName());
+    Collections.sort(names);
+    return names;
+  }
+
+  private static List<String> sorted(List<String> vs) {
+    List<String> copy = new ArrayList<String>(vs);
+    Collections.sort(copy);
+    return copy;
+  }
+
+  private static Map<String, String> tags(String... kvs) {
+    Map<String, String> m = new LinkedHashMap<String, String>();
+    for (int j = 0; j < kvs.length; j += 2)
+      m.put(kvs[j], kvs[j + 1]);
+    return m;
+  }
+
+  private static TagIndex index() {
+    Map<EddaCollection<?>, Snapshot<?>> snapshots = new HashMap<EddaCollection<?>, Snapshot<?>>();
+    snapshots.put(EddaCollection.INSTANCES, snapshot(1L,
+      new Reservation().withReservationId("r-1").withInstances(
+        instance("i-12345678", "app", "api", "stack", "prod"),
+        instance("i-0123456789abcdef0", "app", "api", "stack", "test")),
+      new Reservation().withReservationId("r-2").withInstances(
+        instance("i-23456789", "app", "web", "stack", "prod"),
+        instance("i-34567890"))));
+    snapshots.put(EddaCollection.VOLUMES, snapshot(2L,
+      new Volume().withVolumeId("vol-12345678").withTags(new Tag("app", "api"))));
+    snapshots.put(EddaCollection.AUTO_SCALING_GROUPS, snapshot(3L,
+      asg("api-prod-v001", "app", "api", "stack", "prod"),
+      asg("api-test-v001", "app", "api", "stack", "test"),
+      asg("web_prod", "app", "web", "stack", "prod")));
+    Map<EddaCollection<?>, Throwable> failures = Collections.emptyMap();
+    TagIndex index = new TagIndex();
+    index.update(new EddaBundle(snapshots, failures));
+    return index;
+  }
+
+  @Test
+  public void byTag() {
+    TagIndex index = index();
+    assertEquals(
+      Arrays.asList("i-0123456789abcdef0", "i-12345678"),
+      instanceIds(index.getInstancesByTag("app", "api")));
+    assertEquals(Arrays.asList("i-23456789"), instanceIds(index.getInstancesByTag("app", "web")));
+    assertEquals(1, index.getVolumesByTag("app", "api").size());
+    assertTrue(index.getInstancesByTag("app", "unknown").isEmpty());
+    assertTrue(index.getInstancesByTag("unknown", "api").isEmpty());
+    assertTrue(index.getImagesByTag("app", "api").isEmpty());
+  }
+
+  @Test
+  public void nullValueMatchesAnyValue() {
+    TagIndex index = index();
+    assertEquals(
+      Arrays.asList("i-0123456789abcdef0", "i-12345678", "i-23456789"),
+      instanceIds(index.getInstancesByTag("app", null)));
+    assertEquals(
+      Arrays.asList("i-0123456789abcdef0", "i-12345678", "i-23456789"),
+      sorted(index.getIds(EddaCollection.INSTANCES, "stack", null)));
+    assertTrue(index.getInstancesByTag("unknown", null).isEmpty());
+  }
+
+  @Test
+  public void relatedToAll() {
+    TagIndex index = index();
+    assertEquals(
+      Arrays.asList("i-12345678"),
+      instanceIds(index.getInstancesByTags(tags("app", "api", "stack", "prod"))));
+    assertEquals(
+      Arrays.asList("i-12345678", "i-23456789"),
+      instanceIds(index.getInstancesByTags(tags("stack", "prod", "app", null))));
+    assertEquals(
+      Arrays.asList("i-0123456789abcdef0", "i-12345678"),
+      instanceIds(index.getInstancesByTags(tags("app", "api", "stack", null))));
+    assertTrue(index.getInstancesByTags(tags("app", "web", "stack", "test")).isEmpty());
+    assertTrue(index.getInstancesByTags(tags("app", "api", "missing", null)).isEmpty());
+    assertTrue(index.getInstancesByTags(tags()).isEmpty());
+  }
+
+  @Test
+  public void autoScalingGroupNames() {
+    // ASG names cannot be packed into a long, so the sets fall back to storing the strings.
+    TagIndex index = index();
+    assertEquals(
+      Arrays.asList("api-prod-v001", "api-test-v001"),
+      asgNames(index.getAutoScalingGroupsByTag("app", "api")));
+    assertEquals(
+      Arrays.asList("api-prod-v001", "web_prod"),
+      sorted(index.getIds(EddaCollection.AUTO_SCALING_GROUPS, "stack", "prod")));
+    assertEquals(
+      Arrays.asList("web_prod"),
+      asgNames(index.getAutoScalingGroupsByTags(tags("stack", "prod", "app", "web"))));
+    assertEquals(3, index.getAutoScalingGroupsByTag("stack", null).size());
+  }
+
+  @Test
+  public void mixedEncodedAndStringIds() {
+    // The first name looks like a hex id so the codec is picked for it, the rest are strings.
+    TagIndex index = new TagIndex();
+    index.updateAutoScalingGroups(snapshot(1L,
+      asg("api-12345678", "app", "api"),
+      asg("api-prod-v001", "app", "api"),
+      asg("api-abcdef01", "app", "web")));
+    assertEquals(
+      Arrays.asList("api-12345678", "api-prod-v001"),
+      asgNames(index.getAutoScalingGroupsByTag("app", "api")));
+    assertEquals(
+      Arrays.asList("api-12345678", "api-abcdef01", "api-prod-v001"),
+      sorted(index.getIds(EddaCollection.AUTO_SCALING_GROUPS, "app", null)));
+  }
+
+  @Test
+  public void tagValues() {
+    TagIndex index = index();
+    assertEquals(
+      Arrays.asList("prod", "test"),
+      new ArrayList<String>(index.getTagValues(EddaCollection.INSTANCES, "stack")));
+    assertTrue(index.getTagValues(EddaCollection.VPCS, "stack").isEmpty());
+  }
+
+  @Test
+  public void updateReplacesCollection() {
+    TagIndex index = index();
+    assertEquals(1L, index.getTimestamp(EddaCollection.INSTANCES));
+    assertEquals(0L, index.getTimestamp(EddaCollection.VPCS));
+    index.update(EddaCollection.INSTANCES, snapshot(10L,
+      new Reservation().withInstances(instance("i-45678901", "app", "api"))));
+    assertEquals(10L, index.getTimestamp(EddaCollection.INSTANCES));
+    assertEquals(Arrays.asList("i-45678901"), instanceIds(index.getInstancesByTag("app", "api")));
+    assertEquals(1, index.getVolumesByTag("app", "api").size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void notIndexed() {
+    index().getTimestamp(EddaCollection.LOAD_BALANCERS);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.mapper;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import com.netflix.edda.util.StringInterner;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class InterningStringDeserializerTests {
+  public static class State {
+    public String name;
+  }
+
+  public static class Tag {
+    public String key;
+    public String value;
+  }
+
+  public static class Resource {
+    public String name;
+    public String zone;
+    public Integer count;
+    public State state;
+    public List<Tag> tags;
+    public List<String> groups;
+    public List<List<String>> nested;
+  }
+
+  private static final String JSON = "{"
+    + "\"name\":\"resource\","
+    + "\"zone\":\"us-east-1a\","
+    + "\"count\":42,"
+    + "\"state\":{\"name\":\"running\"},"
+    + "\"tags\":[{\"key\":\"app\",\"value\":\"value\"}],"
+    + "\"groups\":[\"sg-1\",\"sg-2\"],"
+    + "\"nested\":[[\"a\"]]"
+    + "}";
+
+  private static ObjectMapper mapper(StringInterner interner, String... fields) {
+    Set<String> fs = new HashSet<String>(Arrays.asList(fields));
+    SimpleModule module = new SimpleModule("test");
+    module.addDeserializer(String.class, new InterningStringDeserializer(interner, fs));
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.registerModule(module);
+    return mapper;
+  }
+
+  @Test
+  public void fieldNames() throws Exception {
+    StringInterner interner = new StringInterner(16);
+    ObjectMapper mapper = mapper(interner, "zone", "groups");
+    Resource r1 = mapper.readValue(JSON, Resource.class);
+    Resource r2 = mapper.readValue(JSON, Resource.class);
+    assertSame(r1.zone, r2.zone);
+    assertSame(r1.groups.get(0), r2.groups.get(0));
+    assertSame(r1.groups.get(1), r2.groups.get(1));
+    assertNotSame(r1.name, r2.name);
+    assertEquals("resource", r2.name);
+    assertEquals(3, interner.size());
+  }
+
+  @Test
+  public void qualifiedNames() throws Exception {
+    StringInterner interner = new StringInterner(16);
+    ObjectMapper mapper = mapper(interner, "state.name", "tags.key");
+    Resource r1 = mapper.readValue(JSON, Resource.class);
+    Resource r2 = mapper.readValue(JSON, Resource.class);
+    assertSame(r1.state.name, r2.state.name);
+    assertSame(r1.tags.get(0).key, r2.tags.get(0).key);
+    assertNotSame(r1.tags.get(0).value, r2.tags.get(0).value);
+
+    // Top level name field does not match the qualified name
+    assertNotSame(r1.name, r2.name);
+    assertEquals(2, interner.size());
+  }
+
+  @Test
+  public void unqualifiedMatchesAnyParent() throws Exception {
+    ObjectMapper mapper = mapper(new StringInterner(16), "name");
+    Resource r1 = mapper.readValue(JSON, Resource.class);
+    Resource r2 = mapper.readValue(JSON, Resource.class);
+    assertSame(r1.name, r2.name);
+    assertSame(r1.state.name, r2.state.name);
+  }
+
+  @Test
+  public void nonStringTokens() throws Exception {
+    ObjectMapper mapper = mapper(new StringInterner(16), "count", "zone");
+    String json = "{\"zone\":42,\"nested\":[[\"a\"]]}";
+    Resource r = mapper.readValue(json, Resource.class);
+    assertEquals("42", r.zone);
+    assertEquals("a", r.nested.get(0).get(0));
+  }
+
+  @Test
+  public void nullValue() throws Exception {
+    ObjectMapper mapper = mapper(new StringInterner(16), "zone");
+    assertNull(mapper.readValue("{\"zone\":null}", Resource.class).zone);
+  }
+}
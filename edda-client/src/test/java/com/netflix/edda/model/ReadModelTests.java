@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.model;
+
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import com.netflix.edda.JsonHelper;
+import com.netflix.edda.model.ec2.Subnet;
+
+public class ReadModelTests {
+  /** All classes of the read model, each should have a toSdk method. */
+  private static final List<Class<?>> MODEL_CLASSES = Arrays.<Class<?>>asList(
+    com.netflix.edda.model.autoscaling.AutoScalingGroup.class,
+    com.netflix.edda.model.autoscaling.Instance.class,
+    com.netflix.edda.model.autoscaling.TagDescription.class,
+    com.netflix.edda.model.ec2.GroupIdentifier.class,
+    com.netflix.edda.model.ec2.Instance.class,
+    com.netflix.edda.model.ec2.InstanceState.class,
+    com.netflix.edda.model.ec2.IpPermission.class,
+    com.netflix.edda.model.ec2.Placement.class,
+    com.netflix.edda.model.ec2.Reservation.class,
+    com.netflix.edda.model.ec2.SecurityGroup.class,
+    com.netflix.edda.model.ec2.Subnet.class,
+    com.netflix.edda.model.ec2.Tag.class,
+    com.netflix.edda.model.ec2.UserIdGroupPair.class,
+    com.netflix.edda.model.ec2.Vpc.class,
+    com.netflix.edda.model.elasticloadbalancing.HealthCheck.class,
+    com.netflix.edda.model.elasticloadbalancing.Instance.class,
+    com.netflix.edda.model.elasticloadbalancing.Listener.class,
+    com.netflix.edda.model.elasticloadbalancing.ListenerDescription.class,
+    com.netflix.edda.model.elasticloadbalancing.LoadBalancerDescription.class
+  );
+
+  private List<Subnet> subnets() throws Exception {
+    try (InputStream in = getClass().getResourceAsStream("/edda/api/v2/aws/subnets;_expand")) {
+      return JsonHelper.createParser(in).readValueAs(new TypeReference<List<Subnet>>() {});
+    }
+  }
+
+  @Test
+  public void decode() throws Exception {
+    List<Subnet> subnets = subnets();
+    assertEquals("size", 8, subnets.size());
+
+    Subnet s = subnets.get(0);
+    assertEquals("id", "subnet-30ef1559", s.getSubnetId());
+    assertEquals("vpc", "vpc-5cef1535", s.getVpcId());
+    assertEquals("cidr", "10.200.64.0/23", s.getCidrBlock());
+    assertEquals("ips", 504, s.getAvailableIpAddressCount());
+    assertEquals("tags", "immutable_metadata", s.getTags().get(0).getKey());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void immutable() throws Exception {
+    subnets().get(0).getTags().clear();
+  }
+
+  @Test
+  public void toSdk() throws Exception {
+    Subnet s = subnets().get(0);
+    com.amazonaws.services.ec2.model.Subnet sdk = s.toSdk();
+    assertEquals("id", s.getSubnetId(), sdk.getSubnetId());
+    assertEquals("az", s.getAvailabilityZone(), sdk.getAvailabilityZone());
+    assertEquals("ips", Integer.valueOf(504), sdk.getAvailableIpAddressCount());
+    assertEquals("tags", s.getTags().get(0).getValue(), sdk.getTags().get(0).getValue());
+  }
+
+  private static boolean hasProperty(Class<?> c, String name) {
+    for (Method m : c.getMethods()) {
+      String n = m.getName();
+      if (m.getParameterCount() == 0 && (n.startsWith("get") || n.startsWith("is"))) {
+        String property = n.substring(n.startsWith("get") ? 3 : 2);
+        if (property.equalsIgnoreCase(name)) return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<String> jsonProperties(Class<?> c) {
+    List<String> names = new ArrayList<String>();
+    for (Constructor<?> ctor : c.getConstructors()) {
+      if (ctor.getAnnotation(JsonCreator.class) == null) continue;
+      for (Annotation[] as : ctor.getParameterAnnotations()) {
+        for (Annotation a : as) {
+          if (a instanceof JsonProperty) names.add(((JsonProperty) a).value());
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * The read model is written by hand with a subset of the SDK fields. Check that each json
+   * property is also a property of the SDK class so a field renamed or removed when the SDK is
+   * updated will fail here rather than silently decoding as null.
+   */
+  @Test
+  public void propertiesMatchSdk() throws Exception {
+    for (Class<?> c : MODEL_CLASSES) {
+      Class<?> sdk = c.getMethod("toSdk").getReturnType();
+      assertTrue(c.getName(), sdk.getName().startsWith("com.amazonaws.services."));
+      List<String> names = jsonProperties(c);
+      assertFalse(c.getName(), names.isEmpty());
+      for (String name : names) {
+        String msg = c.getSimpleName() + "." + name + " not in " + sdk.getName();
+        assertTrue(msg, hasProperty(sdk, name));
+      }
+    }
+  }
+}
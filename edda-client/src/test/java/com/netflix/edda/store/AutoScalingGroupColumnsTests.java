@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class AutoScalingGroupColumnsTests {
+  private static final String JSON = "["
+    + "{\"autoScalingGroupName\":\"www-v001\",\"launchConfigurationName\":\"www-v001-lc\","
+    + "\"healthCheckType\":\"ELB\",\"VPCZoneIdentifier\":\"subnet-1,subnet-2\","
+    + "\"minSize\":1,\"maxSize\":4,\"desiredCapacity\":2,\"createdTime\":1000,"
+    + "\"instances\":[{\"instanceId\":\"i-1\"},{\"instanceId\":\"i-2\"}],"
+    + "\"loadBalancerNames\":[\"www-frontend\"],"
+    + "\"tags\":[{\"key\":\"app\",\"value\":\"www\",\"propagateAtLaunch\":true}],"
+    + "\"suspendedProcesses\":[]},"
+    + "{\"autoScalingGroupName\":\"api-v002\",\"launchConfigurationName\":\"api-v002-lc\","
+    + "\"minSize\":\"2\",\"maxSize\":\"2\",\"desiredCapacity\":\"2\","
+    + "\"createdTime\":\"1970-01-01T00:00:02Z\","
+    + "\"instances\":[{\"instanceId\":\"i-3\"},{\"instanceId\":\"i-4\"}],"
+    + "\"loadBalancerNames\":[\"api-frontend\",\"www-frontend\"],"
+    + "\"tags\":[{\"key\":\"app\",\"value\":\"api\"}]},"
+    + "{\"autoScalingGroupName\":\"empty\",\"desiredCapacity\":\"bad\"},"
+    + "{\"launchConfigurationName\":\"no-name\"}"
+    + "]";
+
+  private static AutoScalingGroupColumns columns() throws Exception {
+    return AutoScalingGroupColumns.builder()
+      .addGroups(RawJson.TOKENIZER.createParser(JSON))
+      .build();
+  }
+
+  private static BitSet bits(int... rs) {
+    BitSet rows = new BitSet();
+    for (int r : rs)
+      rows.set(r);
+    return rows;
+  }
+
+  @Test
+  public void rowLookup() throws Exception {
+    AutoScalingGroupColumns cols = columns();
+    assertEquals(3, cols.size());
+    assertEquals(1, cols.row("api-v002"));
+    assertEquals(-1, cols.row("no-name"));
+    assertEquals("empty", cols.getName(2));
+  }
+
+  @Test
+  public void values() throws Exception {
+    AutoScalingGroupColumns cols = columns();
+    assertEquals("www-v001-lc", cols.getLaunchConfigurationName(0));
+    assertEquals(1, cols.getMinSize(0));
+    assertEquals(4, cols.getMaxSize(0));
+    assertEquals(2, cols.getDesiredCapacity(1));
+    assertEquals(0, cols.getDesiredCapacity(2));
+    assertEquals(1000L, cols.getCreatedTime(0));
+    assertEquals(2000L, cols.getCreatedTime(1));
+    assertNull(cols.getLaunchConfigurationName(2));
+  }
+
+  @Test
+  public void instances() throws Exception {
+    AutoScalingGroupColumns cols = columns();
+    assertEquals(2, cols.getInstanceCount(0));
+    assertEquals(Arrays.asList("i-3", "i-4"), cols.getInstanceIds(1));
+    assertEquals(0, cols.getInstanceCount(2));
+    assertTrue(cols.getInstanceIds(2).isEmpty());
+  }
+
+  @Test
+  public void predicates() throws Exception {
+    AutoScalingGroupColumns cols = columns();
+    assertEquals(bits(0, 1, 2), cols.all());
+    assertEquals(bits(1), cols.whereLaunchConfiguration("api-v002-lc"));
+    assertEquals(bits(), cols.whereLaunchConfiguration("missing"));
+    assertEquals(bits(0, 1), cols.whereLoadBalancer("www-frontend"));
+    assertEquals(bits(1), cols.whereLoadBalancer("api-frontend"));
+    assertEquals(bits(0, 1), cols.whereTag("app", null));
+    assertEquals(bits(0), cols.whereTag("app", "www"));
+    assertEquals(bits(), cols.whereTag("env", null));
+    assertEquals(bits(), cols.whereNotAtDesiredCapacity());
+  }
+
+  @Test
+  public void notAtDesiredCapacity() throws Exception {
+    String json = "[{\"autoScalingGroupName\":\"a\",\"desiredCapacity\":2,"
+      + "\"instances\":[{\"instanceId\":\"i-1\"}]},"
+      + "{\"autoScalingGroupName\":\"b\",\"desiredCapacity\":0}]";
+    AutoScalingGroupColumns cols = AutoScalingGroupColumns.builder()
+      .addGroups(RawJson.TOKENIZER.createParser(json))
+      .build();
+    assertEquals(bits(0), cols.whereNotAtDesiredCapacity());
+  }
+
+  @Test
+  public void materialize() throws Exception {
+    AutoScalingGroup asg = columns().materialize(0);
+    assertEquals("www-v001", asg.getAutoScalingGroupName());
+    assertEquals("www-v001-lc", asg.getLaunchConfigurationName());
+    assertEquals("ELB", asg.getHealthCheckType());
+    assertEquals("subnet-1,subnet-2", asg.getVPCZoneIdentifier());
+    assertEquals(Integer.valueOf(4), asg.getMaxSize());
+    assertEquals(Arrays.asList("www-frontend"), asg.getLoadBalancerNames());
+    assertEquals("www", asg.getTags().get(0).getValue());
+    assertEquals("www-v001", asg.getTags().get(0).getResourceId());
+    assertTrue(asg.getInstances().isEmpty());
+  }
+
+  @Test
+  public void materializeRows() throws Exception {
+    AutoScalingGroupColumns cols = columns();
+    assertEquals(2, cols.materialize(cols.whereLoadBalancer("www-frontend")).size());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ColumnsTests {
+  /** Parser positioned on the value of the field v in the json object. */
+  private static JsonParser value(String json) throws Exception {
+    JsonParser p = RawJson.TOKENIZER.createParser("{\"v\":" + json + "}");
+    p.nextToken();
+    p.nextToken();
+    p.nextToken();
+    return p;
+  }
+
+  @Test
+  public void text() throws Exception {
+    assertEquals("abc", Columns.text(value("\"abc\"")));
+    assertEquals("42", Columns.text(value("42")));
+    assertNull(Columns.text(value("null")));
+    assertNull(Columns.text(value("{\"a\":1}")));
+    assertNull(Columns.text(value("[1,2]")));
+  }
+
+  @Test
+  public void skippedValueLeavesParserAtEnd() throws Exception {
+    JsonParser p = value("{\"a\":{\"b\":1}}");
+    Columns.text(p);
+    assertEquals(JsonToken.END_OBJECT, p.nextToken());
+    assertNull(p.nextToken());
+  }
+
+  @Test
+  public void intValue() throws Exception {
+    assertEquals(42, Columns.intValue(value("42")));
+    assertEquals(42, Columns.intValue(value("\"42\"")));
+    assertEquals(0, Columns.intValue(value("\"abc\"")));
+    assertEquals(0, Columns.intValue(value("null")));
+  }
+
+  @Test
+  public void parseInt() {
+    assertEquals(16, Columns.parseInt("16", -1));
+    assertEquals(-1, Columns.parseInt(null, -1));
+    assertEquals(-1, Columns.parseInt("running", -1));
+    assertEquals(-1, Columns.parseInt("99999999999", -1));
+  }
+
+  @Test
+  public void timestamp() throws Exception {
+    assertEquals(1456790400000L, Columns.timestamp(value("1456790400000")));
+    assertEquals(1456790400000L, Columns.timestamp(value("\"1456790400000\"")));
+    assertEquals(1456790400000L, Columns.timestamp(value("\"2016-03-01T00:00:00Z\"")));
+    assertEquals(1456790400123L, Columns.timestamp(value("\"2016-03-01T00:00:00.123Z\"")));
+    assertEquals(0L, Columns.timestamp(value("\"yesterday\"")));
+    assertEquals(0L, Columns.timestamp(value("null")));
+  }
+
+  @Test
+  public void field() throws Exception {
+    assertEquals("b", Columns.field(value("{\"a\":{\"x\":1},\"name\":\"b\",\"c\":[1]}"), "name"));
+    assertNull(Columns.field(value("{\"a\":1}"), "name"));
+    assertNull(Columns.field(value("\"name\""), "name"));
+  }
+
+  @Test
+  public void fields() throws Exception {
+    assertEquals(
+      Arrays.asList("sg-1", "sg-2"),
+      Columns.fields(value("[{\"groupId\":\"sg-1\"},{\"groupName\":\"x\"},{\"groupId\":\"sg-2\"}]"),
+        "groupId"));
+    assertEquals(Arrays.asList("a", "b"), Columns.fields(value("[\"a\",null,\"b\"]"), null));
+    assertEquals(Collections.emptyList(), Columns.fields(value("{\"a\":1}"), "a"));
+  }
+
+  @Test
+  public void tags() throws Exception {
+    String json = "[{\"key\":\"app\",\"value\":\"www\"},{\"value\":\"x\"},{\"key\":\"empty\"}]";
+    assertEquals(Arrays.asList("app", "www", "empty", null), Columns.tags(value(json)));
+    assertEquals(Collections.emptyList(), Columns.tags(value("null")));
+  }
+
+  @Test
+  public void ipv4() {
+    int ip = Columns.ipv4("10.1.2.3");
+    assertEquals(0x0A010203, ip);
+    assertEquals("10.1.2.3", Columns.ipv4(ip));
+    assertEquals("255.255.255.255", Columns.ipv4(Columns.ipv4("255.255.255.255")));
+  }
+
+  @Test
+  public void ipv4Invalid() {
+    assertEquals(0, Columns.ipv4((String) null));
+    assertEquals(0, Columns.ipv4("10.1.2"));
+    assertEquals(0, Columns.ipv4("10.1.2.3.4"));
+    assertEquals(0, Columns.ipv4("10.1..3"));
+    assertEquals(0, Columns.ipv4("10.1.2.256"));
+    assertEquals(0, Columns.ipv4("10.1.2.3/24"));
+    assertEquals(0, Columns.ipv4("::1"));
+    assertNull(Columns.ipv4(0));
+  }
+}
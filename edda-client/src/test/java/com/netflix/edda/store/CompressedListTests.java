@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import com.amazonaws.services.ec2.model.Image;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class CompressedListTests {
+  private static final TypeReference<Image> REF = new TypeReference<Image>() {};
+
+  private static String image(int i) {
+    return "{\"imageId\":\"ami-" + i + "\",\"name\":\"image-" + i + "\","
+      + "\"description\":\"base image with the standard set of packages\","
+      + "\"architecture\":\"x86_64\",\"rootDeviceType\":\"ebs\"}";
+  }
+
+  /** Enough elements to fill several blocks. */
+  private static byte[] json(int n) {
+    List<String> elements = new ArrayList<String>();
+    for (int i = 0; i < n; ++i)
+      elements.add(image(i));
+    return ("[" + String.join(",", elements) + "]").getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static CompressedList<Image> list(int n, int cacheSize) throws Exception {
+    return CompressedList.builder(REF, KeyExtractor.field("imageId"), cacheSize)
+      .addAll(json(n))
+      .build();
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    CompressedList<Image> list = list(5000, 16);
+    assertEquals(5000, list.size());
+    for (int i = 0; i < list.size(); i += 7) {
+      assertEquals("ami-" + i, list.get(i).getImageId());
+      assertEquals("image-" + i, list.get(i).getName());
+    }
+    assertEquals("ami-4999", list.get(4999).getImageId());
+  }
+
+  @Test
+  public void empty() throws Exception {
+    CompressedList<Image> list = list(0, 16);
+    assertEquals(0, list.size());
+    assertEquals(0L, list.compressedBytes());
+  }
+
+  @Test
+  public void compressed() throws Exception {
+    CompressedList<Image> list = list(5000, 16);
+    assertTrue(list.compressedBytes() < json(5000).length / 4);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void outOfBounds() throws Exception {
+    list(10, 16).get(10);
+  }
+
+  @Test
+  public void recentlyDecodedAreCached() throws Exception {
+    CompressedList<Image> list = list(100, 2);
+    Image i1 = list.get(1);
+    assertSame(i1, list.get(1));
+    list.get(2);
+    assertSame(i1, list.get(1));
+
+    // Accessing two other elements evicts the least recently used
+    list.get(3);
+    list.get(4);
+    Image again = list.get(1);
+    assertNotSame(i1, again);
+    assertEquals(i1, again);
+  }
+
+  @Test
+  public void cacheDisabled() throws Exception {
+    CompressedList<Image> list = list(10, 0);
+    assertNotSame(list.get(1), list.get(1));
+  }
+
+  @Test
+  public void select() throws Exception {
+    CompressedList<Image> list = list(5000, 16);
+    assertEquals(4000, list.indexOfKey("ami-4000"));
+    assertEquals(-1, list.indexOfKey("ami-5000"));
+    List<Image> selected = list.select(Arrays.asList("ami-4000", "ami-1", "ami-5000", "ami-1"));
+    assertEquals(2, selected.size());
+    assertEquals("ami-1", selected.get(0).getImageId());
+    assertEquals("ami-4000", selected.get(1).getImageId());
+    assertSame(selected.get(1), list.get(4000));
+  }
+
+  @Test
+  public void elementLargerThanBlock() throws Exception {
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i < 100 * 1024; ++i)
+      name.append((char) ('a' + i % 26));
+    String big = "{\"imageId\":\"ami-big\",\"name\":\"" + name + "\"}";
+    String json = "[" + image(0) + "," + big + "," + image(2) + "]";
+    CompressedList<Image> list = CompressedList.builder(REF, KeyExtractor.field("imageId"), 0)
+      .addAll(json.getBytes(StandardCharsets.UTF_8))
+      .build();
+    assertEquals("ami-0", list.get(0).getImageId());
+    assertEquals(name.toString(), list.get(1).getName());
+    assertEquals("ami-2", list.get(2).getImageId());
+    assertEquals(1, list.indexOfKey("ami-big"));
+  }
+
+  @Test
+  public void addBufferNotReleased() throws Exception {
+    ByteBuf bb = Unpooled.copiedBuffer(image(7), StandardCharsets.UTF_8);
+    CompressedList<Image> list = CompressedList.builder(REF, KeyExtractor.field("imageId"), 16)
+      .add(bb)
+      .build();
+    assertEquals(1, bb.refCnt());
+    assertEquals(0, bb.readerIndex());
+    bb.release();
+    assertEquals("ami-7", list.get(0).getImageId());
+  }
+
+  @Test
+  public void sequentialAccessDecompressesEachBlockOnce() throws Exception {
+    CompressedList<Image> list = list(5000, 0);
+    assertTrue(list.blockCount() > 1);
+
+    List<Image> copy = new ArrayList<Image>(list);
+    assertEquals(5000, copy.size());
+    assertEquals("ami-4999", copy.get(4999).getImageId());
+    assertEquals(list.blockCount(), list.decompressions());
+
+    int n = 0;
+    for (Image i : list.subList(0, 5000))
+      assertEquals("ami-" + n++, i.getImageId());
+    assertEquals(2L * list.blockCount(), list.decompressions());
+  }
+
+  @Test
+  public void selectReusesLastBlock() throws Exception {
+    CompressedList<Image> list = list(5000, 0);
+    list.get(0);
+    List<Image> images = list.select(Arrays.asList("ami-1", "ami-0", "ami-2"));
+    assertEquals(3, images.size());
+    assertEquals(1L, list.decompressions());
+  }
+}
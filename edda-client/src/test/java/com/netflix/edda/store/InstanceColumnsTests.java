@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.amazonaws.services.ec2.model.Instance;
+
+import com.netflix.edda.store.InstanceColumns.Column;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class InstanceColumnsTests {
+  private static final String JSON = "["
+    + "{\"reservationId\":\"r-1\",\"groups\":[],\"instances\":["
+    + "{\"instanceId\":\"i-1\",\"instanceType\":\"m4.large\","
+    + "\"placement\":{\"availabilityZone\":\"us-east-1a\",\"tenancy\":\"default\"},"
+    + "\"vpcId\":\"vpc-1\",\"subnetId\":\"subnet-1\",\"imageId\":\"ami-1\",\"keyName\":\"key\","
+    + "\"state\":{\"code\":16,\"name\":\"running\"},\"launchTime\":1000,"
+    + "\"privateIpAddress\":\"10.0.0.1\",\"publicIpAddress\":\"54.0.0.1\","
+    + "\"tags\":[{\"key\":\"app\",\"value\":\"www\"},{\"key\":\"env\",\"value\":\"prod\"}],"
+    + "\"securityGroups\":[{\"groupId\":\"sg-1\",\"groupName\":\"www\"}],"
+    + "\"blockDeviceMappings\":[{\"deviceName\":\"/dev/sda1\"}]},"
+    + "{\"instanceId\":\"i-2\",\"instanceType\":\"m4.large\","
+    + "\"placement\":{\"availabilityZone\":\"us-east-1b\"},"
+    + "\"state\":{\"code\":272,\"name\":\"running\"},\"launchTime\":\"2000\","
+    + "\"tags\":[{\"key\":\"app\",\"value\":\"api\"}],"
+    + "\"securityGroups\":[{\"groupId\":\"sg-1\"},{\"groupId\":\"sg-2\"}]}"
+    + "]},"
+    + "{\"reservationId\":\"r-2\",\"instances\":["
+    + "{\"instanceId\":\"i-3\",\"instanceType\":\"c4.xlarge\","
+    + "\"state\":{\"code\":80,\"name\":\"stopped\"},"
+    + "\"launchTime\":\"1970-01-01T00:00:03Z\"},"
+    + "{\"instanceId\":\"i-4\"},"
+    + "{\"instanceId\":\"i-5\",\"state\":{\"code\":\"bad\"}},"
+    + "{\"instanceType\":\"m4.large\"}"
+    + "]}"
+    + "]";
+
+  private static InstanceColumns columns() throws Exception {
+    return InstanceColumns.builder()
+      .addReservations(RawJson.TOKENIZER.createParser(JSON))
+      .build();
+  }
+
+  private static BitSet bits(int... rs) {
+    BitSet rows = new BitSet();
+    for (int r : rs)
+      rows.set(r);
+    return rows;
+  }
+
+  @Test
+  public void rowLookup() throws Exception {
+    InstanceColumns cols = columns();
+    // The element without an instance id is skipped
+    assertEquals(5, cols.size());
+    assertEquals(0, cols.row("i-1"));
+    assertEquals(4, cols.row("i-5"));
+    assertEquals(-1, cols.row("i-6"));
+    assertEquals("i-3", cols.getInstanceId(2));
+  }
+
+  @Test
+  public void stringColumns() throws Exception {
+    InstanceColumns cols = columns();
+    assertEquals("m4.large", cols.get(Column.INSTANCE_TYPE, 0));
+    assertEquals("us-east-1a", cols.get(Column.AVAILABILITY_ZONE, 0));
+    assertEquals("vpc-1", cols.get(Column.VPC_ID, 0));
+    assertEquals("subnet-1", cols.get(Column.SUBNET_ID, 0));
+    assertEquals("ami-1", cols.get(Column.IMAGE_ID, 0));
+    assertEquals("key", cols.get(Column.KEY_NAME, 0));
+    assertNull(cols.get(Column.VPC_ID, 1));
+    assertNull(cols.get(Column.INSTANCE_TYPE, 3));
+  }
+
+  @Test
+  public void numericColumns() throws Exception {
+    InstanceColumns cols = columns();
+    assertEquals(1000L, cols.getLaunchTime(0));
+    assertEquals(2000L, cols.getLaunchTime(1));
+    assertEquals(3000L, cols.getLaunchTime(2));
+    assertEquals(0L, cols.getLaunchTime(3));
+    assertEquals("10.0.0.1", cols.getPrivateIpAddress(0));
+    assertEquals("54.0.0.1", cols.getPublicIpAddress(0));
+    assertNull(cols.getPrivateIpAddress(1));
+  }
+
+  @Test
+  public void states() throws Exception {
+    InstanceColumns cols = columns();
+    assertEquals(16, cols.getStateCode(0));
+    // Only the low byte is kept
+    assertEquals(16, cols.getStateCode(1));
+    assertEquals(80, cols.getStateCode(2));
+    assertEquals(InstanceColumns.UNKNOWN_STATE, cols.getStateCode(3));
+    assertEquals(InstanceColumns.UNKNOWN_STATE, cols.getStateCode(4));
+    assertEquals(bits(0, 1), cols.whereState(16));
+    assertEquals(bits(3, 4), cols.whereState(InstanceColumns.UNKNOWN_STATE));
+    assertEquals(bits(), cols.whereState(255));
+  }
+
+  @Test
+  public void tags() throws Exception {
+    InstanceColumns cols = columns();
+    assertEquals("www", cols.getTag(0, "app"));
+    assertEquals("prod", cols.getTag(0, "env"));
+    assertNull(cols.getTag(1, "env"));
+    assertNull(cols.getTag(0, "missing"));
+    assertEquals(bits(0, 1), cols.whereTag("app", null));
+    assertEquals(bits(1), cols.whereTag("app", "api"));
+    assertEquals(bits(), cols.whereTag("app", "missing"));
+    assertEquals(bits(), cols.whereTag("missing", null));
+  }
+
+  @Test
+  public void predicates() throws Exception {
+    InstanceColumns cols = columns();
+    assertEquals(bits(0, 1, 2, 3, 4), cols.all());
+    assertEquals(bits(0, 1), cols.where(Column.INSTANCE_TYPE, "m4.large"));
+    assertEquals(bits(), cols.where(Column.INSTANCE_TYPE, "t2.micro"));
+    assertEquals(bits(0, 1), cols.whereSecurityGroup("sg-1"));
+    assertEquals(bits(1), cols.whereSecurityGroup("sg-2"));
+    assertEquals(bits(), cols.whereSecurityGroup("sg-3"));
+    assertEquals(bits(0, 3, 4), cols.launchedBefore(1500L));
+  }
+
+  @Test
+  public void countBy() throws Exception {
+    InstanceColumns cols = columns();
+    Map<String, Integer> expected = new LinkedHashMap<String, Integer>();
+    expected.put(null, 2);
+    expected.put("m4.large", 2);
+    expected.put("c4.xlarge", 1);
+    assertEquals(expected, cols.countBy(Column.INSTANCE_TYPE, cols.all()));
+
+    expected.clear();
+    expected.put("m4.large", 2);
+    assertEquals(expected, cols.countBy(Column.INSTANCE_TYPE, cols.whereState(16)));
+  }
+
+  @Test
+  public void materialize() throws Exception {
+    InstanceColumns cols = columns();
+    Instance i = cols.materialize(0);
+    assertEquals("i-1", i.getInstanceId());
+    assertEquals("m4.large", i.getInstanceType());
+    assertEquals("us-east-1a", i.getPlacement().getAvailabilityZone());
+    assertEquals("vpc-1", i.getVpcId());
+    assertEquals(Integer.valueOf(16), i.getState().getCode());
+    assertEquals("running", i.getState().getName());
+    assertEquals(1000L, i.getLaunchTime().getTime());
+    assertEquals("10.0.0.1", i.getPrivateIpAddress());
+    assertEquals(2, i.getTags().size());
+    assertEquals("env", i.getTags().get(1).getKey());
+    assertEquals("sg-1", i.getSecurityGroups().get(0).getGroupId());
+    assertEquals("stopped", cols.materialize(2).getState().getName());
+  }
+
+  @Test
+  public void materializeUnknownState() throws Exception {
+    Instance i = columns().materialize(4);
+    assertEquals("i-5", i.getInstanceId());
+    assertNull(i.getState());
+    assertNull(i.getLaunchTime());
+    assertTrue(i.getTags().isEmpty());
+  }
+
+  @Test
+  public void materializeRows() throws Exception {
+    InstanceColumns cols = columns();
+    assertEquals(2, cols.materialize(cols.whereSecurityGroup("sg-1")).size());
+    assertEquals("i-3", cols.materialize(bits(2, 10)).get(0).getInstanceId());
+  }
+
+  @Test
+  public void addReservationParserAtStart() throws Exception {
+    String json = "{\"instances\":[{\"instanceId\":\"i-1\"}]}";
+    InstanceColumns cols = InstanceColumns.builder()
+      .addReservation(RawJson.TOKENIZER.createParser(json))
+      .addReservation(RawJson.TOKENIZER.createParser("[]"))
+      .build();
+    assertEquals(1, cols.size());
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import com.amazonaws.services.ec2.model.Reservation;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class LazyListTests {
+  private static final TypeReference<Reservation> REF = new TypeReference<Reservation>() {};
+
+  private static final String JSON = "["
+    + "{\"reservationId\":\"r-1\","
+    + "\"instances\":[{\"instanceId\":\"i-1\"},{\"instanceId\":\"i-2\"}]},"
+    + "{\"reservationId\":\"r-2\",\"instances\":[{\"instanceId\":\"i-3\"}]},"
+    + "{\"reservationId\":\"r-3\",\"instances\":[]}"
+    + "]";
+
+  private LazyList<Reservation> list() throws Exception {
+    return LazyList.builder(REF, KeyExtractor.nested("instances", "instanceId"))
+      .addAll(JSON.getBytes(StandardCharsets.UTF_8))
+      .build();
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    LazyList<Reservation> list = list();
+    assertEquals(3, list.size());
+    assertEquals("r-1", list.get(0).getReservationId());
+    assertEquals(2, list.get(0).getInstances().size());
+    assertEquals("r-2", list.get(1).getReservationId());
+    assertEquals("r-3", list.get(2).getReservationId());
+  }
+
+  @Test
+  public void decodeOnAccess() throws Exception {
+    LazyList<Reservation> list = list();
+    assertFalse(list.isDecoded(0));
+    assertFalse(list.isDecoded(1));
+    Reservation r = list.get(1);
+    assertTrue(list.isDecoded(1));
+    assertFalse(list.isDecoded(0));
+    assertSame(r, list.get(1));
+  }
+
+  @Test
+  public void indexOfKey() throws Exception {
+    LazyList<Reservation> list = list();
+    assertEquals(0, list.indexOfKey("i-1"));
+    assertEquals(0, list.indexOfKey("i-2"));
+    assertEquals(1, list.indexOfKey("i-3"));
+    assertEquals(-1, list.indexOfKey("i-4"));
+  }
+
+  @Test
+  public void select() throws Exception {
+    LazyList<Reservation> list = list();
+    assertEquals(
+      Arrays.asList(list.get(0), list.get(1)),
+      list.select(Arrays.asList("i-3", "i-2", "i-1", "i-4")));
+    assertFalse(list.isDecoded(2));
+    assertEquals(Collections.emptyList(), list.select(Arrays.asList("i-4")));
+  }
+
+  @Test
+  public void selectOnlyDecodesMatches() throws Exception {
+    LazyList<Reservation> list = list();
+    assertEquals("r-2", list.select(Arrays.asList("i-3")).get(0).getReservationId());
+    assertFalse(list.isDecoded(0));
+    assertTrue(list.isDecoded(1));
+  }
+
+  @Test
+  public void addBufferNotReleased() throws Exception {
+    ByteBuf bb = Unpooled.copiedBuffer("{\"reservationId\":\"r-1\"}", StandardCharsets.UTF_8);
+    LazyList<Reservation> list = LazyList.builder(REF).add(bb).build();
+    assertEquals(1, bb.refCnt());
+    assertEquals(0, bb.readerIndex());
+    bb.release();
+    assertEquals("r-1", list.get(0).getReservationId());
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import com.amazonaws.services.ec2.model.Image;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class OffHeapListTests {
+  private static final TypeReference<Image> REF = new TypeReference<Image>() {};
+
+  private static final String JSON = "["
+    + "{\"imageId\":\"ami-1\",\"name\":\"base\"},"
+    + "{\"imageId\":\"ami-2\",\"name\":\"app\",\"tags\":[{\"key\":\"k\",\"value\":\"v\"}]},"
+    + "{\"name\":\"no-id\"}"
+    + "]";
+
+  private static OffHeapList<Image> list() throws Exception {
+    return OffHeapList.builder(REF, KeyExtractor.field("imageId"))
+      .addAll(JSON.getBytes(StandardCharsets.UTF_8))
+      .build();
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    OffHeapList<Image> list = list();
+    assertEquals(3, list.size());
+    assertEquals("ami-1", list.get(0).getImageId());
+    assertEquals("base", list.get(0).getName());
+    assertEquals("v", list.get(1).getTags().get(0).getValue());
+    assertEquals("no-id", list.get(2).getName());
+    assertNull(list.get(2).getImageId());
+  }
+
+  @Test
+  public void decodedOnEachAccess() throws Exception {
+    OffHeapList<Image> list = list();
+    Image i1 = list.get(1);
+    Image i2 = list.get(1);
+    assertNotSame(i1, i2);
+    assertEquals(i1, i2);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void outOfBounds() throws Exception {
+    list().get(3);
+  }
+
+  @Test
+  public void bytes() throws Exception {
+    // Everything except the array brackets and separators
+    long expected = JSON.length() - 4;
+    assertEquals(expected, list().bytes());
+  }
+
+  @Test
+  public void lastChunkTrimmed() throws Exception {
+    OffHeapList<Image> list = list();
+    assertEquals(list.bytes(), list.capacity());
+  }
+
+  @Test
+  public void keys() throws Exception {
+    OffHeapList<Image> list = list();
+    assertEquals(0, list.indexOfKey("ami-1"));
+    assertEquals(1, list.indexOfKey("ami-2"));
+    assertEquals(-1, list.indexOfKey("no-id"));
+    List<Image> selected = list.select(Arrays.asList("ami-2", "ami-3", "ami-1", "ami-2"));
+    assertEquals(2, selected.size());
+    assertEquals("ami-1", selected.get(0).getImageId());
+    assertEquals("ami-2", selected.get(1).getImageId());
+    assertEquals(Collections.emptyList(), list.select(Arrays.asList("ami-3")));
+  }
+
+  @Test
+  public void addBufferNotReleased() throws Exception {
+    ByteBuf bb = Unpooled.directBuffer();
+    bb.writeBytes("xx{\"imageId\":\"ami-1\"}".getBytes(StandardCharsets.UTF_8));
+    bb.readerIndex(2);
+    OffHeapList<Image> list = OffHeapList.builder(REF, KeyExtractor.field("imageId"))
+      .add(bb)
+      .build();
+    assertEquals(1, bb.refCnt());
+    assertEquals(2, bb.readerIndex());
+
+    // The raw json was copied, so the list is usable after the buffer is released
+    bb.release();
+    assertEquals(0, list.indexOfKey("ami-1"));
+    assertEquals("ami-1", list.get(0).getImageId());
+  }
+
+  @Test
+  public void largeElementsSpanChunks() throws Exception {
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i < 3 * 1024 * 1024; ++i)
+      name.append('a');
+    String element = "{\"imageId\":\"ami-%d\",\"name\":\"" + name + "\"}";
+    OffHeapList.Builder<Image> builder = OffHeapList.builder(REF, KeyExtractor.field("imageId"));
+    for (int i = 0; i < 3; ++i) {
+      byte[] data = String.format(element, i).getBytes(StandardCharsets.UTF_8);
+      builder.add(data, 0, data.length);
+    }
+    OffHeapList<Image> list = builder.build();
+    for (int i = 0; i < 3; ++i) {
+      Image image = list.get(i);
+      assertEquals("ami-" + i, image.getImageId());
+      assertEquals(name.length(), image.getName().length());
+    }
+
+    // Each element needs a new chunk, only the last one is trimmed to the size of the element
+    long chunkSize = 4 * 1024 * 1024;
+    assertEquals(2 * chunkSize + list.bytes() / 3, list.capacity());
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class RawJsonTests {
+  private List<String> split(String json) throws Exception {
+    List<String> elements = new ArrayList<String>();
+    RawJson.split(json.getBytes(StandardCharsets.UTF_8), (data, offset, length) ->
+      elements.add(new String(data, offset, length, StandardCharsets.UTF_8)));
+    return elements;
+  }
+
+  @Test
+  public void splitEmpty() throws Exception {
+    assertEquals(new ArrayList<String>(), split("[]"));
+  }
+
+  @Test
+  public void splitObjects() throws Exception {
+    assertEquals(
+      Arrays.asList("{\"a\":1}", "{\"b\":[1,2]}", "{\"c\":{\"d\":\"e,f\"}}"),
+      split("[{\"a\":1},{\"b\":[1,2]},{\"c\":{\"d\":\"e,f\"}}]"));
+  }
+
+  @Test
+  public void splitWhitespace() throws Exception {
+    assertEquals(
+      Arrays.asList("{\"a\":1}", "{\"b\":2}"),
+      split("[\n  {\"a\":1} ,\n  {\"b\":2}\n]"));
+  }
+
+  @Test
+  public void splitStrings() throws Exception {
+    assertEquals(
+      Arrays.asList("\"ami-1\"", "\"ami-2222\"", "\"a,\\\"b\""),
+      split("[\"ami-1\", \"ami-2222\",\"a,\\\"b\"]"));
+  }
+
+  @Test
+  public void splitNumbers() throws Exception {
+    assertEquals(
+      Arrays.asList("123", "-4.5", "6e7", "0"),
+      split("[123,-4.5, 6e7 ,0]"));
+  }
+
+  @Test
+  public void splitMixed() throws Exception {
+    assertEquals(
+      Arrays.asList("\"ami-1\"", "\"ami-2222\"", "123", "{\"a\":[1,2]}", "true", "null", "[3]"),
+      split("[\"ami-1\",\"ami-2222\",123,{\"a\":[1,2]},true,null,[3]]"));
+  }
+
+  @Test(expected = java.io.IOException.class)
+  public void splitNotArray() throws Exception {
+    split("{\"a\":1}");
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class CidrTrieTests {
+  @Test
+  public void parseAddress() {
+    int ip = CidrTrie.parseAddress("10.1.2.255");
+    assertEquals("10.1.2.255", CidrTrie.formatAddress(ip));
+    assertEquals(-1, CidrTrie.parseAddress("255.255.255.255"));
+    assertTrue(CidrTrie.isAddress("0.0.0.0"));
+    assertFalse(CidrTrie.isAddress("1.2.3"));
+    assertFalse(CidrTrie.isAddress("1.2.3.256"));
+    assertFalse(CidrTrie.isAddress("1..2.3"));
+    assertFalse(CidrTrie.isAddress("1.2.3.4/32"));
+  }
+
+  @Test
+  public void tryParseAddress() {
+    assertEquals(0xFFFFFFFFL, CidrTrie.tryParseAddress("255.255.255.255"));
+    assertEquals(0x0A000001L, CidrTrie.tryParseAddress("10.0.0.1"));
+    assertEquals(-1L, CidrTrie.tryParseAddress(""));
+    assertEquals(-1L, CidrTrie.tryParseAddress("10.0.0.1.1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidLength() {
+    new CidrTrie<String>().put("10.0.0.0/33", "a", (a, b) -> a + b);
+  }
+
+  @Test
+  public void longestMatch() {
+    CidrTrie<String> trie = new CidrTrie<String>();
+    trie.put("10.0.0.0/8", "a", (a, b) -> a + b);
+    trie.put("10.1.0.0/16", "b", (a, b) -> a + b);
+    trie.put("10.1.2.3", "c", (a, b) -> a + b);
+    trie.put("10.1.0.0/16", "d", (a, b) -> a + b);
+    assertEquals(3, trie.size());
+    assertEquals("c", trie.longestMatch(CidrTrie.parseAddress("10.1.2.3")));
+    assertEquals("bd", trie.longestMatch(CidrTrie.parseAddress("10.1.2.4")));
+    assertEquals("a", trie.longestMatch(CidrTrie.parseAddress("10.2.0.1")));
+    assertNull(trie.longestMatch(CidrTrie.parseAddress("192.168.0.1")));
+  }
+
+  @Test
+  public void anyMatch() {
+    CidrTrie<String> trie = new CidrTrie<String>();
+    trie.put("0.0.0.0/0", "all", (a, b) -> a + b);
+    trie.put("172.16.0.0/12", "private", (a, b) -> a + b);
+    int ip = CidrTrie.parseAddress("172.20.1.1");
+    assertTrue(trie.anyMatch(ip, "all"::equals));
+    assertTrue(trie.anyMatch(ip, "private"::equals));
+    assertFalse(trie.anyMatch(CidrTrie.parseAddress("8.8.8.8"), "private"::equals));
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class HashTests {
+  @Test
+  public void md5() throws Exception {
+    assertEquals("empty", new BigInteger("d41d8cd98f00b204e9800998ecf8427e", 16), Hash.md5(""));
+    assertEquals("incremental", Hash.md5("foobar"), Hash.md5().update("foo".getBytes("UTF-8")).update("bar".getBytes("UTF-8")).digest());
+  }
+
+  @Test
+  public void sha1() throws Exception {
+    assertEquals("empty", new BigInteger("da39a3ee5e6b4b0d3255bfef95601890afd80709", 16), Hash.sha1(""));
+  }
+
+  @Test
+  public void murmur3() throws Exception {
+    assertEquals("hello", -3758069500696749310L, Hash.murmur3_64("hello".getBytes("UTF-8")));
+    assertEquals("high bits", Hash.murmur3_64(new byte[0]), Hash.murmur3_128(new byte[0]).shiftRight(64).longValue());
+  }
+
+  @Test
+  public void murmur3Incremental() {
+    Random r = new Random(42);
+    for (int n = 0; n < 100; ++n) {
+      byte[] bytes = new byte[n * 7];
+      r.nextBytes(bytes);
+      Hash.Hasher hasher = Hash.murmur3();
+      int i = 0;
+      while (i < bytes.length) {
+        int len = Math.min(bytes.length - i, 1 + r.nextInt(40));
+        hasher.update(bytes, i, len);
+        i += len;
+      }
+      assertEquals("length " + bytes.length, Hash.murmur3_128(bytes), hasher.digest());
+    }
+  }
+
+  @Test
+  public void directBuffer() {
+    byte[] bytes = new byte[1000];
+    new Random(42).nextBytes(bytes);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+    assertEquals("murmur3", Hash.murmur3_128(bytes), Hash.murmur3().update(buffer).digest());
+    assertEquals("position", 0, buffer.position());
+  }
+}
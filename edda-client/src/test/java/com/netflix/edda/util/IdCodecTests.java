@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class IdCodecTests {
+  @Test
+  public void shortIds() {
+    IdCodec codec = IdCodec.of("sg");
+    long code = codec.encode("sg-1234abcd");
+    assertEquals(0x1234abcdL, code);
+    assertEquals("sg-1234abcd", codec.decode(code));
+    assertEquals("sg-00000000", codec.decode(codec.encode("sg-00000000")));
+  }
+
+  @Test
+  public void longIds() {
+    IdCodec codec = IdCodec.of("i");
+    long code = codec.encode("i-0123456789abcdef0");
+    assertEquals(0x123456789abcdef0L, code);
+    assertEquals("i-0123456789abcdef0", codec.decode(code));
+    assertEquals("i-0fedcba9876543210", codec.decode(codec.encode("i-0fedcba9876543210")));
+  }
+
+  @Test
+  public void notEncoded() {
+    IdCodec codec = IdCodec.of("i");
+    assertEquals("other prefix", IdCodec.NONE, codec.encode("sg-1234abcd"));
+    assertEquals("upper case", IdCodec.NONE, codec.encode("i-1234ABCD"));
+    assertEquals("length", IdCodec.NONE, codec.encode("i-1234abc"));
+    assertEquals("leading digit", IdCodec.NONE, codec.encode("i-1123456789abcdef0"));
+    assertEquals("short range", IdCodec.NONE, codec.encode("i-0000000001234abcd"));
+    assertEquals("none", IdCodec.NONE, codec.encode("i-0ffffffffffffffff"));
+    assertEquals("null", IdCodec.NONE, codec.encode(null));
+  }
+
+  @Test
+  public void forId() {
+    assertEquals("subnet-", IdCodec.forId("subnet-1234abcd").prefix());
+    assertNull(IdCodec.forId("my-app-v001"));
+    assertNull(IdCodec.forId("foo"));
+  }
+
+  @Test
+  public void index() {
+    IdIndex index = new IdIndex(2);
+    index.put("i-0123456789abcdef0", 0);
+    index.put("i-1234abcd", 1);
+    index.put("sg-1234abcd", 2);
+    index.put("my-app", 3);
+    for (int i = 0; i < 100; ++i)
+      index.put(String.format("i-0%016x", 0x100000000L + i), 10 + i);
+    assertEquals(104, index.size());
+    assertEquals(0, index.get("i-0123456789abcdef0"));
+    assertEquals(1, index.get("i-1234abcd"));
+    assertEquals(2, index.get("sg-1234abcd"));
+    assertEquals(3, index.get("my-app"));
+    assertEquals(109, index.get("i-00000000100000063"));
+    assertEquals(-1, index.get("i-abcd1234"));
+    assertEquals(-1, index.get("other"));
+    assertEquals(-1, index.get(null));
+  }
+
+  @Test
+  public void set() {
+    IdSet set = IdSet.of(Arrays.asList("vpc-1234abcd", "default", "vpc-1234abcd", "vpc-0123456789abcdef0"));
+    assertEquals(3, set.size());
+    assertTrue(set.contains("vpc-1234abcd"));
+    assertTrue(set.contains("default"));
+    assertTrue(set.contains("vpc-0123456789abcdef0"));
+    assertFalse(set.contains("vpc-abcd1234"));
+    assertFalse(set.add("default"));
+    assertEquals(Arrays.asList("vpc-1234abcd", "vpc-0123456789abcdef0", "default"), set.toList());
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class LongIntMapTests {
+  @Test
+  public void randomOperations() {
+    Random r = new Random(42);
+    LongIntMap map = new LongIntMap(4, -1);
+    Map<Long, Integer> expected = new HashMap<Long, Integer>();
+    for (int i = 0; i < 10000; ++i) {
+      long k = (r.nextInt(4) == 0) ? r.nextInt(100) : r.nextLong();
+      int v = r.nextInt(1000);
+      Integer prev = expected.put(k, v);
+      assertEquals((prev == null) ? -1 : prev.intValue(), map.put(k, v));
+    }
+    assertEquals(expected.size(), map.size());
+    for (Map.Entry<Long, Integer> e : expected.entrySet())
+      assertEquals(e.getValue().intValue(), map.get(e.getKey()));
+    assertEquals(-1, map.get(Long.MIN_VALUE));
+  }
+
+  @Test
+  public void zeroKey() {
+    LongIntMap map = new LongIntMap(4, -1);
+    assertFalse(map.containsKey(0L));
+    map.put(0L, 5);
+    assertTrue(map.containsKey(0L));
+    assertEquals(5, map.get(0L));
+  }
+
+  @Test
+  public void setPositions() {
+    LongSet set = new LongSet(2);
+    for (long v = 0; v < 1000; ++v)
+      assertEquals((int) v, set.add(v * 31));
+    assertEquals(7, set.add(7 * 31));
+    assertEquals(1000, set.size());
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i * 31L, set.get(i));
+      assertEquals(i, set.indexOf(i * 31L));
+    }
+    assertFalse(set.contains(1L));
+    assertEquals(-1, set.indexOf(1L));
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class PersistentMapTests {
+  /** Key with a poor hash code to force collisions. */
+  private static final class Key {
+    final int id;
+
+    Key(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id % 7;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && ((Key) obj).id == id;
+    }
+  }
+
+  private <K, V> void check(Map<K, V> expected, PersistentMap<K, V> actual) {
+    assertEquals("size", expected.size(), actual.size());
+    for (Map.Entry<K, V> e : expected.entrySet())
+      assertEquals("value", e.getValue(), actual.get(e.getKey()));
+    Map<K, V> copy = new HashMap<K, V>();
+    actual.forEach(copy::put);
+    assertEquals("entries", expected, copy);
+  }
+
+  @Test
+  public void randomOperations() {
+    Random r = new Random(42);
+    Map<String, Integer> expected = new HashMap<String, Integer>();
+    PersistentMap<String, Integer> actual = PersistentMap.empty();
+    for (int i = 0; i < 20000; ++i) {
+      String k = "i-" + Integer.toHexString(r.nextInt(5000));
+      if (r.nextInt(3) == 0) {
+        expected.remove(k);
+        actual = actual.minus(k);
+      }
+      else {
+        expected.put(k, i);
+        actual = actual.plus(k, i);
+      }
+    }
+    check(expected, actual);
+  }
+
+  @Test
+  public void collisions() {
+    Map<Key, Integer> expected = new HashMap<Key, Integer>();
+    PersistentMap<Key, Integer> actual = PersistentMap.empty();
+    for (int i = 0; i < 100; ++i) {
+      expected.put(new Key(i), i);
+      actual = actual.plus(new Key(i), i);
+    }
+    for (int i = 0; i < 100; i += 3) {
+      expected.remove(new Key(i));
+      actual = actual.minus(new Key(i));
+    }
+    check(expected, actual);
+  }
+
+  @Test
+  public void olderVersionsUnchanged() {
+    PersistentMap<String, Integer> v1 = PersistentMap.<String, Integer>empty().plus("a", 1).plus("b", 2);
+    PersistentMap<String, Integer> v2 = v1.plus("a", 3).minus("b");
+    assertEquals(Integer.valueOf(1), v1.get("a"));
+    assertEquals(Integer.valueOf(2), v1.get("b"));
+    assertEquals(Integer.valueOf(3), v2.get("a"));
+    assertNull(v2.get("b"));
+    assertTrue("no-op minus", v2 == v2.minus("missing"));
+  }
+
+  @Test
+  public void diff() {
+    PersistentMap<String, Integer> v1 = PersistentMap.empty();
+    for (int i = 0; i < 1000; ++i)
+      v1 = v1.plus("k" + i, i);
+    PersistentMap<String, Integer> v2 = v1.plus("k1", -1).minus("k2").plus("new", 5);
+
+    final Map<String, String> changes = new HashMap<String, String>();
+    v1.diff(v2, new PersistentMap.Differ<String, Integer>() {
+      @Override public void added(String k, Integer v) { changes.put(k, "added"); }
+      @Override public void removed(String k, Integer v) { changes.put(k, "removed"); }
+      @Override public void changed(String k, Integer o, Integer n) { changes.put(k, "changed"); }
+    });
+    assertEquals(3, changes.size());
+    assertEquals("changed", changes.get("k1"));
+    assertEquals("removed", changes.get("k2"));
+    assertEquals("added", changes.get("new"));
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014-2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.edda.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class StringInternerTests {
+  @Test
+  public void canonicalInstance() {
+    StringInterner interner = new StringInterner(16);
+    String a = new String("us-east-1a");
+    String b = new String("us-east-1a");
+    assertNotSame(a, b);
+    assertSame(a, interner.intern(a));
+    assertSame(a, interner.intern(b));
+    assertEquals(1, interner.size());
+  }
+
+  @Test
+  public void nullValue() {
+    StringInterner interner = new StringInterner(16);
+    assertNull(interner.intern(null));
+    assertEquals(0, interner.size());
+  }
+
+  @Test
+  public void clearedWhenFull() {
+    StringInterner interner = new StringInterner(2);
+    String a = new String("a");
+    interner.intern(a);
+    interner.intern("b");
+    assertEquals(2, interner.size());
+
+    // Adding a new value to a full table clears it first
+    interner.intern("c");
+    assertEquals(1, interner.size());
+    String a2 = new String("a");
+    assertSame(a2, interner.intern(a2));
+    assertNotSame(a, interner.intern(new String("a")));
+  }
+}
@@ -41,7 +41,9 @@ object MainBuild extends Build {
       Dependencies.awsObjectMapper,
       Dependencies.iepConfig,
       Dependencies.iepNflxEnv,
-      Dependencies.iepRxHttp
+      Dependencies.iepRxHttp,
+      Dependencies.lz4,
+      Dependencies.spectatorApi
     ))
 
   lazy val `edda-client-module` = project
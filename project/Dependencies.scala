@@ -32,6 +32,7 @@ object Dependencies {
   val junit           = "junit" % "junit" % "4.10"
   val junitInterface  = "com.novocode" % "junit-interface" % "0.11"
   val jzlib           = "com.jcraft" % "jzlib" % "1.1.3"
+  val lz4             = "net.jpountz.lz4" % "lz4" % "1.3.0"
   val nettyHandler    = "io.netty" % "netty-handler" % Versions.netty
   val rxAwsSdk        = "com.netflix.rx-aws-java-sdk" % "rx-aws-java-sdk" % Versions.rxAwsSdk
   val rxjava          = "io.reactivex" % "rxjava" % Versions.rxjava